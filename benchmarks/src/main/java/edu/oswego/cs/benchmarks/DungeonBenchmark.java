@@ -0,0 +1,69 @@
+package edu.oswego.cs.benchmarks;
+
+import edu.oswego.cs.dungeon.Dungeon;
+import edu.oswego.cs.dungeon.Entity;
+import edu.oswego.cs.dungeon.Floor;
+import edu.oswego.cs.dungeon.FloorGenerator;
+import edu.oswego.cs.dungeon.FloorPrinter;
+import edu.oswego.cs.dungeon.SpawnWheel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Floor generation, the spawn wheel it spins for every room and printing a floor. Every member runs these when a floor is
+ * made, so they sit right on the state machine's path.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DungeonBenchmark {
+
+    private static final long SEED = 1003;
+
+    // the number of rooms and the spawn odds both depend on the floor
+    @Param({"0", "4", "16"})
+    public int floorNum;
+
+    private Dungeon dungeon;
+    private SpawnWheel<Entity> entityWheel;
+    private FloorPrinter floorPrinter;
+
+    @Setup
+    public void setup() {
+        dungeon = new Dungeon(SEED);
+        entityWheel = new SpawnWheel<>(Entity.class, floorNum + 1, SEED);
+        Floor floor = new FloorGenerator(new Random(SEED), dungeon).generate(floorNum);
+        floorPrinter = new FloorPrinter(floor);
+    }
+
+    @Benchmark
+    public Floor generateFloor() {
+        // a fresh generator for every floor like Dungeon.makeFloor, always from the same seed so every call builds the same floor
+        return new FloorGenerator(new Random(SEED), dungeon).generate(floorNum);
+    }
+
+    @Benchmark
+    public Entity spinWheelAndMake() {
+        return entityWheel.spinWheelAndMake();
+    }
+
+    @Benchmark
+    public String floorDebugString() {
+        return floorPrinter.getDebugString();
+    }
+}
@@ -0,0 +1,81 @@
+package edu.oswego.cs.benchmarks;
+
+import edu.oswego.cs.Security.Encryption;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Secret key encryption and decryption of a single datagram, through both the byte[] and the ByteBuffer api.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EncryptionBenchmark {
+
+    // a heartbeat sized message and one close to the largest datagram raft sends
+    @Param({"64", "1400"})
+    public int messageSize;
+
+    private Encryption encryption;
+    private byte[] message;
+    private byte[] encryptedMessage;
+    private ByteBuffer messageBuffer;
+    private ByteBuffer encryptedBuffer;
+    private ByteBuffer encryptedSource;
+    private ByteBuffer decryptedBuffer;
+
+    @Setup
+    public void setup() {
+        encryption = new Encryption();
+        encryption.generateSecretKey();
+        message = new byte[messageSize];
+        new SecureRandom().nextBytes(message);
+        encryptedMessage = encryption.encryptMessageWithSecretKey(message);
+        messageBuffer = ByteBuffer.wrap(message);
+        encryptedBuffer = ByteBuffer.allocate(encryption.getEncryptedSize(messageSize));
+        encryptedSource = ByteBuffer.wrap(encryptedMessage);
+        decryptedBuffer = ByteBuffer.allocate(encryptedMessage.length);
+    }
+
+    @Benchmark
+    public byte[] encryptBytes() {
+        return encryption.encryptMessageWithSecretKey(message);
+    }
+
+    @Benchmark
+    public int encryptBuffer() {
+        messageBuffer.rewind();
+        encryptedBuffer.clear();
+        encryption.encryptMessageWithSecretKey(messageBuffer, encryptedBuffer);
+        return encryptedBuffer.position();
+    }
+
+    @Benchmark
+    public byte[] decryptBytes() {
+        return encryption.decryptMessageWithSecretKey(encryptedMessage);
+    }
+
+    @Benchmark
+    public int decryptBuffer() {
+        encryptedSource.rewind();
+        decryptedBuffer.clear();
+        encryption.decryptMessageWithSecretKey(encryptedSource, decryptedBuffer);
+        return decryptedBuffer.position();
+    }
+}
@@ -0,0 +1,65 @@
+package edu.oswego.cs.benchmarks;
+
+import edu.oswego.cs.Packets.Opcode;
+import edu.oswego.cs.client.Command;
+import edu.oswego.cs.game.EntryOpcode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The lookups done for every packet received and every command executed.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+
+    @State(Scope.Thread)
+    public static class OpcodeState {
+        // the first opcode, the last one and one that doesn't exist
+        @Param({"1", "9", "42"})
+        public short code;
+    }
+
+    @State(Scope.Thread)
+    public static class CommandState {
+        // the first command, the last one and text that isn't a command
+        @Param({".exit", ".descend", "hello"})
+        public String command;
+    }
+
+    @State(Scope.Thread)
+    public static class EntryOpcodeState {
+        // the first opcode, the last one and one that doesn't exist
+        @Param({"1", "19", "42"})
+        public byte code;
+    }
+
+    @Benchmark
+    public Optional<Opcode> opcodeFromCode(OpcodeState state) {
+        return Opcode.fromCode(state.code);
+    }
+
+    @Benchmark
+    public Optional<Command> commandParse(CommandState state) {
+        return Command.parse(state.command);
+    }
+
+    @Benchmark
+    public EntryOpcode entryOpcodeFromCode(EntryOpcodeState state) {
+        return EntryOpcode.fromCode(state.code);
+    }
+}
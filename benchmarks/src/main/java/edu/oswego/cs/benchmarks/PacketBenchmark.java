@@ -0,0 +1,129 @@
+package edu.oswego.cs.benchmarks;
+
+import edu.oswego.cs.Packets.AckPacket;
+import edu.oswego.cs.Packets.CandidatePacket;
+import edu.oswego.cs.Packets.CommitCommandPacket;
+import edu.oswego.cs.Packets.ConfirmCommandPacket;
+import edu.oswego.cs.Packets.ConnectionClientHelloPacket;
+import edu.oswego.cs.Packets.ConnectionRedirectPacket;
+import edu.oswego.cs.Packets.ConnectionServerHelloPacket;
+import edu.oswego.cs.Packets.HeartbeatPacket;
+import edu.oswego.cs.Packets.LogCommandBatchPacket;
+import edu.oswego.cs.Packets.MemberRef;
+import edu.oswego.cs.Packets.NackCommandPacket;
+import edu.oswego.cs.Packets.Packet;
+import edu.oswego.cs.Packets.ReqCommandPacket;
+import edu.oswego.cs.Packets.SnapshotAckPacket;
+import edu.oswego.cs.Packets.SnapshotPacket;
+import edu.oswego.cs.Packets.VotePacket;
+import edu.oswego.cs.Security.Encryption;
+import edu.oswego.cs.game.Action;
+import edu.oswego.cs.game.LogEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes and decodes one of every packet raft sends, with payloads about the size the game produces.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PacketBenchmark {
+
+    private static final String USERNAME = "benchmark-member";
+    private static final MemberRef SENDER = MemberRef.of(3, USERNAME);
+
+    @Param({"Ack", "Candidate", "Vote", "Heartbeat", "ReqCommand", "ConfirmCommand", "CommitCommand",
+            "NackCommand", "LogCommandBatch", "Snapshot", "SnapshotAck", "ClientHello", "ServerHello", "Redirect"})
+    public String packetType;
+
+    private Packet packet;
+    private ByteBuffer encodedPacket;
+    private int encodedLength;
+
+    @Setup
+    public void setup() {
+        packet = createPacket(packetType);
+        byte[] packetBytes = packet.packetToBytes();
+        encodedLength = packetBytes.length;
+        encodedPacket = ByteBuffer.wrap(packetBytes);
+    }
+
+    @Benchmark
+    public byte[] packetToBytes() {
+        return packet.packetToBytes();
+    }
+
+    @Benchmark
+    public Packet bytesToPacket() throws ParseException {
+        // bytesToPacket flips the buffer, so it is handed over as if the datagram had just been received into it
+        encodedPacket.clear();
+        encodedPacket.position(encodedLength);
+        return Packet.bytesToPacket(encodedPacket);
+    }
+
+    private static Packet createPacket(String packetType) {
+        switch (packetType) {
+            case "Ack":
+                return new AckPacket(SENDER);
+            case "Candidate":
+                return new CandidatePacket(SENDER, 12, 4096);
+            case "Vote":
+                return new VotePacket(SENDER, 12);
+            case "Heartbeat":
+                return new HeartbeatPacket(SENDER, 4090, 12, 4096);
+            case "ReqCommand":
+                return new ReqCommandPacket(SENDER, LogEntry.fromCommand(".chat hello everyone"), 0);
+            case "ConfirmCommand":
+                return new ConfirmCommandPacket(SENDER, 4096);
+            case "CommitCommand":
+                return new CommitCommandPacket(SENDER, 4096);
+            case "NackCommand":
+                return new NackCommandPacket(SENDER, 4000, 4096);
+            case "LogCommandBatch":
+                List<Action> actions = new ArrayList<>();
+                for (int i = 0; i < 32; i++) {
+                    actions.add(new Action(MemberRef.of(i % 4, null), LogEntry.fromCommand(".move n")));
+                }
+                return new LogCommandBatchPacket(SENDER, 4096, 12, 4090, actions);
+            case "Snapshot":
+                return new SnapshotPacket(SENDER, 4096, 65536, 8192, new byte[1024]);
+            case "SnapshotAck":
+                return new SnapshotAckPacket(SENDER, 4096, 8192);
+            case "ClientHello":
+                Encryption clientEncryption = new Encryption();
+                clientEncryption.generateKeys();
+                return new ConnectionClientHelloPacket(USERNAME, clientEncryption.getPublicKey());
+            case "ServerHello":
+                Encryption serverEncryption = new Encryption();
+                serverEncryption.generateKeys();
+                serverEncryption.generateSecretKey();
+                return new ConnectionServerHelloPacket(USERNAME, 0, serverEncryption.encryptSecretKeyWithPublicKey(serverEncryption.getPublicKey()));
+            case "Redirect":
+                Encryption redirectEncryption = new Encryption();
+                redirectEncryption.generateKeys();
+                return new ConnectionRedirectPacket(new InetSocketAddress("127.0.0.1", 26910), USERNAME, redirectEncryption.getPublicKey());
+            default:
+                throw new IllegalArgumentException("Unknown packet type " + packetType);
+        }
+    }
+}
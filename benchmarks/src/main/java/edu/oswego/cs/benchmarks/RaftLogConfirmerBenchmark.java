@@ -0,0 +1,53 @@
+package edu.oswego.cs.benchmarks;
+
+import edu.oswego.cs.raft.RaftLogConfirmer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The majority computation the leader runs every time a follower confirms entries.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RaftLogConfirmerBenchmark {
+
+    @Param({"3", "9", "65"})
+    public int memberCount;
+
+    private int[] confirmedIndices;
+    private int[] workingIndices;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(memberCount);
+        confirmedIndices = new int[memberCount];
+        for (int i = 0; i < memberCount; i++) {
+            // followers trail the leader by up to a heartbeat's worth of entries
+            confirmedIndices[i] = 100_000 - random.nextInt(64);
+        }
+        workingIndices = new int[memberCount];
+    }
+
+    @Benchmark
+    public int majorityConfirmedIndex() {
+        // the selection reorders its input, so every call starts from the same order like the confirmer does
+        System.arraycopy(confirmedIndices, 0, workingIndices, 0, memberCount);
+        return RaftLogConfirmer.getMajorityConfirmedIndex(workingIndices, memberCount, memberCount - 1);
+    }
+}
@@ -1,5 +1,7 @@
 package edu.oswego.cs;
 
+import edu.oswego.cs.game.ConsoleGameEventSink;
+import edu.oswego.cs.game.NullGameEventSink;
 import edu.oswego.cs.gui.MainFrame;
 import edu.oswego.cs.raft.Raft;
 
@@ -20,7 +22,22 @@ public class App {
         }
 
         String clientUsername = map.get("username");
-        Raft raft = new Raft(localPort, clientUsername);
+        String sink = map.getOrDefault("sink", "gui");
+        Raft raft;
+        if (sink.equalsIgnoreCase("gui")) {
+            MainFrame mainFrame = new MainFrame();
+            raft = new Raft(localPort, clientUsername, mainFrame);
+            mainFrame.setRaft(raft);
+        } else if (sink.equalsIgnoreCase("console")) {
+            System.setProperty("java.awt.headless", "true");
+            raft = new Raft(localPort, clientUsername, new ConsoleGameEventSink(System.out));
+        } else if (sink.equalsIgnoreCase("none")) {
+            System.setProperty("java.awt.headless", "true");
+            raft = new Raft(localPort, clientUsername, NullGameEventSink.INSTANCE);
+        } else {
+            System.err.println("Unknown sink '" + sink + "', expected one of 'gui', 'console' or 'none'.");
+            return;
+        }
 
         if (map.get("action").equalsIgnoreCase("host")) {
             raft.startRaftGroup();
@@ -1,5 +1,6 @@
 package edu.oswego.cs;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Scanner;
@@ -8,6 +9,7 @@ public class Args {
 
   public static HashMap<String, String> parse(String[] array) {
     HashMap<String, String> args = new HashMap<>();
+    array = parseOptions(array, args);
     String[] input = Arrays.copyOf(array, 5);
     Scanner sc = new Scanner(System.in);
 
@@ -52,4 +54,25 @@ public class Args {
     sc.close();
     return args;
   }
+
+  /**
+   * Moves every --name or --name=value option into the map, --headless is short for --sink=console.
+   * @return The remaining positional arguments.
+   */
+  public static String[] parseOptions(String[] array, HashMap<String, String> args) {
+    ArrayList<String> positional = new ArrayList<>();
+    for (String arg : array) {
+      if (!arg.startsWith("--")) {
+        positional.add(arg);
+        continue;
+      }
+      String[] option = arg.substring(2).split("=", 2);
+      if (option[0].equalsIgnoreCase("headless")) {
+        args.put("sink", option.length > 1 ? option[1] : "console");
+      } else {
+        args.put(option[0], option.length > 1 ? option[1] : "true");
+      }
+    }
+    return positional.toArray(new String[0]);
+  }
 }
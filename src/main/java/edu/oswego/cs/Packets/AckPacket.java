@@ -1,30 +1,23 @@
 package edu.oswego.cs.Packets;
 
 import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
 
 public class AckPacket extends Packet{
 
-    public AckPacket(String username) {
-        super(username, Opcode.Ack);
+    public AckPacket(MemberRef sender) {
+        super(sender, Opcode.Ack);
     }
 
     @Override
     public byte[] packetToBytes() {
-        byte[] usernameBytes = this.username.getBytes(StandardCharsets.UTF_8);
-        int byteCount = Short.BYTES + usernameBytes.length;
-        byte[] ackBytes = new byte[byteCount];
+        int byteCount = Short.BYTES + sender.encodedSize();
         ByteBuffer buffer = ByteBuffer.allocate(byteCount);
         buffer.putShort(Opcode.Ack.code);
-        buffer.put(usernameBytes);
-        buffer.rewind();
-        buffer.get(ackBytes);
-        return ackBytes;
+        sender.write(buffer);
+        return buffer.array();
     }
 
     public static AckPacket bytesToPacket(ByteBuffer buffer) {
-        byte[] usernameBytes = new byte[buffer.limit() - buffer.position()];
-        buffer.get(usernameBytes);
-        return new AckPacket(new String(usernameBytes, StandardCharsets.UTF_8));
+        return new AckPacket(MemberRef.read(buffer));
     }
 }
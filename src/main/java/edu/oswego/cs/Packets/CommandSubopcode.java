@@ -1,13 +1,23 @@
 package edu.oswego.cs.Packets;
 
-import java.util.Arrays;
 import java.util.Optional;
 
 public enum CommandSubopcode {
     RequestCommand(1),
-    LogCommand(2),
+    // 2 was a single log entry, replaced by LogCommandBatch and left unused so it can't be misread
     ConfirmCommand(3),
-    CommitCommand(4);
+    CommitCommand(4),
+    LogCommandBatch(5),
+    NackCommand(6);
+
+    public static final int TABLE_SIZE = 16;
+    private static final CommandSubopcode[] BY_CODE = new CommandSubopcode[TABLE_SIZE];
+
+    static {
+        for (CommandSubopcode value : values()) {
+            BY_CODE[value.code] = value;
+        }
+    }
 
     public final short code;
 
@@ -21,6 +31,6 @@ public enum CommandSubopcode {
      * @return The associated CommandSubopcode.
      */
     public static Optional<CommandSubopcode> fromCode(short i) {
-        return Arrays.stream(values()).filter(x -> x.code == i).findFirst();
+        return Optional.ofNullable(i >= 0 && i < TABLE_SIZE ? BY_CODE[i] : null);
     }
 }
@@ -1,37 +1,40 @@
 package edu.oswego.cs.Packets;
 
 import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
 
 public class ConfirmCommandPacket extends CommandPacket {
 
-    public final int actionNum;
+    // not final so the packet can be decoded into again, see PacketCodecs
+    public int actionNum;
 
-    public ConfirmCommandPacket(String username, int actionNum) {
-        super(CommandSubopcode.ConfirmCommand, username);
+    public ConfirmCommandPacket(MemberRef sender, int actionNum) {
+        super(CommandSubopcode.ConfirmCommand, sender);
         this.actionNum = actionNum;
     }
 
+    ConfirmCommandPacket() {
+        super(CommandSubopcode.ConfirmCommand);
+    }
+
     public byte[] packetToBytes() {
-        byte[] usernameBytes = this.username.getBytes(StandardCharsets.UTF_8);
         int numOpCodes = 2;
-        int byteCount = numOpCodes * Short.BYTES + Integer.BYTES + usernameBytes.length;
+        int byteCount = numOpCodes * Short.BYTES + sender.encodedSize() + Integer.BYTES;
         ByteBuffer buffer = ByteBuffer.allocate(byteCount);
         buffer.putShort(Opcode.Command.code);
         buffer.putShort(CommandSubopcode.ConfirmCommand.code);
+        sender.write(buffer);
         buffer.putInt(actionNum);
-        buffer.put(usernameBytes);
-        buffer.rewind();
-        byte[] packetBytes = new byte[byteCount];
-        buffer.get(packetBytes);
-        return packetBytes;
+        return buffer.array();
     }
 
     public static ConfirmCommandPacket bytesToPacket(ByteBuffer buffer) {
-        int actionNum = buffer.getInt();
-        byte[] usernameBytes = new byte[buffer.limit() - buffer.position()];
-        buffer.get(usernameBytes);
-        String username = new String(usernameBytes, StandardCharsets.UTF_8);
-        return new ConfirmCommandPacket(username, actionNum);
+        ConfirmCommandPacket packet = new ConfirmCommandPacket();
+        packet.read(buffer);
+        return packet;
+    }
+
+    void read(ByteBuffer buffer) {
+        readSender(buffer);
+        actionNum = buffer.getInt();
     }
 }
@@ -1,10 +1,7 @@
 package edu.oswego.cs.Packets;
 
 import java.nio.ByteBuffer;
-import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.text.ParseException;
-import java.util.Optional;
 
 public class ConnectPacket extends Packet{
     public final ConnectSubopcode subopcode;
@@ -37,50 +34,15 @@ public class ConnectPacket extends Packet{
     }
 
     /**
-     * Return the given bytes in packet structure.
+     * Return the given bytes in packet structure, for the connect packets that are only a username and data.
+     * @param subopcode The subopcode that was read before the username.
      * @param buffer
      * @return The ConnectPacket
-     * @throws ParseException
      */
-    public static ConnectPacket bytesToPacket(ByteBuffer buffer) throws ParseException {
-        short subopcodeNumber = buffer.getShort();
-        Optional<ConnectSubopcode> optionSubopcode = ConnectSubopcode.fromCode(subopcodeNumber);
-
-        //Make sure something's actually there
-        if(!optionSubopcode.isPresent()) {
-            return null;
-        }
-        //Now get the ACTUAL opcode
-        ConnectSubopcode subOpcode = optionSubopcode.get();
-
-        switch (subOpcode) {
-            case Redirect:
-                return ConnectionRedirectPacket.bytesToPacket(buffer);
-            case ClientHello:
-                return ConnectionClientHelloPacket.bytesToPacket(buffer);
-            case ServerHello:
-                return ConnectionServerHelloPacket.bytesToPacket(buffer);
-            default:
-                // get original limit
-                int bufferLimit = buffer.limit();
-
-                buffer.mark();
-                while (buffer.hasRemaining() && buffer.get() != 0x00) ;
-                buffer.limit(buffer.position() - 1);
-                buffer.reset();
-                byte[] usernameBytes = new byte[buffer.limit() - buffer.position()];
-                buffer.get(usernameBytes);
-                String username = new String(usernameBytes);
-
-                // allow the buffer to continue past the string
-                buffer.limit(bufferLimit);
-                // get the null character
-                buffer.get();
-
-                byte[] data = new byte[buffer.remaining()];
-                buffer.get(data);
-
-                return new ConnectPacket(subOpcode, username, data);
-        }
+    public static ConnectPacket bytesToPacket(ConnectSubopcode subopcode, ByteBuffer buffer) {
+        String username = readNullTerminatedString(buffer);
+        byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        return new ConnectPacket(subopcode, username, data);
     }
 }
@@ -1,6 +1,5 @@
 package edu.oswego.cs.Packets;
 
-import java.util.Arrays;
 import java.util.Optional;
 
 public enum ConnectSubopcode {
@@ -10,6 +9,15 @@ public enum ConnectSubopcode {
     Log(4),
     Redirect(5);
 
+    public static final int TABLE_SIZE = 16;
+    private static final ConnectSubopcode[] BY_CODE = new ConnectSubopcode[TABLE_SIZE];
+
+    static {
+        for (ConnectSubopcode value : values()) {
+            BY_CODE[value.code] = value;
+        }
+    }
+
     public final short code;
 
     ConnectSubopcode(int i) {
@@ -22,6 +30,6 @@ public enum ConnectSubopcode {
      * @return The associated ConnectSubopcode.
      */
     public static Optional<ConnectSubopcode> fromCode(short i) {
-        return Arrays.stream(values()).filter(x -> x.code == i).findFirst();
+        return Optional.ofNullable(i >= 0 && i < TABLE_SIZE ? BY_CODE[i] : null);
     }
 }
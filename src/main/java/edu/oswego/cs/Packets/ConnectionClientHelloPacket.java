@@ -38,21 +38,7 @@ public class ConnectionClientHelloPacket extends ConnectPacket {
     }
 
     public static ConnectionClientHelloPacket bytesToPacket(ByteBuffer buffer) {
-        // get original limit
-        int bufferLimit = buffer.limit();
-
-        buffer.mark();
-        while (buffer.hasRemaining() && buffer.get() != 0x00);
-        buffer.limit(buffer.position() - 1);
-        buffer.reset();
-        byte[] usernameBytes = new byte[buffer.limit() - buffer.position()];
-        buffer.get(usernameBytes);
-        String username = new String(usernameBytes);
-
-        // allow the buffer to continue past the string
-        buffer.limit(bufferLimit);
-        // get the null character
-        buffer.get();
+        String username = readNullTerminatedString(buffer);
         byte[] keyBytes = new byte[buffer.limit() - buffer.position()];
         buffer.get(keyBytes);
         PublicKey key = null;
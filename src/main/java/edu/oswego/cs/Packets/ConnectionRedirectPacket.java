@@ -43,37 +43,12 @@ public class ConnectionRedirectPacket extends ConnectPacket {
     }
 
     public static ConnectionRedirectPacket bytesToPacket(ByteBuffer buffer) {
-        // get original limit
-        int bufferLimit = buffer.limit();
+        String username = readNullTerminatedString(buffer);
 
-        buffer.mark();
-        while (buffer.hasRemaining() && buffer.get() != 0x00);
-        buffer.limit(buffer.position() - 1);
-        buffer.reset();
-        byte[] usernameBytes = new byte[buffer.limit() - buffer.position()];
-        buffer.get(usernameBytes);
-        String username = new String(usernameBytes);
-
-        // allow the buffer to continue past the string
-        buffer.limit(bufferLimit);
-        // get the null character
-        buffer.get();
-
-        buffer.mark();
-        while (buffer.hasRemaining() && buffer.get() != 0x00);
-        buffer.limit(buffer.position() - 1);
-        buffer.reset();
-        byte[] addrBytes = new byte[buffer.limit() - buffer.position()];
-        buffer.get(addrBytes);
-        String addr = new String(addrBytes);
+        String addr = readNullTerminatedString(buffer);
         String[] addrSplit = addr.split(":");
         if (addrSplit.length != 2) return null;
 
-        // allow the buffer to continue past the string
-        buffer.limit(bufferLimit);
-        // get the null character
-        buffer.get();
-
         byte[] keyBytes = new byte[buffer.remaining()];
         buffer.get(keyBytes);
         PublicKey key = null;
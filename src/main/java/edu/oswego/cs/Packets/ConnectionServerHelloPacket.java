@@ -13,9 +13,12 @@ import java.security.spec.X509EncodedKeySpec;
 public class ConnectionServerHelloPacket extends ConnectPacket {
 
     public final byte[] encryptedSecretKey;
+    // the leader's member id, so the joining member can read the leader's packets before it has the log
+    public final int memberId;
 
-    public ConnectionServerHelloPacket(String username, byte[] encryptedSecretKey) {
+    public ConnectionServerHelloPacket(String username, int memberId, byte[] encryptedSecretKey) {
         super(ConnectSubopcode.ServerHello, username, new byte[0]);
+        this.memberId = memberId;
         this.encryptedSecretKey = encryptedSecretKey;
     }
 
@@ -23,13 +26,14 @@ public class ConnectionServerHelloPacket extends ConnectPacket {
     public byte[] packetToBytes() {
         byte[] usernameBytes = this.username.getBytes(StandardCharsets.UTF_8);
         int stringPaddingSize = 1;
-        int bufferLength  = 2 * (Short.BYTES) + data.length + usernameBytes.length + stringPaddingSize + encryptedSecretKey.length;
+        int bufferLength  = 2 * (Short.BYTES) + data.length + usernameBytes.length + stringPaddingSize + Integer.BYTES + encryptedSecretKey.length;
 
         ByteBuffer buffer = ByteBuffer.allocate(bufferLength);
         buffer.putShort(this.opcode.code);
         buffer.putShort(this.subopcode.code);
         buffer.put(usernameBytes);
         buffer.put((byte) 0x00);
+        buffer.putInt(memberId);
         buffer.put(encryptedSecretKey);
 
         buffer.flip();
@@ -37,25 +41,12 @@ public class ConnectionServerHelloPacket extends ConnectPacket {
     }
 
     public static ConnectionServerHelloPacket bytesToPacket(ByteBuffer buffer) {
-        // get original limit
-        int bufferLimit = buffer.limit();
-
-        buffer.mark();
-        while (buffer.hasRemaining() && buffer.get() != 0x00);
-        buffer.limit(buffer.position() - 1);
-        buffer.reset();
-        byte[] usernameBytes = new byte[buffer.limit() - buffer.position()];
-        buffer.get(usernameBytes);
-        String username = new String(usernameBytes);
-
-        // allow the buffer to continue past the string
-        buffer.limit(bufferLimit);
-        // get the null character
-        buffer.get();
+        String username = readNullTerminatedString(buffer);
 
+        int memberId = buffer.getInt();
         byte[] keyBytes = new byte[buffer.limit() - buffer.position()];
         buffer.get(keyBytes);
 
-        return new ConnectionServerHelloPacket(username, keyBytes);
+        return new ConnectionServerHelloPacket(username, memberId, keyBytes);
     }
 }
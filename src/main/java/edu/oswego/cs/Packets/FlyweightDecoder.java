@@ -0,0 +1,33 @@
+package edu.oswego.cs.Packets;
+
+import java.nio.ByteBuffer;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Decodes every packet of a type into the same packet, one per thread, instead of allocating a packet for each datagram.
+ * A decoded packet is only valid until the next packet of the same type is decoded on that thread, so it must be handled
+ * before then and never stored. Fields that outlive the packet, like the entry of a log command, are still allocated.
+ * @param <P> The type of packet read.
+ */
+final class FlyweightDecoder<P extends Packet> implements PacketDecoder<P> {
+
+    private final ThreadLocal<P> views;
+    private final BiConsumer<P, ByteBuffer> reader;
+
+    /**
+     * @param factory Creates the empty packet a thread decodes into.
+     * @param reader Overwrites the fields of a packet with the ones in the buffer.
+     */
+    FlyweightDecoder(Supplier<P> factory, BiConsumer<P, ByteBuffer> reader) {
+        this.views = ThreadLocal.withInitial(factory);
+        this.reader = reader;
+    }
+
+    @Override
+    public P decode(ByteBuffer buffer) {
+        P view = views.get();
+        reader.accept(view, buffer);
+        return view;
+    }
+}
@@ -1,38 +1,47 @@
 package edu.oswego.cs.Packets;
 
 import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
 
 public class HeartbeatPacket extends Packet {
 
-    public final int lastConfirmed;
-    public final int termCount;
+    // not final so the packet can be decoded into again, see PacketCodecs
+    public int lastConfirmed;
+    public int termCount;
+    // the last index in the leader's log, lets followers notice entries they never received
+    public int lastLogIndex;
 
-    public HeartbeatPacket(String username, int lastConfirmed, int termCount) {
-        super(username, Opcode.Heartbeat);
+    public HeartbeatPacket(MemberRef sender, int lastConfirmed, int termCount, int lastLogIndex) {
+        super(sender, Opcode.Heartbeat);
         this.lastConfirmed = lastConfirmed;
         this.termCount = termCount;
+        this.lastLogIndex = lastLogIndex;
+    }
+
+    HeartbeatPacket() {
+        super(Opcode.Heartbeat);
     }
 
     public byte[] packetToBytes() {
-        byte[] usernameBytes = this.username.getBytes(StandardCharsets.UTF_8);
-        int byteCount = Short.BYTES + usernameBytes.length + Integer.BYTES + Integer.BYTES;
-        byte[] packetBytes = new byte[byteCount];
+        int byteCount = Short.BYTES + sender.encodedSize() + Integer.BYTES + Integer.BYTES + Integer.BYTES;
         ByteBuffer buffer = ByteBuffer.allocate(byteCount);
         buffer.putShort(Opcode.Heartbeat.code);
+        sender.write(buffer);
         buffer.putInt(lastConfirmed);
         buffer.putInt(termCount);
-        buffer.put(usernameBytes);
-        buffer.rewind();
-        buffer.get(packetBytes);
-        return packetBytes;
+        buffer.putInt(lastLogIndex);
+        return buffer.array();
     }
 
     public static HeartbeatPacket bytesToPacket(ByteBuffer buffer) {
-        int lastConfirmed = buffer.getInt();
-        int termCount = buffer.getInt();
-        byte[] usernameBytes = new byte[buffer.limit() - buffer.position()];
-        buffer.get(usernameBytes);
-        return new HeartbeatPacket(new String(usernameBytes, StandardCharsets.UTF_8), lastConfirmed, termCount);
+        HeartbeatPacket packet = new HeartbeatPacket();
+        packet.read(buffer);
+        return packet;
+    }
+
+    void read(ByteBuffer buffer) {
+        readSender(buffer);
+        lastConfirmed = buffer.getInt();
+        termCount = buffer.getInt();
+        lastLogIndex = buffer.getInt();
     }
 }
@@ -0,0 +1,117 @@
+package edu.oswego.cs.Packets;
+
+import edu.oswego.cs.game.Action;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LogCommandBatchPacket extends CommandPacket {
+
+    // set on an action's entry length when a trace id follows the entry
+    private static final int TRACED_FLAG = 0x8000;
+
+    // not final so the packet can be decoded into again, see PacketCodecs
+    public int startActionNum;
+    public int termNum;
+    // the leader's commit index when the batch was sent, saves a separate commit packet
+    public int commitActionNum;
+    public List<Action> actions;
+
+    /**
+     * A run of consecutive log entries sent in a single packet.
+     * @param sender The member sending the batch.
+     * @param startActionNum The log index of the first action, the rest follow it in order.
+     * @param termNum The term of the sender.
+     * @param commitActionNum The highest log index the sender has committed.
+     * @param actions The actions in log order.
+     */
+    public LogCommandBatchPacket(MemberRef sender, int startActionNum, int termNum, int commitActionNum, List<Action> actions) {
+        super(CommandSubopcode.LogCommandBatch, sender);
+        this.startActionNum = startActionNum;
+        this.termNum = termNum;
+        this.commitActionNum = commitActionNum;
+        this.actions = actions;
+    }
+
+    LogCommandBatchPacket() {
+        super(CommandSubopcode.LogCommandBatch);
+        this.actions = new ArrayList<>();
+    }
+
+    /**
+     * @return The log index of the last action in the batch.
+     */
+    public int getLastActionNum() {
+        return startActionNum + actions.size() - 1;
+    }
+
+    /**
+     * @param sender The member sending the batch.
+     * @return The number of bytes a batch packet takes up before any actions are added.
+     */
+    public static int headerSize(MemberRef sender) {
+        int numOpCodes = 2;
+        return numOpCodes * Short.BYTES + sender.encodedSize() + 3 * Integer.BYTES + Short.BYTES;
+    }
+
+    /**
+     * @param action An action to be added to a batch.
+     * @return The number of bytes the action takes up inside a batch packet.
+     */
+    public static int actionSize(Action action) {
+        int traceIdBytes = action.isTraced() ? Long.BYTES : 0;
+        return MemberRef.encodedSize(action.getAuthorId(), action.getUserName()) + Short.BYTES + action.getEntry().length + traceIdBytes;
+    }
+
+    public byte[] packetToBytes() {
+        int byteCount = headerSize(sender);
+        for (Action action : actions) {
+            byteCount += actionSize(action);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(byteCount);
+        buffer.putShort(Opcode.Command.code);
+        buffer.putShort(CommandSubopcode.LogCommandBatch.code);
+        sender.write(buffer);
+        buffer.putInt(startActionNum);
+        buffer.putInt(termNum);
+        buffer.putInt(commitActionNum);
+        buffer.putShort((short) actions.size());
+        for (Action action : actions) {
+            byte[] entry = action.getEntry();
+            MemberRef.write(buffer, action.getAuthorId(), action.getUserName());
+            // untraced actions don't pay for a trace id
+            buffer.putShort((short) (action.isTraced() ? entry.length | TRACED_FLAG : entry.length));
+            buffer.put(entry);
+            if (action.isTraced()) {
+                buffer.putLong(action.getTraceId());
+            }
+        }
+        return buffer.array();
+    }
+
+    public static LogCommandBatchPacket bytesToPacket(ByteBuffer buffer) {
+        LogCommandBatchPacket packet = new LogCommandBatchPacket();
+        packet.read(buffer);
+        return packet;
+    }
+
+    void read(ByteBuffer buffer) {
+        readSender(buffer);
+        startActionNum = buffer.getInt();
+        termNum = buffer.getInt();
+        commitActionNum = buffer.getInt();
+        int actionCount = buffer.getShort();
+
+        // the list is reused with the packet, the actions outlive it in the reorder buffer so each one is new
+        actions.clear();
+        for (int i = 0; i < actionCount; i++) {
+            MemberRef author = MemberRef.read(buffer);
+            int entryLength = buffer.getShort() & 0xFFFF;
+            byte[] entry = new byte[entryLength & ~TRACED_FLAG];
+            buffer.get(entry);
+            long traceId = (entryLength & TRACED_FLAG) != 0 ? buffer.getLong() : 0;
+            actions.add(new Action(author, entry, traceId));
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package edu.oswego.cs.Packets;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Who sent a packet or issued a command. Once a member has been added to the group it is sent as its member id, a varint
+ * of the id plus one. Until then it is sent as a zero followed by its null terminated UTF-8 username.
+ */
+public final class MemberRef {
+
+    public static final int NO_ID = -1;
+    // a reference read from an id is only the id, so one is shared per id instead of allocating one for every packet
+    private static final int SHARED_IDS = 256;
+    private static final MemberRef[] BY_ID = new MemberRef[SHARED_IDS];
+
+    static {
+        for (int id = 0; id < SHARED_IDS; id++) {
+            BY_ID[id] = new MemberRef(id, null);
+        }
+    }
+
+    // NO_ID when the member was sent by name
+    public final int id;
+    // null when the member was read from an id and hasn't been looked up yet
+    public final String username;
+
+    private MemberRef(int id, String username) {
+        this.id = id;
+        this.username = username;
+    }
+
+    /**
+     * @param username The username of a member that may not have an id yet.
+     * @return A reference that is sent as the username.
+     */
+    public static MemberRef byName(String username) {
+        return new MemberRef(NO_ID, username);
+    }
+
+    /**
+     * @param id The member id, or NO_ID.
+     * @param username The username of the member, sent only when there is no id.
+     * @return A reference that is sent as the id if there is one.
+     */
+    public static MemberRef of(int id, String username) {
+        return new MemberRef(id, username);
+    }
+
+    public boolean hasId() {
+        return id != NO_ID;
+    }
+
+    /**
+     * @return The number of bytes the reference takes up in a packet.
+     */
+    public int encodedSize() {
+        return encodedSize(id, username);
+    }
+
+    public void write(ByteBuffer buffer) {
+        write(buffer, id, username);
+    }
+
+    /**
+     * @param id The member id, or NO_ID.
+     * @param username The username of the member, only needed when there is no id.
+     * @return The number of bytes the member takes up in a packet.
+     */
+    public static int encodedSize(int id, String username) {
+        if (id != NO_ID) return varintSize(id + 1);
+        int paddingByte = 1;
+        return 1 + username.getBytes(StandardCharsets.UTF_8).length + paddingByte;
+    }
+
+    /**
+     * @param buffer The buffer the member is written to.
+     * @param id The member id, or NO_ID.
+     * @param username The username of the member, only needed when there is no id.
+     */
+    public static void write(ByteBuffer buffer, int id, String username) {
+        if (id != NO_ID) {
+            putVarint(buffer, id + 1);
+        } else {
+            buffer.put((byte) 0x00);
+            buffer.put(username.getBytes(StandardCharsets.UTF_8));
+            buffer.put((byte) 0x00);
+        }
+    }
+
+    /**
+     * @param buffer A buffer positioned at a member written by write.
+     * @return The member, which only holds a username if it was sent by name.
+     */
+    public static MemberRef read(ByteBuffer buffer) {
+        int value = getVarint(buffer);
+        if (value != 0) {
+            int id = value - 1;
+            return id >= 0 && id < SHARED_IDS ? BY_ID[id] : new MemberRef(id, null);
+        }
+        return new MemberRef(NO_ID, Packet.readNullTerminatedString(buffer));
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    private static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int getVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IllegalArgumentException("A member id is longer than an int.");
+    }
+}
@@ -0,0 +1,43 @@
+package edu.oswego.cs.Packets;
+
+import java.nio.ByteBuffer;
+
+public class NackCommandPacket extends CommandPacket {
+
+    // sent as toActionNum when the follower's reorder window is full, asking for a flow controlled transfer instead
+    public static final int WINDOW_FULL = -1;
+
+    public final int fromActionNum;
+    public final int toActionNum;
+
+    /**
+     * Sent by a follower to ask the leader for exactly the range of log entries it is missing.
+     * @param sender The follower.
+     * @param fromActionNum The first missing log index.
+     * @param toActionNum The last missing log index, or WINDOW_FULL.
+     */
+    public NackCommandPacket(MemberRef sender, int fromActionNum, int toActionNum) {
+        super(CommandSubopcode.NackCommand, sender);
+        this.fromActionNum = fromActionNum;
+        this.toActionNum = toActionNum;
+    }
+
+    public byte[] packetToBytes() {
+        int numOpCodes = 2;
+        int byteCount = numOpCodes * Short.BYTES + sender.encodedSize() + 2 * Integer.BYTES;
+        ByteBuffer buffer = ByteBuffer.allocate(byteCount);
+        buffer.putShort(Opcode.Command.code);
+        buffer.putShort(CommandSubopcode.NackCommand.code);
+        sender.write(buffer);
+        buffer.putInt(fromActionNum);
+        buffer.putInt(toActionNum);
+        return buffer.array();
+    }
+
+    public static NackCommandPacket bytesToPacket(ByteBuffer buffer) {
+        MemberRef sender = MemberRef.read(buffer);
+        int fromActionNum = buffer.getInt();
+        int toActionNum = buffer.getInt();
+        return new NackCommandPacket(sender, fromActionNum, toActionNum);
+    }
+}
@@ -1,16 +1,27 @@
 package edu.oswego.cs.Packets;
 
-import java.util.Arrays;
 import java.util.Optional;
 
 public enum Opcode {
     Connect(1),
     Command(2),
-    Log(3),
+    // 3 was a log request that nothing sent, left unused so it can't be misread
     Heartbeat(4),
     Ack(5),
     Candidate(6),
-    Vote(7);
+    Vote(7),
+    Snapshot(8),
+    SnapshotAck(9);
+
+    // every code in use is small, so codes index straight into an array
+    public static final int TABLE_SIZE = 16;
+    private static final Opcode[] BY_CODE = new Opcode[TABLE_SIZE];
+
+    static {
+        for (Opcode value : values()) {
+            BY_CODE[value.code] = value;
+        }
+    }
 
     public final short code;
 
@@ -24,6 +35,6 @@ public enum Opcode {
      * @return The associated opcode.
      */
     public static Optional<Opcode> fromCode(short i) {
-        return Arrays.stream(values()).filter(x -> x.code == i).findFirst();
+        return Optional.ofNullable(i >= 0 && i < TABLE_SIZE ? BY_CODE[i] : null);
     }
 }
@@ -1,59 +1,80 @@
 package edu.oswego.cs.Packets;
 
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
-import java.util.Optional;
 
 //My name's gonna be on this, but Eli was a lot smarter than I was for
 //packet structures in project 2, so I'm going by that.
 //Comments are mine, however.
 public abstract class Packet {
     public final Opcode opcode;
-    public final String username;
+    // the sender fields aren't final so a packet can be decoded into more than once, see FlyweightDecoder
+    // null when the sender was sent as a member id, look it up with the id of the sender
+    public String username;
+    public MemberRef sender;
 
     protected Packet(String username, Opcode opcode) {
-        this.username = username;
+        this(MemberRef.byName(username), opcode);
+    }
+
+    /**
+     * For a packet that is decoded into, the sender is filled in by readSender.
+     * @param opcode The opcode of the packet.
+     */
+    protected Packet(Opcode opcode) {
+        this.opcode = opcode;
+    }
+
+    protected Packet(MemberRef sender, Opcode opcode) {
+        this.sender = sender;
+        this.username = sender.username;
         this.opcode = opcode;
     }
 
     public abstract byte[] packetToBytes();
 
+    /**
+     * @param buffer A buffer the packet was just written into, positioned at the end of the packet.
+     * @return The packet, null if its opcode or subopcode is unknown. Heartbeat, confirm, commit and log command packets
+     * are reused by the next packet of the same type decoded on this thread, see {@link PacketCodecs}.
+     * @throws ParseException if the packet ends before all of its fields are read.
+     */
     public static Packet bytesToPacket(ByteBuffer buffer) throws ParseException {
         buffer.flip();
+        return PacketCodecs.decode(buffer);
+    }
 
-        //Get the opcode short from the packet
-        short code = buffer.getShort();
-        Optional<Opcode> optionOpcode = Opcode.fromCode(code);
+    /**
+     * Reads the sender of a packet that is being decoded into a reused packet.
+     * @param buffer A buffer positioned at the sender.
+     */
+    protected void readSender(ByteBuffer buffer) {
+        sender = MemberRef.read(buffer);
+        username = sender.username;
+    }
 
-        //Make sure something's actually there
-        if(!optionOpcode.isPresent()) {
-            return null;
+    /**
+     * Reads a null terminated UTF-8 string straight out of the buffer, and the null after it.
+     * @param buffer A buffer positioned at the string.
+     * @return The string.
+     */
+    protected static String readNullTerminatedString(ByteBuffer buffer) {
+        int start = buffer.position();
+        int end = start;
+        while (end < buffer.limit() && buffer.get(end) != 0x00) {
+            end++;
         }
-
-        //Now get the ACTUAL opcode
-        Opcode opcode = optionOpcode.get();
-
-        //This seems redundant considering we got the stuff earlier straight from the bytes,
-        //but that was necessary to validate we actually got a valid opcode.
-        //TODO: Fill this out once we get actual packet types
-        switch (opcode) {
-            case Connect:
-                return ConnectPacket.bytesToPacket(buffer);
-            case Ack:
-                return AckPacket.bytesToPacket(buffer);
-            case Heartbeat:
-                return HeartbeatPacket.bytesToPacket(buffer);
-            case Command:
-                return CommandPacket.bytesToPacket(buffer);
-            case Log:
-                return LogPacket.bytesToPacket(buffer);
-            case Candidate:
-                return CandidatePacket.bytesToPacket(buffer);
-            case Vote:
-                return VotePacket.bytesToPacket(buffer);
-            default:
-                return null;
+        String string;
+        if (buffer.hasArray()) {
+            string = new String(buffer.array(), buffer.arrayOffset() + start, end - start, StandardCharsets.UTF_8);
+        } else {
+            byte[] stringBytes = new byte[end - start];
+            buffer.get(stringBytes);
+            string = new String(stringBytes, StandardCharsets.UTF_8);
         }
-
+        // skip past the null, if there was one
+        buffer.position(Math.min(end + 1, buffer.limit()));
+        return string;
     }
 }
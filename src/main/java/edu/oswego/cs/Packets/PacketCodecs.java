@@ -0,0 +1,102 @@
+package edu.oswego.cs.Packets;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+
+/**
+ * The decoder of every packet type, looked up by opcode and then by subopcode for the opcodes that have one.
+ * A new packet type is added by registering its decoder here, encoding is left to {@link Packet#packetToBytes()}.
+ * Heartbeat, confirm, commit and log command batch packets are received for every entry or batch of entries, so they
+ * are decoded into a reused packet per thread, see {@link FlyweightDecoder}.
+ */
+public final class PacketCodecs {
+
+    private static final PacketDecoder<?>[] DECODERS = new PacketDecoder<?>[Opcode.TABLE_SIZE];
+    // the decoders of opcodes followed by a subopcode, indexed by the subopcode
+    private static final PacketDecoder<?>[][] SUBOPCODE_DECODERS = new PacketDecoder<?>[Opcode.TABLE_SIZE][];
+
+    static {
+        register(Opcode.Ack, AckPacket::bytesToPacket);
+        register(Opcode.Heartbeat, new FlyweightDecoder<>(HeartbeatPacket::new, HeartbeatPacket::read));
+        register(Opcode.Candidate, CandidatePacket::bytesToPacket);
+        register(Opcode.Vote, VotePacket::bytesToPacket);
+        register(Opcode.Snapshot, SnapshotPacket::bytesToPacket);
+        register(Opcode.SnapshotAck, SnapshotAckPacket::bytesToPacket);
+
+        register(Opcode.Command, CommandSubopcode.RequestCommand.code, ReqCommandPacket::bytesToPacket);
+        register(Opcode.Command, CommandSubopcode.ConfirmCommand.code, new FlyweightDecoder<>(ConfirmCommandPacket::new, ConfirmCommandPacket::read));
+        register(Opcode.Command, CommandSubopcode.CommitCommand.code, new FlyweightDecoder<>(CommitCommandPacket::new, CommitCommandPacket::read));
+        register(Opcode.Command, CommandSubopcode.LogCommandBatch.code, new FlyweightDecoder<>(LogCommandBatchPacket::new, LogCommandBatchPacket::read));
+        register(Opcode.Command, CommandSubopcode.NackCommand.code, NackCommandPacket::bytesToPacket);
+
+        register(Opcode.Connect, ConnectSubopcode.ClientHello.code, ConnectionClientHelloPacket::bytesToPacket);
+        register(Opcode.Connect, ConnectSubopcode.ServerHello.code, ConnectionServerHelloPacket::bytesToPacket);
+        register(Opcode.Connect, ConnectSubopcode.ClientKey.code, buffer -> ConnectPacket.bytesToPacket(ConnectSubopcode.ClientKey, buffer));
+        register(Opcode.Connect, ConnectSubopcode.Log.code, buffer -> ConnectPacket.bytesToPacket(ConnectSubopcode.Log, buffer));
+        register(Opcode.Connect, ConnectSubopcode.Redirect.code, ConnectionRedirectPacket::bytesToPacket);
+    }
+
+    private PacketCodecs() {
+    }
+
+    /**
+     * Registers the decoder of a packet type that has no subopcode.
+     * @param opcode The opcode of the packet type.
+     * @param decoder Reads the packet after its opcode.
+     * @throws IllegalStateException if the opcode already has a decoder.
+     */
+    public static synchronized void register(Opcode opcode, PacketDecoder<?> decoder) {
+        if (DECODERS[opcode.code] != null || SUBOPCODE_DECODERS[opcode.code] != null) {
+            throw new IllegalStateException("Opcode " + opcode + " already has a decoder.");
+        }
+        DECODERS[opcode.code] = decoder;
+    }
+
+    /**
+     * Registers the decoder of a packet type whose opcode is followed by a subopcode.
+     * @param opcode The opcode of the packet type.
+     * @param subopcode The subopcode of the packet type.
+     * @param decoder Reads the packet after its subopcode.
+     * @throws IllegalStateException if the opcode and subopcode already have a decoder.
+     */
+    public static synchronized void register(Opcode opcode, short subopcode, PacketDecoder<?> decoder) {
+        if (DECODERS[opcode.code] != null) {
+            throw new IllegalStateException("Opcode " + opcode + " already has a decoder without a subopcode.");
+        }
+        PacketDecoder<?>[] decoders = SUBOPCODE_DECODERS[opcode.code];
+        if (decoders == null) {
+            decoders = new PacketDecoder<?>[Opcode.TABLE_SIZE];
+            SUBOPCODE_DECODERS[opcode.code] = decoders;
+        }
+        if (decoders[subopcode] != null) {
+            throw new IllegalStateException("Opcode " + opcode + " subopcode " + subopcode + " already has a decoder.");
+        }
+        decoders[subopcode] = decoder;
+    }
+
+    /**
+     * @param buffer A buffer positioned at the opcode of a packet, holding nothing after the packet.
+     * @return The packet, null if its opcode or subopcode isn't registered.
+     * @throws ParseException if the packet ends before all of its fields are read.
+     */
+    public static Packet decode(ByteBuffer buffer) throws ParseException {
+        try {
+            short code = buffer.getShort();
+            if (code < 0 || code >= Opcode.TABLE_SIZE) return null;
+            PacketDecoder<?> decoder = DECODERS[code];
+            if (decoder == null) {
+                PacketDecoder<?>[] decoders = SUBOPCODE_DECODERS[code];
+                if (decoders == null) return null;
+                short subopcode = buffer.getShort();
+                if (subopcode < 0 || subopcode >= decoders.length) return null;
+                decoder = decoders[subopcode];
+                if (decoder == null) return null;
+            }
+            return decoder.decode(buffer);
+        } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+            // also what a datagram that was never a packet, like one still encrypted, usually ends up as
+            throw new ParseException("Malformed packet: " + e, buffer.position());
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package edu.oswego.cs.Packets;
+
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+
+/**
+ * Reads one type of packet, registered with {@link PacketCodecs} under the opcode and subopcode of that type.
+ * @param <P> The type of packet read.
+ */
+@FunctionalInterface
+public interface PacketDecoder<P extends Packet> {
+
+    /**
+     * @param buffer A buffer positioned just after the opcode, and the subopcode if the packet type has one.
+     * @return The packet, null if it should be ignored.
+     * @throws ParseException if the fields of the packet can't be read.
+     */
+    P decode(ByteBuffer buffer) throws ParseException;
+}
@@ -1,54 +1,43 @@
 package edu.oswego.cs.Packets;
 
 import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
 
 public class ReqCommandPacket extends CommandPacket {
 
-    public final String command;
-
-    public ReqCommandPacket(String username, String command) {
-        super(CommandSubopcode.RequestCommand, username);
-        this.command = command;
+    // the command encoded by LogEntry
+    public final byte[] entry;
+    // 0 unless the command was picked to be traced
+    public final long traceId;
+
+    /**
+     * Sent by a follower to hand a command to the leader.
+     * @param sender The follower, which is also who issued the command.
+     * @param entry The command encoded by LogEntry.
+     * @param traceId The id of the trace the command is part of, 0 if it isn't traced.
+     */
+    public ReqCommandPacket(MemberRef sender, byte[] entry, long traceId) {
+        super(CommandSubopcode.RequestCommand, sender);
+        this.entry = entry;
+        this.traceId = traceId;
     }
 
     public byte[] packetToBytes() {
-        byte[] usernameBytes = this.username.getBytes(StandardCharsets.UTF_8);
-        byte[] commandBytes = command.getBytes(StandardCharsets.UTF_8);
         int numOpCodes = 2;
-        int paddingByte = 1;
-        int byteCount = numOpCodes * Short.BYTES + usernameBytes.length + paddingByte + commandBytes.length;
+        int byteCount = numOpCodes * Short.BYTES + sender.encodedSize() + Long.BYTES + entry.length;
         ByteBuffer buffer = ByteBuffer.allocate(byteCount);
         buffer.putShort(Opcode.Command.code);
         buffer.putShort(CommandSubopcode.RequestCommand.code);
-        buffer.put(usernameBytes);
-        buffer.put((byte) 0x00);
-        buffer.put(commandBytes);
-        buffer.rewind();
-        byte[] packetBytes = new byte[byteCount];
-        buffer.get(packetBytes);
-        return packetBytes;
+        sender.write(buffer);
+        buffer.putLong(traceId);
+        buffer.put(entry);
+        return buffer.array();
     }
 
     public static ReqCommandPacket bytesToPacket(ByteBuffer buffer) {
-        // get original limit
-        int bufferLimit = buffer.limit();
-
-        buffer.mark();
-        while (buffer.hasRemaining() && buffer.get() != 0x00);
-        buffer.limit(buffer.position() - 1);
-        buffer.reset();
-        byte[] usernameBytes = new byte[buffer.limit() - buffer.position()];
-        buffer.get(usernameBytes);
-        String username = new String(usernameBytes, StandardCharsets.UTF_8);
-
-        buffer.limit(bufferLimit);
-        // get padding
-        buffer.get();
-
-        byte[] commandBytes = new byte[buffer.limit() - buffer.position()];
-        buffer.get(commandBytes);
-        String command = new String(commandBytes, StandardCharsets.UTF_8);
-        return new ReqCommandPacket(username, command);
+        MemberRef sender = MemberRef.read(buffer);
+        long traceId = buffer.getLong();
+        byte[] entry = new byte[buffer.remaining()];
+        buffer.get(entry);
+        return new ReqCommandPacket(sender, entry, traceId);
     }
 }
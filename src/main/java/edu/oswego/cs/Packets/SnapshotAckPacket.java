@@ -0,0 +1,38 @@
+package edu.oswego.cs.Packets;
+
+import java.nio.ByteBuffer;
+
+public class SnapshotAckPacket extends Packet {
+
+    public final int lastIncludedIndex;
+    public final int offset;
+
+    /**
+     * Acknowledges one piece of a snapshot.
+     * @param sender The member acknowledging the piece.
+     * @param lastIncludedIndex The last log index covered by the snapshot.
+     * @param offset Where the acknowledged piece starts within the snapshot.
+     */
+    public SnapshotAckPacket(MemberRef sender, int lastIncludedIndex, int offset) {
+        super(sender, Opcode.SnapshotAck);
+        this.lastIncludedIndex = lastIncludedIndex;
+        this.offset = offset;
+    }
+
+    @Override
+    public byte[] packetToBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(Short.BYTES + sender.encodedSize() + 2 * Integer.BYTES);
+        buffer.putShort(Opcode.SnapshotAck.code);
+        sender.write(buffer);
+        buffer.putInt(lastIncludedIndex);
+        buffer.putInt(offset);
+        return buffer.array();
+    }
+
+    public static SnapshotAckPacket bytesToPacket(ByteBuffer buffer) {
+        MemberRef sender = MemberRef.read(buffer);
+        int lastIncludedIndex = buffer.getInt();
+        int offset = buffer.getInt();
+        return new SnapshotAckPacket(sender, lastIncludedIndex, offset);
+    }
+}
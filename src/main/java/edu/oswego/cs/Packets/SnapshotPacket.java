@@ -0,0 +1,58 @@
+package edu.oswego.cs.Packets;
+
+import java.nio.ByteBuffer;
+
+public class SnapshotPacket extends Packet {
+
+    public final int lastIncludedIndex;
+    public final int snapshotSize;
+    public final int offset;
+    public final byte[] data;
+
+    /**
+     * One piece of a snapshot being installed on a member.
+     * @param sender The member sending the snapshot.
+     * @param lastIncludedIndex The last log index covered by the snapshot.
+     * @param snapshotSize The size of the whole snapshot in bytes.
+     * @param offset Where this piece starts within the snapshot.
+     * @param data The bytes of this piece.
+     */
+    public SnapshotPacket(MemberRef sender, int lastIncludedIndex, int snapshotSize, int offset, byte[] data) {
+        super(sender, Opcode.Snapshot);
+        this.lastIncludedIndex = lastIncludedIndex;
+        this.snapshotSize = snapshotSize;
+        this.offset = offset;
+        this.data = data;
+    }
+
+    /**
+     * @param sender The member sending the snapshot.
+     * @return The number of bytes a snapshot packet takes up before any snapshot data is added.
+     */
+    public static int headerSize(MemberRef sender) {
+        return Short.BYTES + sender.encodedSize() + 3 * Integer.BYTES + Short.BYTES;
+    }
+
+    @Override
+    public byte[] packetToBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(headerSize(sender) + data.length);
+        buffer.putShort(Opcode.Snapshot.code);
+        sender.write(buffer);
+        buffer.putInt(lastIncludedIndex);
+        buffer.putInt(snapshotSize);
+        buffer.putInt(offset);
+        buffer.putShort((short) data.length);
+        buffer.put(data);
+        return buffer.array();
+    }
+
+    public static SnapshotPacket bytesToPacket(ByteBuffer buffer) {
+        MemberRef sender = MemberRef.read(buffer);
+        int lastIncludedIndex = buffer.getInt();
+        int snapshotSize = buffer.getInt();
+        int offset = buffer.getInt();
+        byte[] data = new byte[buffer.getShort()];
+        buffer.get(data);
+        return new SnapshotPacket(sender, lastIncludedIndex, snapshotSize, offset, data);
+    }
+}
@@ -1,38 +1,29 @@
 package edu.oswego.cs.Packets;
 
-import edu.oswego.cs.raft.Vote;
-
 import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
-import java.util.Optional;
 
 public class VotePacket extends Packet {
 
     public final int termNum;
 
-    public VotePacket(String username, int termNum) {
-        super(username, Opcode.Vote);
+    public VotePacket(MemberRef sender, int termNum) {
+        super(sender, Opcode.Vote);
         this.termNum = termNum;
     }
 
     @Override
     public byte[] packetToBytes() {
-        byte[] usernameBytes = this.username.getBytes(StandardCharsets.UTF_8);
-        int byteCount = Short.BYTES + usernameBytes.length + Integer.BYTES;
-        byte[] packetBytes = new byte[byteCount];
+        int byteCount = Short.BYTES + sender.encodedSize() + Integer.BYTES;
         ByteBuffer buffer = ByteBuffer.allocate(byteCount);
         buffer.putShort(Opcode.Vote.code);
+        sender.write(buffer);
         buffer.putInt(termNum);
-        buffer.put(usernameBytes);
-        buffer.rewind();
-        buffer.get(packetBytes);
-        return packetBytes;
+        return buffer.array();
     }
 
     public static VotePacket bytesToPacket(ByteBuffer buffer) {
+        MemberRef sender = MemberRef.read(buffer);
         int termNum = buffer.getInt();
-        byte[] usernameBytes = new byte[buffer.limit() - buffer.position()];
-        buffer.get(usernameBytes);
-        return new VotePacket(new String(usernameBytes, StandardCharsets.UTF_8), termNum);
+        return new VotePacket(sender, termNum);
     }
 }
@@ -1,10 +1,14 @@
 package edu.oswego.cs.Security;
 
+import edu.oswego.cs.metrics.Histogram;
+import edu.oswego.cs.metrics.MetricsRegistry;
+
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
 import java.security.*;
 import java.util.Arrays;
 
@@ -13,12 +17,44 @@ public class Encryption {
     public int rsaKeySize = 2048;
     public int keySize = 256;
     public int ivSize = 16;
+    private static final int AES_BLOCK_SIZE = 16;
 
     // Referred to here: https://github.com/firatkucuk/diffie-hellman-helloworld/tree/main
     private PrivateKey privateKey;
     private PublicKey publicKey;
 
-    private SecretKey secretKey;
+    private volatile SecretKey secretKey;
+
+    // One strong RNG shared by every thread for IVs, SecureRandom is thread safe.
+    private static final SecureRandom sharedSecureRandom = new SecureRandom();
+    // where this instance's keys and IVs come from
+    private final SecureRandom secureRandom;
+    // Looking up a cipher is expensive and a cipher can't be shared between threads, so each thread keeps its own and re-inits it per message.
+    private static final ThreadLocal<Cipher> secretKeyCipher = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance("AES/CBC/PKCS5Padding");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES/CBC/PKCS5Padding is not available.", e);
+        }
+    });
+    private static final Histogram encryptNanos = MetricsRegistry.getDefault().histogram("encryption_encrypt_nanos", "Time taken to encrypt a message with the secret key, in nanoseconds.");
+    private static final Histogram decryptNanos = MetricsRegistry.getDefault().histogram("encryption_decrypt_nanos", "Time taken to decrypt a message with the secret key, in nanoseconds.");
+    private final ThreadLocal<byte[]> ivBytes = ThreadLocal.withInitial(() -> new byte[ivSize]);
+
+    /**
+     * Creates an instance whose keys and IVs come from the RNG shared by every instance.
+     */
+    public Encryption() {
+        this(sharedSecureRandom);
+    }
+
+    /**
+     * @param secureRandom Where the keys and IVs come from. A seeded one makes every key and ciphertext repeatable, which
+     *                     is only for simulations.
+     */
+    public Encryption(SecureRandom secureRandom) {
+        this.secureRandom = secureRandom;
+    }
 
     public PublicKey getPublicKey() {
         return this.publicKey;
@@ -31,7 +67,7 @@ public class Encryption {
     public void generateSecretKey() {
         try {
             KeyGenerator keyGen = KeyGenerator.getInstance("AES");
-            keyGen.init(keySize);
+            keyGen.init(keySize, secureRandom);
             secretKey = keyGen.generateKey();
         } catch (Exception e) {
             e.printStackTrace();
@@ -45,7 +81,7 @@ public class Encryption {
     public void generateKeys() {
         try {
             final KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
-            generator.initialize(rsaKeySize);
+            generator.initialize(rsaKeySize, secureRandom);
 
             KeyPair keyPair = generator.generateKeyPair();
 
@@ -64,28 +100,39 @@ public class Encryption {
     //Used Kirill's answer here: https://stackoverflow.com/questions/29575024/is-there-any-difference-if-i-init-aes-cipher-with-and-without-ivparameterspec
     //More on IVs: https://en.wikipedia.org/wiki/Block_cipher_mode_of_operation
     public byte[] encryptMessageWithSecretKey(byte[] message)  {
-        if (secretKey == null) return null;
-        try {
-            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
-
-            cipher.init(Cipher.ENCRYPT_MODE, secretKey, new SecureRandom());
-            byte[] encryptedMessage = cipher.doFinal(message);
+        byte[] payload = new byte[getEncryptedSize(message.length)];
+        if (!encryptMessageWithSecretKey(ByteBuffer.wrap(message), ByteBuffer.wrap(payload))) return null;
+        return payload;
+    }
 
-            //This should end up having a length of 16.
-            byte[] generatedIv = cipher.getIV();
-            byte[] payload = new byte[generatedIv.length + encryptedMessage.length];
+    /**
+     * Encrypt a message using the secret key, writing the IV and then the encrypted message straight into the given buffer.
+     * @param message Buffer holding the payload to encrypt between its position and limit.
+     * @param encryptedMessage Buffer the IV plus encrypted message is written to, starting at its position. It needs at least
+     *                         {@link #getEncryptedSize(int)} bytes remaining.
+     * @return true if the message was encrypted.
+     */
+    public boolean encryptMessageWithSecretKey(ByteBuffer message, ByteBuffer encryptedMessage) {
+        SecretKey key = secretKey;
+        if (key == null) return false;
+        long start = System.nanoTime();
+        try {
+            byte[] generatedIv = ivBytes.get();
+            secureRandom.nextBytes(generatedIv);
 
-            //Append the IV to the front
-            System.arraycopy(generatedIv, 0, payload, 0, generatedIv.length);
-            //Then the actual encrypted message to the back
-            System.arraycopy(encryptedMessage, 0, payload, generatedIv.length, encryptedMessage.length);
+            Cipher cipher = secretKeyCipher.get();
+            cipher.init(Cipher.ENCRYPT_MODE, key, new IvParameterSpec(generatedIv));
 
-            return payload;
+            //IV goes on the front, the encrypted message follows it
+            encryptedMessage.put(generatedIv);
+            cipher.doFinal(message, encryptedMessage);
+            encryptNanos.record(System.nanoTime() - start);
+            return true;
         } catch (Exception e) {
             e.printStackTrace();
         }
 
-        return null;
+        return false;
     }
 
     /**
@@ -96,23 +143,18 @@ public class Encryption {
     //Used Kirill's answer here: https://stackoverflow.com/questions/29575024/is-there-any-difference-if-i-init-aes-cipher-with-and-without-ivparameterspec
     //More on IVs: https://en.wikipedia.org/wiki/Block_cipher_mode_of_operation
     public byte[] decryptMessageWithSecretKey(byte[] encryptedMessage) {
-        if (secretKey == null) return null;
+        SecretKey key = secretKey;
+        if (key == null) return null;
+        long start = System.nanoTime();
         try {
-            //Should be 16
-            byte[] receivedIv = new byte[ivSize];
-            byte[] encryptedData = new byte[encryptedMessage.length - receivedIv.length];
-
-            //Pull out the IV
-            System.arraycopy(encryptedMessage, 0, receivedIv, 0, receivedIv.length);
-            //Pull out the actual encrypted data
-            System.arraycopy(encryptedMessage, receivedIv.length, encryptedData, 0, encryptedData.length);
-
-            //Get our cipher sorted
-            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
-            cipher.init(Cipher.DECRYPT_MODE, secretKey, new IvParameterSpec(receivedIv));
+            //The IV is the first 16 bytes, the encrypted data is everything after it
+            Cipher cipher = secretKeyCipher.get();
+            cipher.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(encryptedMessage, 0, ivSize));
 
             //Decrypt
-            return cipher.doFinal(encryptedData);
+            byte[] decryptedMessage = cipher.doFinal(encryptedMessage, ivSize, encryptedMessage.length - ivSize);
+            decryptNanos.record(System.nanoTime() - start);
+            return decryptedMessage;
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -120,6 +162,43 @@ public class Encryption {
         return null;
     }
 
+    /**
+     * Decrypt a message using the secret key without copying it out of its buffer.
+     * @param encryptedMessage Buffer holding the IV followed by the encrypted data, between its position and limit.
+     * @param decryptedMessage Buffer the decrypted message is written to, starting at its position.
+     * @return true if the message was decrypted.
+     */
+    public boolean decryptMessageWithSecretKey(ByteBuffer encryptedMessage, ByteBuffer decryptedMessage) {
+        SecretKey key = secretKey;
+        if (key == null) return false;
+        long start = System.nanoTime();
+        try {
+            //Pull out the IV, the rest of the buffer is the encrypted data
+            byte[] receivedIv = ivBytes.get();
+            encryptedMessage.get(receivedIv);
+
+            Cipher cipher = secretKeyCipher.get();
+            cipher.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(receivedIv));
+
+            cipher.doFinal(encryptedMessage, decryptedMessage);
+            decryptNanos.record(System.nanoTime() - start);
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        return false;
+    }
+
+    /**
+     * @param messageLength The length of a message before encryption.
+     * @return The number of bytes the IV plus encrypted message take up.
+     */
+    public int getEncryptedSize(int messageLength) {
+        // PKCS5 always pads, so a full block is added when the message is already block aligned
+        return ivSize + (messageLength / AES_BLOCK_SIZE + 1) * AES_BLOCK_SIZE;
+    }
+
     /**
      * Only used to encrypt the secret key for transmission.
      * @return The encrypted secret key.
@@ -128,7 +207,7 @@ public class Encryption {
         if(secretKey == null) return null;
         try {
             Cipher cipher = Cipher.getInstance("RSA");
-            cipher.init(Cipher.ENCRYPT_MODE, publicKey);
+            cipher.init(Cipher.ENCRYPT_MODE, publicKey, secureRandom);
 
             return cipher.doFinal(secretKey.getEncoded());
         } catch (Exception e) {
@@ -154,6 +233,10 @@ public class Encryption {
         return null;
     }
 
+    public SecretKey getSecretKey() {
+        return secretKey;
+    }
+
     public void setSecretKey(SecretKey secretKey) {
         this.secretKey = secretKey;
     }
@@ -1,10 +1,15 @@
 package edu.oswego.cs.dungeon;
 
 import edu.oswego.cs.game.GameCommandOutput;
+import edu.oswego.cs.jfr.FloorGenerationEvent;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 public class Dungeon {
@@ -27,10 +32,22 @@ public class Dungeon {
         System.out.println("Dungeon Seed: " + this.seed);
     }
 
+    public Floor getFloor(int floorNum) {
+        return floors.get(floorNum);
+    }
+
     public Floor makeFloor() {
+        FloorGenerationEvent event = new FloorGenerationEvent();
+        event.begin();
         FloorGenerator generator = new FloorGenerator(rand, this);
         Floor newFloor = generator.generate(floors.size() + 1);
         floors.add(newFloor);
+        event.end();
+        if (event.shouldCommit()) {
+            event.floorNumber = floors.size();
+            event.rooms = newFloor.rooms.size();
+            event.commit();
+        }
         return newFloor;
     }
 
@@ -98,6 +115,13 @@ public class Dungeon {
             return output;
         }
 
+        // checked before the user is touched, a user left on a floor number that doesn't match their room can't be snapshotted
+        if (gameUser.currentFloorNum + 1 >= floors.size()) {
+            output.textOutput = "There is no floor below!";
+            output.successful = false;
+            return output;
+        }
+
         Room roomToRemove = gameUser.currentRoom;
         gameUser.currentFloorNum++;
         Floor floor = floors.get(gameUser.currentFloorNum);
@@ -205,4 +229,97 @@ public class Dungeon {
 
         return output;
     }
+
+    /**
+     * Writes everything that changes while the game is played. Floors aren't written out, only how many of them exist, since
+     * the same seed always generates the same floors.
+     * @param out The stream the dungeon is written to.
+     * @throws IOException if the stream can't be written to.
+     */
+    public void writeSnapshot(DataOutputStream out) throws IOException {
+        out.writeLong(seed);
+        out.writeInt(floors.size());
+        for (Floor floor : floors) {
+            out.writeInt(floor.rooms.size());
+            for (Map.Entry<String, Room> entry : floor.rooms.entrySet()) {
+                Room room = entry.getValue();
+                out.writeUTF(entry.getKey());
+                writeItems(out, room.items);
+                out.writeInt(room.entities.size());
+                for (Entity entity : room.entities) {
+                    out.writeInt(entity.getHp());
+                }
+            }
+        }
+
+        HashMap<String, GameUser> users = currentUsers == null ? new HashMap<>() : currentUsers;
+        out.writeInt(users.size());
+        for (GameUser gameUser : users.values()) {
+            out.writeUTF(gameUser.username);
+            out.writeInt(gameUser.currentFloorNum);
+            out.writeUTF(gameUser.currentRoom.xPos + "," + gameUser.currentRoom.yPos);
+            out.writeInt(gameUser.getHp());
+            writeItems(out, gameUser.inventory);
+        }
+    }
+
+    /**
+     * Rebuilds a dungeon from a snapshot by regenerating its floors from the seed and then restoring room contents, entity HP
+     * and users.
+     * @param in The stream the dungeon was written to with writeSnapshot.
+     * @return The restored dungeon.
+     * @throws IOException if the stream can't be read or holds an item that no longer exists.
+     */
+    public static Dungeon readSnapshot(DataInputStream in) throws IOException {
+        Dungeon dungeon = new Dungeon(in.readLong());
+        int floorCount = in.readInt();
+        for (int i = 0; i < floorCount; i++) {
+            dungeon.makeFloor();
+        }
+        for (Floor floor : dungeon.floors) {
+            int roomCount = in.readInt();
+            for (int i = 0; i < roomCount; i++) {
+                Room room = floor.rooms.get(in.readUTF());
+                room.items = readItems(in);
+                int entityCount = in.readInt();
+                for (int j = 0; j < entityCount; j++) {
+                    // set directly so a dead boss doesn't generate another floor
+                    room.entities.get(j).setHp(in.readInt());
+                }
+            }
+        }
+
+        int userCount = in.readInt();
+        for (int i = 0; i < userCount; i++) {
+            String username = in.readUTF();
+            int floorNum = in.readInt();
+            GameUser gameUser = new GameUser(dungeon.floors.get(floorNum).rooms.get(in.readUTF()), username);
+            gameUser.currentFloorNum = floorNum;
+            gameUser.setHp(in.readInt());
+            gameUser.inventory = readItems(in);
+            dungeon.addUser(gameUser);
+        }
+        return dungeon;
+    }
+
+    private static void writeItems(DataOutputStream out, List<Item> items) throws IOException {
+        out.writeInt(items.size());
+        for (Item item : items) {
+            out.writeUTF(item.getClass().getName());
+        }
+    }
+
+    private static ArrayList<Item> readItems(DataInputStream in) throws IOException {
+        int itemCount = in.readInt();
+        ArrayList<Item> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            String className = in.readUTF();
+            try {
+                items.add((Item) Class.forName(className).getConstructor().newInstance());
+            } catch (ReflectiveOperationException e) {
+                throw new IOException(className + " could not be made from a snapshot.", e);
+            }
+        }
+        return items;
+    }
 }
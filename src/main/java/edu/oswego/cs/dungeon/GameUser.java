@@ -43,6 +43,8 @@ public class GameUser implements Fightable{
     @Override
     public int getHp() { return hp; }
 
+    void setHp(int hp) { this.hp = hp; }
+
     public String getRoomNumber() {
         return currentRoom.prettyRoomNumber();
     }
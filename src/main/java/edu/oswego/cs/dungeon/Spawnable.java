@@ -1,8 +1,13 @@
 package edu.oswego.cs.dungeon;
 
 import java.io.File;
+import java.io.IOException;
+import java.net.JarURLConnection;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 
 public abstract class Spawnable {
   public static int getSpawnOdds(int floor) {
@@ -29,6 +34,9 @@ public abstract class Spawnable {
         System.out.println("Could not get item resource.");
         return null;
       }
+      if (resource.getProtocol().equals("jar")) {
+        return getAllFromJar(packageName, path, resource);
+      }
       directory = new File(resource.getFile());
     } catch (NullPointerException e) {
       System.out.println(packageName + " appeared to be an invalid package.");
@@ -52,8 +60,38 @@ public abstract class Spawnable {
       return null;
     }
 
-    Class<?>[] classArr = new Class[classes.size()];
-    classes.toArray(classArr);
-    return classArr;
+    return classes.toArray(new Class<?>[0]);
+  }
+
+  /**
+   * When the game is run from a jar the package isn't a directory, so the jar's entries are listed instead.
+   */
+  private static Class<?>[] getAllFromJar(String packageName, String path, URL resource) {
+    ArrayList<Class<?>> classes = new ArrayList<>();
+    String prefix = path + "/";
+    try {
+      JarURLConnection connection = (JarURLConnection) resource.openConnection();
+      // a cached jar file is shared with the class loader and must not be closed here
+      connection.setUseCaches(false);
+      try (JarFile jar = connection.getJarFile()) {
+        Enumeration<JarEntry> entries = jar.entries();
+        while (entries.hasMoreElements()) {
+          String name = entries.nextElement().getName();
+          if (!name.startsWith(prefix) || !name.endsWith(".class") || name.indexOf('/', prefix.length()) >= 0)
+            continue;
+
+          try {
+            classes.add(Class.forName(packageName + "." + name.substring(prefix.length(), name.length() - 6)));
+          } catch (ClassNotFoundException e) {
+            System.out.println("Could not find packages correctly in ItemPackage.");
+          }
+        }
+      }
+    } catch (IOException e) {
+      System.out.println(packageName + " could not be read from " + resource + ".");
+      return null;
+    }
+
+    return classes.toArray(new Class<?>[0]);
   }
 }
@@ -1,26 +1,74 @@
 package edu.oswego.cs.game;
 
+import edu.oswego.cs.Packets.MemberRef;
+
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 public class Action {
-    private String command;
+    // the encoded command, see LogEntry
+    private final byte[] entry;
     private AtomicInteger numConfirmed;
-    private String userName;
+    // null until the author's member id has been looked up
+    private volatile String userName;
+    // MemberRef.NO_ID when the author didn't have an id yet
+    private final int authorId;
+    // 0 unless this action was picked to be traced
+    private final long traceId;
+    // when this member saw the action reach each stage, only allocated for traced actions
+    private final AtomicLongArray stageTimes;
 
-    public Action(String userName, String command) {
-        this.userName = userName;
-        this.command = command;
+    public Action(MemberRef author, byte[] entry) {
+        this(author, entry, 0);
+    }
+
+    /**
+     * @param author The member who issued the command.
+     * @param entry The command encoded by LogEntry.
+     * @param traceId The id of the trace the command is part of, 0 if it isn't traced.
+     */
+    public Action(MemberRef author, byte[] entry, long traceId) {
+        this.userName = author.username;
+        this.authorId = author.id;
+        this.entry = entry;
         this.numConfirmed = new AtomicInteger(0);
+        this.traceId = traceId;
+        this.stageTimes = traceId == 0 ? null : new AtomicLongArray(TraceStage.values().length);
+    }
+
+    public byte[] getEntry() {
+        return entry;
     }
 
-    public String getCommand() {
-        return command;
+    /**
+     * @return The opcode of the entry, null if it is unknown.
+     */
+    public EntryOpcode getOpcode() {
+        return LogEntry.opcode(entry);
     }
 
+    /**
+     * @return The username of the author, null if the action arrived with only the author's id and it hasn't been looked up.
+     */
     public String getUserName() {
         return userName;
     }
 
+    /**
+     * @return The member id of the author, MemberRef.NO_ID if the author was sent by name.
+     */
+    public int getAuthorId() {
+        return authorId;
+    }
+
+    /**
+     * Fills in the username of an author that arrived as a member id.
+     * @param userName The username the id belongs to.
+     */
+    public void resolveUserName(String userName) {
+        this.userName = userName;
+    }
+
     public int getNumCommited() {
         return numConfirmed.get();
     }
@@ -28,4 +76,31 @@ public class Action {
     public int incrementAndGetNumCommitted() {
         return numConfirmed.incrementAndGet();
     }
+
+    public long getTraceId() {
+        return traceId;
+    }
+
+    public boolean isTraced() {
+        return traceId != 0;
+    }
+
+    /**
+     * Records when this member saw a traced action reach a stage. Only the first time a stage is reached counts.
+     * @param stage The stage reached.
+     * @param nanos The System.nanoTime() it was reached at.
+     */
+    public void markStage(TraceStage stage, long nanos) {
+        if (stageTimes != null) {
+            stageTimes.compareAndSet(stage.ordinal(), 0, nanos);
+        }
+    }
+
+    /**
+     * @param stage A stage.
+     * @return The System.nanoTime() this member saw the action reach the stage, 0 if it hasn't or the action isn't traced.
+     */
+    public long getStageTime(TraceStage stage) {
+        return stageTimes == null ? 0 : stageTimes.get(stage.ordinal());
+    }
 }
@@ -0,0 +1,42 @@
+package edu.oswego.cs.game;
+
+import edu.oswego.cs.dungeon.Floor;
+import edu.oswego.cs.dungeon.GameUser;
+import edu.oswego.cs.dungeon.Room;
+
+import java.io.PrintStream;
+
+public class ConsoleGameEventSink implements GameEventSink {
+
+    private final PrintStream out;
+
+    /**
+     * A sink for headless members that prints every game message on its own line.
+     * @param out Where the messages are printed.
+     */
+    public ConsoleGameEventSink(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void initialize(GameUser user, Floor floor) {
+        out.println(user.username + " entered Floor " + user.currentFloorNum + " in room " + user.getRoomNumber());
+    }
+
+    @Override
+    public void addMessage(String message) {
+        out.println(message);
+    }
+
+    @Override
+    public void roomChanged(Room room) {
+    }
+
+    @Override
+    public void floorChanged(GameUser user, Room room, Floor floor) {
+    }
+
+    @Override
+    public void listRoomEnemies(String username) {
+    }
+}
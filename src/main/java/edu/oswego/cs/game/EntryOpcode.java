@@ -0,0 +1,56 @@
+package edu.oswego.cs.game;
+
+import edu.oswego.cs.client.Command;
+import edu.oswego.cs.raft.RaftAdministrationCommand;
+
+/**
+ * The first byte of every log entry, it says which command the entry holds and how the fields after it are laid out.
+ */
+public enum EntryOpcode {
+    // [utf-8 text]
+    CHAT(1, Command.CHAT.names[0]),
+    // [byte direction]
+    MOVE(2, Command.MOVE.names[0]),
+    // [utf-8 item name]
+    USE(3, Command.USE.names[0]),
+    // [utf-8 entity name]
+    ATTACK(4, Command.ATTACK.names[0]),
+    // no fields
+    DESCEND(5, Command.DESCEND.names[0]),
+    // [utf-8 item name]
+    PICKUP(6, Command.PICKUP.names[0]),
+    // [long seed]
+    SEED_DUNGEON(16, RaftAdministrationCommand.SEED_DUNGEON.name),
+    // [int member id][long join time][byte address length][address][short port][utf-8 username]
+    ADD_MEMBER(17, RaftAdministrationCommand.ADD_MEMBER.name),
+    // [utf-8 username]
+    TIME_OUT_MEMBER(18, RaftAdministrationCommand.TIME_OUT_MEMBER.name),
+    // [utf-8 username]
+    RECONNECT(19, RaftAdministrationCommand.RECONNECT.name);
+
+    public static final int TABLE_SIZE = 32;
+    private static final EntryOpcode[] BY_CODE = new EntryOpcode[TABLE_SIZE];
+
+    static {
+        for (EntryOpcode opcode : values()) {
+            BY_CODE[opcode.code] = opcode;
+        }
+    }
+
+    public final byte code;
+    // the word the command was typed or logged as before entries were typed
+    public final String label;
+
+    EntryOpcode(int code, String label) {
+        this.code = (byte) code;
+        this.label = label;
+    }
+
+    /**
+     * @param code The first byte of a log entry.
+     * @return The opcode with that code, null if there isn't one.
+     */
+    public static EntryOpcode fromCode(byte code) {
+        return code >= 0 && code < TABLE_SIZE ? BY_CODE[code] : null;
+    }
+}
@@ -0,0 +1,44 @@
+package edu.oswego.cs.game;
+
+import edu.oswego.cs.dungeon.Floor;
+import edu.oswego.cs.dungeon.GameUser;
+import edu.oswego.cs.dungeon.Room;
+
+/**
+ * Receives the game events produced by the replicated state machine as it executes the log. The gui is one sink, a
+ * headless member prints them to the console or drops them entirely. Every method is called from the state machine's
+ * thread, in log order.
+ */
+public interface GameEventSink {
+
+    /**
+     * Called once this member has a place in the dungeon, either after the dungeon was seeded or after the first
+     * snapshot was installed.
+     * @param user The local user.
+     * @param floor The floor the local user is on.
+     */
+    void initialize(GameUser user, Floor floor);
+
+    /**
+     * @param message A line of game output for the local user.
+     */
+    void addMessage(String message);
+
+    /**
+     * @param room The room the local user is now in.
+     */
+    void roomChanged(Room room);
+
+    /**
+     * @param user The local user.
+     * @param room The room the local user is now in.
+     * @param floor The floor the local user is now on.
+     */
+    void floorChanged(GameUser user, Room room, Floor floor);
+
+    /**
+     * Describes who is in the local user's room, called after the local user has entered a new room.
+     * @param username The local user, who isn't listed.
+     */
+    void listRoomEnemies(String username);
+}
@@ -0,0 +1,181 @@
+package edu.oswego.cs.game;
+
+import edu.oswego.cs.client.Command;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * Encodes commands into the binary log entries raft replicates, and reads the fields back out of them.
+ * An entry is an opcode byte followed by the fields of that opcode, see {@link EntryOpcode}. Commands are encoded once when
+ * they are submitted, so no member ever parses command text while applying the log.
+ */
+public final class LogEntry {
+
+    private LogEntry() {
+    }
+
+    /**
+     * Encodes a command typed by a user.
+     * @param command The command as typed, for example ".move n".
+     * @return The encoded entry, null if the command doesn't change the replicated state or is missing its argument.
+     */
+    public static byte[] fromCommand(String command) {
+        String[] brokenDownCommand = command.split(" ", 2);
+        Optional<Command> optionalCommand = Command.parse(brokenDownCommand[0].toLowerCase());
+        if (!optionalCommand.isPresent()) return null;
+        String argument = brokenDownCommand.length > 1 ? brokenDownCommand[1] : "";
+        switch (optionalCommand.get()) {
+            case CHAT:
+                return argument.isEmpty() ? null : withText(EntryOpcode.CHAT, argument);
+            case MOVE:
+                return argument.isEmpty() ? null : new byte[] {EntryOpcode.MOVE.code, (byte) argument.charAt(0)};
+            case USE:
+                return argument.isEmpty() ? null : withText(EntryOpcode.USE, argument);
+            case ATTACK:
+                return argument.isEmpty() ? null : withText(EntryOpcode.ATTACK, argument);
+            case PICKUP:
+                return argument.isEmpty() ? null : withText(EntryOpcode.PICKUP, argument);
+            case DESCEND:
+                return new byte[] {EntryOpcode.DESCEND.code};
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @param seed The seed every member generates the dungeon from.
+     * @return The encoded entry.
+     */
+    public static byte[] seedDungeon(long seed) {
+        ByteBuffer entry = ByteBuffer.allocate(1 + Long.BYTES);
+        entry.put(EntryOpcode.SEED_DUNGEON.code);
+        entry.putLong(seed);
+        return entry.array();
+    }
+
+    /**
+     * @param memberId The id the leader gave the member.
+     * @param username The username of the member being added.
+     * @param joinTime The nano time the member joined at.
+     * @param address The address the member is reached at.
+     * @return The encoded entry.
+     */
+    public static byte[] addMember(int memberId, String username, long joinTime, InetSocketAddress address) {
+        byte[] addressBytes = address.getAddress().getAddress();
+        byte[] usernameBytes = username.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer entry = ByteBuffer.allocate(1 + Integer.BYTES + Long.BYTES + 1 + addressBytes.length + Short.BYTES + usernameBytes.length);
+        entry.put(EntryOpcode.ADD_MEMBER.code);
+        entry.putInt(memberId);
+        entry.putLong(joinTime);
+        entry.put((byte) addressBytes.length);
+        entry.put(addressBytes);
+        entry.putShort((short) address.getPort());
+        entry.put(usernameBytes);
+        return entry.array();
+    }
+
+    /**
+     * @param username The username of the member that stopped responding.
+     * @return The encoded entry.
+     */
+    public static byte[] timeOutMember(String username) {
+        return withText(EntryOpcode.TIME_OUT_MEMBER, username);
+    }
+
+    /**
+     * @param username The username of the member that came back.
+     * @return The encoded entry.
+     */
+    public static byte[] reconnect(String username) {
+        return withText(EntryOpcode.RECONNECT, username);
+    }
+
+    /**
+     * @param entry An encoded entry.
+     * @return The opcode of the entry, null if it is empty or the opcode is unknown.
+     */
+    public static EntryOpcode opcode(byte[] entry) {
+        return entry.length == 0 ? null : EntryOpcode.fromCode(entry[0]);
+    }
+
+    /**
+     * @param entry An encoded entry.
+     * @return A buffer positioned at the first field after the opcode.
+     */
+    public static ByteBuffer fields(byte[] entry) {
+        return ByteBuffer.wrap(entry, 1, entry.length - 1);
+    }
+
+    /**
+     * Reads the text field that makes up the rest of an entry.
+     * @param fields The fields of an entry, positioned at the text.
+     * @return The text.
+     */
+    public static String readText(ByteBuffer fields) {
+        String text = new String(fields.array(), fields.arrayOffset() + fields.position(), fields.remaining(), StandardCharsets.UTF_8);
+        fields.position(fields.limit());
+        return text;
+    }
+
+    /**
+     * Reads the address field of an add member entry.
+     * @param fields The fields of an entry, positioned at the address length.
+     * @return The address.
+     * @throws IllegalArgumentException if the address bytes aren't an IPv4 or IPv6 address.
+     */
+    public static InetSocketAddress readAddress(ByteBuffer fields) {
+        byte[] addressBytes = new byte[fields.get()];
+        fields.get(addressBytes);
+        int port = fields.getShort() & 0xFFFF;
+        try {
+            return new InetSocketAddress(InetAddress.getByAddress(addressBytes), port);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("An add member entry holds a " + addressBytes.length + " byte address.");
+        }
+    }
+
+    /**
+     * @param entry An encoded entry.
+     * @return The entry written out the way it would have been typed, for error messages.
+     */
+    public static String describe(byte[] entry) {
+        EntryOpcode opcode = opcode(entry);
+        if (opcode == null) return "an unknown entry";
+        try {
+            return describe(opcode, fields(entry));
+        } catch (RuntimeException e) {
+            return "a malformed " + opcode.label + " entry";
+        }
+    }
+
+    private static String describe(EntryOpcode opcode, ByteBuffer fields) {
+        switch (opcode) {
+            case MOVE:
+                return opcode.label + " " + (char) fields.get();
+            case DESCEND:
+                return opcode.label;
+            case SEED_DUNGEON:
+                return opcode.label + " " + fields.getLong();
+            case ADD_MEMBER:
+                int memberId = fields.getInt();
+                long joinTime = fields.getLong();
+                InetSocketAddress address = readAddress(fields);
+                return opcode.label + " " + readText(fields) + " " + joinTime + " " + address.getHostString() + ":" + address.getPort() + " as member " + memberId;
+            default:
+                return opcode.label + " " + readText(fields);
+        }
+    }
+
+    private static byte[] withText(EntryOpcode opcode, String text) {
+        byte[] textBytes = text.getBytes(StandardCharsets.UTF_8);
+        byte[] entry = new byte[1 + textBytes.length];
+        entry[0] = opcode.code;
+        System.arraycopy(textBytes, 0, entry, 1, textBytes.length);
+        return entry;
+    }
+}
@@ -0,0 +1,36 @@
+package edu.oswego.cs.game;
+
+import edu.oswego.cs.dungeon.Floor;
+import edu.oswego.cs.dungeon.GameUser;
+import edu.oswego.cs.dungeon.Room;
+
+/**
+ * Drops every game event, for members that only take part in consensus such as dedicated leaders and relays.
+ */
+public class NullGameEventSink implements GameEventSink {
+
+    public static final NullGameEventSink INSTANCE = new NullGameEventSink();
+
+    private NullGameEventSink() {
+    }
+
+    @Override
+    public void initialize(GameUser user, Floor floor) {
+    }
+
+    @Override
+    public void addMessage(String message) {
+    }
+
+    @Override
+    public void roomChanged(Room room) {
+    }
+
+    @Override
+    public void floorChanged(GameUser user, Room room, Floor floor) {
+    }
+
+    @Override
+    public void listRoomEnemies(String username) {
+    }
+}
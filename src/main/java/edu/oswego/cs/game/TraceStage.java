@@ -0,0 +1,16 @@
+package edu.oswego.cs.game;
+
+public enum TraceStage {
+    // the member the command was typed on handed it to raft
+    SUBMIT,
+    // the leader queued it for its next heartbeat tick
+    QUEUE,
+    // it was written to this member's log
+    APPEND,
+    // the leader sent it to the followers, or a follower received it
+    REPLICATE,
+    // this member learned it was committed
+    COMMIT,
+    // the state machine finished executing it
+    APPLY
+}
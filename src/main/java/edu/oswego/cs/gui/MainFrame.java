@@ -2,6 +2,7 @@ package edu.oswego.cs.gui;
 
 import edu.oswego.cs.client.Command;
 import edu.oswego.cs.dungeon.*;
+import edu.oswego.cs.game.GameEventSink;
 import edu.oswego.cs.raft.Raft;
 
 import javax.swing.*;
@@ -12,7 +13,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Optional;
 
-public class MainFrame extends JFrame {
+public class MainFrame extends JFrame implements GameEventSink {
 
     JPanel mainPanel;
     JTextArea outputText;
@@ -31,6 +32,11 @@ public class MainFrame extends JFrame {
         this.raft = raft;
     }
 
+    @Override
+    public void initialize(GameUser user, Floor currentFloor) {
+        initialize(user, user.getRoomNumber(), currentFloor);
+    }
+
     //TODO: Have room now, don't need roomNumber
     public void initialize(GameUser user, String roomNumber, Floor currentFloor) {
         this.currentFloor = currentFloor;
@@ -256,6 +262,24 @@ public class MainFrame extends JFrame {
         mapOutput.setText(floor.toString());
     }
 
+    @Override
+    public void roomChanged(Room room) {
+        this.currentRoom = room;
+    }
+
+    @Override
+    public void floorChanged(GameUser user, Room room, Floor floor) {
+        this.user = user;
+        this.currentRoom = room;
+        this.currentFloor = floor;
+        updateMapOutput(floor);
+    }
+
+    @Override
+    public void listRoomEnemies(String username) {
+        listRoomEnemies(username, false);
+    }
+
     public void listRoomEnemies(String username, boolean isLook) {
 
         if(currentRoom.entities.isEmpty() && this.currentRoom.users.size() == 1 && isLook) {
@@ -288,6 +312,7 @@ public class MainFrame extends JFrame {
         }
     }
 
+    @Override
     public void addMessage(String message) {
         messages.add(message);
         updateOutputBox();
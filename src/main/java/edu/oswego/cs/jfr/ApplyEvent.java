@@ -0,0 +1,23 @@
+package edu.oswego.cs.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("edu.oswego.cs.Apply")
+@Label("Apply")
+@Category({"The Legend of X10", "Game"})
+@Description("The state machine executed one committed command.")
+public class ApplyEvent extends Event {
+
+    @Label("Command")
+    public String command;
+
+    @Label("Log Index")
+    public int logIndex;
+
+    @Label("User")
+    public String user;
+}
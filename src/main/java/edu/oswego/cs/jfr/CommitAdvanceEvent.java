@@ -0,0 +1,40 @@
+package edu.oswego.cs.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("edu.oswego.cs.CommitAdvance")
+@Label("Commit Advance")
+@Category({"The Legend of X10", "Raft"})
+@Description("The commit index moved forward on this member.")
+public class CommitAdvanceEvent extends Event {
+
+    @Label("Previous Index")
+    public int previousIndex;
+
+    @Label("Index")
+    public int index;
+
+    @Label("Leader")
+    @Description("Whether the leader committed the entries or a follower learned they were committed")
+    public boolean leader;
+
+    /**
+     * Records that the commit index moved, if the event is enabled.
+     * @param previousIndex The commit index before it moved.
+     * @param index The new commit index.
+     * @param leader Whether the leader committed the entries.
+     */
+    public static void emit(int previousIndex, int index, boolean leader) {
+        CommitAdvanceEvent event = new CommitAdvanceEvent();
+        if (event.shouldCommit()) {
+            event.previousIndex = previousIndex;
+            event.index = index;
+            event.leader = leader;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package edu.oswego.cs.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("edu.oswego.cs.Election")
+@Label("Election")
+@Category({"The Legend of X10", "Raft"})
+@Description("An election this member ran, from becoming a candidate until it won, lost or started over.")
+public class ElectionEvent extends Event {
+
+    @Label("Term")
+    public int term;
+
+    @Label("Outcome")
+    @Description("won, lost or restarted")
+    public String outcome;
+
+    @Label("Votes")
+    public int votes;
+
+    @Label("Members")
+    public int members;
+}
@@ -0,0 +1,20 @@
+package edu.oswego.cs.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("edu.oswego.cs.FloorGeneration")
+@Label("Floor Generation")
+@Category({"The Legend of X10", "Game"})
+@Description("A dungeon floor was generated.")
+public class FloorGenerationEvent extends Event {
+
+    @Label("Floor Number")
+    public int floorNumber;
+
+    @Label("Rooms")
+    public int rooms;
+}
@@ -0,0 +1,22 @@
+package edu.oswego.cs.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("edu.oswego.cs.FollowerTimeout")
+@Label("Follower Timeout")
+@Category({"The Legend of X10", "Raft"})
+@Description("The leader stopped hearing from a follower and timed it out.")
+public class FollowerTimeoutEvent extends Event {
+
+    @Label("Follower")
+    public String follower;
+
+    @Label("Silent For")
+    @Timespan(Timespan.NANOSECONDS)
+    public long silentFor;
+}
@@ -0,0 +1,27 @@
+package edu.oswego.cs.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("edu.oswego.cs.Heartbeat")
+@Label("Heartbeat")
+@Category({"The Legend of X10", "Raft"})
+@Description("One tick of the leader heartbeat, which either sends a batch of new entries or an empty heartbeat.")
+public class HeartbeatEvent extends Event {
+
+    @Label("Term")
+    public int term;
+
+    @Label("Commit Index")
+    public int commitIndex;
+
+    @Label("Entries")
+    @Description("Entries sent in the tick, 0 for an empty heartbeat")
+    public int entries;
+
+    @Label("Receivers")
+    public int receivers;
+}
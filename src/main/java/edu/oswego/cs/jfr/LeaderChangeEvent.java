@@ -0,0 +1,23 @@
+package edu.oswego.cs.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("edu.oswego.cs.LeaderChange")
+@Label("Leader Change")
+@Category({"The Legend of X10", "Raft"})
+@Description("This member learned of a new leader.")
+public class LeaderChangeEvent extends Event {
+
+    @Label("Term")
+    public int term;
+
+    @Label("Previous Leader")
+    public String previousLeader;
+
+    @Label("New Leader")
+    public String newLeader;
+}
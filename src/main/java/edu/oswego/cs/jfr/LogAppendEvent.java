@@ -0,0 +1,24 @@
+package edu.oswego.cs.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("edu.oswego.cs.LogAppend")
+@Label("Log Append")
+@Category({"The Legend of X10", "Raft"})
+@Description("Entries appended to the log together, including writing them to the write ahead log.")
+public class LogAppendEvent extends Event {
+
+    @Label("Start Index")
+    public int startIndex;
+
+    @Label("Entries")
+    public int entries;
+
+    @Label("Leader")
+    @Description("Whether the leader appended the entries")
+    public boolean leader;
+}
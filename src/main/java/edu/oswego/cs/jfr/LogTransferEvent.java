@@ -0,0 +1,32 @@
+package edu.oswego.cs.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("edu.oswego.cs.LogTransfer")
+@Label("Log Transfer")
+@Category({"The Legend of X10", "Raft"})
+@Description("A flow controlled transfer of the log, and of the snapshot ahead of it if one was needed, to a member that fell behind.")
+public class LogTransferEvent extends Event {
+
+    @Label("Member")
+    public String member;
+
+    @Label("From Index")
+    public int fromIndex;
+
+    @Label("Next Index")
+    @Description("The first log index that wasn't sent")
+    public int nextIndex;
+
+    @Label("Snapshot Index")
+    @Description("The last log index covered by the snapshot sent ahead of the log, -1 if none was sent")
+    public int snapshotIndex;
+
+    @Label("Completed")
+    @Description("false if the member stopped acknowledging chunks")
+    public boolean completed;
+}
@@ -0,0 +1,26 @@
+package edu.oswego.cs.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("edu.oswego.cs.Snapshot")
+@Label("Snapshot")
+@Category({"The Legend of X10", "Raft"})
+@Description("The state machine took a snapshot or installed one received from the leader.")
+public class SnapshotEvent extends Event {
+
+    @Label("Installed")
+    @Description("true for a snapshot received from the leader, false for one taken locally")
+    public boolean installed;
+
+    @Label("Last Included Index")
+    public int lastIncludedIndex;
+
+    @Label("Size")
+    @DataAmount
+    public long size;
+}
@@ -0,0 +1,136 @@
+package edu.oswego.cs.loadgen;
+
+import edu.oswego.cs.client.Command;
+import edu.oswego.cs.dungeon.Entity;
+import edu.oswego.cs.dungeon.Item;
+import edu.oswego.cs.dungeon.Room;
+import edu.oswego.cs.raft.Raft;
+import edu.oswego.cs.raft.RaftRuntime;
+import edu.oswego.cs.raft.SystemRaftRuntime;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class Bot {
+
+    private static final char[] DIRECTIONS = {'n', 'e', 's', 'w'};
+
+    private final String username;
+    private final Raft raft;
+    private final BotGameEventSink sink = new BotGameEventSink();
+    private final CommandMix mix;
+    // only the scheduler thread running this bot uses it
+    private final Random random;
+    private final AtomicLong commandsSubmitted = new AtomicLong();
+
+    /**
+     * A player without a gui, it runs its own headless raft member and issues game commands whenever it is told to act.
+     * @param port The local port of the bot's raft member.
+     * @param username The username of the bot.
+     * @param mix How often the bot issues each kind of command.
+     * @param seed Seeds the bot's choices so runs can be repeated.
+     * @throws IOException if the port could not be bound.
+     */
+    public Bot(int port, String username, CommandMix mix, long seed) throws IOException {
+        this(new SystemRaftRuntime(port), username, mix, seed);
+    }
+
+    /**
+     * A player without a gui whose raft member runs on the given runtime, like a simulated one.
+     * @param runtime The runtime of the bot's raft member.
+     * @param username The username of the bot.
+     * @param mix How often the bot issues each kind of command.
+     * @param seed Seeds the bot's choices so runs can be repeated.
+     * @throws IOException if the runtime's transport could not be opened.
+     */
+    public Bot(RaftRuntime runtime, String username, CommandMix mix, long seed) throws IOException {
+        this.username = username;
+        this.raft = new Raft(username, sink, runtime);
+        this.mix = mix;
+        this.random = new Random(seed);
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public Raft getRaft() {
+        return raft;
+    }
+
+    /**
+     * @return true once the bot has a place in the dungeon.
+     */
+    public boolean isReady() {
+        return sink.getCurrentRoom() != null;
+    }
+
+    public long getCommandsSubmitted() {
+        return commandsSubmitted.get();
+    }
+
+    /**
+     * Submits the bot's next command, does nothing until the bot has joined the game.
+     */
+    public void act() {
+        Room room = sink.getCurrentRoom();
+        if (room == null) return;
+        raft.sendMessage(nextCommand(room));
+        commandsSubmitted.incrementAndGet();
+    }
+
+    private String nextCommand(Room room) {
+        Command command = mix.pick(random);
+        switch (command) {
+            case ATTACK:
+                String enemy = pickEnemy(room);
+                if (enemy != null) return ".attack " + enemy;
+                break;
+            case PICKUP:
+                String item = pickItem(room);
+                if (item != null) return ".pickup " + item;
+                break;
+            case CHAT:
+                return ".chat " + username + " is exploring room " + room.prettyRoomNumber();
+            case DESCEND:
+                // like the gui, only try from the boss room
+                if (room.isBossRoom()) return ".descend";
+                break;
+            default:
+                break;
+        }
+        // nothing to attack or pick up here, so look for it somewhere else
+        return ".move " + DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+    }
+
+    /**
+     * The room belongs to the state machine, which may be changing it while the bot reads it. A read that races with
+     * a change just makes the bot move on instead.
+     */
+    private String pickEnemy(Room room) {
+        try {
+            List<String> names = new ArrayList<>();
+            for (Entity entity : room.entities) {
+                if (entity != null && !entity.isDead()) names.add(entity.name);
+            }
+            return names.isEmpty() ? null : names.get(random.nextInt(names.size()));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private String pickItem(Room room) {
+        try {
+            List<String> names = new ArrayList<>();
+            for (Item item : room.items) {
+                if (item != null) names.add(item.name);
+            }
+            return names.isEmpty() ? null : names.get(random.nextInt(names.size()));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
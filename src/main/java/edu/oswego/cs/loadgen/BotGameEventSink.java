@@ -0,0 +1,48 @@
+package edu.oswego.cs.loadgen;
+
+import edu.oswego.cs.dungeon.Floor;
+import edu.oswego.cs.dungeon.GameUser;
+import edu.oswego.cs.dungeon.Room;
+import edu.oswego.cs.game.GameEventSink;
+
+public class BotGameEventSink implements GameEventSink {
+
+    // written by the state machine, read by the thread picking the bot's next command
+    private volatile Room currentRoom;
+
+    /**
+     * Keeps track of the room a bot is in, which is all a bot needs to pick its next command. Messages are dropped.
+     */
+    public BotGameEventSink() {
+    }
+
+    /**
+     * @return The room the bot is in, null until the bot has joined the game.
+     */
+    public Room getCurrentRoom() {
+        return currentRoom;
+    }
+
+    @Override
+    public void initialize(GameUser user, Floor floor) {
+        currentRoom = user.currentRoom;
+    }
+
+    @Override
+    public void addMessage(String message) {
+    }
+
+    @Override
+    public void roomChanged(Room room) {
+        currentRoom = room;
+    }
+
+    @Override
+    public void floorChanged(GameUser user, Room room, Floor floor) {
+        currentRoom = room;
+    }
+
+    @Override
+    public void listRoomEnemies(String username) {
+    }
+}
@@ -0,0 +1,65 @@
+package edu.oswego.cs.loadgen;
+
+import edu.oswego.cs.client.Command;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class CommandMix {
+
+    public static final String DEFAULT = "move=40,attack=20,pickup=15,chat=20,descend=5";
+
+    private final Command[] commands;
+    // cumulativeWeights[i] is the sum of the weights of commands[0] through commands[i]
+    private final int[] cumulativeWeights;
+
+    private CommandMix(List<Command> commands, List<Integer> weights) {
+        this.commands = commands.toArray(new Command[0]);
+        this.cumulativeWeights = new int[weights.size()];
+        int total = 0;
+        for (int i = 0; i < weights.size(); i++) {
+            total += weights.get(i);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    /**
+     * @param mix Comma separated command=weight pairs, for example "move=3,chat=1" issues three moves for every chat.
+     * @return The parsed mix.
+     * @throws IllegalArgumentException if a pair isn't a known command and a positive weight.
+     */
+    public static CommandMix parse(String mix) {
+        List<Command> commands = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        for (String pair : mix.split(",")) {
+            String[] parts = pair.trim().split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected command=weight but got '" + pair + "'.");
+            }
+            Command command = Command.valueOf(parts[0].trim().toUpperCase());
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight <= 0) {
+                throw new IllegalArgumentException("The weight of " + parts[0] + " must be positive.");
+            }
+            commands.add(command);
+            weights.add(weight);
+        }
+        if (commands.isEmpty()) {
+            throw new IllegalArgumentException("The command mix is empty.");
+        }
+        return new CommandMix(commands, weights);
+    }
+
+    /**
+     * @param random The bot's random number generator.
+     * @return A command picked with the probability of its weight.
+     */
+    public Command pick(Random random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) return commands[i];
+        }
+        return commands[commands.length - 1];
+    }
+}
@@ -0,0 +1,182 @@
+package edu.oswego.cs.loadgen;
+
+import edu.oswego.cs.Args;
+import edu.oswego.cs.metrics.Histogram;
+import edu.oswego.cs.metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives a cluster with bots over loopback and reports how it keeps up. Without --join the first bot hosts a new group
+ * and the others join it, with --join every bot joins the group at that address instead.
+ * Usage: java -cp target/classes edu.oswego.cs.loadgen.LoadGenerator [--bots=3] [--rate=50] [--duration=30]
+ *        [--report=5] [--port=27500] [--join=host:port] [--mix=move=40,attack=20,pickup=15,chat=20,descend=5] [--seed=1]
+ * The rate is in commands per second across all bots. Every command is traced unless -Draft.trace.sampleEvery says
+ * otherwise, that is where the submit to apply latency comes from.
+ */
+public class LoadGenerator {
+
+    private static final long JOIN_TIMEOUT_MS = 10_000;
+
+    private final Bot[] bots;
+    private long lastCommitIndex = -1;
+    private long lastReportAt;
+
+    private LoadGenerator(Bot[] bots) {
+        this.bots = bots;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        HashMap<String, String> options = new HashMap<>();
+        Args.parseOptions(args, options);
+        // has to be set before raft reads its configuration
+        if (System.getProperty("raft.trace.sampleEvery") == null) {
+            System.setProperty("raft.trace.sampleEvery", "1");
+        }
+        System.setProperty("java.awt.headless", "true");
+
+        int botCount = Integer.parseInt(options.getOrDefault("bots", "3"));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "50"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "30"));
+        int reportSeconds = Integer.parseInt(options.getOrDefault("report", "5"));
+        int firstPort = Integer.parseInt(options.getOrDefault("port", "27500"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+        CommandMix mix = CommandMix.parse(options.getOrDefault("mix", CommandMix.DEFAULT));
+        if (botCount <= 0 || rate <= 0) {
+            System.err.println("--bots and --rate must be positive.");
+            return;
+        }
+
+        Bot[] bots = new Bot[botCount];
+        for (int i = 0; i < botCount; i++) {
+            bots[i] = new Bot(firstPort + i, "bot" + i, mix, seed + i);
+        }
+        LoadGenerator loadGenerator = new LoadGenerator(bots);
+        if (options.containsKey("join")) {
+            String join = options.get("join");
+            int index = join.lastIndexOf(':');
+            loadGenerator.joinCluster(new InetSocketAddress(join.substring(0, index), Integer.parseInt(join.substring(index + 1))));
+        } else {
+            loadGenerator.startCluster(firstPort);
+        }
+        loadGenerator.run(rate, durationSeconds, reportSeconds);
+        for (Bot bot : bots) {
+            bot.getRaft().exitRaft();
+        }
+        System.exit(0);
+    }
+
+    private void startCluster(int hostPort) throws InterruptedException {
+        bots[0].getRaft().startRaftGroup();
+        awaitReady(bots[0]);
+        for (int i = 1; i < bots.length; i++) {
+            bots[i].getRaft().joinRaftGroup(new InetSocketAddress("127.0.0.1", hostPort));
+            // members are added one at a time, like players joining
+            awaitReady(bots[i]);
+        }
+    }
+
+    private void joinCluster(InetSocketAddress groupAddress) throws InterruptedException {
+        for (Bot bot : bots) {
+            bot.getRaft().joinRaftGroup(groupAddress);
+            awaitReady(bot);
+        }
+    }
+
+    private void awaitReady(Bot bot) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + JOIN_TIMEOUT_MS;
+        while (!bot.isReady() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        if (!bot.isReady()) {
+            System.err.println(bot.getUsername() + " did not join the game within " + JOIN_TIMEOUT_MS + " ms.");
+        }
+    }
+
+    private void run(double rate, int durationSeconds, int reportSeconds) throws InterruptedException {
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(Math.min(bots.length, 4));
+        // every bot issues its share of the rate, spread out so they don't all submit at once
+        long periodNanos = Math.max(1, (long) (bots.length * 1_000_000_000L / rate));
+        for (int i = 0; i < bots.length; i++) {
+            Bot bot = bots[i];
+            scheduler.scheduleAtFixedRate(() -> {
+                try {
+                    bot.act();
+                } catch (RuntimeException e) {
+                    System.err.println(bot.getUsername() + " failed to submit a command: " + e);
+                }
+            }, periodNanos * i / bots.length, periodNanos, TimeUnit.NANOSECONDS);
+        }
+
+        long startedAt = System.nanoTime();
+        lastCommitIndex = getHighestCommitIndex();
+        lastReportAt = startedAt;
+        long firstCommitIndex = lastCommitIndex;
+        System.out.println(bots.length + " bots, " + rate + " commands/s for " + durationSeconds + " s");
+        long endAt = startedAt + TimeUnit.SECONDS.toNanos(durationSeconds);
+        while (System.nanoTime() < endAt) {
+            Thread.sleep(Math.min(TimeUnit.SECONDS.toMillis(reportSeconds), Math.max(1, TimeUnit.NANOSECONDS.toMillis(endAt - System.nanoTime()))));
+            report((System.nanoTime() - startedAt) / 1_000_000_000.0);
+        }
+        scheduler.shutdownNow();
+
+        double elapsedSeconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+        long submitted = 0;
+        for (Bot bot : bots) {
+            submitted += bot.getCommandsSubmitted();
+        }
+        Histogram latency = getSubmitToApplyMicros();
+        System.out.printf("total: submitted %d (%.1f/s), committed %d (%.1f/s), submit to apply over %d commands: p50 %d us, p99 %d us, p999 %d us, max %d us%n",
+                submitted, submitted / elapsedSeconds,
+                getHighestCommitIndex() - firstCommitIndex, (getHighestCommitIndex() - firstCommitIndex) / elapsedSeconds,
+                latency.getCount(), latency.getPercentile(0.5), latency.getPercentile(0.99), latency.getPercentile(0.999), latency.getMax());
+    }
+
+    /**
+     * Prints the commit rate since the last report, the submit to apply latency so far and how far behind the slowest
+     * member is.
+     */
+    private void report(double elapsedSeconds) {
+        long now = System.nanoTime();
+        long commitIndex = getHighestCommitIndex();
+        double commitRate = (commitIndex - lastCommitIndex) * 1_000_000_000.0 / Math.max(1, now - lastReportAt);
+        lastCommitIndex = commitIndex;
+        lastReportAt = now;
+
+        long maxLag = 0;
+        long totalLag = 0;
+        for (Bot bot : bots) {
+            long lag = commitIndex - bot.getRaft().getLastActionConfirmed();
+            maxLag = Math.max(maxLag, lag);
+            totalLag += lag;
+        }
+        Histogram latency = getSubmitToApplyMicros();
+        System.out.printf("%6.1f s  committed %8.1f/s  submit to apply p50 %7d us  p99 %7d us  p999 %7d us  follower lag max %d mean %.1f%n",
+                elapsedSeconds, commitRate, latency.getPercentile(0.5), latency.getPercentile(0.99), latency.getPercentile(0.999),
+                maxLag, (double) totalLag / bots.length);
+    }
+
+    private long getHighestCommitIndex() {
+        long commitIndex = -1;
+        for (Bot bot : bots) {
+            commitIndex = Math.max(commitIndex, bot.getRaft().getLastActionConfirmed());
+        }
+        return commitIndex;
+    }
+
+    /**
+     * @return Every bot's submit to apply latency combined into one histogram.
+     */
+    private Histogram getSubmitToApplyMicros() {
+        Histogram combined = new MetricsRegistry().histogram("loadgen_submit_to_apply_micros", "Submit to apply latency of every bot.");
+        for (Bot bot : bots) {
+            combined.add(bot.getRaft().getMetrics().getSubmitToApplyMicros());
+        }
+        return combined;
+    }
+}
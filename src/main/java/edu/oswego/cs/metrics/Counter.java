@@ -0,0 +1,44 @@
+package edu.oswego.cs.metrics;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+public class Counter extends Metric {
+
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * A count that only goes up. Increments from many threads don't contend with each other, the total is only added
+     * up when it is read.
+     */
+    Counter(String name, String help, String labels) {
+        super(name, help, labels);
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    public long get() {
+        return count.sum();
+    }
+
+    @Override
+    protected String getType() {
+        return "counter";
+    }
+
+    @Override
+    protected void writeSamples(StringBuilder out) {
+        out.append(getSeriesName()).append(' ').append(get()).append('\n');
+    }
+
+    @Override
+    protected void collect(Map<String, Object> values) {
+        values.put(getSeriesName(), get());
+    }
+}
@@ -0,0 +1,41 @@
+package edu.oswego.cs.metrics;
+
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+
+public class Gauge extends Metric {
+
+    private final DoubleSupplier value;
+    private final String type;
+
+    /**
+     * A value that is read from somewhere else every time the metrics are collected, so keeping it up to date costs
+     * nothing on the path that changes it.
+     * @param value Reads the current value.
+     * @param type "gauge", or "counter" for a count that is already kept elsewhere.
+     */
+    Gauge(String name, String help, String labels, DoubleSupplier value, String type) {
+        super(name, help, labels);
+        this.value = value;
+        this.type = type;
+    }
+
+    public double get() {
+        return value.getAsDouble();
+    }
+
+    @Override
+    protected String getType() {
+        return type;
+    }
+
+    @Override
+    protected void writeSamples(StringBuilder out) {
+        out.append(getSeriesName()).append(' ').append(MetricsRegistry.formatValue(get())).append('\n');
+    }
+
+    @Override
+    protected void collect(Map<String, Object> values) {
+        values.put(getSeriesName(), get());
+    }
+}
@@ -0,0 +1,42 @@
+package edu.oswego.cs.metrics;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+public class GaugeFamily extends Metric {
+
+    private final String labelName;
+    private final Supplier<Map<String, ? extends Number>> values;
+
+    /**
+     * A set of gauges whose members come and go, like one per follower. Every time the metrics are collected the
+     * supplier is asked for the current value of each member.
+     * @param labelName The label that tells the members apart.
+     * @param values Reads the current value of every member, keyed by the value of the label.
+     */
+    GaugeFamily(String name, String help, String labels, String labelName, Supplier<Map<String, ? extends Number>> values) {
+        super(name, help, labels);
+        this.labelName = labelName;
+        this.values = values;
+    }
+
+    @Override
+    protected String getType() {
+        return "gauge";
+    }
+
+    @Override
+    protected void writeSamples(StringBuilder out) {
+        for (Map.Entry<String, ? extends Number> entry : values.get().entrySet()) {
+            out.append(getSeriesName("", labelName + "=\"" + MetricsRegistry.escapeLabelValue(entry.getKey()) + "\""))
+                    .append(' ').append(MetricsRegistry.formatValue(entry.getValue().doubleValue())).append('\n');
+        }
+    }
+
+    @Override
+    protected void collect(Map<String, Object> values) {
+        for (Map.Entry<String, ? extends Number> entry : this.values.get().entrySet()) {
+            values.put(getSeriesName("", labelName + "=\"" + MetricsRegistry.escapeLabelValue(entry.getKey()) + "\""), entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package edu.oswego.cs.metrics;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class Histogram extends Metric {
+
+    // bucket i counts values up to 2^i, the last one counts everything larger
+    private static final int BUCKET_COUNT = 32;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT + 1];
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Counts recorded values in buckets whose upper bounds are powers of two. Finding the bucket is a single
+     * instruction and every bucket is a striped counter, so recording from many threads stays cheap. The unit is
+     * whatever the caller records in, which the metric name should say.
+     */
+    Histogram(String name, String help, String labels) {
+        super(name, help, labels);
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param value The value to record, negative values are recorded as 0.
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        int bucket = value == 0 ? 0 : Math.min(BUCKET_COUNT, 64 - Long.numberOfLeadingZeros(value - 1));
+        buckets[bucket].increment();
+        sum.add(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Adds every value recorded in another histogram to this one, for example to combine the same series of several members.
+     * @param other The histogram to add, it isn't changed.
+     */
+    public void add(Histogram other) {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i].add(other.buckets[i].sum());
+        }
+        sum.add(other.sum.sum());
+        max.accumulateAndGet(other.max.get(), Math::max);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param quantile A fraction between 0 and 1.
+     * @return The upper bound of the bucket the quantile falls in, or the largest value recorded if that is smaller.
+     */
+    public long getPercentile(double quantile) {
+        long count = getCount();
+        if (count == 0) return 0;
+        long rank = (long) Math.ceil(quantile * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets[i].sum();
+            if (seen >= rank) return Math.min(1L << i, getMax());
+        }
+        return getMax();
+    }
+
+    @Override
+    protected String getType() {
+        return "histogram";
+    }
+
+    @Override
+    protected void writeSamples(StringBuilder out) {
+        long cumulative = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulative += buckets[i].sum();
+            out.append(getSeriesName("_bucket", "le=\"" + (1L << i) + "\"")).append(' ').append(cumulative).append('\n');
+        }
+        cumulative += buckets[BUCKET_COUNT].sum();
+        out.append(getSeriesName("_bucket", "le=\"+Inf\"")).append(' ').append(cumulative).append('\n');
+        out.append(getSeriesName("_sum", null)).append(' ').append(sum.sum()).append('\n');
+        out.append(getSeriesName("_count", null)).append(' ').append(cumulative).append('\n');
+    }
+
+    @Override
+    protected void collect(Map<String, Object> values) {
+        values.put(getSeriesName("_count", null), getCount());
+        values.put(getSeriesName("_mean", null), getMean());
+        values.put(getSeriesName("_p50", null), getPercentile(0.5));
+        values.put(getSeriesName("_p99", null), getPercentile(0.99));
+        values.put(getSeriesName("_max", null), getMax());
+    }
+}
@@ -0,0 +1,65 @@
+package edu.oswego.cs.metrics;
+
+import java.util.Map;
+
+public abstract class Metric {
+
+    protected final String name;
+    protected final String help;
+    // already formatted as name="value" pairs separated by commas, empty if there are none
+    protected final String labels;
+
+    /**
+     * @param name The metric name, which every series of the same metric shares.
+     * @param help A one line description of the metric.
+     * @param labels The labels that tell this series apart from the others with the same name.
+     */
+    protected Metric(String name, String help, String labels) {
+        this.name = name;
+        this.help = help;
+        this.labels = labels;
+    }
+
+    /**
+     * @return The Prometheus type of the metric.
+     */
+    protected abstract String getType();
+
+    /**
+     * Appends the metric's samples in Prometheus text format.
+     * @param out The builder the samples are appended to.
+     */
+    protected abstract void writeSamples(StringBuilder out);
+
+    /**
+     * Puts the metric's current values into a map, keyed the way they are shown over JMX.
+     * @param values The map the values are put into.
+     */
+    protected abstract void collect(Map<String, Object> values);
+
+    /**
+     * @param label A label name.
+     * @return The value of the label, null if this series doesn't have it.
+     */
+    public String getLabel(String label) {
+        String prefix = label + "=\"";
+        int start;
+        if (labels.startsWith(prefix)) {
+            start = prefix.length();
+        } else {
+            int at = labels.indexOf("," + prefix);
+            if (at < 0) return null;
+            start = at + 1 + prefix.length();
+        }
+        return labels.substring(start, labels.indexOf('"', start));
+    }
+
+    protected String getSeriesName() {
+        return labels.isEmpty() ? name : name + "{" + labels + "}";
+    }
+
+    protected String getSeriesName(String suffix, String extraLabel) {
+        String allLabels = extraLabel == null ? labels : labels.isEmpty() ? extraLabel : labels + "," + extraLabel;
+        return allLabels.isEmpty() ? name + suffix : name + suffix + "{" + allLabels + "}";
+    }
+}
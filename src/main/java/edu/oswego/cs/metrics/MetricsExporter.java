@@ -0,0 +1,88 @@
+package edu.oswego.cs.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+public final class MetricsExporter {
+
+    private static final String OBJECT_NAME = "edu.oswego.cs:type=Metrics";
+    private static boolean registeredWithJmx = false;
+    private static HttpServer httpServer;
+    // every endpoint besides /metrics, kept so they can be added before the server starts
+    private static final Map<String, Supplier<String>> endpoints = new LinkedHashMap<>();
+
+    private MetricsExporter() {
+    }
+
+    /**
+     * Exposes the default registry over JMX and, if a port is given, serves it in Prometheus text format at /metrics
+     * on the loopback address. Every raft instance in a process shares the same exporter, so only the first call does
+     * anything.
+     * @param httpPort The port to serve the metrics on, 0 for any free port, negative to not serve them over HTTP.
+     */
+    public static synchronized void start(int httpPort) {
+        MetricsRegistry registry = MetricsRegistry.getDefault();
+        if (!registeredWithJmx) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(registry), new ObjectName(OBJECT_NAME));
+            } catch (JMException e) {
+                System.err.println("The metrics could not be registered with JMX.");
+            }
+            registeredWithJmx = true;
+        }
+        if (httpPort < 0 || httpServer != null) return;
+        try {
+            httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), httpPort), 0);
+        } catch (IOException e) {
+            System.err.println("The metrics endpoint could not be bound to port " + httpPort + ".");
+            return;
+        }
+        createContext("/metrics", "text/plain; version=0.0.4; charset=utf-8", registry::toPrometheusText);
+        for (Map.Entry<String, Supplier<String>> endpoint : endpoints.entrySet()) {
+            createContext(endpoint.getKey(), "application/json", endpoint.getValue());
+        }
+        httpServer.setExecutor(null);
+        httpServer.start();
+    }
+
+    /**
+     * Serves a JSON document next to the metrics, once the metrics are served over HTTP. Only the first body given for
+     * a path is kept.
+     * @param path The path to serve it at.
+     * @param body Produces the document each time it is asked for.
+     */
+    public static synchronized void addJsonEndpoint(String path, Supplier<String> body) {
+        if (endpoints.putIfAbsent(path, body) == null && httpServer != null) {
+            createContext(path, "application/json", body);
+        }
+    }
+
+    private static void createContext(String path, String contentType, Supplier<String> body) {
+        httpServer.createContext(path, exchange -> {
+            byte[] bytes = body.get().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+    }
+
+    /**
+     * @return The port the metrics are served on, -1 if they aren't.
+     */
+    public static synchronized int getHttpPort() {
+        return httpServer == null ? -1 : httpServer.getAddress().getPort();
+    }
+}
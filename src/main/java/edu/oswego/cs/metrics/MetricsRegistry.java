@@ -0,0 +1,155 @@
+package edu.oswego.cs.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+public class MetricsRegistry {
+
+    private static final MetricsRegistry defaultRegistry = new MetricsRegistry();
+
+    // sorted by series name so every series of a metric sits next to the others when written out
+    private final ConcurrentSkipListMap<String, Metric> metrics = new ConcurrentSkipListMap<>();
+
+    /**
+     * Holds every metric so they can all be exported together. Metrics are created once, by whatever owns them, and the
+     * owner keeps the reference so updating one never looks anything up.
+     */
+    public MetricsRegistry() {
+    }
+
+    /**
+     * @return The registry shared by everything in this process, which is the one exported over JMX and HTTP.
+     */
+    public static MetricsRegistry getDefault() {
+        return defaultRegistry;
+    }
+
+    /**
+     * @param name The metric name.
+     * @param help A one line description of the metric.
+     * @param labels Label names and values, alternating.
+     * @return The counter with that name and labels, created if it doesn't exist yet.
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return register(new Counter(name, help, formatLabels(labels)), Counter.class);
+    }
+
+    /**
+     * @param name The metric name, which should end in the unit values are recorded in.
+     * @param help A one line description of the metric.
+     * @param labels Label names and values, alternating.
+     * @return The histogram with that name and labels, created if it doesn't exist yet.
+     */
+    public Histogram histogram(String name, String help, String... labels) {
+        return register(new Histogram(name, help, formatLabels(labels)), Histogram.class);
+    }
+
+    /**
+     * Registers a value that is read every time the metrics are collected, replacing any gauge with the same name and labels.
+     * @param name The metric name.
+     * @param help A one line description of the metric.
+     * @param value Reads the current value.
+     * @param labels Label names and values, alternating.
+     */
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        Gauge gauge = new Gauge(name, help, formatLabels(labels), value, "gauge");
+        metrics.put(gauge.getSeriesName(), gauge);
+    }
+
+    /**
+     * Registers a count that is already kept somewhere else and only has to be read when the metrics are collected.
+     * @param name The metric name.
+     * @param help A one line description of the metric.
+     * @param value Reads the current count.
+     * @param labels Label names and values, alternating.
+     */
+    public void counterFunction(String name, String help, DoubleSupplier value, String... labels) {
+        Gauge gauge = new Gauge(name, help, formatLabels(labels), value, "counter");
+        metrics.put(gauge.getSeriesName(), gauge);
+    }
+
+    /**
+     * Registers a set of gauges whose members come and go, like one per follower.
+     * @param name The metric name.
+     * @param help A one line description of the metric.
+     * @param labelName The label that tells the members apart.
+     * @param values Reads the current value of every member, keyed by the value of the label.
+     * @param labels Label names and values shared by every member, alternating.
+     */
+    public void gaugeFamily(String name, String help, String labelName, Supplier<Map<String, ? extends Number>> values, String... labels) {
+        GaugeFamily family = new GaugeFamily(name, help, formatLabels(labels), labelName, values);
+        metrics.put(family.getSeriesName(), family);
+    }
+
+    /**
+     * Removes every series that has the given label value, used when the member the series describe goes away.
+     * @param label A label name.
+     * @param value The value of the label.
+     */
+    public void removeAll(String label, String value) {
+        metrics.values().removeIf(metric -> value.equals(metric.getLabel(label)));
+    }
+
+    /**
+     * @return Every metric in Prometheus text exposition format.
+     */
+    public String toPrometheusText() {
+        StringBuilder out = new StringBuilder();
+        String lastName = null;
+        for (Metric metric : metrics.values()) {
+            if (!metric.name.equals(lastName)) {
+                out.append("# HELP ").append(metric.name).append(' ').append(metric.help).append('\n');
+                out.append("# TYPE ").append(metric.name).append(' ').append(metric.getType()).append('\n');
+                lastName = metric.name;
+            }
+            metric.writeSamples(out);
+        }
+        return out.toString();
+    }
+
+    /**
+     * @return The current value of every series, keyed by series name. Histograms are summarised by their count, mean,
+     * percentiles and max.
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> values = new TreeMap<>();
+        for (Metric metric : metrics.values()) {
+            metric.collect(values);
+        }
+        return values;
+    }
+
+    private <T extends Metric> T register(T metric, Class<T> type) {
+        Metric existing = metrics.putIfAbsent(metric.getSeriesName(), metric);
+        if (existing == null) return metric;
+        if (!type.isInstance(existing)) {
+            throw new IllegalArgumentException(metric.getSeriesName() + " is already registered as a " + existing.getType() + ".");
+        }
+        return type.cast(existing);
+    }
+
+    private static String formatLabels(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels have to be given as name and value pairs.");
+        }
+        StringBuilder formatted = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) formatted.append(',');
+            formatted.append(labels[i]).append("=\"").append(escapeLabelValue(labels[i + 1])).append('"');
+        }
+        return formatted.toString();
+    }
+
+    static String escapeLabelValue(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    static String formatValue(double value) {
+        if (Double.isInfinite(value)) return value > 0 ? "+Inf" : "-Inf";
+        if (value == (long) value) return Long.toString((long) value);
+        return Double.toString(value);
+    }
+}
@@ -0,0 +1,89 @@
+package edu.oswego.cs.metrics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+
+public class TraceBuffer {
+
+    private final ArrayBlockingQueue<TraceRecord> records;
+
+    /**
+     * Keeps the most recent trace records, the oldest is dropped once it is full.
+     * @param capacity The most records kept.
+     */
+    public TraceBuffer(int capacity) {
+        this.records = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    }
+
+    public void add(TraceRecord record) {
+        while (!records.offer(record)) {
+            records.poll();
+        }
+    }
+
+    /**
+     * @return The records currently held, oldest first.
+     */
+    public List<TraceRecord> getRecords() {
+        return new ArrayList<>(records);
+    }
+
+    /**
+     * Writes the records as Chrome trace event JSON, which chrome://tracing and Perfetto can open. Every member shows up
+     * as a process, every traced operation as a thread and the time spent getting to each stage as a slice ending when
+     * the stage was reached. Times come from each member's own clock.
+     * @return The JSON document.
+     */
+    public String toChromeTraceJson() {
+        StringBuilder out = new StringBuilder("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        Map<String, Integer> processIds = new HashMap<>();
+        boolean first = true;
+        for (TraceRecord record : records) {
+            Integer processId = processIds.get(record.member);
+            if (processId == null) {
+                processId = processIds.size() + 1;
+                processIds.put(record.member, processId);
+                first = appendSeparator(out, first);
+                out.append("{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":").append(processId)
+                        .append(",\"args\":{\"name\":\"").append(escape(record.member)).append("\"}}");
+            }
+            long threadId = record.traceId & 0x7FFFFFFFL;
+            for (int i = 1; i < record.stages.length; i++) {
+                first = appendSeparator(out, first);
+                out.append("{\"name\":\"").append(escape(record.stages[i]))
+                        .append("\",\"cat\":\"").append(escape(record.name))
+                        .append("\",\"ph\":\"X\",\"pid\":").append(processId)
+                        .append(",\"tid\":").append(threadId)
+                        .append(",\"ts\":").append(record.stageTimesMicros[i - 1])
+                        .append(",\"dur\":").append(record.stageTimesMicros[i] - record.stageTimesMicros[i - 1])
+                        .append(",\"args\":{\"traceId\":\"").append(Long.toHexString(record.traceId))
+                        .append("\",\"logIndex\":").append(record.logIndex)
+                        .append(",\"from\":\"").append(escape(record.stages[i - 1])).append("\"}}");
+            }
+        }
+        return out.append("]}").toString();
+    }
+
+    private static boolean appendSeparator(StringBuilder out, boolean first) {
+        if (!first) out.append(',');
+        return false;
+    }
+
+    private static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c < 0x20) {
+                escaped.append(String.format("\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,31 @@
+package edu.oswego.cs.metrics;
+
+public class TraceRecord {
+
+    public final String member;
+    public final long traceId;
+    public final String name;
+    public final int logIndex;
+    // the stages the traced operation went through on this member, in the order it reached them
+    public final String[] stages;
+    // when each stage was reached, in microseconds since the epoch
+    public final long[] stageTimesMicros;
+
+    /**
+     * What one member saw of one traced operation.
+     * @param member The member that recorded it.
+     * @param traceId The id shared by every member's record of the same operation.
+     * @param name A short name for the operation.
+     * @param logIndex The log index of the operation.
+     * @param stages The stages reached, in the order they were reached.
+     * @param stageTimesMicros When each stage was reached, in microseconds since the epoch.
+     */
+    public TraceRecord(String member, long traceId, String name, int logIndex, String[] stages, long[] stageTimesMicros) {
+        this.member = member;
+        this.traceId = traceId;
+        this.name = name;
+        this.logIndex = logIndex;
+        this.stages = stages;
+        this.stageTimesMicros = stageTimesMicros;
+    }
+}
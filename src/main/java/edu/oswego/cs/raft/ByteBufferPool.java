@@ -0,0 +1,54 @@
+package edu.oswego.cs.raft;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ByteBufferPool {
+
+    private final ArrayBlockingQueue<ByteBuffer> buffers;
+    private final int bufferSize;
+    private final AtomicLong exhaustedCount = new AtomicLong();
+
+    /**
+     * Creates a pool of reusable direct buffers. Every buffer is allocated up front.
+     * @param poolSize The number of buffers kept in the pool.
+     * @param bufferSize The capacity of each buffer in bytes.
+     */
+    public ByteBufferPool(int poolSize, int bufferSize) {
+        this.buffers = new ArrayBlockingQueue<>(poolSize);
+        this.bufferSize = bufferSize;
+        for (int i = 0; i < poolSize; i++) {
+            buffers.add(ByteBuffer.allocateDirect(bufferSize));
+        }
+    }
+
+    /**
+     * Takes a cleared buffer from the pool. If the pool is empty a new buffer is allocated and the exhaustion count is incremented.
+     * @return A buffer ready to be written to.
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+        if (buffer == null) {
+            exhaustedCount.incrementAndGet();
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool. Buffers beyond the pool's size are left for the garbage collector.
+     * @param buffer The buffer that is no longer in use.
+     */
+    public void release(ByteBuffer buffer) {
+        buffer.clear();
+        buffers.offer(buffer);
+    }
+
+    /**
+     * @return The number of times a buffer had to be allocated because the pool was empty.
+     */
+    public long getExhaustedCount() {
+        return exhaustedCount.get();
+    }
+}
@@ -3,69 +3,72 @@ package edu.oswego.cs.raft;
 import edu.oswego.cs.Packets.*;
 import edu.oswego.cs.Security.Encryption;
 import edu.oswego.cs.game.Action;
+import edu.oswego.cs.game.LogEntry;
+import edu.oswego.cs.game.TraceStage;
 
 import javax.crypto.spec.SecretKeySpec;
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
 import java.text.ParseException;
-import java.util.List;
+import java.util.Collections;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
-public class PacketHandler extends Thread {
-    private final DatagramPacket datagramPacket;
+public class PacketHandler implements Runnable {
+    private final ByteBuffer packetBuffer;
+    private final SocketAddress socketAddress;
+    private final ByteBufferPool bufferPool;
     private final Raft raft;
     private final String serverUsername;
-    private final DatagramSocket serverSocket;
-    private final ScheduledExecutorService scheduledExecutorService;
-    private final Object logConfirmerNotifier;
-    private final ConcurrentHashMap<Integer, Action> actionMap;
-    private final Object followerLogMaintainerObject;
-    private final List<Action> readOnlyLog;
+    private final RaftTransport transport;
+    private final RaftReorderBuffer reorderBuffer;
+    private final RaftLog readOnlyLog;
     private final Encryption encryption;
+    // the username of whoever sent the packet, looked up from its member id
+    private String senderUsername;
 
     /**
-     * Creates a Packet handling thread that parses, decrypts, and handles any actions for a received packet.
-     * @param serverSocket The server socket associated with a raft instance.
+     * Creates a Packet handling task that parses, decrypts, and handles any actions for a received packet.
+     * @param packetBuffer A pooled buffer holding the received datagram. It is returned to the pool once the packet is handled.
+     * @param socketAddress The address the datagram was received from.
+     * @param bufferPool The pool the packet buffer came from, also used for the decrypted copy of the packet.
      * @param raft A reference to the raft instance this handler is associated with.
      * @param serverUsername The username connected to the associated raft instance.
-     * @param logConfirmerNotifier An object the RaftLogConfirmer waits on and can be notified upon certain packets being received. (Saves CPU cycles)
-     * @param actionMap A map of all the actions that are cached for out of order message reordering.
-     * @param followerLogMaintainerObject An object the FollowerLogMaintainer waits on and is notified when certain packets are received. (Saves CPU cycles)
+     * @param transport The transport the raft instance sends with.
+     * @param reorderBuffer The window of entries received ahead of the end of the log.
      * @param readOnlyLog The raft log (intended to be read only)
      * @param encryption The encryption object that allows for Public Key, Private Key, and Secret Key use when sending/receiving messages.
      */
-    public PacketHandler(DatagramPacket packet, Raft raft, String serverUsername, DatagramSocket serverSocket, ScheduledExecutorService scheduledExecutorService, Object logConfirmerNotifier, ConcurrentHashMap<Integer, Action> actionMap, Object followerLogMaintainerObject, List<Action> readOnlyLog, Encryption encryption) {
-        this.datagramPacket = packet;
+    public PacketHandler(ByteBuffer packetBuffer, SocketAddress socketAddress, ByteBufferPool bufferPool, Raft raft, String serverUsername, RaftTransport transport, RaftReorderBuffer reorderBuffer, RaftLog readOnlyLog, Encryption encryption) {
+        this.packetBuffer = packetBuffer;
+        this.socketAddress = socketAddress;
+        this.bufferPool = bufferPool;
         this.raft = raft;
         this.serverUsername = serverUsername;
-        this.serverSocket = serverSocket;
-        this.scheduledExecutorService = scheduledExecutorService;
-        this.logConfirmerNotifier = logConfirmerNotifier;
-        this.actionMap = actionMap;
-        this.followerLogMaintainerObject = followerLogMaintainerObject;
+        this.transport = transport;
+        this.reorderBuffer = reorderBuffer;
         this.readOnlyLog = readOnlyLog;
         this.encryption = encryption;
     }
 
     @Override
     public void run() {
-        // do the thing
-        SocketAddress socketAddress = datagramPacket.getSocketAddress();
-        byte[] packetData = datagramPacket.getData();
-        ByteBuffer packetBuffer = ByteBuffer.allocate(packetData.length);
-        packetBuffer.put(packetData);
-        packetBuffer.limit(datagramPacket.getLength());
+        ByteBuffer decryptedBuffer = null;
+        int packetLength = packetBuffer.position();
         try {
-            Packet packet = Packet.bytesToPacket(packetBuffer);
+            // the hot packet types are decoded into views reused by the next packet on this thread, nothing keeps them past this task
+            Packet packet;
+            try {
+                packet = Packet.bytesToPacket(packetBuffer);
+            } catch (ParseException e) {
+                // an encrypted datagram can start with a registered opcode and still not parse, so it is decrypted below
+                packet = null;
+            }
             if (packet != null) {
-                raft.updateSessionTimeStamp(packet.username, socketAddress);
+                raft.getMetrics().recordPacketIn(packet, packetLength);
+                raft.updateSessionTimeStamp(packet.sender, socketAddress);
+                senderUsername = packet.username;
                 Opcode opcode = packet.opcode;
                 if (opcode == Opcode.Connect) {
                     ConnectPacket connectPacket = (ConnectPacket) packet;
@@ -78,18 +81,19 @@ public class PacketHandler extends Thread {
                     }
                 }
             } else {
-                packetBuffer.rewind();
-                byte[] encryptedBytes = new byte[packetBuffer.limit()];
-                packetBuffer.get(encryptedBytes);
-                byte[] decryptedBytes = encryption.decryptMessageWithSecretKey(encryptedBytes);
-                if (decryptedBytes == null) return;
-                packetBuffer.rewind();
-                packetBuffer.limit(decryptedBytes.length);
-                packetBuffer.put(decryptedBytes);
-                packet = Packet.bytesToPacket(packetBuffer);
+                // decrypt straight out of the receive buffer into a second pooled buffer
+                packetBuffer.clear();
+                packetBuffer.limit(packetLength);
+                decryptedBuffer = bufferPool.acquire();
+                if (!encryption.decryptMessageWithSecretKey(packetBuffer, decryptedBuffer)) return;
+                packet = Packet.bytesToPacket(decryptedBuffer);
                 if (packet != null) {
+                    raft.getMetrics().recordPacketIn(packet, packetLength);
+                    senderUsername = raft.resolveUsername(packet.sender);
+                    // a member id this member hasn't learned yet, the packet is dropped as if it was lost
+                    if (senderUsername == null) return;
                     // update last message received time
-                    raft.updateSessionTimeStamp(packet.username, socketAddress);
+                    raft.updateSessionTimeStamp(packet.sender, socketAddress);
                     Opcode opcode = packet.opcode;
                     switch (opcode) {
                         case Connect:
@@ -98,9 +102,6 @@ public class PacketHandler extends Thread {
                         case Command:
                             handleCommandPacket(packet, socketAddress);
                             break;
-                        case Log:
-                            handleLogPacket(packet, socketAddress);
-                            break;
                         case Heartbeat:
                             handleHeartbeatPacket(packet, socketAddress);
                             break;
@@ -113,12 +114,23 @@ public class PacketHandler extends Thread {
                         case Candidate:
                             handleCandidatePacket(packet, socketAddress);
                             break;
+                        case Snapshot:
+                            handleSnapshotPacket(packet, socketAddress);
+                            break;
+                        case SnapshotAck:
+                            handleSnapshotAckPacket(packet, socketAddress);
+                            break;
                     }
                 }
             }
         } catch (ParseException e) {
             // Packet parsing exception thrown, ignore the packet
             System.err.println("Packet parsing exception thrown.");
+        } finally {
+            bufferPool.release(packetBuffer);
+            if (decryptedBuffer != null) {
+                bufferPool.release(decryptedBuffer);
+            }
         }
 
     }
@@ -149,10 +161,11 @@ public class PacketHandler extends Thread {
         if (raft.raftMembershipState.get() == RaftMembershipState.LEADER) {
             boolean successfulAdd = raft.addUser(connectPacket.username, socketAddr);
             if (successfulAdd) {
-                ConnectPacket responsePacket = new ConnectionServerHelloPacket(serverUsername, encryption.encryptSecretKeyWithPublicKey(clientHelloPacket.publicKey));
+                ConnectPacket responsePacket = new ConnectionServerHelloPacket(serverUsername, raft.getSelf().id, encryption.encryptSecretKeyWithPublicKey(clientHelloPacket.publicKey));
                 byte[] packetBytes = responsePacket.packetToBytes();
                 try {
-                    serverSocket.send(new DatagramPacket(packetBytes, packetBytes.length, socketAddr));
+                    transport.send(ByteBuffer.wrap(packetBytes), socketAddr);
+                    raft.getMetrics().recordPacketOut(packetBytes, packetBytes.length, 1);
                 } catch (IOException e) {
                     System.err.println("An IOException is thrown when trying to send a message.");
                 }
@@ -170,7 +183,10 @@ public class PacketHandler extends Thread {
     public void handleServerHello(ConnectPacket connectPacket, SocketAddress socketAddr) {
         ConnectionServerHelloPacket connectionServerHelloPacket = (ConnectionServerHelloPacket) connectPacket;
         if (!raft.raftSessionActive) {
-            raft.setLeader(connectPacket.username, new Session(socketAddr, System.nanoTime(), RaftMembershipState.LEADER));
+            if (connectionServerHelloPacket.memberId != MemberRef.NO_ID) {
+                raft.bindMember(connectionServerHelloPacket.memberId, connectPacket.username);
+            }
+            raft.setLeader(connectPacket.username, new Session(socketAddr, raft.nanoTime(), RaftMembershipState.LEADER));
             byte[] encryptedSecretKey = connectionServerHelloPacket.encryptedSecretKey;
             byte[] secretKeyBytes = encryption.decryptMessageWithPrivateKey(encryptedSecretKey);
             encryption.setSecretKey(new SecretKeySpec(secretKeyBytes, 0, secretKeyBytes.length, "AES"));
@@ -184,11 +200,9 @@ public class PacketHandler extends Thread {
         if (raft.raftMembershipState.get() == RaftMembershipState.LEADER) {
                 if (raft.userIsPending(connectPacket.username)) {
                     // add user to log
-                    String command = RaftAdministrationCommand.ADD_MEMBER.name + " " + connectPacket.username + " " + System.nanoTime() + " " + socketAddr.toString().replace("/", "");
-                    raft.addToRaftQueue(command);
+                    raft.addToRaftQueue(raft.newAddMemberEntry(connectPacket.username, (InetSocketAddress) socketAddr));
                 } else if (raft.userIsReconnecting(connectPacket.username)) {
-                    String command = RaftAdministrationCommand.RECONNECT.name + " " + connectPacket.username;
-                    raft.addToRaftQueue(command);
+                    raft.addToRaftQueue(LogEntry.reconnect(connectPacket.username));
                 }
                 // tell client to log that the raft session is active
                 ConnectPacket responsePacket = new ConnectPacket(ConnectSubopcode.Log, serverUsername, new byte[0]);
@@ -196,16 +210,7 @@ public class PacketHandler extends Thread {
                 sendPacket(packetBytes, socketAddr);
 
                 // send log
-                int logLength = raft.getLogLength();
-                for (int i = 0; i < logLength; i++) {
-                    Action action = raft.getLogIndex(i);
-                    LogCommandPacket logCommandPacket = new LogCommandPacket(raft.getClientUserName(), i, raft.getTermNum(), action.getUserName(), action.getCommand());
-                    byte[] logPacketBytes = logCommandPacket.packetToBytes();
-                    // schedule these log command sends
-                    scheduledExecutorService.schedule(() -> {
-                        sendPacket(logPacketBytes, socketAddr);
-                    }, 5L * i, TimeUnit.MILLISECONDS);
-                }
+                raft.startLogTransfer(socketAddr, 0);
         }
     }
 
@@ -238,113 +243,100 @@ public class PacketHandler extends Thread {
             case RequestCommand:
                 handleRequestCommandPacket(commandPacket, socketAddr);
                 break;
-            case LogCommand:
-                handleLogCommandPacket(commandPacket, socketAddr);
-                break;
             case ConfirmCommand:
                 handleConfirmCommandPacket(commandPacket, socketAddr);
                 break;
             case CommitCommand:
                 handleCommitCommandPacket(commandPacket, socketAddr);
                 break;
-        }
-    }
-
-    public void handleLogPacket(Packet packet, SocketAddress socketAddr) {
-        LogPacket logPacket = (LogPacket) packet;
-        int logIndex = logPacket.logIndex;
-        if (logIndex < 0) {
-            logIndex = 0;
-        }
-        for (int i = logIndex; i < readOnlyLog.size(); i++) {
-            Action action = readOnlyLog.get(i);
-            LogCommandPacket logCommandPacket = new LogCommandPacket(raft.getClientUserName(), i, raft.getTermNum(), action.getUserName(), action.getCommand());
-            byte[] packetBytes = logCommandPacket.packetToBytes();
-            // schedule these log command sends
-            scheduledExecutorService.schedule(() -> {
-                sendPacket(packetBytes, socketAddr);
-                }, 5L * i, TimeUnit.MILLISECONDS);
+            case LogCommandBatch:
+                handleLogCommandBatchPacket(commandPacket, socketAddr);
+                break;
+            case NackCommand:
+                handleNackCommandPacket(commandPacket, socketAddr);
+                break;
         }
     }
 
     public void handleRequestCommandPacket(CommandPacket commandPacket, SocketAddress socketAddress) {
         ReqCommandPacket reqCommandPacket = (ReqCommandPacket) commandPacket;
         if (raft.raftMembershipState.get() == RaftMembershipState.LEADER) {
-            raft.addActionToQueue(new Action(reqCommandPacket.username, reqCommandPacket.command));
+            raft.addActionToQueue(new Action(MemberRef.of(reqCommandPacket.sender.id, senderUsername), reqCommandPacket.entry, reqCommandPacket.traceId));
         }
     }
 
-    public void handleLogCommandPacket(CommandPacket commandPacket, SocketAddress socketAddress) {
-        LogCommandPacket logCommandPacket = (LogCommandPacket) commandPacket;
-        if (raft.getTermNum() < logCommandPacket.termNum) {
-            // convert to follower
-            transformToFollower(logCommandPacket.username, socketAddress, logCommandPacket.termNum);
-        }
-        if (raft.raftMembershipState.get() == RaftMembershipState.FOLLOWER) {
-            // commit command
-            actionMap.putIfAbsent(logCommandPacket.actionNum, new Action(logCommandPacket.usernameAssocWithCommand, logCommandPacket.command));
-            // notify maintainer
-            synchronized (followerLogMaintainerObject) {
-                followerLogMaintainerObject.notify();
+    public void handleLogCommandBatchPacket(CommandPacket commandPacket, SocketAddress socketAddress) {
+        LogCommandBatchPacket batchPacket = (LogCommandBatchPacket) commandPacket;
+        followLeaderOfTerm(batchPacket.termNum, socketAddress);
+        if (raft.raftMembershipState.get() == RaftMembershipState.FOLLOWER && !batchPacket.actions.isEmpty()) {
+            int logTail = readOnlyLog.size();
+            boolean windowFull = false;
+            raft.getTracer().mark(batchPacket.actions, TraceStage.REPLICATE);
+            raft.learnMembers(batchPacket.actions);
+            for (int i = 0; i < batchPacket.actions.size(); i++) {
+                if (!reorderBuffer.put(batchPacket.startActionNum + i, batchPacket.actions.get(i), logTail)) {
+                    windowFull = true;
+                }
+            }
+            if (raft.addrIsLeader(socketAddress)) {
+                // the commit index rides along with the batch
+                raft.commitAction(batchPacket.commitActionNum);
+            }
+            // wakes the log maintainer once for the whole batch, it confirms the entries once they are appended and synced
+            int receivedThrough = raft.advanceReceivedThrough();
+            if (receivedThrough < batchPacket.startActionNum - 1) {
+                // something before this batch never arrived, ask for exactly that range
+                raft.requestMissingEntries(batchPacket.startActionNum - 1, false);
+            }
+            if (windowFull) {
+                // too far behind to hold what the leader is broadcasting, ask to be sent the log at its own pace
+                raft.reorderWindowFull();
             }
-            // confirm addition
-            ConfirmCommandPacket confirmCommandPacket = new ConfirmCommandPacket(serverUsername, logCommandPacket.actionNum);
-            byte[] packetBytes = confirmCommandPacket.packetToBytes();
-            sendPacket(packetBytes, socketAddress);
+        }
+    }
+
+    public void handleNackCommandPacket(CommandPacket commandPacket, SocketAddress socketAddress) {
+        NackCommandPacket nackCommandPacket = (NackCommandPacket) commandPacket;
+        if (raft.raftMembershipState.get() != RaftMembershipState.LEADER) return;
+        if (nackCommandPacket.toActionNum == NackCommandPacket.WINDOW_FULL) {
+            raft.startLogTransfer(socketAddress, nackCommandPacket.fromActionNum);
+        } else {
+            raft.resendLogRange(socketAddress, nackCommandPacket.fromActionNum, nackCommandPacket.toActionNum);
         }
     }
 
     public void handleConfirmCommandPacket(CommandPacket commandPacket, SocketAddress socketAddress) {
         ConfirmCommandPacket confirmCommandPacket = (ConfirmCommandPacket) commandPacket;
         // update the clients greatest confirmation number
-        raft.updateRaftFollowerGreatestConfirmedAction(confirmCommandPacket.username, ((ConfirmCommandPacket) commandPacket).actionNum);
-
-        // notify confirmer to check if log entry is confirmed
-        synchronized (logConfirmerNotifier) {
-            logConfirmerNotifier.notify();
-        }
-
-        // send the position they should be commited up to
-        CommitCommandPacket commitCommandPacket = new CommitCommandPacket(raft.getClientUserName(), raft.getLastActionConfirmed());
-        byte[] packetBytes = commitCommandPacket.packetToBytes();
-        sendPacket(packetBytes, socketAddress);
+        raft.updateRaftFollowerGreatestConfirmedAction(confirmCommandPacket.sender, confirmCommandPacket.actionNum);
+        raft.acknowledgeLogTransfer(socketAddress, confirmCommandPacket.actionNum);
     }
 
     public void handleCommitCommandPacket(CommandPacket commandPacket, SocketAddress socketAddress) {
         if (raft.addrIsLeader(socketAddress)) {
             CommitCommandPacket commitCommandPacket = (CommitCommandPacket) commandPacket;
             raft.commitAction(commitCommandPacket.actionNum);
-            if (raft.getLogPosition() < commitCommandPacket.actionNum) {
-                // request missing log packets
-                LogPacket logPacket = new LogPacket(serverUsername, raft.getLogPosition());
-                byte[] packetBytes = logPacket.packetToBytes();
-                sendPacket(packetBytes, socketAddress);
-            }
+            // request missing log entries
+            raft.requestMissingEntries(commitCommandPacket.actionNum, false);
         }
     }
 
     public void handleHeartbeatPacket(Packet packet, SocketAddress socketAddr) {
         HeartbeatPacket heartbeatPacket = (HeartbeatPacket) packet;
-        if (raft.getTermNum() < heartbeatPacket.termCount) {
-            // convert to follower
-            transformToFollower(heartbeatPacket.username, socketAddr, heartbeatPacket.termCount);
-        }
+        followLeaderOfTerm(heartbeatPacket.termCount, socketAddr);
         if (raft.addrIsLeader(socketAddr)) {
-            AckPacket ackPacket = new AckPacket(serverUsername);
-            byte[] packetBytes = ackPacket.packetToBytes();
-            sendPacket(packetBytes, socketAddr);
-            if (raft.getLogPosition() < heartbeatPacket.lastConfirmed) {
-                // request missing log packets
-                LogPacket logPacket = new LogPacket(serverUsername, raft.getLogPosition());
-                byte[] logPacketBytes = logPacket.packetToBytes();
-                sendPacket(logPacketBytes, socketAddr);
+            int appendedThrough = raft.getAppendedThrough();
+            byte[] packetBytes;
+            if (appendedThrough > heartbeatPacket.lastConfirmed) {
+                // entries the leader hasn't committed yet, confirm them again in case the confirmation was lost
+                packetBytes = new ConfirmCommandPacket(raft.getSelf(), appendedThrough).packetToBytes();
+            } else {
+                packetBytes = new AckPacket(raft.getSelf()).packetToBytes();
             }
+            sendPacket(packetBytes, socketAddr);
+            // request missing log entries, including the tail of the log if the last batch was lost
+            raft.requestMissingEntries(heartbeatPacket.lastLogIndex, false);
             raft.commitAction(heartbeatPacket.lastConfirmed);
-            // Account for worst case where log notification is missed upon log commit.
-            raft.notifyLog();
-            synchronized (followerLogMaintainerObject) {
-                followerLogMaintainerObject.notify();
-            }
         }
     }
 
@@ -352,48 +344,91 @@ public class PacketHandler extends Thread {
         AckPacket ackPacket = (AckPacket) packet;
     }
 
+    public void handleSnapshotPacket(Packet packet, SocketAddress socketAddr) {
+        SnapshotPacket snapshotPacket = (SnapshotPacket) packet;
+        if (raft.addrIsLeader(socketAddr)) {
+            raft.receiveSnapshotChunk(snapshotPacket);
+            SnapshotAckPacket snapshotAckPacket = new SnapshotAckPacket(raft.getSelf(), snapshotPacket.lastIncludedIndex, snapshotPacket.offset);
+            sendPacket(snapshotAckPacket.packetToBytes(), socketAddr);
+        }
+    }
+
+    public void handleSnapshotAckPacket(Packet packet, SocketAddress socketAddr) {
+        SnapshotAckPacket snapshotAckPacket = (SnapshotAckPacket) packet;
+        raft.acknowledgeSnapshotTransfer(socketAddr, snapshotAckPacket.lastIncludedIndex, snapshotAckPacket.offset);
+    }
+
     public void handleCandidatePacket(Packet packet, SocketAddress socketAddress) {
         CandidatePacket candidatePacket = (CandidatePacket) packet;
         if (candidatePacket.termCount > raft.getTermNum() && candidatePacket.logPosition >= raft.getLogPosition()) {
             // change to follower
-            boolean success = transformToFollower(candidatePacket.username, socketAddress, candidatePacket.termCount);
-            if (success) {
+            boolean success = transformToFollower(senderUsername, socketAddress, candidatePacket.termCount);
+            // the vote is only sent once it is on disk
+            if (success && raft.recordVote(senderUsername)) {
                 // send vote
-                VotePacket votePacket = new VotePacket(serverUsername, raft.getTermNum());
+                VotePacket votePacket = new VotePacket(raft.getSelf(), raft.getTermNum());
                 sendPacket(votePacket.packetToBytes(), socketAddress);
             }
+        } else if (candidatePacket.termCount == raft.getTermNum() && senderUsername.equals(raft.getVotedFor()) && raft.recordVote(senderUsername)) {
+            // the vote was already given to this candidate, possibly before a restart, send it again in case it was lost.
+            // It is persisted again first, the first attempt may have failed
+            VotePacket votePacket = new VotePacket(raft.getSelf(), raft.getTermNum());
+            sendPacket(votePacket.packetToBytes(), socketAddress);
+        } else if (candidatePacket.termCount > raft.getTermNum()) {
+            // the candidate's log is behind so it gets no vote, but its term is still adopted. Otherwise a candidate with a
+            // shorter log keeps running for a higher term than a better one, and neither gets a majority
+            if (raft.setTermNum(candidatePacket.termCount) && raft.raftMembershipState.get() == RaftMembershipState.LEADER) {
+                // a leader behind on terms steps down, the candidate ignores its heartbeats until someone wins a higher term
+                raft.demoteLeader();
+                raft.convertToFollower();
+                raft.stopElectionTimeout();
+                raft.startElectionTimeout();
+            }
         }
     }
 
     public void handleVotePacket(Packet packet, SocketAddress socketAddress) {
         VotePacket votePacket = (VotePacket) packet;
         if (raft.raftMembershipState.get() == RaftMembershipState.CANDIDATE) {
-            raft.addVote(votePacket.username, votePacket.termNum);
+            raft.addVote(senderUsername, votePacket.termNum);
         }
     }
 
     public void sendPacket(byte[] bytes, SocketAddress socketAddress) {
-        byte[] encryptedBytes = encryption.encryptMessageWithSecretKey(bytes);
-        if (encryptedBytes != null) {
-            try {
-                serverSocket.send(new DatagramPacket(encryptedBytes, encryptedBytes.length, socketAddress));
-            } catch (IOException e) {
-                System.err.println("An IOException is thrown when trying to send a message.");
-            }
+        raft.sendPacket(bytes, socketAddress);
+    }
+
+    /**
+     * Called for every packet only a leader sends. A leader of a later term converts this instance to a follower. So does
+     * a leader of the current term that this instance doesn't follow yet, there is only one per term and this instance
+     * either lost the election to it or took the term on without voting in it.
+     * @param termNum The term the sender is leading.
+     * @param socketAddr The address of the sender.
+     */
+    public void followLeaderOfTerm(int termNum, SocketAddress socketAddr) {
+        if (raft.getTermNum() < termNum) {
+            // convert to follower
+            transformToFollower(senderUsername, socketAddr, termNum);
+        } else if (raft.getTermNum() == termNum && raft.raftMembershipState.get() != RaftMembershipState.LEADER && !raft.addrIsLeader(socketAddr)) {
+            followLeader(senderUsername, socketAddr);
         }
     }
 
     public boolean transformToFollower(String username, SocketAddress socketAddr, int termNum) {
         boolean success = raft.setTermNum(termNum);
         if (success) {
-            raft.resetVote();
-            raft.demoteLeader();
-            raft.setLeader(username, new Session(socketAddr, System.nanoTime(), RaftMembershipState.LEADER));
-            // rng the election time out
-            raft.stopElectionTimeout();
-            raft.startElectionTimeout();
-            raft.convertToFollower();
+            followLeader(username, socketAddr);
         }
         return success;
     }
+
+    private void followLeader(String username, SocketAddress socketAddr) {
+        raft.resetVote();
+        raft.demoteLeader();
+        raft.setLeader(username, new Session(socketAddr, raft.nanoTime(), RaftMembershipState.LEADER));
+        // rng the election time out
+        raft.stopElectionTimeout();
+        raft.startElectionTimeout();
+        raft.convertToFollower();
+    }
 }
@@ -3,154 +3,409 @@ package edu.oswego.cs.raft;
 import edu.oswego.cs.Packets.*;
 import edu.oswego.cs.Security.Encryption;
 import edu.oswego.cs.game.Action;
-import edu.oswego.cs.gui.MainFrame;
+import edu.oswego.cs.game.EntryOpcode;
+import edu.oswego.cs.game.GameEventSink;
+import edu.oswego.cs.game.LogEntry;
+import edu.oswego.cs.game.TraceStage;
+import edu.oswego.cs.jfr.CommitAdvanceEvent;
+import edu.oswego.cs.jfr.ElectionEvent;
+import edu.oswego.cs.jfr.FollowerTimeoutEvent;
+import edu.oswego.cs.jfr.HeartbeatEvent;
+import edu.oswego.cs.jfr.LeaderChangeEvent;
+import edu.oswego.cs.jfr.LogAppendEvent;
+import edu.oswego.cs.metrics.MetricsExporter;
+import edu.oswego.cs.metrics.MetricsRegistry;
 import edu.oswego.cs.stateMachine.ReplicatedStateMachine;
 
 import java.io.IOException;
 import java.net.*;
 
 import java.nio.ByteBuffer;
+import java.nio.file.Paths;
 import java.text.ParseException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class Raft {
    
-   private Timer heartBeatTimer = new Timer();
-   private Timer timeoutTimer = new Timer();
-   private Timer electionTimeoutTimer = new Timer();
+   private static final long HEART_BEAT_PERIOD_IN_MS = 10;
+   // every timer below runs on this one scheduler
+   private final RaftScheduler scheduler;
+   private volatile ScheduledFuture<?> heartBeatTask;
+   private volatile ScheduledFuture<?> timeoutTask;
+   private volatile ScheduledFuture<?> electionTimeoutTask;
+   private volatile ScheduledFuture<?> logTransferTask;
+   private final RaftTickJitter heartBeatJitter;
+   private final RaftMetrics metrics;
+   private final RaftTracer tracer;
    private final ConcurrentHashMap<String, Session> sessionMap = new ConcurrentHashMap<>();
-   private final DatagramSocket serverSocket;
+   private final RaftMemberDirectory memberDirectory = new RaftMemberDirectory(sessionMap);
+   // how this member names itself in packets and log entries, switches to its member id once it has one
+   private volatile MemberRef self;
+   private final RaftTransport transport;
    public final AtomicReference<RaftMembershipState> raftMembershipState = new AtomicReference<>();
    public volatile boolean raftSessionActive;
    private final ConcurrentLinkedQueue<Action> queue = new ConcurrentLinkedQueue<>();
+   // held by whichever thread appends to or discards from the log, readers never take it
    private final Lock logLock = new ReentrantLock();
-   private final List<Action> log = new ArrayList<>();
+   private final RaftLog log = new RaftLog();
+   private volatile RaftSnapshot latestSnapshot;
+   private final RaftSnapshotAssembler snapshotAssembler = new RaftSnapshotAssembler();
+   private int snapshotChunkSize = -1;
    private final ReplicatedStateMachine rsm;
-   private final AtomicInteger lastActionConfirmed;
+   // the commit index, the state machine applies everything up to it
+   private final RaftSequence lastActionConfirmed = new RaftSequence(-1);
    private final AtomicBoolean gameActive = new AtomicBoolean(true);
    private volatile String userNameOfLeader;
    private volatile String clientUserName;
-   private final RaftReceiver raftReceiver;
-   private final AtomicBoolean keepReceiving = new AtomicBoolean(true);
-   private final Object logConfirmerObject = new Object();
-   private final Object followerLogMaintainerObject = new Object();
-   private final ConcurrentHashMap<Integer, Action> actionMap = new ConcurrentHashMap<>();
-   private final Encryption encryption = new Encryption();
+   // leader side: moves every time a confirmation or a membership change could move the commit index
+   private final RaftSequence confirmations = new RaftSequence(0);
+   // the highest commit index followers have been sent, by a commit packet or piggybacked on a heartbeat or batch
+   private final AtomicInteger lastCommitSent = new AtomicInteger(-1);
+   private final AtomicLong commitMessagesSent = new AtomicLong();
+   private final AtomicLong committedEntryCount = new AtomicLong();
+   private final RaftReorderBuffer reorderBuffer = new RaftReorderBuffer(RaftConfig.REORDER_WINDOW_ENTRIES);
+   private final ConcurrentHashMap<SocketAddress, RaftLogTransfer> logTransfers = new ConcurrentHashMap<>();
+   // follower side: the highest log index received along with everything before it, whether appended yet or not
+   private final RaftSequence receivedThrough = new RaftSequence(-1);
+   // follower side: the highest commit index the leader has sent, entries past the end of the log are committed as they arrive
+   private final AtomicInteger leaderCommitIndex = new AtomicInteger(-1);
+   // follower side: the highest log index appended to the log and synced to the write ahead log, the most this member confirms
+   private final AtomicInteger appendedThrough = new AtomicInteger(-1);
+   // follower side: when missing entries were last requested from the leader
+   private final AtomicLong lastNackTime = new AtomicLong();
+   private final Encryption encryption;
    private final AtomicInteger termCounter = new AtomicInteger(0);
    private final AtomicBoolean voted = new AtomicBoolean(false);
+   // who this instance voted for in the current term, persisted with the term
+   private volatile String votedFor;
+   private final RaftWriteAheadLog writeAheadLog;
    private final AtomicInteger voteCounter = new AtomicInteger(0);
+   // the flight recorder event of the election in progress, null when there isn't one
+   private final AtomicReference<ElectionEvent> election = new AtomicReference<>();
    private final HashSet<String> voteSet = new HashSet<>();
    private final AtomicInteger clientCount = new AtomicInteger();
+   // every sending thread encrypts into its own reusable buffer
+   private final ThreadLocal<ByteBuffer> sendBuffer = ThreadLocal.withInitial(() -> ByteBuffer.allocate(RaftConfig.MAX_PACKET_SIZE));
+   // the clock, randomness, timers, network and threads this member runs on
+   private final RaftRuntime runtime;
+   private final Random random;
 
    /**
     * Creates a raft server instance that hasn't been started yet.
     * @param serverPort The designated port for sending/receiving messages.
     * @param clientUserName The username of the user who will be connected to this raft instance.
-    * @throws SocketException
+    * @param gameEvents Where the state machine publishes game events, the gui or a headless sink.
+    * @throws IOException if the server port could not be bound or the write ahead log could not be opened.
     */
-   public Raft(int serverPort, String clientUserName) throws SocketException {
-      serverSocket = new DatagramSocket(serverPort);
+   public Raft(int serverPort, String clientUserName, GameEventSink gameEvents) throws IOException {
+      this(clientUserName, gameEvents, new SystemRaftRuntime(serverPort));
+   }
+
+   /**
+    * Creates a raft server instance that hasn't been started yet.
+    * @param clientUserName The username of the user who will be connected to this raft instance.
+    * @param gameEvents Where the state machine publishes game events, the gui or a headless sink.
+    * @param runtime Provides the clock, randomness, timers, network and threads of this instance.
+    * @throws IOException if the transport could not be opened or the write ahead log could not be opened.
+    */
+   public Raft(String clientUserName, GameEventSink gameEvents, RaftRuntime runtime) throws IOException {
+      this.runtime = runtime;
+      random = runtime.newRandom();
+      encryption = new Encryption(runtime.newSecureRandom());
+      metrics = new RaftMetrics(MetricsRegistry.getDefault(), clientUserName);
+      tracer = new RaftTracer(clientUserName, RaftConfig.TRACE_SAMPLE_EVERY, metrics);
+      MetricsExporter.start(RaftConfig.METRICS_HTTP_PORT);
+      MetricsExporter.addJsonEndpoint("/trace", RaftTracer::toChromeTraceJson);
+      heartBeatJitter = new RaftTickJitter(HEART_BEAT_PERIOD_IN_MS, metrics.getHeartBeatLatenessMicros());
+      scheduler = runtime.newScheduler("raft-scheduler-" + clientUserName);
+      transport = runtime.openTransport();
       encryption.generateKeys();
       raftSessionActive = false;
-      lastActionConfirmed = new AtomicInteger(-1);
-      MainFrame mainFrame = new MainFrame();
-      mainFrame.setRaft(this);
-      rsm = new ReplicatedStateMachine(log, lastActionConfirmed, gameActive, this, mainFrame, clientUserName);
+      self = MemberRef.byName(clientUserName);
+      writeAheadLog = RaftConfig.WAL_DIR == null ? null : new RaftWriteAheadLog(Paths.get(RaftConfig.WAL_DIR, clientUserName), RaftConfig.WAL_SEGMENT_BYTES);
+      RaftSnapshot recoveredSnapshot = recoverFromWriteAheadLog();
+      rsm = new ReplicatedStateMachine(log, lastActionConfirmed, gameActive, this, gameEvents, clientUserName);
+      if (recoveredSnapshot != null) {
+         rsm.installSnapshot(recoveredSnapshot);
+      }
       this.clientUserName = clientUserName;
-      raftReceiver = new RaftReceiver(serverSocket, keepReceiving, this, clientUserName, logConfirmerObject, actionMap, followerLogMaintainerObject, log, encryption);
-      raftReceiver.start();
+      transport.startReceiving(this);
+      registerMetrics();
+   }
+
+   /**
+    * Registers the values this member already keeps track of, they are only read when the metrics are collected.
+    */
+   private void registerMetrics() {
+      metrics.gauge("raft_log_length", "Length of the log, including entries folded into a snapshot.", log::size);
+      metrics.gauge("raft_commit_index", "The highest log index known to be committed.", lastActionConfirmed::get);
+      metrics.gauge("raft_queue_depth", "Actions waiting for the leader's next heartbeat tick.", queue::size);
+      metrics.gauge("raft_handler_queue_depth", "Received packets waiting to be handled.", transport::getHandlerQueueDepth);
+      metrics.gauge("raft_term", "The current term.", termCounter::get);
+      metrics.counterFunction("raft_dropped_packets_total", "Received packets dropped because the packet handlers could not keep up.", transport::getDroppedPacketCount);
+      metrics.counterFunction("raft_buffer_pool_exhausted_total", "Receive buffers allocated because every pooled buffer was in use.", transport::getBufferPoolExhaustedCount);
+      metrics.counterFunction("raft_reorder_window_overflow_total", "Entries dropped because they were too far ahead of the log.", reorderBuffer::getOverflowCount);
+      metrics.counterFunction("raft_commit_messages_total", "Commit packets the leader sent, counting one per follower.", commitMessagesSent::get);
+      metrics.counterFunction("raft_committed_entries_total", "Log entries the leader committed.", committedEntryCount::get);
+      metrics.counterFunction("raft_heartbeat_late_ticks_total", "Heartbeat ticks that started a whole period or more after they were due.", heartBeatJitter::getLateTickCount);
+      metrics.gaugeFamily("raft_follower_commit_lag", "How far each follower's confirmed log index trails the commit index, only reported by the leader.", "follower", () -> {
+         Map<String, Integer> lag = new HashMap<>();
+         if (raftMembershipState.get() != RaftMembershipState.LEADER) return lag;
+         int commitIndex = lastActionConfirmed.get();
+         for (Map.Entry<String, Session> entry : sessionMap.entrySet()) {
+            if (entry.getValue().getMembershipState() == RaftMembershipState.FOLLOWER) {
+               lag.put(entry.getKey(), Math.max(0, commitIndex - entry.getValue().getGreatestActionConfirmed()));
+            }
+         }
+         return lag;
+      });
+   }
+
+   /**
+    * Rebuilds the term, vote, log and commit index from the write ahead log, if there is one.
+    * @return The recovered snapshot, which still has to be installed in the state machine. Null if there wasn't one.
+    */
+   private RaftSnapshot recoverFromWriteAheadLog() {
+      if (writeAheadLog == null) return null;
+      termCounter.set(writeAheadLog.getRecoveredTerm());
+      votedFor = writeAheadLog.getRecoveredVotedFor();
+      RaftSnapshot snapshot = writeAheadLog.getRecoveredSnapshot();
+      if (snapshot != null) {
+         latestSnapshot = snapshot;
+         log.discardThrough(snapshot.lastIncludedIndex);
+      }
+      if (writeAheadLog.getRecoveredStartIndex() != -1) {
+         log.addAll(writeAheadLog.getRecoveredEntries());
+         learnMembers(writeAheadLog.getRecoveredEntries());
+      }
+      lastActionConfirmed.publish(writeAheadLog.getRecoveredCommitIndex());
+      return snapshot;
    }
 
    /**
-    * Starts up a Leader's Heartbeat that sends either heartbeat packets or command packets (if commands are queued up) every 10ms.
+    * Starts up a Leader's Heartbeat that sends either heartbeat packets or a batch of command packets (if commands are queued up) every 10ms.
+    * A batch is encrypted once and shared by every follower that is caught up, followers that fell behind are sent the
+    * log through their own transfer instead.
     */
    public void startHeartBeat() {
-      heartBeatTimer = new Timer();
-      TimerTask task = new TimerTask() {
+      Runnable task = new Runnable() {
+         @Override
          public void run() {
-            Action action = queue.poll();
-            int index= -1;
-            byte[] messageBytes;
-            Packet packet;
-            if (action != null) {
+            HeartbeatEvent heartbeatEvent = new HeartbeatEvent();
+            heartbeatEvent.begin();
+            MemberRef sender = self;
+            List<Action> batch = pollQueuedBatch(sender);
+            int commitIndex;
+            int receivers;
+            if (!batch.isEmpty()) {
+               int startIndex;
+               boolean durable;
+               LogAppendEvent appendEvent = new LogAppendEvent();
+               appendEvent.begin();
                logLock.lock();
                try {
-                  log.add(action);
-                  index = log.size() - 1;
-                  sessionMap.get(userNameOfLeader).setGreatestActionConfirmed(index);
-
+                  startIndex = log.size();
+                  log.addAll(batch);
+                  durable = appendToWriteAheadLog(startIndex, batch);
                } finally {
                   logLock.unlock();
                }
-               packet = new LogCommandPacket(clientUserName, index, termCounter.get(), action.getUserName(), action.getCommand());
-               messageBytes = packet.packetToBytes();
+               appendEvent.end();
+               if (appendEvent.shouldCommit()) {
+                  appendEvent.startIndex = startIndex;
+                  appendEvent.entries = batch.size();
+                  appendEvent.leader = true;
+                  appendEvent.commit();
+               }
+               tracer.mark(batch, TraceStage.APPEND);
+               // one fsync for everything appended this tick, the leader's own copy only counts towards the majority once it is on disk
+               if (durable && syncWriteAheadLog()) {
+                  sessionMap.get(userNameOfLeader).setGreatestActionConfirmed(startIndex + batch.size() - 1);
+                  confirmations.increment();
+               }
+               commitIndex = lastActionConfirmed.get();
+               Packet packet = new LogCommandBatchPacket(sender, startIndex, termCounter.get(), commitIndex, batch);
+               receivers = broadcastPacket(packet.packetToBytes(), getCaughtUpFollowers(startIndex, startIndex + batch.size()));
+               tracer.mark(batch, TraceStage.REPLICATE);
+               lastCommitSent.accumulateAndGet(commitIndex, Math::max);
             } else {
-               packet = new HeartbeatPacket(clientUserName, lastActionConfirmed.get(), termCounter.get());
-               messageBytes = packet.packetToBytes();
+               syncWriteAheadLog();
+               commitIndex = lastActionConfirmed.get();
+               Packet packet = new HeartbeatPacket(sender, commitIndex, termCounter.get(), getLogPosition());
+               receivers = broadcastPacket(packet.packetToBytes());
+               lastCommitSent.accumulateAndGet(commitIndex, Math::max);
+            }
+            heartbeatEvent.end();
+            if (heartbeatEvent.shouldCommit()) {
+               heartbeatEvent.term = termCounter.get();
+               heartbeatEvent.commitIndex = commitIndex;
+               heartbeatEvent.entries = batch.size();
+               heartbeatEvent.receivers = receivers;
+               heartbeatEvent.commit();
             }
+         }
+      };
+      heartBeatTask = scheduler.scheduleAtFixedRate(task, 0, HEART_BEAT_PERIOD_IN_MS, heartBeatJitter);
+      startLogTransfers();
+   }
 
-            sessionMap.forEachValue(Long.MAX_VALUE, (value) -> {
-               // send to socket address
-               if (value.getMembershipState() == RaftMembershipState.FOLLOWER && !value.getTimedOut()) {
-                  SocketAddress socketAddress = value.getSocketAddress();
-                  sendPacket(messageBytes, socketAddress);
+   /**
+    * Writes appended entries to the write ahead log, if there is one.
+    * @param startIndex The log index of the first action.
+    * @param actions The actions in log order.
+    * @return false if the write ahead log failed, the entries must not be acknowledged.
+    */
+   boolean appendToWriteAheadLog(int startIndex, List<Action> actions) {
+      if (writeAheadLog == null) return true;
+      try {
+         writeAheadLog.append(startIndex, actions);
+         return true;
+      } catch (IOException e) {
+         System.err.println("Writing to the write ahead log failed, this member stops acknowledging entries: " + e);
+         return false;
+      }
+   }
+
+   /**
+    * Forces everything written to the write ahead log to disk along with the commit index, if there is a write ahead log.
+    * @return true if everything appended so far is durable.
+    */
+   boolean syncWriteAheadLog() {
+      if (writeAheadLog == null) return true;
+      try {
+         writeAheadLog.sync(lastActionConfirmed.get());
+         return true;
+      } catch (IOException e) {
+         System.err.println("Syncing the write ahead log failed, this member stops acknowledging entries: " + e);
+         return false;
+      }
+   }
+
+   /**
+    * Picks the followers a new batch can be broadcast to, which are the ones that already have everything before it.
+    * Any other follower gets a transfer starting from the first entry it hasn't been sent.
+    * @param startIndex The log index of the first entry in the batch.
+    * @param endIndex The log index right after the batch.
+    * @return The addresses of the followers the batch should be sent to.
+    */
+   private List<SocketAddress> getCaughtUpFollowers(int startIndex, int endIndex) {
+      List<SocketAddress> followers = new ArrayList<>();
+      for (Session session : sessionMap.values()) {
+         if (session.getMembershipState() != RaftMembershipState.FOLLOWER || session.getTimedOut()) continue;
+         SocketAddress socketAddress = session.getSocketAddress();
+         // a follower with a transfer in progress receives the batch through it
+         if (logTransfers.containsKey(socketAddress)) continue;
+         int nextIndex = session.getNextIndex();
+         if (nextIndex == -1 || nextIndex >= startIndex) {
+            followers.add(socketAddress);
+            session.setNextIndex(endIndex);
+         } else {
+            startLogTransfer(socketAddress, nextIndex);
+         }
+      }
+      return followers;
+   }
+
+   /**
+    * Starts the timer that drives every log transfer the leader has in progress.
+    */
+   private void startLogTransfers() {
+      Runnable task = new Runnable() {
+         @Override
+         public void run() {
+            logTransfers.forEach((socketAddress, transfer) -> {
+               if (!transfer.tick()) {
+                  logTransfers.remove(socketAddress, transfer);
+                  transfer.finish();
+                  if (transfer.isComplete()) {
+                     // the follower is caught up and rejoins the broadcast from where the transfer stopped
+                     Session session = getSessionByAddress(socketAddress);
+                     if (session != null) {
+                        session.setNextIndex(transfer.getNextIndex());
+                     }
+                  }
                }
             });
-
-            // in case a log confirmer notification is missed.
-            synchronized (logConfirmerObject) {
-               logConfirmerObject.notify();
-            }
          }
       };
-      long periodInMS = 10;
-      heartBeatTimer.schedule(task, 0, periodInMS);
+      logTransferTask = scheduler.scheduleWithFixedDelay(task, 0, RaftConfig.LOG_TRANSFER_TICK_MS);
+   }
+
+   /**
+    * Drains queued actions until the batch reaches its entry limit or would no longer fit in a single packet.
+    * @param sender How the batch will name the leader.
+    * @return The actions to append to the log this tick, in queue order.
+    */
+   private List<Action> pollQueuedBatch(MemberRef sender) {
+      if (queue.isEmpty()) return Collections.emptyList();
+      List<Action> batch = new ArrayList<>();
+      int batchSize = LogCommandBatchPacket.headerSize(sender);
+      Action action;
+      while (batch.size() < RaftConfig.LOG_BATCH_MAX_ENTRIES && (action = queue.peek()) != null) {
+         int actionSize = LogCommandBatchPacket.actionSize(action);
+         if (!batch.isEmpty() && encryption.getEncryptedSize(batchSize + actionSize) > RaftConfig.LOG_BATCH_MAX_BYTES) break;
+         batchSize += actionSize;
+         batch.add(queue.poll());
+      }
+      return batch;
    }
 
    /**
     * Stops the heartbeat timer.
     */
    public void stopHeartBeat() {
-      heartBeatTimer.cancel();
+      RaftScheduler.cancel(heartBeatTask);
+      RaftScheduler.cancel(logTransferTask);
+      logTransfers.values().forEach(RaftLogTransfer::finish);
+      logTransfers.clear();
    }
 
    /**
     * Starts a follower timeout for the leader. The timeout is checked every 300ms with the timeout threshold being 200ms.
     */
    public void startTimeoutTimer() {
-      timeoutTimer = new Timer();
-      TimerTask task = new TimerTask() {
+      Runnable task = new Runnable() {
          @Override
          public void run() {
-            sessionMap.forEach(1, (key, value) -> {
+            for (Map.Entry<String, Session> entry : sessionMap.entrySet()) {
+               String key = entry.getKey();
+               Session value = entry.getValue();
                if (value.getMembershipState() == RaftMembershipState.FOLLOWER && !value.getTimedOut()) {
-                  long nanoTime = System.nanoTime();
+                  long now = nanoTime();
                   long disconnectThreshold = 200_000_000L;
-                  long timeDifference = nanoTime - value.getLMRSTINT();
+                  long timeDifference = now - value.getLMRSTINT();
                   if (timeDifference > disconnectThreshold) {
+                     FollowerTimeoutEvent timeoutEvent = new FollowerTimeoutEvent();
+                     if (timeoutEvent.shouldCommit()) {
+                        timeoutEvent.follower = key;
+                        timeoutEvent.silentFor = timeDifference;
+                        timeoutEvent.commit();
+                     }
                      value.setTimedOut(true);
-                     queue.add(new Action(clientUserName, RaftAdministrationCommand.TIME_OUT_MEMBER.name + " " + key));
+                     queue.add(new Action(self, LogEntry.timeOutMember(key)));
                   }
                }
-            });
+            }
          }
       };
       long periodInMS = 300L;
-      timeoutTimer.schedule(task, periodInMS, periodInMS);
+      timeoutTask = scheduler.scheduleWithFixedDelay(task, periodInMS, periodInMS);
    }
 
    /**
     * Stops Leader's follower timeout.
     */
    public void stopTimeout() {
-      timeoutTimer.cancel();
+      RaftScheduler.cancel(timeoutTask);
    }
 
    /**
@@ -161,11 +416,14 @@ public class Raft {
    public void addSession(String username, Session session) {
       // only add a user if they don't exist in the map
       Session userSession = sessionMap.putIfAbsent(username, session);
-      if (userSession != null && userSession.getMembershipState() == RaftMembershipState.PENDING_FOLLOWER) {
-         userSession.setLMRSTINT(System.nanoTime());
+      if (userSession == null) {
+         memberDirectory.sessionChanged(username);
+      } else if (userSession.getMembershipState() == RaftMembershipState.PENDING_FOLLOWER) {
+         userSession.setLMRSTINT(nanoTime());
          userSession.setMembershipState(RaftMembershipState.PENDING_FOLLOWER, RaftMembershipState.FOLLOWER);
       }
       clientCount.incrementAndGet();
+      confirmations.increment();
    }
 
    /**
@@ -176,13 +434,21 @@ public class Raft {
       raftMembershipState.set(RaftMembershipState.LEADER);
       raftSessionActive = true;
       this.userNameOfLeader = clientUserName;
-      long seed = new Random().nextLong();
-      queue.add(new Action(userNameOfLeader, RaftAdministrationCommand.SEED_DUNGEON.name + " " + seed));
-      queue.add(new Action(userNameOfLeader, RaftAdministrationCommand.ADD_MEMBER.name + " " + userNameOfLeader + " " + System.nanoTime() + " " + serverSocket.getLocalSocketAddress().toString().replace("/", "")));
-      sessionMap.put(clientUserName, new Session(serverSocket.getLocalSocketAddress(), System.nanoTime(), raftMembershipState.get()));
+      leaderChanged(null, clientUserName);
+      putSession(clientUserName, new Session(transport.getLocalAddress(), nanoTime(), raftMembershipState.get()));
+      if (log.size() == 0) {
+         long seed = random.nextLong();
+         queue.add(new Action(self, LogEntry.seedDungeon(seed)));
+         byte[] addMemberEntry = newAddMemberEntry(clientUserName, (InetSocketAddress) transport.getLocalAddress());
+         queue.add(new Action(self, addMemberEntry));
+      } else {
+         // the game was recovered from the write ahead log, carry on from where it left off
+         sessionMap.get(clientUserName).setGreatestActionConfirmed(log.size() - 1);
+      }
       startHeartBeat();
       startTimeoutTimer();
-      (new RaftLogConfirmer(logConfirmerObject, sessionMap, lastActionConfirmed, gameActive, clientUserName, serverSocket, log)).start();
+      runtime.startStage("raft-log-confirmer-" + clientUserName, new RaftLogConfirmer(confirmations, sessionMap, lastActionConfirmed, gameActive, raftMembershipState, clientUserName, this));
+      runtime.startStage("raft-commit-flusher-" + clientUserName, new RaftCommitFlusher(this, gameActive, raftMembershipState, lastActionConfirmed));
       rsm.start();
    }
 
@@ -193,16 +459,16 @@ public class Raft {
       stopHeartBeat();
       stopTimeout();
       gameActive.set(false);
-      synchronized (logConfirmerObject) {
-         logConfirmerObject.notify();
-      }
-      synchronized (followerLogMaintainerObject) {
-         followerLogMaintainerObject.notify();
-      }
-      keepReceiving.set(false);
+      // let every waiting stage see that the game is over
+      confirmations.wakeAll();
+      receivedThrough.wakeAll();
+      lastActionConfirmed.wakeAll();
       stopElectionTimeout();
-      serverSocket.close();
+      scheduler.shutdown();
+      transport.close();
+      syncWriteAheadLog();
       rsm.stop();
+      metrics.close();
    }
 
    /**
@@ -214,10 +480,10 @@ public class Raft {
          raftMembershipState.set(RaftMembershipState.FOLLOWER);
          ConnectionClientHelloPacket clientHelloPacket = new ConnectionClientHelloPacket(clientUserName, encryption.getPublicKey());
          byte[] connectHelloPacketBytes = clientHelloPacket.packetToBytes();
-         DatagramPacket packet = new DatagramPacket(connectHelloPacketBytes, connectHelloPacketBytes.length, groupAddress);
          rsm.start();
-         (new RaftFollowerLogMaintainer(raftMembershipState, logLock, log, lastActionConfirmed, followerLogMaintainerObject, actionMap)).start();
-         serverSocket.send(packet);
+         runtime.startStage("raft-log-maintainer-" + clientUserName, new RaftFollowerLogMaintainer(raftMembershipState, logLock, log, lastActionConfirmed, leaderCommitIndex, receivedThrough, reorderBuffer, this, tracer));
+         transport.send(ByteBuffer.wrap(connectHelloPacketBytes), groupAddress);
+         metrics.recordPacketOut(connectHelloPacketBytes, connectHelloPacketBytes.length, 1);
       } catch (IOException e) {
          System.err.println("Something went wrong when trying to connect.");
          System.exit(1);
@@ -229,40 +495,35 @@ public class Raft {
     * @param index The log index of the action to be committed.
     */
    public void commitAction(int index) {
-      while (true) {
-         int lastConfirmedIndex = lastActionConfirmed.get();
-         int logSize = log.size();
-         if (index > lastConfirmedIndex) {
-            if (logSize > index) {
-               lastActionConfirmed.compareAndSet(lastConfirmedIndex, index);
-               synchronized (log) {
-                  log.notify();
-               }
-            } else if (logSize < index) {
-               lastActionConfirmed.compareAndSet(lastConfirmedIndex, logSize - 1);
-               synchronized (log) {
-                  log.notify();
-               }
-               break;
-            }
-         } else {
-            break;
-         }
+      // only part of the committed log may have arrived, commit what is here and the log maintainer commits the rest as it shows up
+      int leaderCommit = leaderCommitIndex.accumulateAndGet(index, Math::max);
+      int commitIndex = Math.min(leaderCommit, log.size() - 1);
+      int previousIndex = lastActionConfirmed.get();
+      tracer.committed(log, previousIndex + 1, commitIndex);
+      if (lastActionConfirmed.publish(commitIndex)) {
+         CommitAdvanceEvent.emit(previousIndex, commitIndex, false);
       }
    }
 
    /**
     * How commands/messages to the log are submitted. This method checks whether the raft instance is the leader or a follower and passes the command accordingly.
+    * The command is encoded into a log entry here, once, and commands that don't change the replicated state are dropped.
     * @param command the string representation of a log command.
     */
    public void sendMessage(String command) {
+      byte[] entry = LogEntry.fromCommand(command);
+      if (entry == null) return;
       // get leader and send message
       if (userNameOfLeader != null) {
+         long traceId = tracer.newTraceId();
          if (clientUserName.equals(userNameOfLeader)) {
-            queue.add(new Action(clientUserName, command));
+            Action action = new Action(self, entry, traceId);
+            tracer.mark(action, TraceStage.SUBMIT);
+            addActionToQueue(action);
          } else {
             // send message to leader
-            ReqCommandPacket reqCommandPacket = new ReqCommandPacket(clientUserName, command);
+            tracer.submitted(traceId);
+            ReqCommandPacket reqCommandPacket = new ReqCommandPacket(self, entry, traceId);
             byte[] packetBytes = reqCommandPacket.packetToBytes();
             if (getLeaderAddr() != null) {
                sendPacket(packetBytes, getLeaderAddr());
@@ -272,17 +533,85 @@ public class Raft {
    }
 
    public void addActionToQueue(Action action) {
+      tracer.mark(action, TraceStage.QUEUE);
       queue.add(action);
    }
 
-   public void addToRaftQueue(String command) {
-      queue.add(new Action(clientUserName, command));
+   public void addToRaftQueue(byte[] entry) {
+      queue.add(new Action(self, entry));
+   }
+
+   /**
+    * Leader side. Gives a member an id, unless it already has one, and encodes the entry that adds it to the group.
+    * @param username The username of the member being added.
+    * @param address The address the member is reached at.
+    * @return The add member entry.
+    */
+   public byte[] newAddMemberEntry(String username, InetSocketAddress address) {
+      int memberId = memberDirectory.assign(username);
+      if (username.equals(clientUserName)) {
+         self = MemberRef.of(memberId, clientUserName);
+      }
+      return LogEntry.addMember(memberId, username, nanoTime(), address);
+   }
+
+   /**
+    * Records the id of a member, this member starts naming itself by id once it learns its own.
+    * @param memberId The member id.
+    * @param username The username of the member.
+    */
+   public void bindMember(int memberId, String username) {
+      memberDirectory.bind(memberId, username);
+      if (username.equals(clientUserName)) {
+         self = MemberRef.of(memberId, clientUserName);
+      }
+   }
+
+   /**
+    * Learns the id of every member added by the given entries, as soon as they are received rather than once they are applied.
+    * @param actions Log entries in any order.
+    */
+   public void learnMembers(List<Action> actions) {
+      for (Action action : actions) {
+         if (action.getOpcode() != EntryOpcode.ADD_MEMBER) continue;
+         ByteBuffer fields = LogEntry.fields(action.getEntry());
+         int memberId = fields.getInt();
+         fields.getLong();
+         LogEntry.readAddress(fields);
+         bindMember(memberId, LogEntry.readText(fields));
+      }
+   }
+
+   /**
+    * @param member How a packet or entry named a member.
+    * @return The username of the member, null if it was named by an id this member hasn't learned yet.
+    */
+   public String resolveUsername(MemberRef member) {
+      return member.username != null ? member.username : memberDirectory.getUsername(member.id);
+   }
+
+   /**
+    * @return How this member names itself in packets.
+    */
+   public MemberRef getSelf() {
+      return self;
+   }
+
+   private void putSession(String username, Session session) {
+      sessionMap.put(username, session);
+      memberDirectory.sessionChanged(username);
+   }
+
+   private Session getSession(MemberRef member) {
+      return member.hasId() ? memberDirectory.getSession(member.id) : sessionMap.get(member.username);
    }
 
    public boolean addUser(String username, SocketAddress clientAddress) {
-      Session client = sessionMap.putIfAbsent(username, new Session(clientAddress, System.nanoTime(), RaftMembershipState.PENDING_FOLLOWER));
+      Session client = sessionMap.putIfAbsent(username, new Session(clientAddress, nanoTime(), RaftMembershipState.PENDING_FOLLOWER));
       if (client != null) {
          client.setTimedOut(false);
+      } else {
+         memberDirectory.sessionChanged(username);
       }
       return true;
    }
@@ -299,7 +628,7 @@ public class Raft {
       if (session != null) {
          if (session.getMembershipState() == RaftMembershipState.DISCONNECTED) {
             session.setMembershipState(RaftMembershipState.DISCONNECTED, RaftMembershipState.FOLLOWER);
-            session.setLMRSTINT(System.nanoTime());
+            session.setLMRSTINT(nanoTime());
             session.setTimedOut(false);
          }
       }
@@ -307,8 +636,39 @@ public class Raft {
    }
 
    public void setLeader(String username, Session session) {
+      String previousLeader = userNameOfLeader;
       userNameOfLeader = username;
-      sessionMap.put(username, session);
+      putSession(username, session);
+      endElection("lost");
+      leaderChanged(previousLeader, username);
+   }
+
+   private void leaderChanged(String previousLeader, String newLeader) {
+      if (newLeader.equals(previousLeader)) return;
+      LeaderChangeEvent event = new LeaderChangeEvent();
+      if (event.shouldCommit()) {
+         event.term = termCounter.get();
+         event.previousLeader = previousLeader;
+         event.newLeader = newLeader;
+         event.commit();
+      }
+   }
+
+   /**
+    * Ends the flight recorder event of the election in progress, if there is one.
+    * @param outcome How the election ended.
+    */
+   private void endElection(String outcome) {
+      ElectionEvent event = election.getAndSet(null);
+      if (event == null) return;
+      event.end();
+      if (event.shouldCommit()) {
+         event.term = termCounter.get();
+         event.outcome = outcome;
+         event.votes = voteCounter.get();
+         event.members = clientCount.get();
+         event.commit();
+      }
    }
 
    public boolean userIsPending(String username) {
@@ -317,14 +677,17 @@ public class Raft {
    }
 
    public boolean addrIsLeader(SocketAddress socketAddress) {
-      Session leaderSession = sessionMap.get(userNameOfLeader);
+      String leader = userNameOfLeader;
+      // no leader while an election is running
+      if (leader == null) return false;
+      Session leaderSession = sessionMap.get(leader);
       return leaderSession != null && leaderSession.getSocketAddress().toString().equals(socketAddress.toString());
    }
 
-   public void updateSessionTimeStamp(String username, SocketAddress socketAddress) {
-      Session session = sessionMap.get(username);
+   public void updateSessionTimeStamp(MemberRef sender, SocketAddress socketAddress) {
+      Session session = getSession(sender);
       if (session != null ) {
-         session.setLMRSTINT(System.nanoTime());
+         session.setLMRSTINT(nanoTime());
          // The user is actually still here.
          if (session.getTimedOut()) {
             session.setTimedOut(false);
@@ -359,21 +722,301 @@ public class Raft {
    }
 
    /**
-    * Updates a followers greatest confirmed action. This method enables the leader to know when to commit log indices.
-    * @param username
-    * @param actionNum
+    * Reads consecutive log entries until the batch reaches its entry limit or would no longer fit in a single packet.
+    * @param startIndex The log index of the first entry to read.
+    * @return The entries starting at startIndex, never empty as long as startIndex is within the log and hasn't been discarded.
     */
-   public void updateRaftFollowerGreatestConfirmedAction(String username, int actionNum) {
-      Session session = sessionMap.get(username);
-      if (session != null && session.getMembershipState() == RaftMembershipState.FOLLOWER) {
-         session.setGreatestActionConfirmed(actionNum);
+   public List<Action> readLogBatch(int startIndex) {
+      List<Action> batch = new ArrayList<>();
+      int batchSize = LogCommandBatchPacket.headerSize(self);
+      if (startIndex < log.getBaseIndex()) return batch;
+      try {
+         for (int i = startIndex; i < log.size() && batch.size() < RaftConfig.LOG_BATCH_MAX_ENTRIES; i++) {
+            Action action = log.get(i);
+            int actionSize = LogCommandBatchPacket.actionSize(action);
+            if (!batch.isEmpty() && encryption.getEncryptedSize(batchSize + actionSize) > RaftConfig.LOG_BATCH_MAX_BYTES) break;
+            batchSize += actionSize;
+            batch.add(action);
+         }
+      } catch (IndexOutOfBoundsException e) {
+         // a snapshot discarded the entries while they were being read, the caller sends the snapshot instead
+         batch.clear();
+      }
+      return batch;
+   }
+
+   /**
+    * @return The lowest log index that hasn't been discarded after a snapshot.
+    */
+   public int getLogBaseIndex() {
+      return log.getBaseIndex();
+   }
+
+   /**
+    * @return The most recent snapshot taken or installed, null if there hasn't been one.
+    */
+   public RaftSnapshot getLatestSnapshot() {
+      return latestSnapshot;
+   }
+
+   /**
+    * @return The most snapshot bytes that fit in a single packet once it is encrypted.
+    */
+   public int getSnapshotChunkSize() {
+      if (snapshotChunkSize < 0) {
+         // the username is at least as long as any member id this group will hand out
+         int headerSize = SnapshotPacket.headerSize(MemberRef.byName(clientUserName));
+         int chunkSize = RaftConfig.MAX_PACKET_SIZE - headerSize;
+         while (encryption.getEncryptedSize(headerSize + chunkSize) > RaftConfig.MAX_PACKET_SIZE) {
+            chunkSize--;
+         }
+         snapshotChunkSize = chunkSize;
+      }
+      return snapshotChunkSize;
+   }
+
+   /**
+    * Keeps a snapshot the state machine just took and discards the log it covers.
+    * @param snapshot A snapshot of the applied state.
+    */
+   public void snapshotTaken(RaftSnapshot snapshot) {
+      latestSnapshot = snapshot;
+      if (writeAheadLog != null) {
+         writeAheadLog.writeSnapshot(snapshot);
+      }
+      logLock.lock();
+      try {
+         log.discardThrough(snapshot.lastIncludedIndex);
+      } finally {
+         logLock.unlock();
+      }
+   }
+
+   /**
+    * Adds a piece of a snapshot sent by the leader. Once every piece has arrived the snapshot is handed to the state machine,
+    * unless the log already holds everything the snapshot covers.
+    * @param snapshotPacket A piece of the snapshot.
+    */
+   public void receiveSnapshotChunk(SnapshotPacket snapshotPacket) {
+      RaftSnapshot snapshot = snapshotAssembler.addChunk(snapshotPacket);
+      if (snapshot != null && snapshot.lastIncludedIndex >= log.size()) {
+         rsm.installSnapshot(snapshot);
+      }
+   }
+
+   /**
+    * Called by the state machine once it has replaced its state with a snapshot from the leader. The log continues right
+    * after the snapshot and anything already received past it is appended by the log maintainer.
+    * @param snapshot The installed snapshot.
+    */
+   public void snapshotInstalled(RaftSnapshot snapshot) {
+      if (writeAheadLog != null && snapshot != latestSnapshot) {
+         writeAheadLog.writeSnapshot(snapshot);
+      }
+      latestSnapshot = snapshot;
+      logLock.lock();
+      try {
+         log.discardThrough(snapshot.lastIncludedIndex);
+      } finally {
+         logLock.unlock();
+      }
+      reorderBuffer.discardThrough(snapshot.lastIncludedIndex);
+      commitAction(snapshot.lastIncludedIndex);
+      // entries received past the snapshot can be appended now
+      advanceReceivedThrough();
+   }
+
+   /**
+    * Starts sending the log to a member from the given index, unless a transfer to that member is already in progress.
+    * @param socketAddress The address of the member that needs the log.
+    * @param fromIndex The first log index the member is missing.
+    */
+   public void startLogTransfer(SocketAddress socketAddress, int fromIndex) {
+      logTransfers.computeIfAbsent(socketAddress, (address) -> new RaftLogTransfer(this, address, fromIndex));
+   }
+
+   /**
+    * Passes a member's confirmation on to the log transfer sending to it, if there is one.
+    * @param socketAddress The address of the confirming member.
+    * @param actionNum The log index the member confirmed.
+    */
+   public void acknowledgeLogTransfer(SocketAddress socketAddress, int actionNum) {
+      RaftLogTransfer transfer = logTransfers.get(socketAddress);
+      if (transfer != null) {
+         transfer.acknowledge(actionNum);
+      }
+   }
+
+   /**
+    * Passes a member's snapshot acknowledgement on to the log transfer sending to it, if there is one.
+    * @param socketAddress The address of the acknowledging member.
+    * @param lastIncludedIndex The last log index covered by the acknowledged snapshot.
+    * @param offset The offset of the acknowledged piece within the snapshot.
+    */
+   public void acknowledgeSnapshotTransfer(SocketAddress socketAddress, int lastIncludedIndex, int offset) {
+      RaftLogTransfer transfer = logTransfers.get(socketAddress);
+      if (transfer != null) {
+         transfer.acknowledgeSnapshot(lastIncludedIndex, offset);
       }
    }
 
-   // A method used for the worst case, log notification missed
-   public void notifyLog() {
-      synchronized (log) {
-         log.notify();
+   /**
+    * Resends exactly the log entries a follower reported missing. Ranges that are too large to resend in one go, or
+    * that were already folded into a snapshot, are handed to a log transfer instead.
+    * @param socketAddress The address of the follower.
+    * @param fromIndex The first missing log index.
+    * @param toIndex The last missing log index.
+    */
+   public void resendLogRange(SocketAddress socketAddress, int fromIndex, int toIndex) {
+      toIndex = Math.min(toIndex, log.size() - 1);
+      if (fromIndex < 0 || fromIndex > toIndex) return;
+      if (logTransfers.containsKey(socketAddress)) return;
+      int maxResendEntries = RaftConfig.LOG_BATCH_MAX_ENTRIES * RaftConfig.LOG_TRANSFER_INITIAL_WINDOW;
+      if (fromIndex < log.getBaseIndex() || toIndex - fromIndex + 1 > maxResendEntries) {
+         startLogTransfer(socketAddress, fromIndex);
+         return;
+      }
+      int index = fromIndex;
+      while (index <= toIndex) {
+         List<Action> actions = readLogBatch(index);
+         if (actions.isEmpty()) return;
+         if (index + actions.size() - 1 > toIndex) {
+            actions = actions.subList(0, toIndex - index + 1);
+         }
+         sendPacket(new LogCommandBatchPacket(self, index, termCounter.get(), lastActionConfirmed.get(), actions).packetToBytes(), socketAddress);
+         index += actions.size();
+      }
+   }
+
+   /**
+    * Follower side. Moves past every log index that has been received without a gap, counting both the log and the
+    * entries waiting to be appended to it.
+    * @return The highest log index received along with everything before it.
+    */
+   public int advanceReceivedThrough() {
+      int index = Math.max(receivedThrough.get(), log.size() - 1);
+      // the log maintainer frees a slot right after appending it, so the log is checked as well
+      while (reorderBuffer.contains(index + 1) || index + 1 < log.size()) {
+         index++;
+      }
+      receivedThrough.publish(index);
+      return receivedThrough.get();
+   }
+
+   /**
+    * Follower side. Tells the leader the log holds every entry through the given index, called by the log maintainer once
+    * the entries are appended and synced to the write ahead log.
+    * @param index The highest log index appended along with everything before it.
+    */
+   void confirmAppended(int index) {
+      appendedThrough.accumulateAndGet(index, Math::max);
+      SocketAddress leaderAddr = getLeaderAddr();
+      if (leaderAddr != null) {
+         sendPacket(new ConfirmCommandPacket(self, index).packetToBytes(), leaderAddr);
+      }
+   }
+
+   /**
+    * @return The highest log index this follower has appended and synced, which is the most it may confirm.
+    */
+   public int getAppendedThrough() {
+      return appendedThrough.get();
+   }
+
+   /**
+    * Follower side. Asks the leader for the first run of entries missing below the given index, at most once every
+    * retry interval so a request that is still being answered isn't repeated.
+    * @param lastKnownIndex The highest log index the leader is known to hold.
+    * @param force Sends the request even if one was sent within the retry interval.
+    */
+   public void requestMissingEntries(int lastKnownIndex, boolean force) {
+      int fromIndex = advanceReceivedThrough() + 1;
+      if (fromIndex > lastKnownIndex) return;
+      long now = nanoTime();
+      long lastRequest = lastNackTime.get();
+      if (!force && now - lastRequest < RaftConfig.NACK_RETRY_MS * 1_000_000L) return;
+      if (!lastNackTime.compareAndSet(lastRequest, now)) return;
+      // nothing past the window could be held anyway
+      lastKnownIndex = Math.min(lastKnownIndex, reorderBuffer.getWindowEnd(log.size()) - 1);
+      int toIndex = fromIndex;
+      while (toIndex < lastKnownIndex && !reorderBuffer.contains(toIndex + 1)) {
+         toIndex++;
+      }
+      SocketAddress leaderAddr = getLeaderAddr();
+      if (leaderAddr != null) {
+         sendPacket(new NackCommandPacket(self, fromIndex, toIndex).packetToBytes(), leaderAddr);
+      }
+   }
+
+   /**
+    * Follower side. Tells the leader that entries were dropped because they didn't fit in the reorder window, so it
+    * stops including this member in its broadcasts and sends the log through a flow controlled transfer instead.
+    */
+   public void reorderWindowFull() {
+      long now = nanoTime();
+      long lastRequest = lastNackTime.get();
+      if (now - lastRequest < RaftConfig.NACK_RETRY_MS * 1_000_000L) return;
+      if (!lastNackTime.compareAndSet(lastRequest, now)) return;
+      SocketAddress leaderAddr = getLeaderAddr();
+      if (leaderAddr != null) {
+         sendPacket(new NackCommandPacket(self, advanceReceivedThrough() + 1, NackCommandPacket.WINDOW_FULL).packetToBytes(), leaderAddr);
+      }
+   }
+
+   /**
+    * @return The number of entries this member dropped because they were too far ahead of its log.
+    */
+   public long getReorderWindowOverflowCount() {
+      return reorderBuffer.getOverflowCount();
+   }
+
+   private Session getSessionByAddress(SocketAddress socketAddress) {
+      for (Session session : sessionMap.values()) {
+         if (socketAddress.equals(session.getSocketAddress())) {
+            return session;
+         }
+      }
+      return null;
+   }
+
+   /**
+    * Called by the log confirmer when the commit index moves.
+    * @param previousIndex The commit index before it moved.
+    * @param index The new commit index.
+    */
+   public void commitAdvanced(int previousIndex, int index) {
+      committedEntryCount.addAndGet(index - previousIndex);
+      CommitAdvanceEvent.emit(previousIndex, index, true);
+   }
+
+   /**
+    * @return The highest commit index followers have been told about.
+    */
+   public int getLastCommitSent() {
+      return lastCommitSent.get();
+   }
+
+   /**
+    * Sends the current commit index to every follower, unless a heartbeat or batch already carried it.
+    */
+   public void flushCommit() {
+      int commitIndex = lastActionConfirmed.get();
+      int previouslySent = lastCommitSent.getAndAccumulate(commitIndex, Math::max);
+      if (commitIndex <= previouslySent) return;
+      CommitCommandPacket commitCommandPacket = new CommitCommandPacket(self, commitIndex);
+      commitMessagesSent.addAndGet(broadcastPacket(commitCommandPacket.packetToBytes()));
+   }
+
+   /**
+    * Updates a followers greatest confirmed action. This method enables the leader to know when to commit log indices.
+    * @param sender The follower that confirmed.
+    * @param actionNum The highest log index the follower holds along with everything before it.
+    */
+   public void updateRaftFollowerGreatestConfirmedAction(MemberRef sender, int actionNum) {
+      Session session = getSession(sender);
+      if (session != null && session.getMembershipState() == RaftMembershipState.FOLLOWER) {
+         session.setGreatestActionConfirmed(actionNum);
+         confirmations.increment();
       }
    }
 
@@ -387,24 +1030,66 @@ public class Raft {
     * @param socketAddress the target address.
     */
    public void sendPacket(byte[] bytes, SocketAddress socketAddress) {
-      byte[] encryptedBytes = encryption.encryptMessageWithSecretKey(bytes);
-      if (encryptedBytes != null) {
+      ByteBuffer encryptedBuffer = sendBuffer.get();
+      encryptedBuffer.clear();
+      if (encryption.encryptMessageWithSecretKey(ByteBuffer.wrap(bytes), encryptedBuffer)) {
+         encryptedBuffer.flip();
+         int length = encryptedBuffer.remaining();
          try {
-            serverSocket.send(new DatagramPacket(encryptedBytes, encryptedBytes.length, socketAddress));
+            transport.send(encryptedBuffer, socketAddress);
+            metrics.recordPacketOut(bytes, length, 1);
          } catch (IOException e) {
             System.err.println("An IOException is thrown when trying to send a heartbeat.");
          }
       }
    }
 
+   /**
+    * Encrypts a message once and sends the same encrypted bytes to every follower that hasn't timed out.
+    * @param bytes packet bytes to be sent.
+    * @return The number of followers the message was sent to.
+    */
+   public int broadcastPacket(byte[] bytes) {
+      List<SocketAddress> followers = new ArrayList<>();
+      for (Session session : sessionMap.values()) {
+         if (session.getMembershipState() == RaftMembershipState.FOLLOWER && !session.getTimedOut()) {
+            followers.add(session.getSocketAddress());
+         }
+      }
+      return broadcastPacket(bytes, followers);
+   }
+
+   /**
+    * Encrypts a message once and sends the same encrypted bytes to each of the given addresses.
+    * @param bytes packet bytes to be sent.
+    * @param socketAddresses the target addresses.
+    * @return The number of addresses the message was sent to.
+    */
+   public int broadcastPacket(byte[] bytes, List<SocketAddress> socketAddresses) {
+      if (socketAddresses.isEmpty()) return 0;
+      ByteBuffer encryptedBuffer = sendBuffer.get();
+      encryptedBuffer.clear();
+      if (!encryption.encryptMessageWithSecretKey(ByteBuffer.wrap(bytes), encryptedBuffer)) return 0;
+      encryptedBuffer.flip();
+      metrics.recordPacketOut(bytes, encryptedBuffer.remaining(), socketAddresses.size());
+      for (SocketAddress socketAddress : socketAddresses) {
+         encryptedBuffer.rewind();
+         try {
+            transport.send(encryptedBuffer, socketAddress);
+         } catch (IOException e) {
+            System.err.println("An IOException is thrown when trying to broadcast a message.");
+         }
+      }
+      return socketAddresses.size();
+   }
+
    /**
     * Starts the election timer which checks between every 150 ms and 350 ms for a leader timeout. Timeout rng is used to avoid
     * ties.
     */
    public void startElectionTimeout() {
-      electionTimeoutTimer = new Timer();
-      long timeOut = (new Random()).longs(300_000_000L, 500_000_000L).findFirst().getAsLong();
-      TimerTask task = new TimerTask() {
+      long timeOut = random.longs(300_000_000L, 500_000_000L).findFirst().getAsLong();
+      Runnable task = new Runnable() {
          @Override
          public void run() {
             boolean runElection = true;
@@ -412,7 +1097,7 @@ public class Raft {
                Session leaderSession = sessionMap.get(userNameOfLeader);
                if (leaderSession != null) {
                   long timeStamp = leaderSession.getLMRSTINT();
-                  long timeDiff = System.nanoTime() - timeStamp;
+                  long timeDiff = nanoTime() - timeStamp;
                   if (timeDiff < timeOut) {
                      runElection = false;
                   }
@@ -423,31 +1108,34 @@ public class Raft {
             }
          }
       };
-      long periodInMS = new Random().longs(150, 350).findFirst().getAsLong();
-      electionTimeoutTimer.schedule(task, periodInMS, periodInMS);
+      long periodInMS = random.longs(150, 350).findFirst().getAsLong();
+      electionTimeoutTask = scheduler.scheduleWithFixedDelay(task, periodInMS, periodInMS);
    }
 
    public void stopElectionTimeout() {
-      electionTimeoutTimer.cancel();
+      RaftScheduler.cancel(electionTimeoutTask);
    }
 
    /**
     * Upgrades a follower to the candidate status. Removes follower functionality and causes the raft instance to enter a candidate mode.
+    * @return true if the new term and the vote for itself were persisted, it may only ask for votes if they were.
     */
-   public void convertToCandidate() {
+   public boolean convertToCandidate() {
       raftMembershipState.set(RaftMembershipState.CANDIDATE);
       voted.set(false);
       termCounter.incrementAndGet();
+      votedFor = clientUserName;
+      boolean persisted = persistTermAndVote();
       sessionMap.get(clientUserName).setMembershipState(RaftMembershipState.FOLLOWER, RaftMembershipState.CANDIDATE);
       if (userNameOfLeader != null && raftSessionActive && !userNameOfLeader.equals(clientUserName)) {
          sessionMap.get(userNameOfLeader).setMembershipState(RaftMembershipState.LEADER, RaftMembershipState.DISCONNECTED);
-         queue.add(new Action(clientUserName, RaftAdministrationCommand.TIME_OUT_MEMBER.name + " " + userNameOfLeader));
+         queue.add(new Action(self, LogEntry.timeOutMember(userNameOfLeader)));
          userNameOfLeader = null;
          clientCount.decrementAndGet();
       }
-      synchronized (followerLogMaintainerObject) {
-         followerLogMaintainerObject.notify();
-      }
+      // the log maintainer stops once this instance is no longer a follower
+      receivedThrough.wakeAll();
+      return persisted;
    }
 
    /**
@@ -456,20 +1144,39 @@ public class Raft {
    public void convertToLeader() {
       raftMembershipState.set(RaftMembershipState.LEADER);
       sessionMap.get(clientUserName).setMembershipState(RaftMembershipState.CANDIDATE, RaftMembershipState.LEADER);
+      String previousLeader = userNameOfLeader;
       this.userNameOfLeader = clientUserName;
+      endElection("won");
+      leaderChanged(previousLeader, clientUserName);
+      // the candidate's election timeout would otherwise see no heartbeats from itself and start another election
+      stopElectionTimeout();
       startHeartBeat();
       startTimeoutTimer();
-      (new RaftLogConfirmer(logConfirmerObject, sessionMap, lastActionConfirmed, gameActive, clientUserName, serverSocket, log)).start();
+      runtime.startStage("raft-log-confirmer-" + clientUserName, new RaftLogConfirmer(confirmations, sessionMap, lastActionConfirmed, gameActive, raftMembershipState, clientUserName, this));
+      runtime.startStage("raft-commit-flusher-" + clientUserName, new RaftCommitFlusher(this, gameActive, raftMembershipState, lastActionConfirmed));
    }
 
    /**
     * Converts a candidate back to a follower. Accounts for cases where multiple candidates existed simultaneously.
+    * A leader that learned of a newer term steps down the same way, its heartbeat and follower timeout stop.
     */
    public void convertToFollower() {
-      if (raftMembershipState.get() == RaftMembershipState.CANDIDATE) {
+      if (raftMembershipState.compareAndSet(RaftMembershipState.LEADER, RaftMembershipState.FOLLOWER)) {
+         stopHeartBeat();
+         stopTimeout();
+         // demoteLeader already disconnected this member's session when it was still the leader
+         Session session = sessionMap.get(clientUserName);
+         session.setMembershipState(RaftMembershipState.DISCONNECTED, RaftMembershipState.FOLLOWER);
+         session.setMembershipState(RaftMembershipState.LEADER, RaftMembershipState.FOLLOWER);
+         // the log confirmer and commit flusher stop once they wake up
+         confirmations.wakeAll();
+         lastActionConfirmed.wakeAll();
+         runtime.startStage("raft-log-maintainer-" + clientUserName, new RaftFollowerLogMaintainer(raftMembershipState, logLock, log, lastActionConfirmed, leaderCommitIndex, receivedThrough, reorderBuffer, this, tracer));
+      } else if (raftMembershipState.get() == RaftMembershipState.CANDIDATE) {
+         endElection("lost");
          raftMembershipState.set(RaftMembershipState.FOLLOWER);
          sessionMap.get(clientUserName).setMembershipState(RaftMembershipState.CANDIDATE, RaftMembershipState.FOLLOWER);
-         (new RaftFollowerLogMaintainer(raftMembershipState, logLock, log, lastActionConfirmed, followerLogMaintainerObject, actionMap)).start();
+         runtime.startStage("raft-log-maintainer-" + clientUserName, new RaftFollowerLogMaintainer(raftMembershipState, logLock, log, lastActionConfirmed, leaderCommitIndex, receivedThrough, reorderBuffer, this, tracer));
       }
    }
 
@@ -477,9 +1184,9 @@ public class Raft {
     * Sends out candidate packets to all of the followers.
     */
    public void sendOutCandidatePackets() {
-      CandidatePacket candidatePacket = new CandidatePacket(clientUserName, termCounter.get(), getLogPosition());
+      CandidatePacket candidatePacket = new CandidatePacket(self, termCounter.get(), getLogPosition());
       byte[] packetBytes = candidatePacket.packetToBytes();
-      sessionMap.forEachValue(1, (value) -> {
+      for (Session value : sessionMap.values()) {
          if (value.getMembershipState() == RaftMembershipState.FOLLOWER) {
             sendPacket(packetBytes, value.getSocketAddress());
             ByteBuffer buffer = ByteBuffer.allocate(1024);
@@ -492,17 +1199,26 @@ public class Raft {
                System.out.println("null pointer");
             }
          }
-      });
+      }
    }
 
    /**
     * Runs an election where a Follower is converted to a candidate and a vote commences. Upon election failure another election is started with new rng.
     */
    public void runElection() {
-      convertToCandidate();
+      // an election that timed out without a winner is replaced by this one
+      endElection("restarted");
+      ElectionEvent event = new ElectionEvent();
+      event.begin();
+      election.set(event);
+      boolean persisted = convertToCandidate();
       stopElectionTimeout();
+      // without its own vote on disk it could vote for someone else in this term after a crash, so it stays out of elections
+      if (!persisted) return;
       if (!voted.get()) {
          voted.set(true);
+         // votes from the previous term don't count in this one, the same members have to vote again
+         resetVotes();
          voteCounter.set(1);
          if (clientCount.get() == voteCounter.get()) {
             convertToLeader();
@@ -519,12 +1235,107 @@ public class Raft {
       return termCounter.get();
    }
 
+   /**
+    * @return How late the leader's heartbeat ticks have been starting.
+    */
+   public RaftTickJitter getHeartBeatJitter() {
+      return heartBeatJitter;
+   }
+
+   /**
+    * @return The tracer following sampled commands through this member.
+    */
+   public RaftTracer getTracer() {
+      return tracer;
+   }
+
+   /**
+    * Marks the traced entries the log confirmer is about to commit, before it publishes the new commit index.
+    * @param fromIndex The first log index being committed.
+    * @param toIndex The last log index being committed.
+    */
+   public void traceCommitted(int fromIndex, int toIndex) {
+      tracer.committed(log, fromIndex, toIndex);
+   }
+
+   /**
+    * @return The metrics of this member.
+    */
+   public RaftMetrics getMetrics() {
+      return metrics;
+   }
+
+   /**
+    * @return The runtime this instance was created with.
+    */
+   public RaftRuntime getRuntime() {
+      return runtime;
+   }
+
+   /**
+    * @return The current time of this instance's clock in nanoseconds, only meaningful relative to other readings.
+    */
+   public long nanoTime() {
+      return runtime.nanoTime();
+   }
+
+   /**
+    * Creates the handler of one received datagram, called by the transport for every datagram it receives.
+    * @param buffer The received datagram, positioned at its end.
+    * @param sender Where the datagram came from.
+    * @param bufferPool The pool the buffer is returned to once the datagram is handled.
+    * @return The handler, not yet run.
+    */
+   public PacketHandler newPacketHandler(ByteBuffer buffer, SocketAddress sender, ByteBufferPool bufferPool) {
+      return new PacketHandler(buffer, sender, bufferPool, this, clientUserName, transport, reorderBuffer, log, encryption);
+   }
+
+   /**
+    * @return The number of received packets waiting to be handled.
+    */
+   public int getHandlerQueueDepth() {
+      return transport.getHandlerQueueDepth();
+   }
+
+   /**
+    * @return The number of received packets dropped because the packet handlers could not keep up.
+    */
+   public long getDroppedPacketCount() {
+      return transport.getDroppedPacketCount();
+   }
+
+   /**
+    * @return The number of commit packets the leader has sent, counting one per follower.
+    */
+   public long getCommitMessagesSent() {
+      return commitMessagesSent.get();
+   }
+
+   /**
+    * @return The number of log entries the leader has committed.
+    */
+   public long getCommittedEntryCount() {
+      return committedEntryCount.get();
+   }
+
+   /**
+    * @return The commit packets sent per committed log entry, the rest of the commits rode along on heartbeats and batches.
+    */
+   public double getCommitMessagesPerEntry() {
+      long committed = committedEntryCount.get();
+      return committed == 0 ? 0 : (double) commitMessagesSent.get() / committed;
+   }
+
    public boolean setTermNum(int termNum) {
       while (termNum > termCounter.get()) {
          int expectedTermNum = termCounter.get();
          if (expectedTermNum < termNum) {
             boolean success = termCounter.compareAndSet(expectedTermNum, termNum);
-            if (success) return true;
+            if (success) {
+               votedFor = null;
+               persistTermAndVote();
+               return true;
+            }
          } else {
             return false;
          }
@@ -532,6 +1343,35 @@ public class Raft {
       return false;
    }
 
+   /**
+    * Remembers and persists that this instance voted for a candidate in the current term. The vote is remembered even
+    * if persisting it fails, so no other candidate gets one this term.
+    * @param candidate The username of the candidate that was voted for.
+    * @return true if the vote was persisted and may be sent.
+    */
+   public boolean recordVote(String candidate) {
+      votedFor = candidate;
+      return persistTermAndVote();
+   }
+
+   /**
+    * @return Who this instance voted for in the current term, null if it hasn't voted.
+    */
+   public String getVotedFor() {
+      return votedFor;
+   }
+
+   private boolean persistTermAndVote() {
+      if (writeAheadLog == null) return true;
+      try {
+         writeAheadLog.writeMeta(termCounter.get(), votedFor);
+         return true;
+      } catch (IOException e) {
+         System.err.println("Persisting the term and vote failed, this member stops voting: " + e);
+         return false;
+      }
+   }
+
    public void demoteLeader() {
       if (userNameOfLeader != null) {
          Session session = sessionMap.get(userNameOfLeader);
@@ -573,6 +1413,8 @@ public class Raft {
          if (session.getMembershipState() == RaftMembershipState.FOLLOWER) {
             session.setMembershipState(RaftMembershipState.FOLLOWER, RaftMembershipState.DISCONNECTED);
             clientCount.decrementAndGet();
+            // fewer followers means a smaller majority
+            confirmations.increment();
          }
       }
    }
@@ -1,10 +1,5 @@
 package edu.oswego.cs.raft;
 
-import edu.oswego.cs.client.Command;
-
-import java.util.Arrays;
-import java.util.Optional;
-
 public enum RaftAdministrationCommand {
     ADD_MEMBER("add_mem"),
     TIME_OUT_MEMBER("time_out"),
@@ -18,9 +13,4 @@ public enum RaftAdministrationCommand {
     RaftAdministrationCommand(String name) {
         this.name = name;
     }
-
-    public static Optional<RaftAdministrationCommand> parse(String command) {
-        return Arrays.stream(values())
-                .filter(commandName-> commandName.name.equals(command)).findFirst();
-    }
 }
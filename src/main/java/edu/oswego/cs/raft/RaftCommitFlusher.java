@@ -0,0 +1,73 @@
+package edu.oswego.cs.raft;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class RaftCommitFlusher implements RaftStage {
+
+    private final Raft raft;
+    private final AtomicBoolean gameActive;
+    private final AtomicReference<RaftMembershipState> raftState;
+    private final RaftSequence lastActionConfirmed;
+    private final long flushIntervalNanos = RaftConfig.COMMIT_FLUSH_INTERVAL_MS * 1_000_000L;
+    private long lastFlushAt;
+
+    /**
+     * Creates the leader's long lived thread that tells followers about new commits. However many times the commit index
+     * moves within an interval, at most one commit packet goes out for it, and none if a heartbeat or batch carried it first.
+     * @param raft The leader's raft instance, used to send the commit packet.
+     * @param gameActive The thread stops once this is false.
+     * @param raftState The state of the raft instance, the thread stops once it is no longer the leader.
+     * @param lastActionConfirmed The leader's commit index, this thread waits for it to move past what was last sent.
+     */
+    public RaftCommitFlusher(Raft raft, AtomicBoolean gameActive, AtomicReference<RaftMembershipState> raftState, RaftSequence lastActionConfirmed) {
+        this.raft = raft;
+        this.gameActive = gameActive;
+        this.raftState = raftState;
+        this.lastActionConfirmed = lastActionConfirmed;
+        this.lastFlushAt = raft.nanoTime() - flushIntervalNanos;
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                int wakeGeneration = lastActionConfirmed.getWakeGeneration();
+                if (isStopped()) break;
+                int lastCommitSent = raft.getLastCommitSent();
+                if (lastActionConfirmed.awaitAbove(lastCommitSent, wakeGeneration) <= lastCommitSent) {
+                    // woken up without a new commit, the game may be over or this member stepped down
+                    continue;
+                }
+                long remainingNanos = flushIntervalNanos - (raft.nanoTime() - lastFlushAt);
+                if (remainingNanos > 0) {
+                    // let more commits pile up before sending
+                    Thread.sleep(remainingNanos / 1_000_000L, (int) (remainingNanos % 1_000_000L));
+                }
+                runReady();
+            }
+        } catch (InterruptedException e) {
+            System.err.println("An Interrupted exception was thrown while the Raft Commit Flusher was waiting.");
+        }
+    }
+
+    /**
+     * Sends the commit index if it moved past what followers were last told and the flush interval has passed. Without a
+     * thread to sleep, a commit that isn't due yet goes out with the next heartbeat or the next flush after it.
+     * @return true if the commit index was sent.
+     */
+    @Override
+    public boolean runReady() {
+        if (lastActionConfirmed.get() <= raft.getLastCommitSent()) return false;
+        long now = raft.nanoTime();
+        if (now - lastFlushAt < flushIntervalNanos) return false;
+        raft.flushCommit();
+        lastFlushAt = now;
+        return true;
+    }
+
+    @Override
+    public boolean isStopped() {
+        return !gameActive.get() || raftState.get() != RaftMembershipState.LEADER;
+    }
+}
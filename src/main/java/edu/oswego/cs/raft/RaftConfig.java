@@ -0,0 +1,119 @@
+package edu.oswego.cs.raft;
+
+/**
+ * Tunable values for a raft instance. Every value can be overridden on the command line with a system property,
+ * e.g. -Draft.handler.workers=8.
+ */
+public final class RaftConfig {
+
+    /**
+     * Number of threads that handle received packets. Packets from the same sender are always handled by the same thread.
+     */
+    public static final int HANDLER_WORKERS = Integer.getInteger("raft.handler.workers", 4);
+
+    /**
+     * Number of packets a single handler thread can have waiting before new packets for it are dropped.
+     */
+    public static final int HANDLER_QUEUE_CAPACITY = Integer.getInteger("raft.handler.queueCapacity", 1024);
+
+    /**
+     * Largest datagram a member sends or receives, including encryption overhead. Every member of a group must use the same value.
+     */
+    public static final int MAX_PACKET_SIZE = Integer.getInteger("raft.packet.maxSize", 1024);
+
+    /**
+     * Number of direct buffers kept for receiving and decrypting packets. Each packet being handled holds two of them.
+     */
+    public static final int RECEIVE_BUFFER_POOL_SIZE = Integer.getInteger("raft.receive.bufferPoolSize", 256);
+
+    /**
+     * Most queued actions the leader replicates in a single heartbeat tick.
+     */
+    public static final int LOG_BATCH_MAX_ENTRIES = Integer.getInteger("raft.log.batchMaxEntries", 64);
+
+    /**
+     * Most bytes (after encryption) a batch of log entries can take up. Never larger than MAX_PACKET_SIZE.
+     */
+    public static final int LOG_BATCH_MAX_BYTES = Math.min(Integer.getInteger("raft.log.batchMaxBytes", MAX_PACKET_SIZE), MAX_PACKET_SIZE);
+
+    /**
+     * How often the leader checks its log transfers for lost chunks and room in their windows, in milliseconds.
+     */
+    public static final int LOG_TRANSFER_TICK_MS = Integer.getInteger("raft.transfer.tickMs", 5);
+
+    /**
+     * Number of unacknowledged chunks a log transfer starts out allowed to have in flight.
+     */
+    public static final int LOG_TRANSFER_INITIAL_WINDOW = Integer.getInteger("raft.transfer.initialWindow", 4);
+
+    /**
+     * Most unacknowledged chunks a log transfer can have in flight.
+     */
+    public static final int LOG_TRANSFER_MAX_WINDOW = Integer.getInteger("raft.transfer.maxWindow", 64);
+
+    /**
+     * Shortest time a chunk waits for its acknowledgement before it is sent again, in milliseconds.
+     */
+    public static final int LOG_TRANSFER_MIN_RTO_MS = Integer.getInteger("raft.transfer.minRtoMs", 50);
+
+    /**
+     * A log transfer is abandoned after this many milliseconds without an acknowledgement.
+     */
+    public static final int LOG_TRANSFER_STALL_TIMEOUT_MS = Integer.getInteger("raft.transfer.stallTimeoutMs", 5000);
+
+    /**
+     * Number of entries past the end of its log a follower can hold while it waits for the entries before them. Entries
+     * further ahead are dropped and the leader is asked to switch the follower to a flow controlled transfer.
+     */
+    public static final int REORDER_WINDOW_ENTRIES = Integer.getInteger("raft.reorder.windowEntries", 8192);
+
+    /**
+     * Minimum time a follower waits before asking the leader for the same missing log entries again.
+     */
+    public static final int NACK_RETRY_MS = Integer.getInteger("raft.nack.retryMs", 50);
+
+    /**
+     * Minimum time between commit packets sent by the leader. Commits that happen in between are coalesced into one
+     * packet, or carried by the next heartbeat or batch if that goes out first.
+     */
+    public static final int COMMIT_FLUSH_INTERVAL_MS = Integer.getInteger("raft.commit.flushIntervalMs", 5);
+
+    /**
+     * Number of threads running the heartbeat, log transfers, follower timeouts and election timeouts.
+     */
+    public static final int SCHEDULER_THREADS = Integer.getInteger("raft.scheduler.threads", 2);
+
+    /**
+     * Number of executed log entries between snapshots. The log before a snapshot is discarded once it is taken.
+     */
+    public static final int SNAPSHOT_INTERVAL_ENTRIES = Integer.getInteger("raft.snapshot.intervalEntries", 10000);
+
+    /**
+     * Directory the write ahead log is kept in, each member uses a subdirectory named after its username. The write ahead
+     * log is turned off when this isn't set.
+     */
+    public static final String WAL_DIR = System.getProperty("raft.wal.dir");
+
+    /**
+     * Size in bytes of every write ahead log segment file.
+     */
+    public static final int WAL_SEGMENT_BYTES = Integer.getInteger("raft.wal.segmentBytes", 16 * 1024 * 1024);
+
+    /**
+     * Port the metrics are served on in Prometheus text format, at /metrics on the loopback address. 0 picks any free
+     * port and a negative value turns the endpoint off. The metrics are always available over JMX.
+     */
+    public static final int METRICS_HTTP_PORT = Integer.getInteger("raft.metrics.httpPort", -1);
+
+    /**
+     * On average one in this many commands is traced from submit to apply, 0 turns tracing off.
+     */
+    public static final int TRACE_SAMPLE_EVERY = Integer.getInteger("raft.trace.sampleEvery", 100);
+
+    /**
+     * Number of finished traces kept for export, shared by every member in the process. The oldest are dropped first.
+     */
+    public static final int TRACE_BUFFER_SIZE = Integer.getInteger("raft.trace.bufferSize", 4096);
+
+    private RaftConfig() { }
+}
@@ -1,55 +1,126 @@
 package edu.oswego.cs.raft;
 
 import edu.oswego.cs.game.Action;
+import edu.oswego.cs.game.TraceStage;
+import edu.oswego.cs.jfr.CommitAdvanceEvent;
+import edu.oswego.cs.jfr.LogAppendEvent;
 
-import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Collections;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 
-public class RaftFollowerLogMaintainer extends Thread {
+public class RaftFollowerLogMaintainer implements RaftStage {
 
     private final AtomicReference<RaftMembershipState> raftState;
     private final Lock logLock;
-    private final AtomicInteger lastActionConfirmed;
-    private final List<Action> log;
-    private final Object followerLogMaintainerObject;
-    private final ConcurrentHashMap<Integer, Action> actionMap;
+    private final RaftSequence lastActionConfirmed;
+    private final AtomicInteger leaderCommitIndex;
+    private final RaftLog log;
+    private final RaftSequence receivedThrough;
+    private final RaftReorderBuffer reorderBuffer;
+    private final Raft raft;
+    private final RaftTracer tracer;
+    // the highest log index this maintainer has confirmed to the leader
+    private int lastConfirmSent = -1;
 
-    public RaftFollowerLogMaintainer(AtomicReference<RaftMembershipState> raftState, Lock logLock, List<Action> log, AtomicInteger lastActionConfirmed, Object followerLogMaintainerObject, ConcurrentHashMap<Integer, Action> actionMap) {
+    /**
+     * Creates the follower's thread that moves entries received from the leader into the log in order.
+     * @param raftState The state of the raft instance, the thread stops once it is no longer a follower.
+     * @param logLock The lock held while the log is appended to.
+     * @param log The raft log.
+     * @param lastActionConfirmed The commit index, moved forward as entries the leader already committed are appended.
+     * @param leaderCommitIndex The highest commit index the leader has sent, which may be past the end of the log.
+     * @param receivedThrough The highest log index received without a gap, the thread waits for it to pass the end of the log.
+     * @param reorderBuffer The received entries waiting to be appended, each slot is freed once its entry is appended.
+     * @param raft The follower's raft instance, it writes the write ahead log and confirms appended entries to the leader.
+     * @param tracer Marks traced entries as they are appended and committed.
+     */
+    public RaftFollowerLogMaintainer(AtomicReference<RaftMembershipState> raftState, Lock logLock, RaftLog log, RaftSequence lastActionConfirmed, AtomicInteger leaderCommitIndex, RaftSequence receivedThrough, RaftReorderBuffer reorderBuffer, Raft raft, RaftTracer tracer) {
         this.raftState = raftState;
         this.logLock = logLock;
         this.lastActionConfirmed = lastActionConfirmed;
-        this.followerLogMaintainerObject = followerLogMaintainerObject;
+        this.leaderCommitIndex = leaderCommitIndex;
+        this.receivedThrough = receivedThrough;
         this.log = log;
-        this.actionMap = actionMap;
+        this.reorderBuffer = reorderBuffer;
+        this.raft = raft;
+        this.tracer = tracer;
     }
 
     @Override
     public void run() {
         try {
-            while (raftState.get() == RaftMembershipState.FOLLOWER) {
-                boolean madeAddition = true;
-                while (madeAddition) {
-                    // make addition to log and keep going while log pieces exist
-                    Action action = actionMap.get(log.size());
-                    if (action != null) {
-                        log.add(action);
-                        synchronized (log) {
-                            log.notify();
-                        }
-                    } else {
-                        madeAddition = false;
-                    }
-                }
-                synchronized (followerLogMaintainerObject) {
-                    followerLogMaintainerObject.wait();
-                }
+            while (true) {
+                int wakeGeneration = receivedThrough.getWakeGeneration();
+                if (isStopped()) break;
+                runReady();
+                receivedThrough.awaitAbove(log.size() - 1, wakeGeneration);
             }
         } catch (InterruptedException e) {
             System.out.println("An Interrupted Exception was thrown while trying to wait for a new action to be added in the Raft Follower Log Maintainer.");
         }
     }
+
+    /**
+     * Appends every received entry that continues the log, then commits what the leader already committed of them.
+     * Entries are only confirmed to the leader once they are in the log and the write ahead log has been synced.
+     * @return true if the log grew or the commit index moved.
+     */
+    @Override
+    public boolean runReady() {
+        LogAppendEvent appendEvent = new LogAppendEvent();
+        appendEvent.begin();
+        int startIndex = log.size();
+        boolean madeAddition = true;
+        boolean written = true;
+        while (madeAddition) {
+            // make addition to log and keep going while log pieces exist
+            Action action;
+            logLock.lock();
+            try {
+                int index = log.size();
+                action = reorderBuffer.get(index);
+                if (action != null) {
+                    log.add(action);
+                    reorderBuffer.remove(index, action);
+                    tracer.mark(action, TraceStage.APPEND);
+                    written &= raft.appendToWriteAheadLog(index, Collections.singletonList(action));
+                }
+            } finally {
+                logLock.unlock();
+            }
+            if (action == null) {
+                madeAddition = false;
+            }
+        }
+        appendEvent.end();
+        if (log.size() > startIndex && appendEvent.shouldCommit()) {
+            appendEvent.startIndex = startIndex;
+            appendEvent.entries = log.size() - startIndex;
+            appendEvent.leader = false;
+            appendEvent.commit();
+        }
+        int appendedThrough = log.size() - 1;
+        // the leader may have committed entries before they got here, publishing wakes the state machine
+        int commitIndex = Math.min(leaderCommitIndex.get(), log.size() - 1);
+        int previousIndex = lastActionConfirmed.get();
+        tracer.committed(log, previousIndex + 1, commitIndex);
+        boolean committed = lastActionConfirmed.publish(commitIndex);
+        if (committed) {
+            CommitAdvanceEvent.emit(previousIndex, commitIndex, false);
+        }
+        // one fsync for everything appended since the maintainer last woke up, a member whose write ahead log failed never confirms again
+        if (written && raft.syncWriteAheadLog() && appendedThrough > lastConfirmSent) {
+            raft.confirmAppended(appendedThrough);
+            lastConfirmSent = appendedThrough;
+        }
+        return log.size() > startIndex || committed;
+    }
+
+    @Override
+    public boolean isStopped() {
+        return raftState.get() != RaftMembershipState.FOLLOWER;
+    }
 }
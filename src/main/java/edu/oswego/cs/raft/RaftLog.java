@@ -0,0 +1,128 @@
+package edu.oswego.cs.raft;
+
+import edu.oswego.cs.game.Action;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class RaftLog {
+
+    private static final int CHUNK_SHIFT = 10;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // the length of the whole log, written last on every append so readers only ever see fully written entries
+    private volatile int tail = 0;
+    // the base index and the chunks are published together, so a reader never pairs a base with the wrong chunks
+    private volatile Directory directory = new Directory(0, 0, new Action[4][]);
+
+    /**
+     * The log is split into fixed size chunks that never move once allocated. Appending writes into the last chunk and
+     * publishes the new tail, so readers never block, entries are never copied and get is still a couple of array
+     * lookups. Only one thread may append or discard at a time, raft serializes those with its log lock.
+     */
+    public RaftLog() {
+    }
+
+    /**
+     * @return The length of the whole log, including entries that were discarded after a snapshot.
+     */
+    public int size() {
+        return tail;
+    }
+
+    /**
+     * @param index A log index at or above the base index.
+     * @return The action at that index.
+     */
+    public Action get(int index) {
+        // reading the tail first makes the entry's contents visible
+        int currentTail = tail;
+        // a discard running at the same time replaces the directory, every bound is checked against the one read here
+        Directory currentDirectory = directory;
+        int chunkNumber = (index >>> CHUNK_SHIFT) - currentDirectory.firstChunk;
+        if (index >= currentTail || index < currentDirectory.baseIndex || chunkNumber >= currentDirectory.chunks.length) {
+            throw new IndexOutOfBoundsException("Log index " + index + " is outside of [" + currentDirectory.baseIndex + ", " + currentTail + ")");
+        }
+        return currentDirectory.chunks[chunkNumber][index & CHUNK_MASK];
+    }
+
+    public void add(Action action) {
+        int index = tail;
+        chunkFor(index)[index & CHUNK_MASK] = action;
+        tail = index + 1;
+    }
+
+    public void addAll(List<Action> actions) {
+        int index = tail;
+        for (Action action : actions) {
+            chunkFor(index)[index & CHUNK_MASK] = action;
+            index++;
+        }
+        tail = index;
+    }
+
+    /**
+     * @return The lowest log index still held in memory.
+     */
+    public int getBaseIndex() {
+        return directory.baseIndex;
+    }
+
+    /**
+     * Drops every entry up to and including the given index. If the log doesn't reach that far yet it is emptied and
+     * continues from the index after it, which is what installing a snapshot from the leader needs. Only whole chunks are
+     * released, readers holding on to the old chunks still see valid entries.
+     * @param lastIncludedIndex The last log index covered by a snapshot.
+     */
+    public void discardThrough(int lastIncludedIndex) {
+        Directory currentDirectory = directory;
+        if (lastIncludedIndex < currentDirectory.baseIndex) return;
+        int newBaseIndex = lastIncludedIndex + 1;
+        int firstChunk = newBaseIndex >>> CHUNK_SHIFT;
+        int chunksToDrop = Math.min(firstChunk - currentDirectory.firstChunk, currentDirectory.chunks.length);
+        Action[][] chunks = new Action[Math.max(4, currentDirectory.chunks.length - chunksToDrop)][];
+        if (newBaseIndex < tail) {
+            System.arraycopy(currentDirectory.chunks, chunksToDrop, chunks, 0, currentDirectory.chunks.length - chunksToDrop);
+        }
+        directory = new Directory(newBaseIndex, firstChunk, chunks);
+        if (newBaseIndex > tail) {
+            tail = newBaseIndex;
+        }
+    }
+
+    /**
+     * Finds the chunk an index is written to, allocating it (and growing the directory) first if needed.
+     */
+    private Action[] chunkFor(int index) {
+        Directory currentDirectory = directory;
+        int chunkNumber = (index >>> CHUNK_SHIFT) - currentDirectory.firstChunk;
+        if (chunkNumber >= currentDirectory.chunks.length) {
+            // only the chunk references are copied, never the entries
+            currentDirectory = new Directory(currentDirectory.baseIndex, currentDirectory.firstChunk, Arrays.copyOf(currentDirectory.chunks, Math.max(chunkNumber + 1, currentDirectory.chunks.length * 2)));
+            directory = currentDirectory;
+        }
+        Action[] chunk = currentDirectory.chunks[chunkNumber];
+        if (chunk == null) {
+            chunk = new Action[CHUNK_SIZE];
+            currentDirectory.chunks[chunkNumber] = chunk;
+        }
+        return chunk;
+    }
+
+    /**
+     * The chunks holding the log, chunks[0] covers the indices starting at firstChunk * CHUNK_SIZE. Every index below
+     * baseIndex has been folded into a snapshot.
+     */
+    private static class Directory {
+        private final int baseIndex;
+        private final int firstChunk;
+        private final Action[][] chunks;
+
+        private Directory(int baseIndex, int firstChunk, Action[][] chunks) {
+            this.baseIndex = baseIndex;
+            this.firstChunk = firstChunk;
+            this.chunks = chunks;
+        }
+    }
+}
@@ -1,81 +1,139 @@
 package edu.oswego.cs.raft;
 
-import edu.oswego.cs.Packets.CommitCommandPacket;
-import edu.oswego.cs.game.Action;
-
-import java.io.IOException;
-import java.net.DatagramSocket;
-import java.util.Enumeration;
-import java.util.List;
+import java.util.Arrays;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.Consumer;
+import java.util.concurrent.atomic.AtomicReference;
 
-public class RaftLogConfirmer extends Thread {
+public class RaftLogConfirmer implements RaftStage {
 
-    private final Object raftLogConfirmerNotifier;
+    private final RaftSequence confirmations;
     private final ConcurrentHashMap<String, Session> sessionMap;
-    private final AtomicInteger lastActionConfirmed;
+    private final RaftSequence lastActionConfirmed;
     private final AtomicBoolean gameActive;
+    private final AtomicReference<RaftMembershipState> raftState;
     private final String username;
-    private final DatagramSocket datagramSocket;
-    private final List<Action> log;
+    private final Raft raft;
+    // reused between wake ups, holds the confirmed index of every voting member
+    private int[] confirmedIndices = new int[8];
 
-    public RaftLogConfirmer(Object raftLogConfirmerNotifier, ConcurrentHashMap<String, Session> sessionMap, AtomicInteger lastActionConfirmed, AtomicBoolean gameActive, String username, DatagramSocket datagramSocket, List<Action> log) {
-        this.raftLogConfirmerNotifier = raftLogConfirmerNotifier;
+    /**
+     * Creates the leader's long lived thread that moves the commit index as followers confirm entries.
+     * @param confirmations Incremented whenever a member confirms entries, this thread waits for it to move.
+     * @param sessionMap The members and the highest log index each has confirmed.
+     * @param lastActionConfirmed The leader's commit index.
+     * @param gameActive The thread stops once this is false.
+     * @param raftState The state of the raft instance, the thread stops once it is no longer the leader.
+     * @param username The leader's username.
+     * @param raft The leader's raft instance.
+     */
+    public RaftLogConfirmer(RaftSequence confirmations, ConcurrentHashMap<String, Session> sessionMap, RaftSequence lastActionConfirmed, AtomicBoolean gameActive, AtomicReference<RaftMembershipState> raftState, String username, Raft raft) {
+        this.confirmations = confirmations;
         this.sessionMap = sessionMap;
         this.lastActionConfirmed = lastActionConfirmed;
         this.gameActive = gameActive;
+        this.raftState = raftState;
         this.username = username;
-        this.datagramSocket = datagramSocket;
-        this.log = log;
+        this.raft = raft;
     }
 
     @Override
     public void run() {
         try {
-            while (gameActive.get()) {
-                synchronized (raftLogConfirmerNotifier) {
-                    raftLogConfirmerNotifier.wait();
-                }
-                int initialConfirmedCommand = lastActionConfirmed.get();
-                int previousConfirmedCommand = initialConfirmedCommand;
-                int nextConfirmedCommand = previousConfirmedCommand;
-                do {
-                    previousConfirmedCommand = nextConfirmedCommand;
-                    int commandNumToCheck = previousConfirmedCommand;
-                    AtomicInteger countAboveCurrentConfirmed = new AtomicInteger(0);
-                    AtomicInteger totalFollowers = new AtomicInteger(0);
-                    Consumer<Session> sessionTask = new Consumer<Session>() {
-                        @Override
-                        public void accept(Session session) {
-                            RaftMembershipState state = session.getMembershipState();
-                            if (state == RaftMembershipState.FOLLOWER || state == RaftMembershipState.LEADER) {
-                                if (state == RaftMembershipState.FOLLOWER) {
-                                    totalFollowers.incrementAndGet();
-                                }
-                                if (session.getGreatestActionConfirmed() > commandNumToCheck) {
-                                    countAboveCurrentConfirmed.incrementAndGet();
-                                }
-                            }
-                        }
-                    };
-                    sessionMap.forEachValue(2, sessionTask);
-                    if (countAboveCurrentConfirmed.get() > totalFollowers.get() / 2) {
-                        nextConfirmedCommand = lastActionConfirmed.incrementAndGet();
-                    }
-                } while (nextConfirmedCommand > previousConfirmedCommand);
-                // send commit to everyone
-                if (nextConfirmedCommand > initialConfirmedCommand) {
-                    (new RaftCommitSender(datagramSocket, sessionMap, new CommitCommandPacket(username, lastActionConfirmed.get()))).start();
-                    synchronized (log) {
-                        log.notify();
-                    }
-                }
+            int confirmationsSeen = -1;
+            while (true) {
+                int wakeGeneration = confirmations.getWakeGeneration();
+                if (isStopped()) break;
+                confirmationsSeen = confirmations.awaitAbove(confirmationsSeen, wakeGeneration);
+                runReady();
             }
         } catch (InterruptedException e) {
             System.err.println("An Interrupted exception was thrown while the Raft Log Confirmer was executing.");
         }
     }
+
+    /**
+     * Moves the commit index up to the highest log index a majority has confirmed.
+     * @return true if the commit index moved.
+     */
+    @Override
+    public boolean runReady() {
+        int initialConfirmedCommand = lastActionConfirmed.get();
+        int memberCount = 0;
+        int followerCount = 0;
+        for (Session session : sessionMap.values()) {
+            RaftMembershipState state = session.getMembershipState();
+            if (state == RaftMembershipState.FOLLOWER || state == RaftMembershipState.LEADER) {
+                if (state == RaftMembershipState.FOLLOWER) {
+                    followerCount++;
+                }
+                if (memberCount == confirmedIndices.length) {
+                    confirmedIndices = Arrays.copyOf(confirmedIndices, memberCount * 2);
+                }
+                confirmedIndices[memberCount++] = session.getGreatestActionConfirmed();
+            }
+        }
+        // a follower may have confirmed entries from an earlier leader that never reached this one
+        int majorityConfirmedIndex = Math.min(getMajorityConfirmedIndex(confirmedIndices, memberCount, followerCount), raft.getLogPosition());
+        // publishing wakes the state machine and the commit flusher, which tells the followers unless the next heartbeat does first
+        if (majorityConfirmedIndex > initialConfirmedCommand) {
+            raft.traceCommitted(initialConfirmedCommand + 1, majorityConfirmedIndex);
+        }
+        if (lastActionConfirmed.publish(majorityConfirmedIndex)) {
+            raft.commitAdvanced(initialConfirmedCommand, majorityConfirmedIndex);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isStopped() {
+        return !gameActive.get() || raftState.get() != RaftMembershipState.LEADER;
+    }
+
+    /**
+     * Finds the highest log index confirmed by more than half of the followers, counting the leader's own confirmation.
+     * That is the quorum-th highest confirmed index, which is picked with a selection instead of a full sort.
+     * @param confirmedIndices The confirmed index of every voting member, reordered in place.
+     * @param memberCount The number of values in confirmedIndices that are in use.
+     * @param followerCount The number of those members that are followers.
+     * @return The highest majority confirmed index, -1 if there is none.
+     */
+    public static int getMajorityConfirmedIndex(int[] confirmedIndices, int memberCount, int followerCount) {
+        int quorum = followerCount / 2 + 1;
+        if (quorum > memberCount) return -1;
+        return selectKthSmallest(confirmedIndices, memberCount, memberCount - quorum);
+    }
+
+    /**
+     * Quickselect, partially reorders the values so the k-th smallest ends up at index k.
+     */
+    private static int selectKthSmallest(int[] values, int length, int k) {
+        int left = 0;
+        int right = length - 1;
+        while (left < right) {
+            int pivot = values[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (values[i] < pivot) i++;
+                while (values[j] > pivot) j--;
+                if (i <= j) {
+                    int temp = values[i];
+                    values[i] = values[j];
+                    values[j] = temp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                break;
+            }
+        }
+        return values[k];
+    }
 }
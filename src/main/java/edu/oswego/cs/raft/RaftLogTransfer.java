@@ -0,0 +1,228 @@
+package edu.oswego.cs.raft;
+
+import edu.oswego.cs.Packets.LogCommandBatchPacket;
+import edu.oswego.cs.Packets.SnapshotPacket;
+import edu.oswego.cs.game.Action;
+import edu.oswego.cs.jfr.LogTransferEvent;
+
+import java.net.SocketAddress;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+
+public class RaftLogTransfer {
+
+    private final Raft raft;
+    private final SocketAddress followerAddress;
+    private final ArrayDeque<Chunk> chunksInFlight = new ArrayDeque<>();
+    // the next log index that hasn't been sent yet
+    private int nextIndex;
+    // the snapshot being sent ahead of the log, null once all of it has been sent
+    private RaftSnapshot snapshot;
+    private int snapshotOffset;
+    // number of unacknowledged chunks allowed in flight, grows by one chunk per window acknowledged and halves on a loss
+    private double window = RaftConfig.LOG_TRANSFER_INITIAL_WINDOW;
+    private long smoothedRoundTripNanos = -1;
+    private long lastProgressAt;
+    private final int fromIndex;
+    private int snapshotIndex = -1;
+    private final LogTransferEvent event = new LogTransferEvent();
+
+    /**
+     * A flow controlled transfer of the log to a single member. Many entries are packed into each datagram and a bounded
+     * number of those chunks are kept unacknowledged at a time. If the member needs entries that were discarded after a
+     * snapshot, the snapshot is sent first and the log continues right after it.
+     * @param raft The leader's raft instance, used for reading the log and sending chunks.
+     * @param followerAddress The address of the member receiving the log.
+     * @param fromIndex The first log index to send.
+     */
+    public RaftLogTransfer(Raft raft, SocketAddress followerAddress, int fromIndex) {
+        this.raft = raft;
+        this.followerAddress = followerAddress;
+        this.nextIndex = Math.max(fromIndex, 0);
+        this.fromIndex = this.nextIndex;
+        this.lastProgressAt = raft.nanoTime();
+        event.begin();
+    }
+
+    /**
+     * Resends anything that has waited longer than the retransmission timeout and fills the window with new chunks.
+     * @return false once every log entry has been sent and acknowledged, or once the member has stopped acknowledging chunks.
+     */
+    public synchronized boolean tick() {
+        long now = raft.nanoTime();
+        if (now - lastProgressAt > RaftConfig.LOG_TRANSFER_STALL_TIMEOUT_MS * 1_000_000L) {
+            return false;
+        }
+        long retransmissionTimeout = getRetransmissionTimeout();
+        boolean lostChunk = false;
+        for (Chunk chunk : chunksInFlight) {
+            if (!chunk.acknowledged && now - chunk.sentAt > retransmissionTimeout) {
+                lostChunk = true;
+                sendChunk(chunk, now);
+            }
+        }
+        if (lostChunk) {
+            window = Math.max(1, window / 2);
+        }
+
+        int logLength = raft.getLogLength();
+        while (chunksInFlight.size() < (int) window) {
+            Chunk chunk;
+            if (snapshot != null) {
+                int length = Math.min(raft.getSnapshotChunkSize(), snapshot.state.length - snapshotOffset);
+                chunk = new Chunk(snapshot, snapshotOffset, length);
+                snapshotOffset += length;
+                if (snapshotOffset >= snapshot.state.length) {
+                    snapshot = null;
+                }
+            } else if (nextIndex >= logLength) {
+                break;
+            } else if (nextIndex < raft.getLogBaseIndex()) {
+                // the entries the member needs were folded into a snapshot
+                RaftSnapshot latestSnapshot = raft.getLatestSnapshot();
+                if (latestSnapshot == null) break;
+                snapshot = latestSnapshot;
+                snapshotOffset = 0;
+                snapshotIndex = latestSnapshot.lastIncludedIndex;
+                nextIndex = latestSnapshot.lastIncludedIndex + 1;
+                continue;
+            } else {
+                List<Action> actions = raft.readLogBatch(nextIndex);
+                // the log was compacted after the check above, the next tick sends the snapshot
+                if (actions.isEmpty()) break;
+                chunk = new Chunk(nextIndex, actions);
+                nextIndex += actions.size();
+            }
+            chunksInFlight.add(chunk);
+            sendChunk(chunk, now);
+        }
+        return !chunksInFlight.isEmpty() || snapshot != null || nextIndex < logLength;
+    }
+
+    /**
+     * Marks every log chunk the member now holds as received. Confirmations are cumulative, so one confirmation can
+     * acknowledge several chunks at once.
+     * @param actionNum The highest log index the member holds along with everything before it.
+     */
+    public synchronized void acknowledge(int actionNum) {
+        for (Chunk chunk : chunksInFlight) {
+            if (chunk.snapshot == null && chunk.getLastIndex() <= actionNum && !chunk.acknowledged) {
+                acknowledge(chunk);
+            }
+        }
+        removeAcknowledgedChunks();
+    }
+
+    /**
+     * Marks the snapshot chunk starting at the given offset as received.
+     * @param lastIncludedIndex The last log index covered by the acknowledged snapshot.
+     * @param offset The offset of the acknowledged chunk within the snapshot.
+     */
+    public synchronized void acknowledgeSnapshot(int lastIncludedIndex, int offset) {
+        for (Chunk chunk : chunksInFlight) {
+            if (chunk.snapshot != null && chunk.snapshot.lastIncludedIndex == lastIncludedIndex && chunk.offset == offset && !chunk.acknowledged) {
+                acknowledge(chunk);
+                break;
+            }
+        }
+        removeAcknowledgedChunks();
+    }
+
+    /**
+     * @return true once everything up to the end of the log has been sent and acknowledged.
+     */
+    public synchronized boolean isComplete() {
+        return chunksInFlight.isEmpty() && snapshot == null && nextIndex >= raft.getLogLength();
+    }
+
+    /**
+     * @return The next log index this transfer would send.
+     */
+    public synchronized int getNextIndex() {
+        return nextIndex;
+    }
+
+    /**
+     * Records the transfer with the flight recorder once it is no longer running.
+     */
+    public synchronized void finish() {
+        event.end();
+        if (event.shouldCommit()) {
+            event.member = followerAddress.toString();
+            event.fromIndex = fromIndex;
+            event.nextIndex = nextIndex;
+            event.snapshotIndex = snapshotIndex;
+            event.completed = isComplete();
+            event.commit();
+        }
+    }
+
+    private void acknowledge(Chunk chunk) {
+        chunk.acknowledged = true;
+        lastProgressAt = raft.nanoTime();
+        if (!chunk.retransmitted) {
+            long roundTripNanos = lastProgressAt - chunk.sentAt;
+            smoothedRoundTripNanos = smoothedRoundTripNanos < 0 ? roundTripNanos : (7 * smoothedRoundTripNanos + roundTripNanos) / 8;
+        }
+        window = Math.min(RaftConfig.LOG_TRANSFER_MAX_WINDOW, window + 1 / window);
+    }
+
+    private void removeAcknowledgedChunks() {
+        // chunks only leave the window in the order they were sent
+        while (!chunksInFlight.isEmpty() && chunksInFlight.peek().acknowledged) {
+            chunksInFlight.poll();
+        }
+    }
+
+    private long getRetransmissionTimeout() {
+        long minimumTimeout = RaftConfig.LOG_TRANSFER_MIN_RTO_MS * 1_000_000L;
+        return smoothedRoundTripNanos < 0 ? minimumTimeout : Math.max(minimumTimeout, 2 * smoothedRoundTripNanos);
+    }
+
+    private void sendChunk(Chunk chunk, long now) {
+        if (chunk.sentAt != 0) {
+            chunk.retransmitted = true;
+        }
+        chunk.sentAt = now;
+        byte[] packetBytes;
+        if (chunk.snapshot != null) {
+            byte[] data = Arrays.copyOfRange(chunk.snapshot.state, chunk.offset, chunk.offset + chunk.length);
+            packetBytes = new SnapshotPacket(raft.getSelf(), chunk.snapshot.lastIncludedIndex, chunk.snapshot.state.length, chunk.offset, data).packetToBytes();
+        } else {
+            packetBytes = new LogCommandBatchPacket(raft.getSelf(), chunk.startIndex, raft.getTermNum(), raft.getLastActionConfirmed(), chunk.actions).packetToBytes();
+        }
+        raft.sendPacket(packetBytes, followerAddress);
+    }
+
+    private static class Chunk {
+        private final int startIndex;
+        private final List<Action> actions;
+        private final RaftSnapshot snapshot;
+        private final int offset;
+        private final int length;
+        private long sentAt;
+        private boolean acknowledged;
+        private boolean retransmitted;
+
+        private Chunk(int startIndex, List<Action> actions) {
+            this.startIndex = startIndex;
+            this.actions = actions;
+            this.snapshot = null;
+            this.offset = 0;
+            this.length = 0;
+        }
+
+        private Chunk(RaftSnapshot snapshot, int offset, int length) {
+            this.startIndex = -1;
+            this.actions = null;
+            this.snapshot = snapshot;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        private int getLastIndex() {
+            return startIndex + actions.size() - 1;
+        }
+    }
+}
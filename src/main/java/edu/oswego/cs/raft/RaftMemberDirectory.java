@@ -0,0 +1,106 @@
+package edu.oswego.cs.raft;
+
+import edu.oswego.cs.Packets.MemberRef;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The replicated dictionary of member ids. An id is handed out by the leader when it adds a member to the log, and every
+ * member learns it from the add member entry. Packets carry ids instead of usernames, so the sender's username and
+ * session are looked up here by array index.
+ * Members are added rarely and looked up for every packet, so the arrays are copied whenever they change.
+ */
+public class RaftMemberDirectory {
+
+    private final Map<String, Session> sessionMap;
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] usernames = new String[0];
+    private volatile Session[] sessions = new Session[0];
+
+    /**
+     * @param sessionMap The sessions of raft, by username.
+     */
+    public RaftMemberDirectory(Map<String, Session> sessionMap) {
+        this.sessionMap = sessionMap;
+    }
+
+    /**
+     * Leader side. Hands out the next unused id, unless the member already has one.
+     * @param username The username of the member being added.
+     * @return The id of the member.
+     */
+    public synchronized int assign(String username) {
+        Integer id = ids.get(username);
+        if (id != null) return id;
+        int nextId = usernames.length;
+        bind(nextId, username);
+        return nextId;
+    }
+
+    /**
+     * Records the id of a member. A later binding of the same id replaces an earlier one, the entry it came from was never committed.
+     * @param id The member id.
+     * @param username The username of the member.
+     */
+    public synchronized void bind(int id, String username) {
+        String[] newUsernames = usernames;
+        Session[] newSessions = sessions;
+        if (id >= newUsernames.length) {
+            newUsernames = Arrays.copyOf(newUsernames, id + 1);
+            newSessions = Arrays.copyOf(newSessions, id + 1);
+        } else {
+            newUsernames = newUsernames.clone();
+            newSessions = newSessions.clone();
+        }
+        String previousUsername = newUsernames[id];
+        if (previousUsername != null && !previousUsername.equals(username)) {
+            ids.remove(previousUsername, id);
+        }
+        newUsernames[id] = username;
+        newSessions[id] = sessionMap.get(username);
+        ids.put(username, id);
+        sessions = newSessions;
+        usernames = newUsernames;
+    }
+
+    /**
+     * Picks up a session that was added to or replaced in the session map.
+     * @param username The username whose session changed.
+     */
+    public synchronized void sessionChanged(String username) {
+        Integer id = ids.get(username);
+        if (id == null) return;
+        Session[] newSessions = sessions.clone();
+        newSessions[id] = sessionMap.get(username);
+        sessions = newSessions;
+    }
+
+    /**
+     * @param username A username.
+     * @return The id of the member, MemberRef.NO_ID if it hasn't been given one.
+     */
+    public int getId(String username) {
+        Integer id = ids.get(username);
+        return id == null ? MemberRef.NO_ID : id;
+    }
+
+    /**
+     * @param id A member id.
+     * @return The username of the member, null if the id is unknown.
+     */
+    public String getUsername(int id) {
+        String[] current = usernames;
+        return id >= 0 && id < current.length ? current[id] : null;
+    }
+
+    /**
+     * @param id A member id.
+     * @return The session of the member, null if the id is unknown or the member has no session.
+     */
+    public Session getSession(int id) {
+        Session[] current = sessions;
+        return id >= 0 && id < current.length ? current[id] : null;
+    }
+}
@@ -0,0 +1,184 @@
+package edu.oswego.cs.raft;
+
+import edu.oswego.cs.Packets.CommandPacket;
+import edu.oswego.cs.Packets.CommandSubopcode;
+import edu.oswego.cs.Packets.Opcode;
+import edu.oswego.cs.Packets.Packet;
+import edu.oswego.cs.game.TraceStage;
+import edu.oswego.cs.metrics.Counter;
+import edu.oswego.cs.metrics.Histogram;
+import edu.oswego.cs.metrics.MetricsRegistry;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+public class RaftMetrics {
+
+    private static final String MEMBER = "member";
+
+    private final MetricsRegistry registry;
+    private final String member;
+    // indexed by the wire code, so counting a packet never looks anything up by name
+    private final Counter[] packetsIn;
+    private final Counter[] packetsOut;
+    private final Counter[] commandPacketsIn;
+    private final Counter[] commandPacketsOut;
+    private final Counter bytesIn;
+    private final Counter bytesOut;
+    private final Histogram heartBeatLatenessMicros;
+    private final Histogram applyMicros;
+    private final Histogram[] traceStageMicros = new Histogram[TraceStage.values().length];
+    private final Histogram traceTotalMicros;
+    private final Histogram submitToApplyMicros;
+
+    /**
+     * The metrics of one raft member, every series is labelled with the member's username.
+     * @param registry The registry the metrics are created in.
+     * @param member The username of the member.
+     */
+    public RaftMetrics(MetricsRegistry registry, String member) {
+        this.registry = registry;
+        this.member = member;
+        packetsIn = new Counter[maxCode(Opcode.values()) + 1];
+        packetsOut = new Counter[packetsIn.length];
+        for (Opcode opcode : Opcode.values()) {
+            packetsIn[opcode.code] = registry.counter("raft_packets_in_total", "Packets received, by opcode.", MEMBER, member, "opcode", opcode.name());
+            packetsOut[opcode.code] = registry.counter("raft_packets_out_total", "Packets sent, by opcode. A broadcast counts once per receiver.", MEMBER, member, "opcode", opcode.name());
+        }
+        commandPacketsIn = new Counter[maxCode(CommandSubopcode.values()) + 1];
+        commandPacketsOut = new Counter[commandPacketsIn.length];
+        for (CommandSubopcode subopcode : CommandSubopcode.values()) {
+            commandPacketsIn[subopcode.code] = registry.counter("raft_command_packets_in_total", "Command packets received, by subopcode.", MEMBER, member, "subopcode", subopcode.name());
+            commandPacketsOut[subopcode.code] = registry.counter("raft_command_packets_out_total", "Command packets sent, by subopcode. A broadcast counts once per receiver.", MEMBER, member, "subopcode", subopcode.name());
+        }
+        bytesIn = registry.counter("raft_bytes_in_total", "Bytes received off the wire.", MEMBER, member);
+        bytesOut = registry.counter("raft_bytes_out_total", "Bytes sent on the wire.", MEMBER, member);
+        heartBeatLatenessMicros = registry.histogram("raft_heartbeat_lateness_micros", "How long after it was due each heartbeat tick started, in microseconds.", MEMBER, member);
+        for (TraceStage stage : TraceStage.values()) {
+            traceStageMicros[stage.ordinal()] = registry.histogram("raft_trace_stage_micros", "Time traced commands took to reach each stage from the one before it, in microseconds.", MEMBER, member, "stage", stage.name());
+        }
+        traceTotalMicros = registry.histogram("raft_trace_total_micros", "Time traced commands took from the first stage seen on this member until they were applied, in microseconds.", MEMBER, member);
+        submitToApplyMicros = registry.histogram("raft_submit_to_apply_micros", "Time traced commands submitted by this member took until this member applied them, in microseconds.", MEMBER, member);
+        applyMicros = registry.histogram("raft_apply_micros", "Time the state machine took to execute each committed entry, in microseconds.", MEMBER, member);
+    }
+
+    /**
+     * @param packet A packet that was received and parsed.
+     * @param length The length of the datagram it arrived in.
+     */
+    public void recordPacketIn(Packet packet, int length) {
+        packetsIn[packet.opcode.code].increment();
+        if (packet instanceof CommandPacket) {
+            commandPacketsIn[((CommandPacket) packet).commandSubopcode.code].increment();
+        }
+        bytesIn.add(length);
+    }
+
+    /**
+     * @param packetBytes The packet before it was encrypted, the opcode is read from its first bytes.
+     * @param length The length of the datagram that was sent.
+     * @param receivers How many addresses the same datagram was sent to.
+     */
+    public void recordPacketOut(byte[] packetBytes, int length, int receivers) {
+        if (packetBytes.length >= 2 * Short.BYTES) {
+            ByteBuffer header = ByteBuffer.wrap(packetBytes);
+            short code = header.getShort(0);
+            if (code > 0 && code < packetsOut.length && packetsOut[code] != null) {
+                packetsOut[code].add(receivers);
+                short subcode = header.getShort(Short.BYTES);
+                if (code == Opcode.Command.code && subcode > 0 && subcode < commandPacketsOut.length && commandPacketsOut[subcode] != null) {
+                    commandPacketsOut[subcode].add(receivers);
+                }
+            }
+        }
+        bytesOut.add((long) length * receivers);
+    }
+
+    /**
+     * @param nanos How long executing a committed entry took.
+     */
+    public void recordApply(long nanos) {
+        applyMicros.record(nanos / 1_000);
+    }
+
+    /**
+     * @return The histogram heartbeat lateness is recorded in, in microseconds.
+     */
+    public Histogram getHeartBeatLatenessMicros() {
+        return heartBeatLatenessMicros;
+    }
+
+    /**
+     * @param stage A trace stage.
+     * @return The histogram the time taken to reach that stage is recorded in, in microseconds.
+     */
+    public Histogram getTraceStageMicros(TraceStage stage) {
+        return traceStageMicros[stage.ordinal()];
+    }
+
+    /**
+     * @return The histogram the time traced commands took end to end is recorded in, in microseconds.
+     */
+    public Histogram getTraceTotalMicros() {
+        return traceTotalMicros;
+    }
+
+    /**
+     * @return The histogram the time from submitting a traced command to applying it on the same member is recorded in, in microseconds.
+     */
+    public Histogram getSubmitToApplyMicros() {
+        return submitToApplyMicros;
+    }
+
+    /**
+     * Registers a value of this member that is read every time the metrics are collected.
+     * @param name The metric name.
+     * @param help A one line description of the metric.
+     * @param value Reads the current value.
+     */
+    public void gauge(String name, String help, DoubleSupplier value) {
+        registry.gauge(name, help, value, MEMBER, member);
+    }
+
+    /**
+     * Registers a count this member already keeps somewhere else.
+     * @param name The metric name.
+     * @param help A one line description of the metric.
+     * @param value Reads the current count.
+     */
+    public void counterFunction(String name, String help, DoubleSupplier value) {
+        registry.counterFunction(name, help, value, MEMBER, member);
+    }
+
+    /**
+     * Registers one gauge per peer of this member, read every time the metrics are collected.
+     * @param name The metric name.
+     * @param help A one line description of the metric.
+     * @param labelName The label the peers are told apart by.
+     * @param values Reads the current value for every peer, keyed by the value of the label.
+     */
+    public void gaugeFamily(String name, String help, String labelName, Supplier<Map<String, ? extends Number>> values) {
+        registry.gaugeFamily(name, help, labelName, values, MEMBER, member);
+    }
+
+    /**
+     * Removes every series of this member from the registry.
+     */
+    public void close() {
+        registry.removeAll(MEMBER, member);
+    }
+
+    private static int maxCode(Opcode[] opcodes) {
+        int max = 0;
+        for (Opcode opcode : opcodes) max = Math.max(max, opcode.code);
+        return max;
+    }
+
+    private static int maxCode(CommandSubopcode[] subopcodes) {
+        int max = 0;
+        for (CommandSubopcode subopcode : subopcodes) max = Math.max(max, subopcode.code);
+        return max;
+    }
+}
@@ -0,0 +1,72 @@
+package edu.oswego.cs.raft;
+
+import java.net.SocketAddress;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RaftPacketDispatcher {
+
+    private final ThreadPoolExecutor[] workers;
+    private final AtomicLong droppedPackets = new AtomicLong();
+
+    /**
+     * Creates a fixed set of packet handling workers, each with its own bounded queue. A sender is always mapped to the
+     * same worker so packets from one member are handled in the order they were received.
+     * @param workerCount The number of handler threads.
+     * @param queueCapacity The number of packets each handler thread can have waiting before packets are dropped.
+     */
+    public RaftPacketDispatcher(int workerCount, int queueCapacity) {
+        workers = new ThreadPoolExecutor[Math.max(1, workerCount)];
+        for (int i = 0; i < workers.length; i++) {
+            String threadName = "raft-packet-handler-" + i;
+            workers[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity), runnable -> new Thread(runnable, threadName));
+        }
+    }
+
+    /**
+     * Hands a packet off to the worker responsible for its sender.
+     * @param sender The address the packet was received from.
+     * @param packetHandler The task that handles the packet.
+     * @return false if the worker's queue was full (or the dispatcher was shut down) and the packet was dropped.
+     */
+    public boolean dispatch(SocketAddress sender, Runnable packetHandler) {
+        ThreadPoolExecutor worker = workers[(sender.hashCode() & Integer.MAX_VALUE) % workers.length];
+        try {
+            worker.execute(packetHandler);
+            return true;
+        } catch (RejectedExecutionException e) {
+            droppedPackets.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * @return The number of packets currently waiting to be handled across all workers.
+     */
+    public int getQueueDepth() {
+        int queueDepth = 0;
+        for (ThreadPoolExecutor worker : workers) {
+            queueDepth += worker.getQueue().size();
+        }
+        return queueDepth;
+    }
+
+    /**
+     * @return The number of packets dropped because a worker's queue was full.
+     */
+    public long getDroppedPackets() {
+        return droppedPackets.get();
+    }
+
+    /**
+     * Stops accepting packets. Packets already queued are still handled.
+     */
+    public void shutdown() {
+        for (ThreadPoolExecutor worker : workers) {
+            worker.shutdown();
+        }
+    }
+}
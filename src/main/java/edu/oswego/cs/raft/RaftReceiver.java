@@ -1,71 +1,96 @@
 package edu.oswego.cs.raft;
 
-import edu.oswego.cs.Security.Encryption;
-import edu.oswego.cs.game.Action;
-
-import javax.xml.crypto.Data;
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
-import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class RaftReceiver extends Thread {
-    private final DatagramSocket serverSocket;
-    private final AtomicBoolean keepReceiving;
-    private final int DATA_PACKET_MAX_LEN = 1024;
+    private final DatagramChannel serverChannel;
+    private final Selector selector;
+    private final AtomicBoolean keepReceiving = new AtomicBoolean(true);
     private final Raft localRaft;
-    private final String username;
-    private final ScheduledExecutorService scheduledExecutorService = Executors.newScheduledThreadPool(5);
-    private final Object logConfirmerNotifier;
-    private final ConcurrentHashMap<Integer, Action> actionMap;
-    private final Object followerLogMaintainerObject;
-    private final List<Action> readOnlyLog;
-    private final Encryption encryption;
+    private final RaftPacketDispatcher packetDispatcher = new RaftPacketDispatcher(RaftConfig.HANDLER_WORKERS, RaftConfig.HANDLER_QUEUE_CAPACITY);
+    private final ByteBufferPool bufferPool = new ByteBufferPool(RaftConfig.RECEIVE_BUFFER_POOL_SIZE, RaftConfig.MAX_PACKET_SIZE);
 
     /**
-     * Creates a RaftReceiver Thread that accepts new packets and sends them off to a new a thread to be handled.
-     * @param serverSocket The server socket associated with a raft instance.
-     * @param keepReceiving An atomic boolean that allows for graceful shutdown of the receiver once the raft instance is exited.
-     * @param localRaft A reference to the raft instance this handler is associated with.
-     * @param username The username connected to the associated raft instance.
-     * @param logConfirmerNotifier An object the RaftLogConfirmer waits on and can be notified upon certain packets being received. (Saves CPU cycles)
-     * @param actionMap A map of all the actions that are cached for out of order message reordering.
-     * @param followerLogMaintainerObject An object the FollowerLogMaintainer waits on and is notified when certain packets are received. (Saves CPU cycles)
-     * @param readOnlyLog The raft log (intended to be read only)
-     * @param encryption The encryption object that allows for Public Key, Private Key, and Secret Key use when sending/receiving messages.
+     * Creates a RaftReceiver Thread that reads new packets into pooled buffers and hands them off to a fixed pool of packet handling workers.
+     * @param serverChannel The non-blocking datagram channel associated with a raft instance.
+     * @param localRaft A reference to the raft instance this handler is associated with, it makes the packet handlers.
+     * @throws IOException if the selector could not be opened or the channel could not be registered with it.
      */
-    public RaftReceiver(DatagramSocket serverSocket, AtomicBoolean keepReceiving, Raft localRaft, String username, Object logConfirmerNotifier, ConcurrentHashMap<Integer, Action> actionMap, Object followerLogMaintainerObject, List<Action> readOnlyLog, Encryption encryption) {
-        this.serverSocket = serverSocket;
-        this.keepReceiving = keepReceiving;
+    public RaftReceiver(DatagramChannel serverChannel, Raft localRaft) throws IOException {
+        this.serverChannel = serverChannel;
         this.localRaft = localRaft;
-        this.username = username;
-        this.logConfirmerNotifier = logConfirmerNotifier;
-        this.actionMap = actionMap;
-        this.followerLogMaintainerObject = followerLogMaintainerObject;
-        this.readOnlyLog = readOnlyLog;
-        this.encryption = encryption;
+        this.selector = Selector.open();
+        serverChannel.register(selector, SelectionKey.OP_READ);
     }
 
     @Override
     public void run() {
         try {
             while (keepReceiving.get()) {
-                byte[] data = new byte[DATA_PACKET_MAX_LEN];
-                DatagramPacket datagramPacket = new DatagramPacket(data, DATA_PACKET_MAX_LEN);
-                serverSocket.receive(datagramPacket);
-                (new PacketHandler(datagramPacket, localRaft, username, serverSocket, scheduledExecutorService, logConfirmerNotifier, actionMap, followerLogMaintainerObject, readOnlyLog, encryption)).start();
+                selector.select();
+                selector.selectedKeys().clear();
+                // drain every datagram that is ready before selecting again
+                while (keepReceiving.get()) {
+                    ByteBuffer buffer = bufferPool.acquire();
+                    SocketAddress sender = serverChannel.receive(buffer);
+                    if (sender == null) {
+                        bufferPool.release(buffer);
+                        break;
+                    }
+                    PacketHandler packetHandler = localRaft.newPacketHandler(buffer, sender, bufferPool);
+                    if (!packetDispatcher.dispatch(sender, packetHandler)) {
+                        bufferPool.release(buffer);
+                    }
+                }
             }
-        } catch (IOException e) {
+        } catch (IOException | ClosedSelectorException e) {
             // check if connection wasn't closed
             if (keepReceiving.get()) {
                 System.out.println("An IOException was thrown from the Raft Receiver when trying to receive a data packet.");
                 System.exit(1);
             }
         }
-        scheduledExecutorService.shutdown();
+        try {
+            selector.close();
+        } catch (IOException e) {
+            System.err.println("An IOException was thrown while closing the Raft Receiver's selector.");
+        }
+        packetDispatcher.shutdown();
+    }
+
+    /**
+     * Wakes the receiver so it notices that it should stop receiving.
+     */
+    public void stopReceiving() {
+        keepReceiving.set(false);
+        selector.wakeup();
+    }
+
+    /**
+     * @return The number of received packets waiting to be handled.
+     */
+    public int getHandlerQueueDepth() {
+        return packetDispatcher.getQueueDepth();
+    }
+
+    /**
+     * @return The number of received packets dropped because the handlers could not keep up.
+     */
+    public long getDroppedPacketCount() {
+        return packetDispatcher.getDroppedPackets();
+    }
+
+    /**
+     * @return The number of times a receive buffer had to be allocated because every pooled buffer was in use.
+     */
+    public long getBufferPoolExhaustedCount() {
+        return bufferPool.getExhaustedCount();
     }
 }
@@ -0,0 +1,108 @@
+package edu.oswego.cs.raft;
+
+import edu.oswego.cs.game.Action;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class RaftReorderBuffer {
+
+    private final AtomicReferenceArray<Action> actions;
+    // the log index held in each slot, only meaningful while the slot's action is set
+    private final AtomicIntegerArray indices;
+    private final int capacity;
+    private final int mask;
+    private final AtomicLong overflowCount = new AtomicLong();
+
+    /**
+     * A fixed window of slots that holds entries received from the leader until the entries before them arrive. The
+     * window starts at the end of the local log, an index always maps to the same slot and a slot is freed as soon as
+     * its entry is appended, so nothing is boxed or kept around after it reaches the log.
+     * @param capacity The number of entries past the end of the log that can be held, rounded up to a power of two.
+     */
+    public RaftReorderBuffer(int capacity) {
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.actions = new AtomicReferenceArray<>(this.capacity);
+        this.indices = new AtomicIntegerArray(this.capacity);
+    }
+
+    /**
+     * Holds an entry until the log reaches it.
+     * @param index The log index of the entry.
+     * @param action The entry.
+     * @param logTail The length of the local log, which is where the window starts.
+     * @return false if the entry is too far past the end of the log to fit in the window and was dropped.
+     */
+    public boolean put(int index, Action action, int logTail) {
+        if (index < logTail) return true;
+        if (index - logTail >= capacity) {
+            overflowCount.incrementAndGet();
+            return false;
+        }
+        int slot = index & mask;
+        Action existing = actions.get(slot);
+        if (existing != null) {
+            if (indices.get(slot) == index && actions.get(slot) == existing) return true;
+            // left over from an index the log has already moved past
+            actions.compareAndSet(slot, existing, null);
+        }
+        indices.set(slot, index);
+        actions.compareAndSet(slot, null, action);
+        return true;
+    }
+
+    /**
+     * @param index A log index.
+     * @return The entry held for that index, null if it hasn't been received.
+     */
+    public Action get(int index) {
+        int slot = index & mask;
+        Action action = actions.get(slot);
+        // reading the action again makes sure the index belongs to it and not to an entry replacing it
+        if (action == null || indices.get(slot) != index || actions.get(slot) != action) return null;
+        return action;
+    }
+
+    public boolean contains(int index) {
+        return get(index) != null;
+    }
+
+    /**
+     * Frees the slot of an entry that was appended to the log.
+     * @param index The log index of the entry.
+     * @param action The entry that was appended.
+     */
+    public void remove(int index, Action action) {
+        actions.compareAndSet(index & mask, action, null);
+    }
+
+    /**
+     * Frees every slot holding an entry at or below the given index, used once a snapshot covers them.
+     * @param lastIncludedIndex The last log index covered by a snapshot.
+     */
+    public void discardThrough(int lastIncludedIndex) {
+        for (int slot = 0; slot < capacity; slot++) {
+            Action action = actions.get(slot);
+            if (action != null && indices.get(slot) <= lastIncludedIndex) {
+                actions.compareAndSet(slot, action, null);
+            }
+        }
+    }
+
+    /**
+     * @param logTail The length of the local log.
+     * @return The first log index past the end of the window.
+     */
+    public int getWindowEnd(int logTail) {
+        return logTail + capacity;
+    }
+
+    /**
+     * @return The number of entries dropped because they didn't fit in the window.
+     */
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+}
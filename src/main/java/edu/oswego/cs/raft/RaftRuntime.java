@@ -0,0 +1,47 @@
+package edu.oswego.cs.raft;
+
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.util.Random;
+
+/**
+ * Everything a raft member takes from its surroundings: the clock, randomness, timers, the network and the threads its
+ * stages run on. A member normally runs on a {@link SystemRaftRuntime}. A simulation supplies its own, so a whole group
+ * can run on one thread with a virtual clock and a virtual network and every run with the same seed plays out the same.
+ */
+public interface RaftRuntime {
+
+    /**
+     * @return The current time in nanoseconds, only meaningful compared to other values from the same runtime.
+     */
+    long nanoTime();
+
+    /**
+     * @return The random number generator for the member's election timeouts and dungeon seed.
+     */
+    Random newRandom();
+
+    /**
+     * @return The random number generator for the member's keys and IVs.
+     */
+    SecureRandom newSecureRandom();
+
+    /**
+     * @param name The name of the member the timers belong to.
+     * @return The scheduler every timer of the member runs on.
+     */
+    RaftScheduler newScheduler(String name);
+
+    /**
+     * @return The transport the member sends and receives datagrams with.
+     * @throws IOException if the transport could not be opened.
+     */
+    RaftTransport openTransport() throws IOException;
+
+    /**
+     * Starts running a stage of the member.
+     * @param name The name of the stage, used for its thread.
+     * @param stage The stage.
+     */
+    void startStage(String name, RaftStage stage);
+}
@@ -0,0 +1,44 @@
+package edu.oswego.cs.raft;
+
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Runs every raft timer. Members normally use a {@link ThreadPoolRaftScheduler}, a simulation runs the timers off its
+ * virtual clock instead.
+ */
+public interface RaftScheduler {
+
+    /**
+     * Runs a task at a fixed rate and records how late each run starts compared to when it was due.
+     * @param task The task to run.
+     * @param initialDelayInMS Time before the first run.
+     * @param periodInMS Time between the starts of consecutive runs.
+     * @param jitter Where the lateness of every run is recorded.
+     * @return The handle used to cancel the task.
+     */
+    ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long initialDelayInMS, long periodInMS, RaftTickJitter jitter);
+
+    /**
+     * Runs a task repeatedly with a fixed delay between the end of one run and the start of the next.
+     * @param task The task to run.
+     * @param initialDelayInMS Time before the first run.
+     * @param delayInMS Time between runs.
+     * @return The handle used to cancel the task.
+     */
+    ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long initialDelayInMS, long delayInMS);
+
+    /**
+     * Stops every scheduled task.
+     */
+    void shutdown();
+
+    /**
+     * Cancels a scheduled task, a null handle is ignored. A run already in progress is allowed to finish.
+     * @param scheduledTask The handle returned when the task was scheduled.
+     */
+    static void cancel(ScheduledFuture<?> scheduledTask) {
+        if (scheduledTask != null) {
+            scheduledTask.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package edu.oswego.cs.raft;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class RaftSequence {
+
+    private final AtomicInteger value;
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition advanced = lock.newCondition();
+    // bumped by wakeAll so waiters return even though the value hasn't moved, only written while holding lock
+    private volatile int wakeGeneration = 0;
+
+    /**
+     * A value that only ever moves forward, like a log or commit index, that one stage publishes and another waits on.
+     * A waiter can't miss an update: it registers before it checks the value, and publishers only take the lock when
+     * someone is registered, so publishing to a stage that is busy costs a single atomic update.
+     * @param initialValue The starting value.
+     */
+    public RaftSequence(int initialValue) {
+        value = new AtomicInteger(initialValue);
+    }
+
+    public int get() {
+        return value.get();
+    }
+
+    /**
+     * Moves the sequence forward to the given value and wakes anyone waiting for it. Values at or below the current one
+     * are ignored.
+     * @param newValue The new value.
+     * @return true if the sequence moved.
+     */
+    public boolean publish(int newValue) {
+        int previousValue = value.getAndAccumulate(newValue, Math::max);
+        if (newValue <= previousValue) return false;
+        signalWaiters(false);
+        return true;
+    }
+
+    /**
+     * Moves the sequence forward by one and wakes anyone waiting for it.
+     * @return The new value.
+     */
+    public int increment() {
+        int newValue = value.incrementAndGet();
+        signalWaiters(false);
+        return newValue;
+    }
+
+    /**
+     * Blocks until the sequence moves past the given value, or until wakeAll is called.
+     * @param threshold The value the sequence has to exceed.
+     * @return The value of the sequence when the wait ended, which is at or below threshold only after a wakeAll.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public int awaitAbove(int threshold) throws InterruptedException {
+        return awaitAbove(threshold, wakeGeneration);
+    }
+
+    /**
+     * Blocks until the sequence moves past the given value, or until wakeAll has been called since the given wake
+     * generation was read. Reading the generation before checking whatever else the waiter depends on means a wakeAll
+     * that lands in between isn't missed.
+     * @param threshold The value the sequence has to exceed.
+     * @param wakeGeneration The value getWakeGeneration returned before the waiter's last check.
+     * @return The value of the sequence when the wait ended, which is at or below threshold only after a wakeAll.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public int awaitAbove(int threshold, int wakeGeneration) throws InterruptedException {
+        int current = value.get();
+        if (current > threshold || wakeGeneration != this.wakeGeneration) return current;
+        lock.lock();
+        waiters.incrementAndGet();
+        try {
+            while ((current = value.get()) <= threshold && wakeGeneration == this.wakeGeneration) {
+                advanced.await();
+            }
+            return current;
+        } finally {
+            waiters.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return A number that changes every time wakeAll is called.
+     */
+    public int getWakeGeneration() {
+        return wakeGeneration;
+    }
+
+    /**
+     * Wakes every waiter whether or not the sequence moved, so they can recheck anything else they depend on, like
+     * shutting down or a change of role.
+     */
+    public void wakeAll() {
+        signalWaiters(true);
+    }
+
+    private void signalWaiters(boolean newGeneration) {
+        if (!newGeneration && waiters.get() == 0) return;
+        lock.lock();
+        try {
+            if (newGeneration) {
+                wakeGeneration++;
+            }
+            advanced.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
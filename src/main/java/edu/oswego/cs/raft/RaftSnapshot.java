@@ -0,0 +1,17 @@
+package edu.oswego.cs.raft;
+
+public class RaftSnapshot {
+
+    public final int lastIncludedIndex;
+    public final byte[] state;
+
+    /**
+     * The applied state of the replicated state machine after executing every log entry up to lastIncludedIndex.
+     * @param lastIncludedIndex The last log index whose effects are included in the state.
+     * @param state The serialized state, only the replicated state machine knows how to read it.
+     */
+    public RaftSnapshot(int lastIncludedIndex, byte[] state) {
+        this.lastIncludedIndex = lastIncludedIndex;
+        this.state = state;
+    }
+}
@@ -0,0 +1,42 @@
+package edu.oswego.cs.raft;
+
+import edu.oswego.cs.Packets.SnapshotPacket;
+
+import java.util.HashSet;
+
+public class RaftSnapshotAssembler {
+
+    private int lastIncludedIndex = -1;
+    private int lastCompletedIndex = -1;
+    private byte[] state;
+    private final HashSet<Integer> receivedOffsets = new HashSet<>();
+    private int receivedBytes;
+
+    /**
+     * Copies a piece of a snapshot into place. Pieces can arrive in any order and more than once.
+     * @param packet A piece of the snapshot the leader is sending.
+     * @return The whole snapshot once its last missing piece arrives, otherwise null.
+     */
+    public synchronized RaftSnapshot addChunk(SnapshotPacket packet) {
+        if (packet.lastIncludedIndex <= lastCompletedIndex) return null;
+        if (state == null || packet.lastIncludedIndex != lastIncludedIndex || packet.snapshotSize != state.length) {
+            // a newer snapshot replaces whatever was being put together
+            lastIncludedIndex = packet.lastIncludedIndex;
+            state = new byte[packet.snapshotSize];
+            receivedOffsets.clear();
+            receivedBytes = 0;
+        }
+        if (packet.offset < 0 || packet.offset + packet.data.length > state.length) return null;
+        if (receivedOffsets.add(packet.offset)) {
+            System.arraycopy(packet.data, 0, state, packet.offset, packet.data.length);
+            receivedBytes += packet.data.length;
+        }
+        if (receivedBytes < state.length) return null;
+
+        RaftSnapshot snapshot = new RaftSnapshot(lastIncludedIndex, state);
+        lastCompletedIndex = lastIncludedIndex;
+        state = null;
+        receivedOffsets.clear();
+        return snapshot;
+    }
+}
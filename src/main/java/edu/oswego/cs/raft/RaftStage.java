@@ -0,0 +1,20 @@
+package edu.oswego.cs.raft;
+
+/**
+ * A long lived stage of a raft member that waits for work on a {@link RaftSequence}, like the log confirmer or the state
+ * machine. On its own thread run loops between waiting and runReady. A simulation never starts the thread, it calls
+ * runReady after every event instead, so all of a member's stages run on the simulation's thread in a repeatable order.
+ */
+public interface RaftStage extends Runnable {
+
+    /**
+     * Does whatever work is ready right now without waiting for more.
+     * @return true if anything was done.
+     */
+    boolean runReady();
+
+    /**
+     * @return true once the stage has stopped for good, its thread exits and a simulation stops calling it.
+     */
+    boolean isStopped();
+}
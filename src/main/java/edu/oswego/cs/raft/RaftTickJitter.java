@@ -0,0 +1,65 @@
+package edu.oswego.cs.raft;
+
+import edu.oswego.cs.metrics.Histogram;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RaftTickJitter {
+
+    private final long periodNanos;
+    private final AtomicLong tickCount = new AtomicLong();
+    private final AtomicLong totalLatenessNanos = new AtomicLong();
+    private final AtomicLong maxLatenessNanos = new AtomicLong();
+    private final AtomicLong lateTickCount = new AtomicLong();
+    private final Histogram latenessMicros;
+
+    /**
+     * Keeps track of how late the runs of a periodic task start.
+     * @param periodInMS The period of the task, a run that starts a whole period late is counted as a late tick.
+     * @param latenessMicros The histogram every run's lateness is also recorded in, in microseconds.
+     */
+    public RaftTickJitter(long periodInMS, Histogram latenessMicros) {
+        this.periodNanos = periodInMS * 1_000_000L;
+        this.latenessMicros = latenessMicros;
+    }
+
+    /**
+     * @param latenessNanos How long after it was due a run started.
+     */
+    public void record(long latenessNanos) {
+        latenessNanos = Math.max(0, latenessNanos);
+        tickCount.incrementAndGet();
+        totalLatenessNanos.addAndGet(latenessNanos);
+        maxLatenessNanos.accumulateAndGet(latenessNanos, Math::max);
+        if (latenessNanos >= periodNanos) {
+            lateTickCount.incrementAndGet();
+        }
+        latenessMicros.record(latenessNanos / 1_000);
+    }
+
+    public long getTickCount() {
+        return tickCount.get();
+    }
+
+    /**
+     * @return The average time runs started after they were due, in microseconds.
+     */
+    public double getMeanLatenessMicros() {
+        long ticks = tickCount.get();
+        return ticks == 0 ? 0 : totalLatenessNanos.get() / 1_000.0 / ticks;
+    }
+
+    /**
+     * @return The latest any run has started after it was due, in microseconds.
+     */
+    public long getMaxLatenessMicros() {
+        return maxLatenessNanos.get() / 1_000;
+    }
+
+    /**
+     * @return The number of runs that started a whole period or more after they were due.
+     */
+    public long getLateTickCount() {
+        return lateTickCount.get();
+    }
+}
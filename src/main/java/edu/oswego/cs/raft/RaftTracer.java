@@ -0,0 +1,169 @@
+package edu.oswego.cs.raft;
+
+import edu.oswego.cs.game.Action;
+import edu.oswego.cs.game.TraceStage;
+import edu.oswego.cs.metrics.TraceBuffer;
+import edu.oswego.cs.metrics.TraceRecord;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class RaftTracer {
+
+    // every member in the process keeps its finished traces in the same buffer, so one export shows all of them
+    private static final TraceBuffer completedTraces = new TraceBuffer(RaftConfig.TRACE_BUFFER_SIZE);
+    private static final TraceStage[] STAGES = TraceStage.values();
+    // commands handed to the leader whose entries never come back are forgotten once this many are waiting
+    private static final int MAX_PENDING_SUBMITS = 1024;
+
+    private final String member;
+    private final int sampleEvery;
+    private final RaftMetrics metrics;
+    // when this member handed traced commands to the leader, until the commands come back as log entries
+    private final ConcurrentHashMap<Long, Long> pendingSubmits = new ConcurrentHashMap<>();
+    // lines nanoTime up with the wall clock so records from different members can be shown side by side
+    private final long epochMicrosAtStart = System.currentTimeMillis() * 1_000;
+    private final long nanosAtStart = System.nanoTime();
+
+    /**
+     * Follows a sample of commands through submit, append, replicate, commit and apply on one member. Untraced
+     * commands cost a random number when submitted and nothing afterwards.
+     * @param member The username of the member.
+     * @param sampleEvery On average one in this many commands is traced, 0 turns tracing off.
+     * @param metrics The metrics the per stage latency histograms live in.
+     */
+    public RaftTracer(String member, int sampleEvery, RaftMetrics metrics) {
+        this.member = member;
+        this.sampleEvery = sampleEvery;
+        this.metrics = metrics;
+    }
+
+    public boolean isEnabled() {
+        return sampleEvery > 0;
+    }
+
+    /**
+     * @return A new trace id if the command being submitted was picked to be traced, otherwise 0.
+     */
+    public long newTraceId() {
+        if (sampleEvery <= 0) return 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextInt(sampleEvery) != 0) return 0;
+        long traceId;
+        do {
+            traceId = random.nextLong();
+        } while (traceId == 0);
+        return traceId;
+    }
+
+    /**
+     * Remembers when a traced command was handed to the leader, it is filled in once the command comes back in the log.
+     * @param traceId The trace id of the command, 0 if it isn't traced.
+     */
+    public void submitted(long traceId) {
+        if (traceId == 0) return;
+        if (pendingSubmits.size() >= MAX_PENDING_SUBMITS) {
+            pendingSubmits.clear();
+        }
+        pendingSubmits.put(traceId, System.nanoTime());
+    }
+
+    /**
+     * @param action An action that just reached a stage on this member.
+     * @param stage The stage reached.
+     */
+    public void mark(Action action, TraceStage stage) {
+        if (!action.isTraced()) return;
+        Long submittedAt = pendingSubmits.remove(action.getTraceId());
+        if (submittedAt != null) {
+            action.markStage(TraceStage.SUBMIT, submittedAt);
+        }
+        action.markStage(stage, System.nanoTime());
+    }
+
+    /**
+     * @param actions Actions that just reached a stage on this member together.
+     * @param stage The stage reached.
+     */
+    public void mark(List<Action> actions, TraceStage stage) {
+        if (!isEnabled()) return;
+        for (Action action : actions) {
+            mark(action, stage);
+        }
+    }
+
+    /**
+     * Marks the traced entries in a range of the log as committed. Has to be called before the commit index is
+     * published, so the state machine never applies an entry before its commit is marked.
+     * @param log The log.
+     * @param fromIndex The first newly committed log index.
+     * @param toIndex The last newly committed log index.
+     */
+    public void committed(RaftLog log, int fromIndex, int toIndex) {
+        if (!isEnabled()) return;
+        long now = System.nanoTime();
+        fromIndex = Math.max(fromIndex, log.getBaseIndex());
+        toIndex = Math.min(toIndex, log.size() - 1);
+        try {
+            for (int index = fromIndex; index <= toIndex; index++) {
+                Action action = log.get(index);
+                if (action.isTraced()) {
+                    action.markStage(TraceStage.COMMIT, now);
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            // a snapshot discarded the rest of the range, those entries are never applied one by one
+        }
+    }
+
+    /**
+     * Marks a traced action as applied, records how long each stage took and keeps the finished trace.
+     * @param action The action the state machine just executed.
+     * @param logIndex The log index of the action.
+     */
+    public void applied(Action action, int logIndex) {
+        if (!action.isTraced()) return;
+        action.markStage(TraceStage.APPLY, System.nanoTime());
+        TraceStage[] stages = new TraceStage[STAGES.length];
+        long[] times = new long[STAGES.length];
+        int reached = 0;
+        for (TraceStage stage : STAGES) {
+            long time = action.getStageTime(stage);
+            if (time == 0) continue;
+            // insertion sort, a follower receives an entry before appending it so stage order and time order can differ
+            int position = reached++;
+            while (position > 0 && times[position - 1] > time) {
+                stages[position] = stages[position - 1];
+                times[position] = times[position - 1];
+                position--;
+            }
+            stages[position] = stage;
+            times[position] = time;
+        }
+        String[] stageNames = new String[reached];
+        long[] stageTimesMicros = new long[reached];
+        for (int i = 0; i < reached; i++) {
+            stageNames[i] = stages[i].name();
+            stageTimesMicros[i] = epochMicrosAtStart + (times[i] - nanosAtStart) / 1_000;
+            if (i > 0) {
+                metrics.getTraceStageMicros(stages[i]).record((times[i] - times[i - 1]) / 1_000);
+            }
+        }
+        metrics.getTraceTotalMicros().record((times[reached - 1] - times[0]) / 1_000);
+        long submittedAt = action.getStageTime(TraceStage.SUBMIT);
+        if (submittedAt != 0) {
+            // only the member the command was typed on knows when it was submitted
+            metrics.getSubmitToApplyMicros().record((times[reached - 1] - submittedAt) / 1_000);
+        }
+        String name = action.getOpcode() == null ? "unknown" : action.getOpcode().label;
+        completedTraces.add(new TraceRecord(member, action.getTraceId(), name, logIndex, stageNames, stageTimesMicros));
+    }
+
+    /**
+     * @return The finished traces of every member in this process as Chrome trace event JSON.
+     */
+    public static String toChromeTraceJson() {
+        return completedTraces.toChromeTraceJson();
+    }
+}
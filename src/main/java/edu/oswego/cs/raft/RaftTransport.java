@@ -0,0 +1,50 @@
+package edu.oswego.cs.raft;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * Moves datagrams between raft members. Members normally talk over UDP, see {@link UdpRaftTransport}.
+ */
+public interface RaftTransport {
+
+    /**
+     * @return The address other members reach this member at.
+     */
+    SocketAddress getLocalAddress();
+
+    /**
+     * @param datagram The datagram, from its position to its limit.
+     * @param target The address of the receiving member.
+     * @throws IOException if the datagram could not be sent.
+     */
+    void send(ByteBuffer datagram, SocketAddress target) throws IOException;
+
+    /**
+     * Starts handing every datagram received to a packet handler made by the raft instance.
+     * @param raft The raft instance the datagrams are for.
+     * @throws IOException if receiving could not be started.
+     */
+    void startReceiving(Raft raft) throws IOException;
+
+    /**
+     * Stops receiving and releases the transport.
+     */
+    void close();
+
+    /**
+     * @return The number of received packets waiting to be handled.
+     */
+    int getHandlerQueueDepth();
+
+    /**
+     * @return The number of received packets dropped because the handlers could not keep up.
+     */
+    long getDroppedPacketCount();
+
+    /**
+     * @return The number of times a receive buffer had to be allocated because every pooled buffer was in use.
+     */
+    long getBufferPoolExhaustedCount();
+}
@@ -0,0 +1,419 @@
+package edu.oswego.cs.raft;
+
+import edu.oswego.cs.Packets.MemberRef;
+import edu.oswego.cs.game.Action;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * An append-only log kept in memory-mapped segment files. Every record is written as
+ * [int payload length][int CRC32C of type and payload][byte type][payload], and a zero length marks the end of a segment.
+ * Appends only write to the mapping, sync() forces everything written since the last sync to disk at once.
+ * A record larger than a segment gets a segment of its own sized to fit it. Once a write fails every later append, sync
+ * and term and vote write fails too, since what is on disk no longer matches the log.
+ * The current term and vote, and the latest snapshot, are kept in their own files which are replaced atomically.
+ */
+public class RaftWriteAheadLog {
+
+    private static final byte ENTRY_RECORD = 1;
+    private static final byte COMMIT_RECORD = 2;
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES + 1;
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final String META_FILE = "meta";
+    private static final String SNAPSHOT_FILE = "snapshot";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final List<Segment> segments = new ArrayList<>();
+    private Segment activeSegment;
+    private boolean dirty;
+    private int lastCommitWritten = -1;
+    // the first write that failed, nothing is written after it
+    private IOException failure;
+
+    private int recoveredTerm;
+    private String recoveredVotedFor;
+    private RaftSnapshot recoveredSnapshot;
+    private int recoveredStartIndex = -1;
+    private final List<Action> recoveredEntries = new ArrayList<>();
+    private int recoveredCommitIndex = -1;
+
+    /**
+     * Opens the write ahead log in a directory, creating it if needed, and reads back everything a previous run left in it.
+     * @param directory The directory holding the segment, meta and snapshot files of a single member.
+     * @param segmentSize The size in bytes every segment file is created with.
+     * @throws IOException if the directory or its files can't be read or created.
+     */
+    public RaftWriteAheadLog(Path directory, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        recoverMeta();
+        recoverSnapshot();
+        recoverSegments();
+        if (activeSegment == null) {
+            rollSegment(segmentSize);
+        }
+    }
+
+    /**
+     * @return The term that was last persisted, 0 if there wasn't one.
+     */
+    public int getRecoveredTerm() {
+        return recoveredTerm;
+    }
+
+    /**
+     * @return Who this member voted for in the recovered term, null if it hadn't voted.
+     */
+    public String getRecoveredVotedFor() {
+        return recoveredVotedFor;
+    }
+
+    /**
+     * @return The latest snapshot that was persisted, null if there wasn't one.
+     */
+    public RaftSnapshot getRecoveredSnapshot() {
+        return recoveredSnapshot;
+    }
+
+    /**
+     * @return The log index of the first recovered entry, -1 if no entries were recovered.
+     */
+    public int getRecoveredStartIndex() {
+        return recoveredStartIndex;
+    }
+
+    /**
+     * @return The recovered entries in log order, starting at the recovered start index with no gaps.
+     */
+    public List<Action> getRecoveredEntries() {
+        return recoveredEntries;
+    }
+
+    /**
+     * @return The highest commit index that was persisted, -1 if there wasn't one.
+     */
+    public int getRecoveredCommitIndex() {
+        return recoveredCommitIndex;
+    }
+
+    /**
+     * Writes consecutive log entries to the active segment. They aren't durable until the next sync.
+     * @param startIndex The log index of the first action.
+     * @param actions The actions in log order.
+     * @throws IOException if the entries could not be written, or an earlier write failed.
+     */
+    public synchronized void append(int startIndex, List<Action> actions) throws IOException {
+        checkNotFailed();
+        try {
+            for (int i = 0; i < actions.size(); i++) {
+                Action action = actions.get(i);
+                byte[] entry = action.getEntry();
+                ByteBuffer payload = ByteBuffer.allocate(Integer.BYTES + MemberRef.encodedSize(action.getAuthorId(), action.getUserName()) + Integer.BYTES + entry.length);
+                payload.putInt(startIndex + i);
+                MemberRef.write(payload, action.getAuthorId(), action.getUserName());
+                payload.putInt(entry.length);
+                payload.put(entry);
+                writeRecord(ENTRY_RECORD, payload.array(), startIndex + i);
+            }
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        }
+    }
+
+    /**
+     * Records the commit index if it moved since it was last written, then forces everything written since the last sync to disk.
+     * Entries appended before this returns are durable.
+     * @param commitIndex The current commit index.
+     * @throws IOException if the log could not be written or forced to disk, or an earlier write failed.
+     */
+    public synchronized void sync(int commitIndex) throws IOException {
+        checkNotFailed();
+        try {
+            if (commitIndex > lastCommitWritten) {
+                ByteBuffer payload = ByteBuffer.allocate(Integer.BYTES);
+                payload.putInt(commitIndex);
+                writeRecord(COMMIT_RECORD, payload.array(), -1);
+                lastCommitWritten = commitIndex;
+            }
+            if (dirty) {
+                for (Segment segment : segments) {
+                    if (segment.dirty) {
+                        segment.buffer.force();
+                        segment.dirty = false;
+                    }
+                }
+                dirty = false;
+            }
+        } catch (UncheckedIOException e) {
+            // what forcing a mapping throws when the disk write fails
+            failure = e.getCause();
+            throw failure;
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        }
+    }
+
+    private void checkNotFailed() throws IOException {
+        if (failure != null) {
+            throw new IOException("The write ahead log failed earlier and no longer matches the log.", failure);
+        }
+    }
+
+    /**
+     * Persists the current term and vote, replacing whatever was persisted before. The vote may only be sent once this
+     * returns, a member that votes without it could recover an older vote after a crash and vote twice in one term.
+     * @param term The current term.
+     * @param votedFor Who this member voted for in the term, null if it hasn't voted.
+     * @throws IOException if the term and vote could not be written, or an earlier write failed.
+     */
+    public synchronized void writeMeta(int term, String votedFor) throws IOException {
+        checkNotFailed();
+        byte[] votedForBytes = votedFor == null ? new byte[0] : votedFor.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + Short.BYTES + votedForBytes.length);
+        buffer.putInt(term);
+        buffer.putShort((short) (votedFor == null ? -1 : votedForBytes.length));
+        buffer.put(votedForBytes);
+        try {
+            replaceFile(META_FILE, buffer.array());
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        }
+    }
+
+    /**
+     * Persists a snapshot and deletes every segment whose entries are all covered by it.
+     * @param snapshot The snapshot to persist.
+     */
+    public synchronized void writeSnapshot(RaftSnapshot snapshot) {
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + snapshot.state.length);
+        buffer.putInt(snapshot.lastIncludedIndex);
+        buffer.put(snapshot.state);
+        try {
+            replaceFile(SNAPSHOT_FILE, buffer.array());
+        } catch (IOException e) {
+            System.err.println("An IOException was thrown while persisting a snapshot.");
+            return;
+        }
+        Iterator<Segment> iterator = segments.iterator();
+        while (iterator.hasNext()) {
+            Segment segment = iterator.next();
+            if (segment != activeSegment && segment.lastEntryIndex <= snapshot.lastIncludedIndex) {
+                try {
+                    Files.deleteIfExists(segment.path);
+                    iterator.remove();
+                } catch (IOException e) {
+                    System.err.println("An IOException was thrown while deleting " + segment.path + ".");
+                }
+            }
+        }
+    }
+
+    private void writeRecord(byte type, byte[] payload, int entryIndex) throws IOException {
+        int recordSize = RECORD_HEADER_SIZE + payload.length;
+        if (activeSegment.buffer.remaining() < recordSize + Integer.BYTES) {
+            // the end marker has to fit after the record too
+            rollSegment(Math.max(segmentSize, recordSize + Integer.BYTES));
+        }
+        MappedByteBuffer buffer = activeSegment.buffer;
+        buffer.putInt(payload.length);
+        buffer.putInt(checksum(type, payload, 0, payload.length));
+        buffer.put(type);
+        buffer.put(payload);
+        // clear the length of the next record so a torn or stale tail is never read back as a record
+        buffer.putInt(buffer.position(), 0);
+        activeSegment.dirty = true;
+        if (entryIndex > activeSegment.lastEntryIndex) {
+            activeSegment.lastEntryIndex = entryIndex;
+        }
+        dirty = true;
+    }
+
+    /**
+     * @param size The size in bytes of the new segment, larger than the usual size for a record that needs it.
+     * @throws IOException if the segment file could not be created.
+     */
+    private void rollSegment(int size) throws IOException {
+        long sequence = activeSegment == null ? 0 : activeSegment.sequence + 1;
+        Path path = directory.resolve(String.format("%020d%s", sequence, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Segment segment = new Segment(path, sequence, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            segments.add(segment);
+            activeSegment = segment;
+        }
+    }
+
+    private void recoverMeta() throws IOException {
+        ByteBuffer buffer = readFile(META_FILE);
+        if (buffer == null) return;
+        recoveredTerm = buffer.getInt();
+        short votedForLength = buffer.getShort();
+        if (votedForLength >= 0) {
+            byte[] votedForBytes = new byte[votedForLength];
+            buffer.get(votedForBytes);
+            recoveredVotedFor = new String(votedForBytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private void recoverSnapshot() throws IOException {
+        ByteBuffer buffer = readFile(SNAPSHOT_FILE);
+        if (buffer == null) return;
+        int lastIncludedIndex = buffer.getInt();
+        byte[] state = new byte[buffer.remaining()];
+        buffer.get(state);
+        recoveredSnapshot = new RaftSnapshot(lastIncludedIndex, state);
+        recoveredCommitIndex = lastIncludedIndex;
+    }
+
+    private void recoverSegments() throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                paths.add(path);
+            }
+        }
+        paths.sort(null);
+        for (Path path : paths) {
+            String fileName = path.getFileName().toString();
+            long sequence = Long.parseLong(fileName.substring(0, fileName.length() - SEGMENT_SUFFIX.length()));
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                Segment segment = new Segment(path, sequence, channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), segmentSize)));
+                readRecords(segment);
+                segments.add(segment);
+                activeSegment = segment;
+            }
+        }
+        lastCommitWritten = recoveredCommitIndex;
+
+        // only the entries that carry on from the snapshot, or from the start of the log, are usable
+        if (recoveredSnapshot == null && recoveredStartIndex > 0) {
+            recoveredEntries.clear();
+            recoveredStartIndex = -1;
+        } else if (recoveredSnapshot != null && recoveredStartIndex != -1) {
+            int firstUsable = recoveredSnapshot.lastIncludedIndex + 1;
+            if (recoveredStartIndex > firstUsable || recoveredStartIndex + recoveredEntries.size() <= firstUsable) {
+                recoveredEntries.clear();
+                recoveredStartIndex = -1;
+            } else {
+                recoveredEntries.subList(0, firstUsable - recoveredStartIndex).clear();
+                recoveredStartIndex = firstUsable;
+            }
+        }
+        if (recoveredStartIndex == -1 && recoveredSnapshot == null) {
+            recoveredCommitIndex = -1;
+        } else {
+            int lastRecoveredIndex = recoveredStartIndex == -1 ? recoveredSnapshot.lastIncludedIndex : recoveredStartIndex + recoveredEntries.size() - 1;
+            recoveredCommitIndex = Math.min(recoveredCommitIndex, lastRecoveredIndex);
+        }
+    }
+
+    /**
+     * Reads records until the end marker or the first record that fails its checksum, and leaves the buffer positioned
+     * where the next record should be written.
+     */
+    private void readRecords(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+            int recordStart = buffer.position();
+            int length = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining() - Integer.BYTES - 1) {
+                buffer.position(recordStart);
+                break;
+            }
+            int storedChecksum = buffer.getInt();
+            byte type = buffer.get();
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            if (checksum(type, payload, 0, length) != storedChecksum) {
+                buffer.position(recordStart);
+                break;
+            }
+            ByteBuffer payloadBuffer = ByteBuffer.wrap(payload);
+            if (type == ENTRY_RECORD) {
+                int index = payloadBuffer.getInt();
+                MemberRef author = MemberRef.read(payloadBuffer);
+                byte[] entry = new byte[payloadBuffer.getInt()];
+                payloadBuffer.get(entry);
+                Action action = new Action(author, entry);
+                if (recoveredStartIndex == -1 || index != recoveredStartIndex + recoveredEntries.size()) {
+                    // a jump in indices means a snapshot was installed, the log carries on from here
+                    recoveredEntries.clear();
+                    recoveredStartIndex = index;
+                }
+                recoveredEntries.add(action);
+                segment.lastEntryIndex = Math.max(segment.lastEntryIndex, index);
+            } else if (type == COMMIT_RECORD) {
+                recoveredCommitIndex = Math.max(recoveredCommitIndex, payloadBuffer.getInt());
+            }
+        }
+    }
+
+    private void replaceFile(String fileName, byte[] contents) throws IOException {
+        Path temporaryPath = directory.resolve(fileName + ".tmp");
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + Integer.BYTES + contents.length);
+        buffer.putInt(contents.length);
+        buffer.putInt(checksum((byte) 0, contents, 0, contents.length));
+        buffer.put(contents);
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporaryPath, directory.resolve(fileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private ByteBuffer readFile(String fileName) throws IOException {
+        Path path = directory.resolve(fileName);
+        if (!Files.exists(path)) return null;
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (buffer.remaining() < 2 * Integer.BYTES) return null;
+        int length = buffer.getInt();
+        int storedChecksum = buffer.getInt();
+        if (length != buffer.remaining() || checksum((byte) 0, buffer.array(), buffer.position(), length) != storedChecksum) {
+            System.err.println(path + " is corrupt and was ignored.");
+            return null;
+        }
+        return buffer;
+    }
+
+    private static int checksum(byte type, byte[] bytes, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(type);
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static class Segment {
+        private final Path path;
+        private final long sequence;
+        private final MappedByteBuffer buffer;
+        private int lastEntryIndex = -1;
+        private boolean dirty;
+
+        private Segment(Path path, long sequence, MappedByteBuffer buffer) {
+            this.path = path;
+            this.sequence = sequence;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -13,7 +13,10 @@ public class Session {
     private AtomicLong LMRSTINT = new AtomicLong();
     private AtomicReference<RaftMembershipState> raftMembershipStateAtomicReference = new AtomicReference<>();
     private AtomicBoolean timedOut = new AtomicBoolean();
+    // the highest log index the member has confirmed holding along with everything before it
     private AtomicInteger greatestActionConfirmed;
+    // the next log index the leader sends this member, -1 until the leader has sent it anything
+    private AtomicInteger nextIndex = new AtomicInteger(-1);
 
     public Session(SocketAddress socketAddress, long LMRSTINT, RaftMembershipState raftMembershipState) {
         this.addressAtomicReference.set(socketAddress);
@@ -64,6 +67,14 @@ public class Session {
         }
     }
 
+    public int getNextIndex() {
+        return nextIndex.get();
+    }
+
+    public void setNextIndex(int nextIndex) {
+        this.nextIndex.set(nextIndex);
+    }
+
     public void setMembershipState(RaftMembershipState expectedState, RaftMembershipState state) {
         raftMembershipStateAtomicReference.compareAndSet(expectedState, state);
     }
@@ -0,0 +1,48 @@
+package edu.oswego.cs.raft;
+
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.util.Random;
+
+public class SystemRaftRuntime implements RaftRuntime {
+
+    private final int serverPort;
+
+    /**
+     * The runtime of a member running for real, on the system clock, UDP and a thread per stage.
+     * @param serverPort The designated port for sending/receiving messages.
+     */
+    public SystemRaftRuntime(int serverPort) {
+        this.serverPort = serverPort;
+    }
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public Random newRandom() {
+        return new Random();
+    }
+
+    @Override
+    public SecureRandom newSecureRandom() {
+        return new SecureRandom();
+    }
+
+    @Override
+    public RaftScheduler newScheduler(String name) {
+        return new ThreadPoolRaftScheduler(RaftConfig.SCHEDULER_THREADS, name);
+    }
+
+    @Override
+    public RaftTransport openTransport() throws IOException {
+        return new UdpRaftTransport(serverPort);
+    }
+
+    @Override
+    public void startStage(String name, RaftStage stage) {
+        new Thread(stage, name).start();
+    }
+}
@@ -0,0 +1,69 @@
+package edu.oswego.cs.raft;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ThreadPoolRaftScheduler implements RaftScheduler {
+
+    private final ScheduledThreadPoolExecutor executor;
+
+    /**
+     * Creates the one scheduling service every raft timer runs on. Cancelled tasks are removed from the queue right away
+     * so restarting a timer on every term change doesn't leave dead tasks behind.
+     * @param threadCount The number of threads running scheduled tasks, more than one keeps a slow task from delaying the rest.
+     * @param name The prefix of the scheduler's thread names.
+     */
+    public ThreadPoolRaftScheduler(int threadCount, String name) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ScheduledThreadPoolExecutor(Math.max(1, threadCount), runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        executor.setContinueExistingPeriodicTasksAfterShutdownPolicy(false);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long initialDelayInMS, long periodInMS, RaftTickJitter jitter) {
+        long firstRunAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(initialDelayInMS);
+        long periodNanos = TimeUnit.MILLISECONDS.toNanos(periodInMS);
+        Runnable measuredTask = new Runnable() {
+            // only ever touched by the run in progress, runs of a periodic task never overlap
+            private long runNumber = 0;
+
+            @Override
+            public void run() {
+                jitter.record(System.nanoTime() - (firstRunAt + runNumber++ * periodNanos));
+                task.run();
+            }
+        };
+        return executor.scheduleAtFixedRate(guard(measuredTask), initialDelayInMS, periodInMS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long initialDelayInMS, long delayInMS) {
+        return executor.scheduleWithFixedDelay(guard(task), initialDelayInMS, delayInMS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * A periodic task that throws is never run again, so exceptions are reported and swallowed instead.
+     */
+    private static Runnable guard(Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                System.err.println("A scheduled raft task threw an exception: " + e);
+            }
+        };
+    }
+}
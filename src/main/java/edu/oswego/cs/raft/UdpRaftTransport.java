@@ -0,0 +1,67 @@
+package edu.oswego.cs.raft;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+public class UdpRaftTransport implements RaftTransport {
+
+    private final DatagramChannel serverChannel;
+    private RaftReceiver raftReceiver;
+
+    /**
+     * Opens the non-blocking datagram channel a member sends and receives on.
+     * @param serverPort The designated port for sending/receiving messages.
+     * @throws IOException if the server port could not be bound.
+     */
+    public UdpRaftTransport(int serverPort) throws IOException {
+        serverChannel = DatagramChannel.open();
+        serverChannel.bind(new InetSocketAddress(serverPort));
+        serverChannel.configureBlocking(false);
+    }
+
+    @Override
+    public SocketAddress getLocalAddress() {
+        return serverChannel.socket().getLocalSocketAddress();
+    }
+
+    @Override
+    public void send(ByteBuffer datagram, SocketAddress target) throws IOException {
+        serverChannel.send(datagram, target);
+    }
+
+    @Override
+    public void startReceiving(Raft raft) throws IOException {
+        raftReceiver = new RaftReceiver(serverChannel, raft);
+        raftReceiver.start();
+    }
+
+    @Override
+    public void close() {
+        if (raftReceiver != null) {
+            raftReceiver.stopReceiving();
+        }
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            System.err.println("An IOException was thrown while closing the server channel.");
+        }
+    }
+
+    @Override
+    public int getHandlerQueueDepth() {
+        return raftReceiver == null ? 0 : raftReceiver.getHandlerQueueDepth();
+    }
+
+    @Override
+    public long getDroppedPacketCount() {
+        return raftReceiver == null ? 0 : raftReceiver.getDroppedPacketCount();
+    }
+
+    @Override
+    public long getBufferPoolExhaustedCount() {
+        return raftReceiver == null ? 0 : raftReceiver.getBufferPoolExhaustedCount();
+    }
+}
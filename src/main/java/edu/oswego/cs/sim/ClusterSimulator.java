@@ -0,0 +1,418 @@
+package edu.oswego.cs.sim;
+
+import edu.oswego.cs.Args;
+import edu.oswego.cs.game.Action;
+import edu.oswego.cs.loadgen.Bot;
+import edu.oswego.cs.loadgen.CommandMix;
+import edu.oswego.cs.raft.Raft;
+import edu.oswego.cs.raft.RaftMembershipState;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a whole group of bots in one JVM on a simulated network and a virtual clock, then measures how many commands the
+ * group commits per second, how long it takes to elect a new leader once the leader is cut off for good, how long a
+ * follower that was briefly partitioned away takes to catch up and how long a member joining late takes to catch up.
+ * Once the load stops it checks that every entry that reached the leader ends up committed on every member.
+ * A run with the same options plays out the same every time and prints the same fingerprint, so a run that goes wrong
+ * can be repeated.
+ * Usage: java -cp target/classes edu.oswego.cs.sim.ClusterSimulator [--nodes=5] [--seed=1] [--loss=0.01]
+ *        [--duplicate=0.01] [--reorder=0.05] [--delay-ms=1-5] [--rate=100] [--duration=10] [--elections=1]
+ *        [--partition-ms=150] [--mix=move=40,attack=20,pickup=15,chat=20,descend=5]
+ * All times are virtual, the rate is in commands per virtual second across all bots. Joining has no retransmission, so
+ * the group is formed without faults and the network only starts losing, duplicating and reordering datagrams once the
+ * load starts. A follower partitioned away for longer than the leader's 200 ms follower timeout is dropped from the
+ * group and doesn't catch up on its own.
+ */
+public class ClusterSimulator {
+
+    private static final int FIRST_PORT = 27500;
+    private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final Simulation simulation;
+    private final SimulatedNetwork network;
+    private final SimulatedNode[] nodes;
+    private final Bot[] bots;
+    private final boolean[] isolated;
+    // the members that have joined the game, the last bot only joins once the others have built up a log
+    private final boolean[] joined;
+    private boolean loadActive;
+
+    private ClusterSimulator(Simulation simulation, SimulatedNetwork network, SimulatedNode[] nodes, Bot[] bots) {
+        this.simulation = simulation;
+        this.network = network;
+        this.nodes = nodes;
+        this.bots = bots;
+        this.isolated = new boolean[nodes.length];
+        this.joined = new boolean[nodes.length];
+    }
+
+    public static void main(String[] args) throws IOException {
+        HashMap<String, String> options = new HashMap<>();
+        Args.parseOptions(args, options);
+        // has to be set before raft reads its configuration, which entries are traced is picked at random
+        if (System.getProperty("raft.trace.sampleEvery") == null) {
+            System.setProperty("raft.trace.sampleEvery", "0");
+        }
+        System.setProperty("java.awt.headless", "true");
+
+        int nodeCount = Integer.parseInt(options.getOrDefault("nodes", "5"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+        double lossRate = Double.parseDouble(options.getOrDefault("loss", "0.01"));
+        double duplicateRate = Double.parseDouble(options.getOrDefault("duplicate", "0.01"));
+        double reorderRate = Double.parseDouble(options.getOrDefault("reorder", "0.05"));
+        String[] delay = options.getOrDefault("delay-ms", "1-5").split("-", 2);
+        long minDelayNanos = (long) (Double.parseDouble(delay[0]) * 1_000_000L);
+        long maxDelayNanos = delay.length > 1 ? (long) (Double.parseDouble(delay[1]) * 1_000_000L) : minDelayNanos;
+        double rate = Double.parseDouble(options.getOrDefault("rate", "100"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "10"));
+        int elections = Integer.parseInt(options.getOrDefault("elections", "1"));
+        long partitionNanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(options.getOrDefault("partition-ms", "150")));
+        CommandMix mix = CommandMix.parse(options.getOrDefault("mix", CommandMix.DEFAULT));
+        if (nodeCount < 3 || rate <= 0) {
+            System.err.println("--nodes must be at least 3 and --rate must be positive.");
+            return;
+        }
+        if (nodeCount - elections < 3) {
+            System.err.println("Every election cuts a member off for good, --elections must leave at least 3 members.");
+            return;
+        }
+
+        long wallStartedAt = System.nanoTime();
+        ClusterSimulator simulator = create(nodeCount, seed, lossRate, duplicateRate, reorderRate, minDelayNanos, maxDelayNanos, mix);
+        System.out.printf("%d nodes, seed %d, loss %.3f, duplicate %.3f, reorder %.3f, delay %.1f-%.1f ms%n",
+                nodeCount, seed, lossRate, duplicateRate, reorderRate, minDelayNanos / 1e6, maxDelayNanos / 1e6);
+        if (simulator.formGroup()) {
+            simulator.startLoad(rate);
+            simulator.measureThroughput(rate, durationSeconds);
+            for (int i = 0; i < elections; i++) {
+                simulator.measureElection(i + 1);
+            }
+            simulator.measurePartitionCatchUp(partitionNanos);
+            simulator.measureJoinCatchUp();
+            simulator.stopLoad();
+            simulator.awaitAllCommitted();
+        }
+        simulator.printSummary(System.nanoTime() - wallStartedAt);
+        System.exit(0);
+    }
+
+    /**
+     * Builds a group that hasn't been formed yet, with one more member than asked for that joins late.
+     * @param nodeCount The number of members that form the group.
+     * @param seed Seeds the network, every member's own randomness and every bot's commands.
+     * @param lossRate The chance a datagram is dropped once the load starts.
+     * @param duplicateRate The chance a datagram is delivered twice once the load starts.
+     * @param reorderRate The chance a datagram is overtaken once the load starts.
+     * @param minDelayNanos The shortest time a datagram takes to arrive.
+     * @param maxDelayNanos The longest time a datagram takes to arrive, before being held back.
+     * @param mix The commands the bots pick from.
+     * @return The simulator.
+     * @throws IOException if a bot can't be made.
+     */
+    static ClusterSimulator create(int nodeCount, long seed, double lossRate, double duplicateRate, double reorderRate,
+                                   long minDelayNanos, long maxDelayNanos, CommandMix mix) throws IOException {
+        Simulation simulation = new Simulation();
+        SimulatedNetwork network = new SimulatedNetwork(simulation, seed, lossRate, duplicateRate, reorderRate, minDelayNanos, maxDelayNanos);
+        SimulatedNode[] nodes = new SimulatedNode[nodeCount + 1];
+        Bot[] bots = new Bot[nodeCount + 1];
+        for (int i = 0; i < nodes.length; i++) {
+            // the same form of address a member reads out of a packet, so the two compare equal
+            InetSocketAddress address = new InetSocketAddress(InetAddress.getByAddress(new byte[]{127, 0, 0, 1}), FIRST_PORT + i);
+            nodes[i] = new SimulatedNode(simulation, network, address, seed * 31 + i);
+            bots[i] = new Bot(nodes[i], "bot" + i, mix, seed + i);
+        }
+        return new ClusterSimulator(simulation, network, nodes, bots);
+    }
+
+    /**
+     * Starts the group and has every member but the spare join it, without faults.
+     * @return true if every member joined, the network starts losing, duplicating and reordering datagrams after that.
+     */
+    boolean formGroup() {
+        network.setFaultsEnabled(false);
+        simulation.execute(() -> bots[0].getRaft().startRaftGroup());
+        if (!simulation.runUntil(bots[0]::isReady, TIMEOUT_NANOS)) {
+            System.out.println(bots[0].getUsername() + " could not start the group.");
+            return false;
+        }
+        joined[0] = true;
+        for (int i = 1; i < bots.length - 1; i++) {
+            // members are added one at a time, like players joining
+            if (!join(i, 0)) {
+                System.out.println(bots[i].getUsername() + " did not join the game within " + TIMEOUT_NANOS / 1_000_000 + " ms.");
+                return false;
+            }
+        }
+        System.out.printf("group formed after %.1f ms%n", simulation.elapsed() / 1e6);
+        network.setFaultsEnabled(true);
+        return true;
+    }
+
+    /**
+     * @return true if the member got a place in the dungeon before the timeout.
+     */
+    private boolean join(int index, int groupIndex) {
+        Raft raft = bots[index].getRaft();
+        simulation.execute(() -> raft.joinRaftGroup(nodes[groupIndex].getAddress()));
+        joined[index] = simulation.runUntil(bots[index]::isReady, TIMEOUT_NANOS);
+        return joined[index];
+    }
+
+    /**
+     * Submits a command at the given rate, taking turns between the bots that have joined and aren't cut off, so the
+     * rate holds however many of them there are.
+     */
+    void startLoad(double rate) {
+        loadActive = true;
+        long periodNanos = Math.max(1, (long) (1_000_000_000L / rate));
+        simulation.scheduleIn(periodNanos, new Runnable() {
+            private int nextBot;
+
+            @Override
+            public void run() {
+                if (!loadActive) return;
+                for (int i = 0; i < bots.length; i++) {
+                    int index = nextBot;
+                    nextBot = (nextBot + 1) % bots.length;
+                    if (joined[index] && !isolated[index]) {
+                        try {
+                            bots[index].act();
+                        } catch (RuntimeException e) {
+                            System.err.println(bots[index].getUsername() + " failed to submit a command: " + e);
+                        }
+                        break;
+                    }
+                }
+                simulation.scheduleIn(periodNanos, this);
+            }
+        });
+    }
+
+    void stopLoad() {
+        loadActive = false;
+    }
+
+    /**
+     * @return The number of entries committed while the load ran.
+     */
+    int measureThroughput(double rate, int durationSeconds) {
+        long startedAt = simulation.now();
+        int firstCommitIndex = getHighestCommitIndex();
+        long firstSubmitted = getCommandsSubmitted();
+        simulation.runUntil(startedAt + TimeUnit.SECONDS.toNanos(durationSeconds));
+        double elapsedSeconds = (simulation.now() - startedAt) / 1e9;
+        int committed = getHighestCommitIndex() - firstCommitIndex;
+        int maxLag = 0;
+        for (int i = 0; i < bots.length; i++) {
+            if (joined[i]) {
+                maxLag = Math.max(maxLag, getHighestCommitIndex() - bots[i].getRaft().getLastActionConfirmed());
+            }
+        }
+        System.out.printf("throughput: %.1f commands/s offered, submitted %d, committed %d (%.1f/s) over %d s, follower lag max %d%n",
+                rate, getCommandsSubmitted() - firstSubmitted, committed, committed / elapsedSeconds, durationSeconds, maxLag);
+        return committed;
+    }
+
+    /**
+     * Cuts the leader off for the rest of the run, like a crash, and measures how long the rest of the group takes to
+     * elect a new one.
+     * @return How long the election took, -1 if no leader was elected.
+     */
+    long measureElection(int round) {
+        if (!simulation.runUntil(() -> findLeader() >= 0, TIMEOUT_NANOS)) {
+            System.out.println("election " + round + ": no leader to cut off");
+            return -1;
+        }
+        int leader = findLeader();
+        setIsolated(leader, true);
+        long cutOffAt = simulation.now();
+        boolean elected = simulation.runUntil(() -> findLeader() >= 0, TIMEOUT_NANOS);
+        if (!elected) {
+            System.out.printf("election %d: %s cut off, no leader elected within %d ms%n", round, bots[leader].getUsername(), TIMEOUT_NANOS / 1_000_000);
+            return -1;
+        }
+        int newLeader = findLeader();
+        long electionNanos = simulation.now() - cutOffAt;
+        System.out.printf("election %d: %s cut off, %s elected after %.1f ms in term %d%n", round, bots[leader].getUsername(),
+                bots[newLeader].getUsername(), electionNanos / 1e6, bots[newLeader].getRaft().getTermNum());
+        return electionNanos;
+    }
+
+    /**
+     * Partitions a follower away while the others keep committing, then measures how long it takes to reach the commit
+     * index the group had when it was reconnected.
+     * @return How long the follower took to catch up, -1 if it didn't.
+     */
+    long measurePartitionCatchUp(long partitionNanos) {
+        int leader = findLeader();
+        int follower = -1;
+        for (int i = bots.length - 1; i >= 0 && follower < 0; i--) {
+            if (joined[i] && !isolated[i] && i != leader) follower = i;
+        }
+        if (leader < 0 || follower < 0) {
+            System.out.println("partition catch up: no leader and follower to partition");
+            return -1;
+        }
+        setIsolated(follower, true);
+        simulation.runUntil(simulation.now() + partitionNanos);
+        setIsolated(follower, false);
+        return measureCatchUp("partition catch up", follower, "after " + partitionNanos / 1_000_000 + " ms cut off");
+    }
+
+    /**
+     * Has the spare member join the game now that the group has built up a log, then measures how long it takes to reach
+     * the commit index the group had when it asked to join.
+     * @return How long the member took to join and catch up, -1 if it didn't.
+     */
+    long measureJoinCatchUp() {
+        int leader = findLeader();
+        int spare = bots.length - 1;
+        if (leader < 0) {
+            System.out.println("join catch up: no leader to join");
+            return -1;
+        }
+        int target = getHighestCommitIndex();
+        long joinedAt = simulation.now();
+        if (!join(spare, leader)) {
+            System.out.printf("join catch up: %s did not join the game within %d ms%n", bots[spare].getUsername(), TIMEOUT_NANOS / 1_000_000);
+            return -1;
+        }
+        Raft raft = bots[spare].getRaft();
+        if (!simulation.runUntil(() -> raft.getLastActionConfirmed() >= target, TIMEOUT_NANOS)) {
+            System.out.printf("join catch up: %s joined behind %d entries, still %d behind after %d ms%n",
+                    bots[spare].getUsername(), target + 1, target - raft.getLastActionConfirmed(), (simulation.now() - joinedAt) / 1_000_000);
+            return -1;
+        }
+        long catchUpNanos = simulation.now() - joinedAt;
+        System.out.printf("join catch up: %s joined behind %d entries, caught up after %.1f ms%n",
+                bots[spare].getUsername(), target + 1, catchUpNanos / 1e6);
+        return catchUpNanos;
+    }
+
+    private long measureCatchUp(String name, int follower, String cause) {
+        int target = getHighestCommitIndex();
+        Raft raft = bots[follower].getRaft();
+        int behind = target - raft.getLastActionConfirmed();
+        long startedAt = simulation.now();
+        if (!simulation.runUntil(() -> raft.getLastActionConfirmed() >= target, TIMEOUT_NANOS)) {
+            System.out.printf("%s: %s was %d entries behind %s, still %d behind after %d ms%n",
+                    name, bots[follower].getUsername(), behind, cause, target - raft.getLastActionConfirmed(), TIMEOUT_NANOS / 1_000_000);
+            return -1;
+        }
+        long catchUpNanos = simulation.now() - startedAt;
+        System.out.printf("%s: %s was %d entries behind %s, caught up after %.1f ms%n",
+                name, bots[follower].getUsername(), behind, cause, catchUpNanos / 1e6);
+        return catchUpNanos;
+    }
+
+    /**
+     * Runs until every member that isn't cut off has committed everything in the leader's log, so no entry that made it
+     * to the leader is left behind. Meant to be run once the load has stopped.
+     * @return true if the members got there before the timeout.
+     */
+    boolean awaitAllCommitted() {
+        long startedAt = simulation.now();
+        if (!simulation.runUntil(this::isAllCommitted, TIMEOUT_NANOS)) {
+            int leader = findLeader();
+            System.out.printf("all committed: %s within %d ms%n",
+                    leader < 0 ? "no leader" : "entries left uncommitted", TIMEOUT_NANOS / 1_000_000);
+            return false;
+        }
+        int leader = findLeader();
+        System.out.printf("all committed: %d entries on every member after %.1f ms%n",
+                bots[leader].getRaft().getLogLength(), (simulation.now() - startedAt) / 1e6);
+        return true;
+    }
+
+    private boolean isAllCommitted() {
+        int leader = findLeader();
+        if (leader < 0) return false;
+        int lastIndex = bots[leader].getRaft().getLogLength() - 1;
+        for (int i = 0; i < bots.length; i++) {
+            if (joined[i] && !isolated[i] && bots[i].getRaft().getLastActionConfirmed() != lastIndex) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void setIsolated(int index, boolean cutOff) {
+        isolated[index] = cutOff;
+        if (cutOff) {
+            network.isolate(nodes[index].getAddress());
+        } else {
+            network.reconnect(nodes[index].getAddress());
+        }
+    }
+
+    /**
+     * @return The index of a member that isn't cut off and believes it is the leader, -1 if there is none.
+     */
+    private int findLeader() {
+        for (int i = 0; i < bots.length; i++) {
+            if (!isolated[i] && bots[i].getRaft().raftMembershipState.get() == RaftMembershipState.LEADER) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    int getHighestCommitIndex() {
+        int commitIndex = -1;
+        for (Bot bot : bots) {
+            commitIndex = Math.max(commitIndex, bot.getRaft().getLastActionConfirmed());
+        }
+        return commitIndex;
+    }
+
+    long getCommandsSubmitted() {
+        long submitted = 0;
+        for (Bot bot : bots) {
+            submitted += bot.getCommandsSubmitted();
+        }
+        return submitted;
+    }
+
+    /**
+     * Prints what the network did, how fast the simulation ran and a fingerprint of the run.
+     */
+    private void printSummary(long wallNanos) {
+        System.out.printf("network: sent %d, delivered %d, lost %d, duplicated %d, reordered %d, partitioned %d%n",
+                network.getSentCount(), network.getDeliveredCount(), network.getLostCount(), network.getDuplicatedCount(),
+                network.getReorderedCount(), network.getPartitionedCount());
+        System.out.printf("simulated %.1f s in %.1f s of wall clock time, %d events%n",
+                simulation.elapsed() / 1e9, wallNanos / 1e9, simulation.getEventCount());
+        System.out.printf("fingerprint: %016x%n", fingerprint());
+    }
+
+    /**
+     * @return A hash of the committed log and every member's state, two runs with the same options give the same one.
+     */
+    long fingerprint() {
+        long fingerprint = simulation.getEventCount();
+        Raft mostCommitted = bots[0].getRaft();
+        for (Bot bot : bots) {
+            Raft raft = bot.getRaft();
+            fingerprint = fingerprint * 31 + raft.getLastActionConfirmed();
+            fingerprint = fingerprint * 31 + raft.getLogLength();
+            fingerprint = fingerprint * 31 + raft.getTermNum();
+            RaftMembershipState state = raft.raftMembershipState.get();
+            // null until the member starts or joins a group
+            fingerprint = fingerprint * 31 + (state == null ? -1 : state.ordinal());
+            if (raft.getLastActionConfirmed() > mostCommitted.getLastActionConfirmed()) {
+                mostCommitted = raft;
+            }
+        }
+        for (int i = mostCommitted.getLogBaseIndex(); i <= mostCommitted.getLastActionConfirmed(); i++) {
+            Action action = mostCommitted.getLogIndex(i);
+            fingerprint = fingerprint * 31 + Arrays.hashCode(action.getEntry());
+        }
+        return fingerprint;
+    }
+}
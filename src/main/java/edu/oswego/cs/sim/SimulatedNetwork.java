@@ -0,0 +1,170 @@
+package edu.oswego.cs.sim;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Carries datagrams between the nodes of a simulation. Every datagram is delivered as an event after a random delay,
+ * unless it is lost or the two nodes are on different sides of a partition. All of the randomness comes from one seeded
+ * generator, so the same seed loses, duplicates and delays the same datagrams.
+ */
+public class SimulatedNetwork {
+
+    private final Simulation simulation;
+    private final Random random;
+    private final double lossRate;
+    private final double duplicateRate;
+    private final double reorderRate;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private final Map<SocketAddress, SimulatedTransport> endpoints = new HashMap<>();
+    // nodes talk to each other only when they are in the same group, every node starts out in group 0
+    private final Map<SocketAddress, Integer> partitionGroups = new HashMap<>();
+    private int nextPartitionGroup = 1;
+    private boolean faultsEnabled = true;
+    private long sentCount;
+    private long deliveredCount;
+    private long lostCount;
+    private long duplicatedCount;
+    private long reorderedCount;
+    private long partitionedCount;
+
+    /**
+     * @param simulation The simulation the datagrams are delivered in.
+     * @param seed Seeds every loss, duplication and delay.
+     * @param lossRate The chance a datagram is dropped.
+     * @param duplicateRate The chance a datagram is delivered twice.
+     * @param reorderRate The chance a datagram is held back long enough for the ones sent after it to overtake it.
+     * @param minDelayNanos The shortest time a datagram takes to arrive.
+     * @param maxDelayNanos The longest time a datagram takes to arrive, before being held back.
+     */
+    public SimulatedNetwork(Simulation simulation, long seed, double lossRate, double duplicateRate, double reorderRate, long minDelayNanos, long maxDelayNanos) {
+        this.simulation = simulation;
+        this.random = new Random(seed);
+        this.lossRate = lossRate;
+        this.duplicateRate = duplicateRate;
+        this.reorderRate = reorderRate;
+        this.minDelayNanos = minDelayNanos;
+        this.maxDelayNanos = Math.max(minDelayNanos, maxDelayNanos);
+    }
+
+    SimulatedTransport attach(SocketAddress address) {
+        SimulatedTransport transport = new SimulatedTransport(this, address);
+        if (endpoints.putIfAbsent(address, transport) != null) {
+            throw new IllegalStateException(address + " is already attached to the network.");
+        }
+        return transport;
+    }
+
+    void send(SocketAddress from, SocketAddress to, ByteBuffer datagram) {
+        sentCount++;
+        if (!isConnected(from, to)) {
+            partitionedCount++;
+            return;
+        }
+        if (faultsEnabled && random.nextDouble() < lossRate) {
+            lostCount++;
+            return;
+        }
+        byte[] bytes = new byte[datagram.remaining()];
+        datagram.get(bytes);
+        int copies = 1;
+        if (faultsEnabled && random.nextDouble() < duplicateRate) {
+            duplicatedCount++;
+            copies = 2;
+        }
+        for (int i = 0; i < copies; i++) {
+            long delay = minDelayNanos + (long) (random.nextDouble() * (maxDelayNanos - minDelayNanos));
+            if (faultsEnabled && random.nextDouble() < reorderRate) {
+                reorderedCount++;
+                delay += maxDelayNanos + (long) (random.nextDouble() * (maxDelayNanos + 1));
+            }
+            simulation.scheduleIn(delay, () -> deliver(from, to, bytes));
+        }
+    }
+
+    private void deliver(SocketAddress from, SocketAddress to, byte[] bytes) {
+        // a partition that started while the datagram was on its way drops it too
+        if (!isConnected(from, to)) {
+            partitionedCount++;
+            return;
+        }
+        SimulatedTransport target = endpoints.get(to);
+        if (target != null && target.deliver(from, bytes)) {
+            deliveredCount++;
+        }
+    }
+
+    private boolean isConnected(SocketAddress from, SocketAddress to) {
+        return partitionGroups.getOrDefault(from, 0).equals(partitionGroups.getOrDefault(to, 0));
+    }
+
+    /**
+     * @param faultsEnabled false to deliver every datagram once and in order of its delay, partitions still apply.
+     */
+    public void setFaultsEnabled(boolean faultsEnabled) {
+        this.faultsEnabled = faultsEnabled;
+    }
+
+    /**
+     * Cuts a node off from every other node.
+     * @param address The address of the node.
+     */
+    public void isolate(SocketAddress address) {
+        partitionGroups.put(address, nextPartitionGroup++);
+    }
+
+    /**
+     * Splits the given nodes off from the rest, they still reach each other.
+     * @param addresses The addresses of the nodes on one side of the partition.
+     */
+    public void partition(Collection<SocketAddress> addresses) {
+        int group = nextPartitionGroup++;
+        for (SocketAddress address : addresses) {
+            partitionGroups.put(address, group);
+        }
+    }
+
+    /**
+     * Puts a node back in with the nodes that were never partitioned.
+     * @param address The address of the node.
+     */
+    public void reconnect(SocketAddress address) {
+        partitionGroups.remove(address);
+    }
+
+    /**
+     * Reconnects every node.
+     */
+    public void heal() {
+        partitionGroups.clear();
+    }
+
+    public long getSentCount() {
+        return sentCount;
+    }
+
+    public long getDeliveredCount() {
+        return deliveredCount;
+    }
+
+    public long getLostCount() {
+        return lostCount;
+    }
+
+    public long getDuplicatedCount() {
+        return duplicatedCount;
+    }
+
+    public long getReorderedCount() {
+        return reorderedCount;
+    }
+
+    public long getPartitionedCount() {
+        return partitionedCount;
+    }
+}
@@ -0,0 +1,102 @@
+package edu.oswego.cs.sim;
+
+import edu.oswego.cs.raft.RaftRuntime;
+import edu.oswego.cs.raft.RaftScheduler;
+import edu.oswego.cs.raft.RaftStage;
+import edu.oswego.cs.raft.RaftTransport;
+
+import java.net.SocketAddress;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The runtime of one simulated raft member: the simulation's clock, a seeded random number generator, timers on the
+ * virtual clock, a simulated network address and stages that are run by the simulation instead of on threads.
+ */
+public class SimulatedNode implements RaftRuntime {
+
+    private final Simulation simulation;
+    private final SimulatedNetwork network;
+    private final SocketAddress address;
+    // every generator handed out is seeded from this one, in the order the member asks for them
+    private final Random seeds;
+    private final List<RaftStage> stages = new ArrayList<>();
+
+    /**
+     * @param simulation The simulation the node runs in.
+     * @param network The network the node is attached to.
+     * @param address The address of the node on the network.
+     * @param seed Seeds all of the node's randomness.
+     */
+    public SimulatedNode(Simulation simulation, SimulatedNetwork network, SocketAddress address, long seed) {
+        this.simulation = simulation;
+        this.network = network;
+        this.address = address;
+        this.seeds = new Random(seed);
+        simulation.addNode(this);
+    }
+
+    public SocketAddress getAddress() {
+        return address;
+    }
+
+    @Override
+    public long nanoTime() {
+        return simulation.now();
+    }
+
+    @Override
+    public Random newRandom() {
+        return new Random(seeds.nextLong());
+    }
+
+    @Override
+    public SecureRandom newSecureRandom() {
+        try {
+            // unlike the default, this algorithm only uses the seed when it is seeded before its first use
+            SecureRandom secureRandom = SecureRandom.getInstance("SHA1PRNG");
+            secureRandom.setSeed(seeds.nextLong());
+            return secureRandom;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA1PRNG is not available.", e);
+        }
+    }
+
+    @Override
+    public RaftScheduler newScheduler(String name) {
+        return new SimulatedScheduler(simulation);
+    }
+
+    @Override
+    public RaftTransport openTransport() {
+        return network.attach(address);
+    }
+
+    @Override
+    public void startStage(String name, RaftStage stage) {
+        stages.add(stage);
+    }
+
+    /**
+     * Runs every stage once, stages that stopped are dropped.
+     * @return true if any stage made progress.
+     */
+    boolean runReadyStages() {
+        boolean progress = false;
+        // a stage can start another stage while it runs, that one runs on the next pass
+        for (int i = 0, size = stages.size(); i < size; i++) {
+            progress |= stages.get(i).runReady();
+        }
+        Iterator<RaftStage> iterator = stages.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isStopped()) {
+                iterator.remove();
+            }
+        }
+        return progress;
+    }
+}
@@ -0,0 +1,132 @@
+package edu.oswego.cs.sim;
+
+import edu.oswego.cs.raft.RaftScheduler;
+import edu.oswego.cs.raft.RaftTickJitter;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a node's raft timers as events on the virtual clock. A run takes no virtual time, so fixed rate and fixed delay
+ * timers behave the same and a tick is never late.
+ */
+class SimulatedScheduler implements RaftScheduler {
+
+    private final Simulation simulation;
+    private final Set<SimulatedTask> tasks = new LinkedHashSet<>();
+    private boolean shutdown;
+
+    SimulatedScheduler(Simulation simulation) {
+        this.simulation = simulation;
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long initialDelayInMS, long periodInMS, RaftTickJitter jitter) {
+        return schedule(task, initialDelayInMS, periodInMS, jitter);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long initialDelayInMS, long delayInMS) {
+        return schedule(task, initialDelayInMS, delayInMS, null);
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        for (SimulatedTask task : tasks.toArray(new SimulatedTask[0])) {
+            task.cancel(false);
+        }
+    }
+
+    private ScheduledFuture<?> schedule(Runnable task, long initialDelayInMS, long periodInMS, RaftTickJitter jitter) {
+        SimulatedTask scheduledTask = new SimulatedTask(task, TimeUnit.MILLISECONDS.toNanos(periodInMS), jitter);
+        if (shutdown) {
+            scheduledTask.cancelled = true;
+            return scheduledTask;
+        }
+        tasks.add(scheduledTask);
+        scheduledTask.scheduleAt(simulation.now() + TimeUnit.MILLISECONDS.toNanos(initialDelayInMS));
+        return scheduledTask;
+    }
+
+    /**
+     * A periodic timer, it schedules its next run as an event every time it runs until it is cancelled.
+     */
+    private final class SimulatedTask implements ScheduledFuture<Object>, Runnable {
+
+        private final Runnable task;
+        private final long periodNanos;
+        private final RaftTickJitter jitter;
+        private long dueAt;
+        private boolean cancelled;
+
+        private SimulatedTask(Runnable task, long periodNanos, RaftTickJitter jitter) {
+            this.task = task;
+            this.periodNanos = periodNanos;
+            this.jitter = jitter;
+        }
+
+        private void scheduleAt(long atNanos) {
+            dueAt = atNanos;
+            simulation.schedule(atNanos, this);
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) return;
+            if (jitter != null) {
+                jitter.record(simulation.now() - dueAt);
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                // same as the thread pool scheduler, a task that throws keeps its timer
+                System.err.println("A scheduled raft task threw an exception: " + e);
+            }
+            if (!cancelled) {
+                scheduleAt(dueAt + periodNanos);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (cancelled) return false;
+            cancelled = true;
+            tasks.remove(this);
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return cancelled;
+        }
+
+        @Override
+        public Object get() {
+            throw new UnsupportedOperationException("A periodic timer never completes.");
+        }
+
+        @Override
+        public Object get(long timeout, TimeUnit unit) {
+            throw new UnsupportedOperationException("A periodic timer never completes.");
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAt - simulation.now(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package edu.oswego.cs.sim;
+
+import edu.oswego.cs.raft.ByteBufferPool;
+import edu.oswego.cs.raft.Raft;
+import edu.oswego.cs.raft.RaftConfig;
+import edu.oswego.cs.raft.RaftTransport;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * A node's end of the simulated network. A datagram is handled the moment it is delivered, on the simulation's thread,
+ * by the same packet handler a UDP member would hand it to.
+ */
+class SimulatedTransport implements RaftTransport {
+
+    private final SimulatedNetwork network;
+    private final SocketAddress address;
+    private final ByteBufferPool bufferPool = new ByteBufferPool(RaftConfig.RECEIVE_BUFFER_POOL_SIZE, RaftConfig.MAX_PACKET_SIZE);
+    private Raft raft;
+    private boolean closed;
+
+    SimulatedTransport(SimulatedNetwork network, SocketAddress address) {
+        this.network = network;
+        this.address = address;
+    }
+
+    @Override
+    public SocketAddress getLocalAddress() {
+        return address;
+    }
+
+    @Override
+    public void send(ByteBuffer datagram, SocketAddress target) {
+        if (closed) return;
+        network.send(address, target, datagram);
+    }
+
+    @Override
+    public void startReceiving(Raft raft) {
+        this.raft = raft;
+    }
+
+    /**
+     * @return true if the datagram was handed to a packet handler.
+     */
+    boolean deliver(SocketAddress sender, byte[] datagram) {
+        if (raft == null || closed) return false;
+        ByteBuffer buffer = bufferPool.acquire();
+        if (datagram.length > buffer.remaining()) {
+            bufferPool.release(buffer);
+            return false;
+        }
+        // left positioned at the end of the datagram, like a buffer a channel received into
+        buffer.put(datagram);
+        raft.newPacketHandler(buffer, sender, bufferPool).run();
+        return true;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    @Override
+    public int getHandlerQueueDepth() {
+        return 0;
+    }
+
+    @Override
+    public long getDroppedPacketCount() {
+        return 0;
+    }
+
+    @Override
+    public long getBufferPoolExhaustedCount() {
+        return bufferPool.getExhaustedCount();
+    }
+}
@@ -0,0 +1,162 @@
+package edu.oswego.cs.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A virtual clock and the queue of events waiting on it. Everything runs on the thread calling runUntil, one event at a
+ * time in the order of when it is due and then when it was scheduled, so a run only depends on what was scheduled.
+ * After every event the ready stages of every node are run until none of them makes progress.
+ */
+public class Simulation {
+
+    // like System.nanoTime the clock doesn't start at zero, nothing may count on an old timestamp being far in the past
+    public static final long START_NANOS = 1_000_000_000_000L;
+
+    private final PriorityQueue<Event> events = new PriorityQueue<>();
+    private final List<SimulatedNode> nodes = new ArrayList<>();
+    private long now = START_NANOS;
+    private long nextSequence;
+    private long eventCount;
+
+    /**
+     * @return The current virtual time in nanoseconds.
+     */
+    public long now() {
+        return now;
+    }
+
+    /**
+     * @return The virtual time passed since the simulation started, in nanoseconds.
+     */
+    public long elapsed() {
+        return now - START_NANOS;
+    }
+
+    /**
+     * @return The number of events run so far.
+     */
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    void addNode(SimulatedNode node) {
+        nodes.add(node);
+    }
+
+    /**
+     * @param atNanos When the action runs, a time already passed runs it next.
+     * @param action The action.
+     * @return The event, which can be cancelled until it runs.
+     */
+    public Event schedule(long atNanos, Runnable action) {
+        Event event = new Event(Math.max(atNanos, now), nextSequence++, action);
+        events.add(event);
+        return event;
+    }
+
+    /**
+     * @param delayNanos How long from now the action runs.
+     * @param action The action.
+     * @return The event, which can be cancelled until it runs.
+     */
+    public Event scheduleIn(long delayNanos, Runnable action) {
+        return schedule(now + delayNanos, action);
+    }
+
+    /**
+     * Runs an action right away as if it was an event, used to call into the nodes from outside the event loop.
+     * @param action The action.
+     */
+    public void execute(Runnable action) {
+        action.run();
+        eventCount++;
+        runReadyStages();
+    }
+
+    /**
+     * Runs every event due up to the given time, then moves the clock to it.
+     * @param timeNanos The virtual time to stop at.
+     */
+    public void runUntil(long timeNanos) {
+        while (!events.isEmpty() && events.peek().at <= timeNanos) {
+            step();
+        }
+        now = Math.max(now, timeNanos);
+    }
+
+    /**
+     * Runs events until the condition holds or the timeout passes.
+     * @param condition Checked before the first event and after every event.
+     * @param timeoutNanos The most virtual time to run for.
+     * @return true if the condition holds.
+     */
+    public boolean runUntil(BooleanSupplier condition, long timeoutNanos) {
+        long deadline = now + timeoutNanos;
+        while (!condition.getAsBoolean()) {
+            if (events.isEmpty() || events.peek().at > deadline) {
+                now = Math.max(now, deadline);
+                return false;
+            }
+            step();
+        }
+        return true;
+    }
+
+    private void step() {
+        Event event = events.poll();
+        if (event.cancelled) return;
+        now = event.at;
+        event.action.run();
+        eventCount++;
+        runReadyStages();
+    }
+
+    private void runReadyStages() {
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+            for (SimulatedNode node : nodes) {
+                progress |= node.runReadyStages();
+            }
+        }
+    }
+
+    /**
+     * An action waiting for its time on the virtual clock.
+     */
+    public static final class Event implements Comparable<Event> {
+
+        private final long at;
+        // breaks ties between events due at the same time, first scheduled runs first
+        private final long sequence;
+        private final Runnable action;
+        private boolean cancelled;
+
+        private Event(long at, long sequence, Runnable action) {
+            this.at = at;
+            this.sequence = sequence;
+            this.action = action;
+        }
+
+        public long getTime() {
+            return at;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            int byTime = Long.compare(at, other.at);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -1,188 +1,269 @@
 package edu.oswego.cs.stateMachine;
 
-import edu.oswego.cs.client.Command;
+import edu.oswego.cs.Packets.MemberRef;
 import edu.oswego.cs.dungeon.Dungeon;
 import edu.oswego.cs.dungeon.Floor;
 import edu.oswego.cs.dungeon.GameUser;
 import edu.oswego.cs.game.Action;
+import edu.oswego.cs.game.EntryOpcode;
 import edu.oswego.cs.game.GameCommandOutput;
-import edu.oswego.cs.gui.MainFrame;
+import edu.oswego.cs.game.GameEventSink;
+import edu.oswego.cs.game.LogEntry;
+import edu.oswego.cs.jfr.ApplyEvent;
+import edu.oswego.cs.jfr.SnapshotEvent;
 import edu.oswego.cs.raft.Raft;
-import edu.oswego.cs.raft.RaftAdministrationCommand;
+import edu.oswego.cs.raft.RaftConfig;
+import edu.oswego.cs.raft.RaftLog;
 import edu.oswego.cs.raft.RaftMembershipState;
+import edu.oswego.cs.raft.RaftSequence;
+import edu.oswego.cs.raft.RaftSnapshot;
+import edu.oswego.cs.raft.RaftStage;
 import edu.oswego.cs.raft.Session;
 
-import java.net.InetSocketAddress;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.net.SocketAddress;
-import java.util.List;
-import java.util.Optional;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
-public class ReplicatedStateExecutor extends Thread {
+public class ReplicatedStateExecutor implements RaftStage {
 
-    private final List<Action> readOnlyLog;
-    private final AtomicInteger lastActionConfirmed;
+    private final RaftLog readOnlyLog;
+    private final RaftSequence lastActionConfirmed;
     private final AtomicInteger lastActionExecuted;
+    private final AtomicReference<RaftSnapshot> snapshotToInstall;
     private final AtomicBoolean gameActive;
     private final Raft raft;
-    private final MainFrame mainFrame;
+    private final GameEventSink gameEvents;
     private final String clientUsername;
     private Dungeon dungeon;
     private Floor currentFloor;
     private Floor firstFloor;
     private GameUser user;
+    // the add member entry of every member added through the log, in the order they were added
+    private final LinkedHashMap<String, byte[]> members = new LinkedHashMap<>();
+    // indexed by entry opcode, null where the opcode has nothing to apply
+    private final EntryHandler[] handlers = new EntryHandler[EntryOpcode.TABLE_SIZE];
+    private final HashSet<String> timedOutMembers = new HashSet<>();
+    private int lastSnapshotIndex = -1;
 
     /**
      * Created a replicated state executor thread that is intended to be run by a raft instance and guarantee a log is executed in order.
      * @param readOnlyLog A reference to log which is only to be read from.
-     * @param lastActionConfirmed An Atomic Integer that represents the last action that is safe to execute.
+     * @param lastActionConfirmed The commit index, the last action that is safe to execute.
+     * @param lastActionExecuted An Atomic Integer that represents the last action that was executed.
+     * @param snapshotToInstall Holds a snapshot received from the leader until this executor installs it.
      * @param gameActive An Atomic Boolean that allows the raft instance to gracefully shutdown the replicated state machine.
      * @param raft A reference to the associated raft instance.
-     * @param mainFrame The gui connected to the raft instance.
+     * @param gameEvents Where the game events of executed actions are published, the gui or a headless sink.
      * @param clientUsername The username of the user who is connected to the local raft instance.
      */
-    public ReplicatedStateExecutor(List<Action> readOnlyLog, AtomicInteger lastActionConfirmed, AtomicInteger lastActionExecuted, AtomicBoolean gameActive, Raft raft, MainFrame mainFrame, String clientUsername) {
+    public ReplicatedStateExecutor(RaftLog readOnlyLog, RaftSequence lastActionConfirmed, AtomicInteger lastActionExecuted, AtomicReference<RaftSnapshot> snapshotToInstall, AtomicBoolean gameActive, Raft raft, GameEventSink gameEvents, String clientUsername) {
         this.readOnlyLog = readOnlyLog;
         this.lastActionConfirmed = lastActionConfirmed;
         this.gameActive = gameActive;
         this.lastActionExecuted = lastActionExecuted;
+        this.snapshotToInstall = snapshotToInstall;
         this.raft = raft;
-        this.mainFrame = mainFrame;
+        this.gameEvents = gameEvents;
         this.clientUsername = clientUsername;
+        handlers[EntryOpcode.CHAT.code] = this::applyChat;
+        handlers[EntryOpcode.MOVE.code] = this::applyMove;
+        handlers[EntryOpcode.USE.code] = this::applyUse;
+        handlers[EntryOpcode.ATTACK.code] = this::applyAttack;
+        handlers[EntryOpcode.DESCEND.code] = this::applyDescend;
+        handlers[EntryOpcode.PICKUP.code] = this::applyPickup;
+        handlers[EntryOpcode.SEED_DUNGEON.code] = this::applySeedDungeon;
+        handlers[EntryOpcode.ADD_MEMBER.code] = this::applyAddMember;
+        handlers[EntryOpcode.TIME_OUT_MEMBER.code] = this::applyTimeOutMember;
+        handlers[EntryOpcode.RECONNECT.code] = this::applyReconnect;
     }
 
     @Override
     public void run() {
         try {
-            while (gameActive.get()) {
-                synchronized (readOnlyLog) {
-                    readOnlyLog.wait();
-                }
-                while (lastActionExecuted.get() < lastActionConfirmed.get() && readOnlyLog.size() - 1 > lastActionExecuted.get()) {
-                    // execute command and increment lastActionExecuted.
-                    Action action = readOnlyLog.get(lastActionExecuted.incrementAndGet());
-                    String commandToBeParsed = action.getCommand();
-                    String[] brokenDownCommand = commandToBeParsed.split(" ", 2);
-                    Optional<Command> optionalCommand = Command.parse(brokenDownCommand[0]);
-                    if (optionalCommand.isPresent()) {
-                        Command command = optionalCommand.get();
-
-                        GameCommandOutput output = new GameCommandOutput();
-                        switch(command) {
-                            case CHAT:
-                                if (brokenDownCommand.length > 1) mainFrame.addMessage(action.getUserName() + ": " + brokenDownCommand[1]);
-                                break;
-                            case MOVE:
-                                output = dungeon.move(action.getUserName(), brokenDownCommand[1].charAt(0));
-
-                                if (output.username.equals(clientUsername)) {
-                                    mainFrame.currentRoom = output.room;
-                                    mainFrame.addMessage(output.textOutput);
-                                    if(output.successful) mainFrame.listRoomEnemies(clientUsername, false);
-                                } else if(output.successful && output.room.users.containsKey(user.username)) {
-                                    mainFrame.addMessage(output.username + " has entered the room.");
-                                }
-                                break;
-                            case USE: 
-                                output = dungeon.use(action.getUserName(), brokenDownCommand[1]);
-
-                                if (output.username.equals(clientUsername)) {
-                                    mainFrame.addMessage(output.textOutput);
-                                }
-                                break;
-                            case ATTACK:
-                                output = dungeon.attack(action.getUserName(), brokenDownCommand[1]);
-                                if (output.room.equals(user.currentRoom)) {
-                                    mainFrame.addMessage(output.textOutput);
-                                }
-                                break;
-                            case DESCEND:
-                                output = dungeon.descend(action.getUserName());
-
-                                if(output.successful) {
-                                    if(clientUsername.equals(action.getUserName())) {
-                                        currentFloor = output.floor;
-                                        mainFrame.updateMapOutput(output.floor);
-                                        mainFrame.addMessage("You have descended to Floor " +  user.currentFloorNum);
-                                        mainFrame.addMessage("Current room: " + user.currentRoom.prettyRoomNumber());
-                                        mainFrame.user = user;
-                                        mainFrame.currentRoom = output.room;
-                                        mainFrame.currentFloor = output.floor;
-                                        mainFrame.listRoomEnemies(clientUsername, false);
-                                    } else {
-                                        GameUser activeUser = dungeon.currentUsers.get(action.getUserName());
-                                        mainFrame.addMessage("User " + activeUser.username + " has descended to Floor " + activeUser.currentFloorNum + "!");
-                                    }
-
-                                } else {
-                                    if(output.username.equals(clientUsername)) {
-                                        mainFrame.addMessage(output.textOutput);
-                                    }
-                                }
-                                break;
-                            case PICKUP:
-                                output = dungeon.pickup(action.getUserName(), brokenDownCommand[1]);
-                                if (output.username.equals(clientUsername)) {
-                                    mainFrame.addMessage(output.textOutput);
-                                }
-                                break;
-                        }
-                    //vvvv  NO TOUCH  vvvvv
-                    } else {
-                        Optional<RaftAdministrationCommand> optionalRaftAdministrationCommand = RaftAdministrationCommand.parse(brokenDownCommand[0]);
-                        if (optionalRaftAdministrationCommand.isPresent()) {
-                            RaftAdministrationCommand raftAdministrationCommand = optionalRaftAdministrationCommand.get();
-                            switch (raftAdministrationCommand) {
-                                case ADD_MEMBER:
-                                    String username = handleAddMember(brokenDownCommand[1]);
-                                    if(!clientUsername.equals(username)) dungeon.addUser(new GameUser(firstFloor.getEntrance(), username));
-
-                                    mainFrame.addMessage("Joined: " + username);
-                                    break;
-                                case SEED_DUNGEON:
-                                    long seed = Long.parseLong(brokenDownCommand[1]);
-                                    startupDungeon(seed);
-                                    break;
-                                case TIME_OUT_MEMBER:
-                                    handleTimeout(brokenDownCommand[1]);
-                                    break;
-                                case RECONNECT:
-                                    reconnectUser(brokenDownCommand[1]);
-                                    break;
-                            }
-                        }
-                    }
-                }
+            while (true) {
+                int wakeGeneration = lastActionConfirmed.getWakeGeneration();
+                if (isStopped()) break;
+                runReady();
+                // sleep until something past the last executed action is committed, or a snapshot or shutdown wakes us
+                lastActionConfirmed.awaitAbove(lastActionExecuted.get(), wakeGeneration);
             }
         } catch (InterruptedException e) {
             System.err.println("Game Executor Interrupted");
         }
     }
 
-    public String handleAddMember(String commandArgs) {
-        String[] args = commandArgs.split(" ");
-        int numExpectedArgs = 3;
-        if (args.length == numExpectedArgs) {
-            int index = args[2].lastIndexOf(":");
-            String addr = args[2].substring(0, index);
-            int port = Integer.parseInt(args[2].substring(index + 1));
-            SocketAddress socketAddress = new InetSocketAddress(addr, port);
-            raft.addSession(args[0], new Session(socketAddress, Long.parseLong(args[1]), RaftMembershipState.FOLLOWER));
-            return args[0];
+    /**
+     * Installs a snapshot handed over by the leader, then executes every committed action in the log.
+     * @return true if a snapshot was installed or anything was executed.
+     */
+    @Override
+    public boolean runReady() {
+        int executedBefore = lastActionExecuted.get();
+        RaftSnapshot snapshot = snapshotToInstall.getAndSet(null);
+        boolean installed = snapshot != null && snapshot.lastIncludedIndex > lastActionExecuted.get();
+        if (installed) {
+            installSnapshot(snapshot);
+        }
+        while (lastActionExecuted.get() < lastActionConfirmed.get() && readOnlyLog.size() - 1 > lastActionExecuted.get()) {
+            // execute command and increment lastActionExecuted.
+            Action action = readOnlyLog.get(lastActionExecuted.incrementAndGet());
+            long applyStart = System.nanoTime();
+            ApplyEvent applyEvent = new ApplyEvent();
+            applyEvent.begin();
+            byte[] entry = action.getEntry();
+            EntryOpcode opcode = LogEntry.opcode(entry);
+            if (action.getUserName() == null) {
+                // the author's add member entry comes earlier in the log, so its id is always known by now
+                action.resolveUserName(raft.resolveUsername(MemberRef.of(action.getAuthorId(), null)));
+            }
+            try {
+                // unknown opcodes have no handler and are skipped on every member alike
+                EntryHandler handler = opcode == null ? null : handlers[opcode.code];
+                if (handler != null) handler.apply(action, LogEntry.fields(entry));
+            } catch (RuntimeException e) {
+                // every member executes the same entry, so a command the game can't handle must not stop the state machine everywhere
+                System.err.println("Executing \"" + LogEntry.describe(entry) + "\" from " + action.getUserName() + " failed: " + e);
+            }
+            applyEvent.end();
+            if (applyEvent.shouldCommit()) {
+                applyEvent.command = opcode == null ? null : opcode.label;
+                applyEvent.logIndex = lastActionExecuted.get();
+                applyEvent.user = action.getUserName();
+                applyEvent.commit();
+            }
+            raft.getMetrics().recordApply(System.nanoTime() - applyStart);
+            raft.getTracer().applied(action, lastActionExecuted.get());
+            if (dungeon != null && lastActionExecuted.get() - lastSnapshotIndex >= RaftConfig.SNAPSHOT_INTERVAL_ENTRIES) {
+                takeSnapshot();
+            }
+        }
+        return installed || lastActionExecuted.get() != executedBefore;
+    }
+
+    @Override
+    public boolean isStopped() {
+        return !gameActive.get();
+    }
+
+    private void applyChat(Action action, ByteBuffer fields) {
+        gameEvents.addMessage(action.getUserName() + ": " + LogEntry.readText(fields));
+    }
+
+    private void applyMove(Action action, ByteBuffer fields) {
+        GameCommandOutput output = dungeon.move(action.getUserName(), (char) fields.get());
+
+        if (output.username.equals(clientUsername)) {
+            // a failed move has no room, the user stays where they were
+            if(output.successful) gameEvents.roomChanged(output.room);
+            gameEvents.addMessage(output.textOutput);
+            if(output.successful) gameEvents.listRoomEnemies(clientUsername);
+        } else if(output.successful && output.room.users.containsKey(user.username)) {
+            gameEvents.addMessage(output.username + " has entered the room.");
+        }
+    }
+
+    private void applyUse(Action action, ByteBuffer fields) {
+        GameCommandOutput output = dungeon.use(action.getUserName(), LogEntry.readText(fields));
+
+        if (output.username.equals(clientUsername)) {
+            gameEvents.addMessage(output.textOutput);
+        }
+    }
+
+    private void applyAttack(Action action, ByteBuffer fields) {
+        GameCommandOutput output = dungeon.attack(action.getUserName(), LogEntry.readText(fields));
+        if (output.room.equals(user.currentRoom)) {
+            gameEvents.addMessage(output.textOutput);
+        }
+    }
+
+    private void applyDescend(Action action, ByteBuffer fields) {
+        GameCommandOutput output = dungeon.descend(action.getUserName());
+
+        if(output.successful) {
+            if(clientUsername.equals(action.getUserName())) {
+                currentFloor = output.floor;
+                gameEvents.floorChanged(user, output.room, output.floor);
+                gameEvents.addMessage("You have descended to Floor " +  user.currentFloorNum);
+                gameEvents.addMessage("Current room: " + user.currentRoom.prettyRoomNumber());
+                gameEvents.listRoomEnemies(clientUsername);
+            } else {
+                GameUser activeUser = dungeon.currentUsers.get(action.getUserName());
+                gameEvents.addMessage("User " + activeUser.username + " has descended to Floor " + activeUser.currentFloorNum + "!");
+            }
+
+        } else {
+            if(output.username.equals(clientUsername)) {
+                gameEvents.addMessage(output.textOutput);
+            }
         }
+    }
 
-        return null;
+    private void applyPickup(Action action, ByteBuffer fields) {
+        GameCommandOutput output = dungeon.pickup(action.getUserName(), LogEntry.readText(fields));
+        if (output.username.equals(clientUsername)) {
+            gameEvents.addMessage(output.textOutput);
+        }
+    }
+
+    private void applySeedDungeon(Action action, ByteBuffer fields) {
+        startupDungeon(fields.getLong());
+    }
+
+    private void applyAddMember(Action action, ByteBuffer fields) {
+        String username = handleAddMember(fields);
+        members.putIfAbsent(username, action.getEntry());
+        if(!clientUsername.equals(username)) dungeon.addUser(new GameUser(firstFloor.getEntrance(), username));
+
+        gameEvents.addMessage("Joined: " + username);
+    }
+
+    private void applyTimeOutMember(Action action, ByteBuffer fields) {
+        String username = LogEntry.readText(fields);
+        handleTimeout(username);
+        timedOutMembers.add(username);
+    }
+
+    private void applyReconnect(Action action, ByteBuffer fields) {
+        String username = LogEntry.readText(fields);
+        reconnectUser(username);
+        timedOutMembers.remove(username);
+    }
+
+    /**
+     * Records the id of a member and adds its session to raft.
+     * @param fields The fields of an add member entry.
+     * @return The username of the member.
+     */
+    public String handleAddMember(ByteBuffer fields) {
+        int memberId = fields.getInt();
+        long joinTime = fields.getLong();
+        SocketAddress socketAddress = LogEntry.readAddress(fields);
+        String username = LogEntry.readText(fields);
+        raft.bindMember(memberId, username);
+        raft.addSession(username, new Session(socketAddress, joinTime, RaftMembershipState.FOLLOWER));
+        return username;
     }
 
     public void handleTimeout(String username) {
         raft.timeOutUser(username);
-        mainFrame.addMessage(username + " disconnected.");
+        gameEvents.addMessage(username + " disconnected.");
     }
 
     public void reconnectUser(String username) {
         raft.reconnectUser(username);
-        mainFrame.addMessage(username + " reconnected.");
+        gameEvents.addMessage(username + " reconnected.");
     }
 
     public void startupDungeon(long seed) {
@@ -191,7 +272,112 @@ public class ReplicatedStateExecutor extends Thread {
         user = new GameUser(currentFloor.getEntrance(), clientUsername);
 
         this.dungeon.addUser(user);
-        mainFrame.initialize(user, user.getRoomNumber(), currentFloor);
+        gameEvents.initialize(user, currentFloor);
     }
 
+    /**
+     * Writes the applied state up to the last executed action and hands it to raft so the log before it can be discarded.
+     */
+    public void takeSnapshot() {
+        SnapshotEvent snapshotEvent = new SnapshotEvent();
+        snapshotEvent.begin();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(members.size());
+            for (Map.Entry<String, byte[]> member : members.entrySet()) {
+                out.writeUTF(member.getKey());
+                out.writeInt(member.getValue().length);
+                out.write(member.getValue());
+            }
+            out.writeInt(timedOutMembers.size());
+            for (String username : timedOutMembers) {
+                out.writeUTF(username);
+            }
+            dungeon.writeSnapshot(out);
+        } catch (IOException e) {
+            System.err.println("An IOException was thrown while taking a snapshot.");
+            return;
+        }
+        lastSnapshotIndex = lastActionExecuted.get();
+        raft.snapshotTaken(new RaftSnapshot(lastSnapshotIndex, bytes.toByteArray()));
+        snapshotEvent.end();
+        if (snapshotEvent.shouldCommit()) {
+            snapshotEvent.installed = false;
+            snapshotEvent.lastIncludedIndex = lastSnapshotIndex;
+            snapshotEvent.size = bytes.size();
+            snapshotEvent.commit();
+        }
+    }
+
+    /**
+     * Replaces the applied state with a snapshot received from the leader, then lets raft drop the log the snapshot covers.
+     * @param snapshot A snapshot that is ahead of the last executed action.
+     */
+    public void installSnapshot(RaftSnapshot snapshot) {
+        SnapshotEvent snapshotEvent = new SnapshotEvent();
+        snapshotEvent.begin();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(snapshot.state))) {
+            int memberCount = in.readInt();
+            for (int i = 0; i < memberCount; i++) {
+                String username = in.readUTF();
+                byte[] addMemberEntry = new byte[in.readInt()];
+                in.readFully(addMemberEntry);
+                if (!members.containsKey(username)) {
+                    handleAddMember(LogEntry.fields(addMemberEntry));
+                    members.put(username, addMemberEntry);
+                }
+            }
+            HashSet<String> snapshotTimedOutMembers = new HashSet<>();
+            int timedOutCount = in.readInt();
+            for (int i = 0; i < timedOutCount; i++) {
+                snapshotTimedOutMembers.add(in.readUTF());
+            }
+            for (String username : snapshotTimedOutMembers) {
+                if (!timedOutMembers.contains(username)) raft.timeOutUser(username);
+            }
+            for (String username : new ArrayList<>(timedOutMembers)) {
+                if (!snapshotTimedOutMembers.contains(username)) raft.reconnectUser(username);
+            }
+            timedOutMembers.clear();
+            timedOutMembers.addAll(snapshotTimedOutMembers);
+
+            boolean firstDungeon = dungeon == null;
+            dungeon = Dungeon.readSnapshot(in);
+            firstFloor = dungeon.getFloor(0);
+            user = dungeon.currentUsers.get(clientUsername);
+            if (user == null) {
+                // this member hasn't been added yet, it starts at the entrance like it would have after seeding
+                user = new GameUser(firstFloor.getEntrance(), clientUsername);
+                dungeon.addUser(user);
+            }
+            currentFloor = dungeon.getFloor(user.currentFloorNum);
+            if (firstDungeon) {
+                gameEvents.initialize(user, currentFloor);
+                gameEvents.roomChanged(user.currentRoom);
+            } else {
+                gameEvents.floorChanged(user, user.currentRoom, currentFloor);
+            }
+        } catch (IOException e) {
+            System.err.println("An IOException was thrown while installing a snapshot.");
+            return;
+        }
+        lastSnapshotIndex = snapshot.lastIncludedIndex;
+        lastActionExecuted.set(snapshot.lastIncludedIndex);
+        raft.snapshotInstalled(snapshot);
+        snapshotEvent.end();
+        if (snapshotEvent.shouldCommit()) {
+            snapshotEvent.installed = true;
+            snapshotEvent.lastIncludedIndex = snapshot.lastIncludedIndex;
+            snapshotEvent.size = snapshot.state.length;
+            snapshotEvent.commit();
+        }
+    }
+
+    private interface EntryHandler {
+        /**
+         * @param action The action being executed.
+         * @param fields The fields of its entry, positioned after the opcode.
+         */
+        void apply(Action action, ByteBuffer fields);
+    }
 }
@@ -1,52 +1,66 @@
 package edu.oswego.cs.stateMachine;
 
-import edu.oswego.cs.game.Action;
-import edu.oswego.cs.gui.MainFrame;
+import edu.oswego.cs.game.GameEventSink;
 import edu.oswego.cs.raft.Raft;
+import edu.oswego.cs.raft.RaftLog;
+import edu.oswego.cs.raft.RaftSequence;
+import edu.oswego.cs.raft.RaftSnapshot;
 
-import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class ReplicatedStateMachine {
-    private final List<Action> readOnlyLog;
-    private ExecutorService gameService = Executors.newSingleThreadExecutor();
-    private final AtomicInteger lastActionConfirmed;
+    private final RaftLog readOnlyLog;
+    private final RaftSequence lastActionConfirmed;
     private final AtomicInteger lastActionExecuted = new AtomicInteger(-1);
+    private final AtomicReference<RaftSnapshot> snapshotToInstall = new AtomicReference<>();
     private final AtomicBoolean gameActive;
     private final Raft raft;
-    private final MainFrame mainFrame;
+    private final GameEventSink gameEvents;
     private final String clientUsername;
 
     /**
      * Created a replicated state machine thats intended to be run by a raft instance and guarantee a log is executed in order.
      * @param readOnlyLog A reference to log which is only to be read from.
-     * @param lastActionConfirmed An Atomic Integer that represents the last action that is safe to execute.
+     * @param lastActionConfirmed The commit index, the last action that is safe to execute.
      * @param gameActive An Atomic Boolean that allows the raft instance to gracefully shutdown the replicated state machine.
      * @param raft A reference to the associated raft instance.
-     * @param mainFrame The gui connected to the raft instance.
+     * @param gameEvents Where the game events of executed actions are published, the gui or a headless sink.
      * @param clientUsername The username of the user who is connected to the local raft instance.
      */
-    public ReplicatedStateMachine(List<Action> readOnlyLog, AtomicInteger lastActionConfirmed, AtomicBoolean gameActive, Raft raft, MainFrame mainFrame, String clientUsername) {
+    public ReplicatedStateMachine(RaftLog readOnlyLog, RaftSequence lastActionConfirmed, AtomicBoolean gameActive, Raft raft, GameEventSink gameEvents, String clientUsername) {
         this.readOnlyLog = readOnlyLog;
         this.lastActionConfirmed = lastActionConfirmed;
         this.gameActive = gameActive;
         this.raft = raft;
-        this.mainFrame = mainFrame;
+        this.gameEvents = gameEvents;
         this.clientUsername = clientUsername;
     }
 
     public void start() {
-        gameService.execute(new ReplicatedStateExecutor(readOnlyLog, lastActionConfirmed, lastActionExecuted, gameActive, raft, mainFrame, clientUsername));
+        raft.getRuntime().startStage("replicated-state-machine-" + clientUsername,
+                new ReplicatedStateExecutor(readOnlyLog, lastActionConfirmed, lastActionExecuted, snapshotToInstall, gameActive, raft, gameEvents, clientUsername));
+    }
+
+    /**
+     * Hands a snapshot received from the leader to the executor, which installs it before executing anything after it.
+     * @param snapshot The snapshot to install.
+     */
+    public void installSnapshot(RaftSnapshot snapshot) {
+        snapshotToInstall.set(snapshot);
+        lastActionConfirmed.wakeAll();
+    }
+
+    /**
+     * @return The log index of the last action the state machine executed.
+     */
+    public int getLastActionExecuted() {
+        return lastActionExecuted.get();
     }
 
     public void stop() {
         gameActive.set(false);
-        synchronized (readOnlyLog) {
-            readOnlyLog.notify();
-        }
-        gameService.shutdown();
+        lastActionConfirmed.wakeAll();
     }
 }
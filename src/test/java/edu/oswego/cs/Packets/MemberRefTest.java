@@ -0,0 +1,104 @@
+package edu.oswego.cs.Packets;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class MemberRefTest {
+
+    @Test
+    public void idsRoundTripAtVarintBoundaries() {
+        // an id is sent as id + 1, so these are the last and first ids of each varint length
+        assertId(0, 1);
+        assertId(126, 1);
+        assertId(127, 2);
+        assertId(16382, 2);
+        assertId(16383, 3);
+        assertId(2097150, 3);
+        assertId(2097151, 4);
+        assertId(268435454, 4);
+        assertId(268435455, 5);
+        assertId(Integer.MAX_VALUE - 1, 5);
+        assertId(Integer.MAX_VALUE, 5);
+    }
+
+    @Test
+    public void sharedIdsAreReused() {
+        assertSame(assertRoundTrip(MemberRef.of(0, null)), assertRoundTrip(MemberRef.of(0, null)));
+        assertSame(assertRoundTrip(MemberRef.of(255, null)), assertRoundTrip(MemberRef.of(255, null)));
+        assertEquals(256, assertRoundTrip(MemberRef.of(256, null)).id);
+    }
+
+    @Test
+    public void namesRoundTrip() {
+        for (String username : new String[] {"alice", "", "bøb ✓"}) {
+            MemberRef read = assertRoundTrip(MemberRef.byName(username));
+            assertFalse(read.hasId());
+            assertEquals(MemberRef.NO_ID, read.id);
+            assertEquals(username, read.username);
+        }
+    }
+
+    @Test
+    public void anIdIsSentInsteadOfTheName() {
+        MemberRef read = assertRoundTrip(MemberRef.of(3, "alice"));
+        assertTrue(read.hasId());
+        assertEquals(3, read.id);
+        assertNull(read.username);
+    }
+
+    @Test
+    public void readingStopsAtTheEndOfTheReference() {
+        ByteBuffer buffer = ByteBuffer.allocate(32);
+        MemberRef.write(buffer, 300, null);
+        MemberRef.write(buffer, MemberRef.NO_ID, "bob");
+        buffer.putInt(42);
+        buffer.flip();
+        assertEquals(300, MemberRef.read(buffer).id);
+        assertEquals("bob", MemberRef.read(buffer).username);
+        assertEquals(42, buffer.getInt());
+    }
+
+    @Test
+    public void varintLongerThanAnIntIsRejected() {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[] {(byte) 0x81, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x01});
+        assertThrows(IllegalArgumentException.class, () -> MemberRef.read(buffer));
+    }
+
+    @Test
+    public void truncatedReferenceIsAParseError() {
+        // a confirm packet whose sender varint never ends
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        buffer.putShort(Opcode.Command.code);
+        buffer.putShort(CommandSubopcode.ConfirmCommand.code);
+        buffer.put((byte) 0x80);
+        assertThrows(ParseException.class, () -> Packet.bytesToPacket(buffer));
+    }
+
+    private static void assertId(int id, int encodedSize) {
+        MemberRef ref = MemberRef.of(id, "ignored");
+        assertEquals(encodedSize, ref.encodedSize());
+        assertEquals(id, assertRoundTrip(ref).id);
+    }
+
+    /**
+     * Writes the reference and reads it back, checking it took up exactly its encoded size.
+     */
+    private static MemberRef assertRoundTrip(MemberRef ref) {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        ref.write(buffer);
+        assertEquals(ref.encodedSize(), buffer.position());
+        buffer.flip();
+        MemberRef read = MemberRef.read(buffer);
+        assertFalse(buffer.hasRemaining());
+        return read;
+    }
+}
@@ -0,0 +1,285 @@
+package edu.oswego.cs.Packets;
+
+import edu.oswego.cs.game.Action;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+public class PacketCodecsTest {
+
+    private static final MemberRef LEADER = MemberRef.of(0, "leader");
+    private static final MemberRef NEWCOMER = MemberRef.byName("newcomer");
+
+    @Test
+    public void ack() throws ParseException {
+        AckPacket packet = (AckPacket) roundTrip(new AckPacket(LEADER));
+        assertSender(LEADER, packet);
+    }
+
+    @Test
+    public void heartbeat() throws ParseException {
+        HeartbeatPacket packet = (HeartbeatPacket) roundTrip(new HeartbeatPacket(LEADER, 41, 7, Integer.MAX_VALUE));
+        assertSender(LEADER, packet);
+        assertEquals(41, packet.lastConfirmed);
+        assertEquals(7, packet.termCount);
+        assertEquals(Integer.MAX_VALUE, packet.lastLogIndex);
+    }
+
+    @Test
+    public void candidate() throws ParseException {
+        CandidatePacket packet = (CandidatePacket) roundTrip(new CandidatePacket(MemberRef.of(300, "c"), 3, -1));
+        assertSender(MemberRef.of(300, "c"), packet);
+        assertEquals(3, packet.termCount);
+        assertEquals(-1, packet.logPosition);
+    }
+
+    @Test
+    public void vote() throws ParseException {
+        VotePacket packet = (VotePacket) roundTrip(new VotePacket(LEADER, 9));
+        assertSender(LEADER, packet);
+        assertEquals(9, packet.termNum);
+    }
+
+    @Test
+    public void snapshot() throws ParseException {
+        byte[] data = {1, 2, 3, 4, 5};
+        SnapshotPacket packet = (SnapshotPacket) roundTrip(new SnapshotPacket(LEADER, 99, 1000, 500, data));
+        assertSender(LEADER, packet);
+        assertEquals(99, packet.lastIncludedIndex);
+        assertEquals(1000, packet.snapshotSize);
+        assertEquals(500, packet.offset);
+        assertArrayEquals(data, packet.data);
+    }
+
+    @Test
+    public void snapshotAck() throws ParseException {
+        SnapshotAckPacket packet = (SnapshotAckPacket) roundTrip(new SnapshotAckPacket(LEADER, 99, 500));
+        assertSender(LEADER, packet);
+        assertEquals(99, packet.lastIncludedIndex);
+        assertEquals(500, packet.offset);
+    }
+
+    @Test
+    public void requestCommand() throws ParseException {
+        byte[] entry = {5};
+        ReqCommandPacket packet = (ReqCommandPacket) roundTrip(new ReqCommandPacket(NEWCOMER, entry, Long.MIN_VALUE));
+        assertSender(NEWCOMER, packet);
+        assertSame(CommandSubopcode.RequestCommand, packet.commandSubopcode);
+        assertArrayEquals(entry, packet.entry);
+        assertEquals(Long.MIN_VALUE, packet.traceId);
+    }
+
+    @Test
+    public void confirmCommand() throws ParseException {
+        ConfirmCommandPacket packet = (ConfirmCommandPacket) roundTrip(new ConfirmCommandPacket(MemberRef.of(4, "f"), 123));
+        assertSender(MemberRef.of(4, "f"), packet);
+        assertSame(CommandSubopcode.ConfirmCommand, packet.commandSubopcode);
+        assertEquals(123, packet.actionNum);
+    }
+
+    @Test
+    public void commitCommand() throws ParseException {
+        CommitCommandPacket packet = (CommitCommandPacket) roundTrip(new CommitCommandPacket(LEADER, -1));
+        assertSender(LEADER, packet);
+        assertSame(CommandSubopcode.CommitCommand, packet.commandSubopcode);
+        assertEquals(-1, packet.actionNum);
+    }
+
+    @Test
+    public void logCommandBatch() throws ParseException {
+        List<Action> actions = Arrays.asList(new Action(MemberRef.of(1, "a"), new byte[] {5}), new Action(NEWCOMER, new byte[] {1, 'x'}), new Action(MemberRef.of(1000, "b"), new byte[0]));
+        LogCommandBatchPacket packet = (LogCommandBatchPacket) roundTrip(new LogCommandBatchPacket(LEADER, 40, 3, 38, actions));
+        assertSender(LEADER, packet);
+        assertEquals(40, packet.startActionNum);
+        assertEquals(3, packet.termNum);
+        assertEquals(38, packet.commitActionNum);
+        assertEquals(42, packet.getLastActionNum());
+        assertEquals(actions.size(), packet.actions.size());
+        for (int i = 0; i < actions.size(); i++) {
+            assertEquals(actions.get(i).getAuthorId(), packet.actions.get(i).getAuthorId());
+            assertArrayEquals(actions.get(i).getEntry(), packet.actions.get(i).getEntry());
+        }
+        assertEquals(NEWCOMER.username, packet.actions.get(1).getUserName());
+    }
+
+    @Test
+    public void nackCommand() throws ParseException {
+        NackCommandPacket packet = (NackCommandPacket) roundTrip(new NackCommandPacket(MemberRef.of(2, "f"), 10, 20));
+        assertSender(MemberRef.of(2, "f"), packet);
+        assertSame(CommandSubopcode.NackCommand, packet.commandSubopcode);
+        assertEquals(10, packet.fromActionNum);
+        assertEquals(20, packet.toActionNum);
+    }
+
+    @Test
+    public void clientHello() throws Exception {
+        PublicKey publicKey = publicKey();
+        ConnectionClientHelloPacket packet = (ConnectionClientHelloPacket) roundTrip(new ConnectionClientHelloPacket("newcomer", publicKey));
+        assertSame(ConnectSubopcode.ClientHello, packet.subopcode);
+        assertEquals("newcomer", packet.username);
+        assertEquals(publicKey, packet.publicKey);
+    }
+
+    @Test
+    public void serverHello() throws ParseException {
+        byte[] key = {9, 8, 7};
+        ConnectionServerHelloPacket packet = (ConnectionServerHelloPacket) roundTrip(new ConnectionServerHelloPacket("leader", 5, key));
+        assertSame(ConnectSubopcode.ServerHello, packet.subopcode);
+        assertEquals("leader", packet.username);
+        assertEquals(5, packet.memberId);
+        assertArrayEquals(key, packet.encryptedSecretKey);
+    }
+
+    @Test
+    public void clientKeyAndLog() throws ParseException {
+        for (ConnectSubopcode subopcode : new ConnectSubopcode[] {ConnectSubopcode.ClientKey, ConnectSubopcode.Log}) {
+            byte[] data = {1, 2};
+            ConnectPacket packet = (ConnectPacket) roundTrip(new ConnectPacket(subopcode, "newcomer", data));
+            assertSame(subopcode, packet.subopcode);
+            assertEquals("newcomer", packet.username);
+            assertArrayEquals(data, packet.data);
+        }
+    }
+
+    @Test
+    public void redirect() throws Exception {
+        PublicKey publicKey = publicKey();
+        InetSocketAddress address = new InetSocketAddress("127.0.0.1", 5001);
+        ConnectionRedirectPacket packet = (ConnectionRedirectPacket) roundTrip(new ConnectionRedirectPacket(address, "newcomer", publicKey));
+        assertSame(ConnectSubopcode.Redirect, packet.subopcode);
+        assertEquals("newcomer", packet.username);
+        assertEquals(address, packet.originalAddress);
+        assertEquals(publicKey, packet.publicKey);
+    }
+
+    @Test
+    public void hotPacketsAreDecodedIntoOneViewPerThread() throws Exception {
+        assertReusedView(new HeartbeatPacket(LEADER, 1, 1, 1), new HeartbeatPacket(MemberRef.of(9, "x"), 2, 3, 4));
+        assertReusedView(new ConfirmCommandPacket(LEADER, 1), new ConfirmCommandPacket(NEWCOMER, 2));
+        assertReusedView(new CommitCommandPacket(LEADER, 1), new CommitCommandPacket(LEADER, 2));
+        assertReusedView(new LogCommandBatchPacket(LEADER, 1, 1, 0, Arrays.asList(new Action(LEADER, new byte[] {1}))),
+                new LogCommandBatchPacket(NEWCOMER, 2, 1, 1, Arrays.asList(new Action(NEWCOMER, new byte[] {2, 3}))));
+    }
+
+    @Test
+    public void reusedViewIsOverwrittenCompletely() throws ParseException {
+        HeartbeatPacket first = (HeartbeatPacket) roundTrip(new HeartbeatPacket(NEWCOMER, 1, 1, 1));
+        HeartbeatPacket second = (HeartbeatPacket) roundTrip(new HeartbeatPacket(MemberRef.of(7, null), 2, 5, 9));
+        assertSame(first, second);
+        assertEquals(7, second.sender.id);
+        assertNull(second.sender.username);
+        assertEquals(2, second.lastConfirmed);
+        assertEquals(5, second.termCount);
+        assertEquals(9, second.lastLogIndex);
+    }
+
+    @Test
+    public void reusedBatchKeepsTheActionsItAlreadyDecoded() throws ParseException {
+        List<Action> firstActions = Arrays.asList(new Action(NEWCOMER, new byte[] {1, 2, 3}), new Action(LEADER, new byte[] {4}));
+        LogCommandBatchPacket first = (LogCommandBatchPacket) roundTrip(new LogCommandBatchPacket(NEWCOMER, 1, 1, 0, firstActions));
+        Action firstAction = first.actions.get(0);
+        LogCommandBatchPacket second = (LogCommandBatchPacket) roundTrip(new LogCommandBatchPacket(LEADER, 9, 5, 8,
+                Arrays.asList(new Action(MemberRef.of(7, null), new byte[] {5}))));
+        assertSame(first, second);
+        assertEquals(9, second.startActionNum);
+        assertEquals(5, second.termNum);
+        assertEquals(8, second.commitActionNum);
+        assertEquals(1, second.actions.size());
+        assertEquals(7, second.actions.get(0).getAuthorId());
+        assertArrayEquals(new byte[] {5}, second.actions.get(0).getEntry());
+        // the actions outlive the packet in the reorder buffer, so they are never overwritten
+        assertEquals(NEWCOMER.username, firstAction.getUserName());
+        assertArrayEquals(new byte[] {1, 2, 3}, firstAction.getEntry());
+    }
+
+    @Test
+    public void unknownCodesDecodeToNull() throws ParseException {
+        assertNull(Packet.bytesToPacket(ByteBuffer.allocate(2).putShort((short) 0)));
+        assertNull(Packet.bytesToPacket(ByteBuffer.allocate(2).putShort((short) Opcode.TABLE_SIZE)));
+        assertNull(Packet.bytesToPacket(ByteBuffer.allocate(2).putShort((short) -1)));
+        assertNull(Packet.bytesToPacket(ByteBuffer.allocate(4).putShort(Opcode.Command.code).putShort((short) 0)));
+        assertNull(Packet.bytesToPacket(ByteBuffer.allocate(4).putShort(Opcode.Command.code).putShort((short) 99)));
+        assertNull(Packet.bytesToPacket(ByteBuffer.allocate(4).putShort(Opcode.Connect.code).putShort((short) -3)));
+        // the retired log and log command codes
+        assertNull(Packet.bytesToPacket(ByteBuffer.allocate(2).putShort((short) 3)));
+        assertNull(Packet.bytesToPacket(ByteBuffer.allocate(4).putShort(Opcode.Command.code).putShort((short) 2)));
+    }
+
+    @Test
+    public void truncatedPacketsAreParseErrors() {
+        byte[] bytes = new HeartbeatPacket(LEADER, 41, 7, 9).packetToBytes();
+        for (int length : new int[] {0, 1, bytes.length - 1}) {
+            ByteBuffer buffer = ByteBuffer.allocate(bytes.length);
+            buffer.put(bytes, 0, length);
+            assertThrows(ParseException.class, () -> Packet.bytesToPacket(buffer));
+        }
+    }
+
+    @Test
+    public void registeredCodesCantBeRegisteredAgain() {
+        assertThrows(IllegalStateException.class, () -> PacketCodecs.register(Opcode.Ack, AckPacket::bytesToPacket));
+        assertThrows(IllegalStateException.class, () -> PacketCodecs.register(Opcode.Ack, (short) 1, AckPacket::bytesToPacket));
+        assertThrows(IllegalStateException.class, () -> PacketCodecs.register(Opcode.Command, CommandSubopcode.NackCommand.code, NackCommandPacket::bytesToPacket));
+        assertThrows(IllegalStateException.class, () -> PacketCodecs.register(Opcode.Connect, AckPacket::bytesToPacket));
+    }
+
+    private static void assertReusedView(Packet first, Packet second) throws Exception {
+        Packet firstRead = roundTrip(first);
+        Packet secondRead = roundTrip(second);
+        assertSame(firstRead, secondRead);
+        assertSender(second.sender, secondRead);
+        AtomicReference<Packet> otherThreadRead = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            try {
+                otherThreadRead.set(roundTrip(first));
+            } catch (ParseException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        thread.start();
+        thread.join();
+        assertNotSame(firstRead, otherThreadRead.get());
+        assertSender(first.sender, otherThreadRead.get());
+    }
+
+    private static void assertSender(MemberRef expected, Packet packet) {
+        if (expected.hasId()) {
+            assertEquals(expected.id, packet.sender.id);
+        } else {
+            assertEquals(expected.username, packet.username);
+        }
+    }
+
+    /**
+     * Encodes the packet and decodes it from a receive buffer, the way the transport hands it over.
+     */
+    private static Packet roundTrip(Packet packet) throws ParseException {
+        byte[] bytes = packet.packetToBytes();
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 16);
+        buffer.put(bytes);
+        Packet read = Packet.bytesToPacket(buffer);
+        assertEquals(packet.opcode, read.opcode);
+        return read;
+    }
+
+    private static PublicKey publicKey() throws NoSuchAlgorithmException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(1024);
+        return generator.generateKeyPair().getPublic();
+    }
+}
@@ -0,0 +1,112 @@
+package edu.oswego.cs.game;
+
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class LogEntryTest {
+
+    @Test
+    public void textCommandsRoundTrip() {
+        assertText(EntryOpcode.CHAT, LogEntry.fromCommand(".chat hello there"), "hello there");
+        assertText(EntryOpcode.USE, LogEntry.fromCommand(".use Potion"), "Potion");
+        assertText(EntryOpcode.ATTACK, LogEntry.fromCommand(".fight goblin"), "goblin");
+        assertText(EntryOpcode.ATTACK, LogEntry.fromCommand(".attack goblin"), "goblin");
+        assertText(EntryOpcode.PICKUP, LogEntry.fromCommand(".grab sword"), "sword");
+        assertText(EntryOpcode.CHAT, LogEntry.fromCommand(".chat héllo ✓"), "héllo ✓");
+    }
+
+    @Test
+    public void moveAndDescendRoundTrip() {
+        byte[] move = LogEntry.fromCommand(".move n");
+        assertSame(EntryOpcode.MOVE, LogEntry.opcode(move));
+        assertEquals('n', (char) LogEntry.fields(move).get());
+        byte[] descend = LogEntry.fromCommand(".descend");
+        assertSame(EntryOpcode.DESCEND, LogEntry.opcode(descend));
+        assertEquals(0, LogEntry.fields(descend).remaining());
+        assertEquals(".descend", LogEntry.describe(descend));
+    }
+
+    @Test
+    public void commandsThatDontChangeStateAreNotEncoded() {
+        assertNull(LogEntry.fromCommand(".look"));
+        assertNull(LogEntry.fromCommand(".exit"));
+        assertNull(LogEntry.fromCommand(".chat"));
+        assertNull(LogEntry.fromCommand(".move"));
+        assertNull(LogEntry.fromCommand("hello"));
+    }
+
+    @Test
+    public void seedRoundTripsAtTheEdges() {
+        for (long seed : new long[] {0, 1, -1, Long.MIN_VALUE, Long.MAX_VALUE}) {
+            byte[] entry = LogEntry.seedDungeon(seed);
+            assertSame(EntryOpcode.SEED_DUNGEON, LogEntry.opcode(entry));
+            ByteBuffer fields = LogEntry.fields(entry);
+            assertEquals(seed, fields.getLong());
+            assertFalse(fields.hasRemaining());
+        }
+    }
+
+    @Test
+    public void addMemberRoundTripsIpv4AndIpv6() throws UnknownHostException {
+        assertAddMember(0, "alice", 0, new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 1));
+        assertAddMember(Integer.MAX_VALUE, "bøb", Long.MAX_VALUE, new InetSocketAddress(InetAddress.getByName("10.0.0.255"), 65535));
+        assertAddMember(255, "carol", -1, new InetSocketAddress(InetAddress.getByName("::1"), 32768));
+    }
+
+    @Test
+    public void memberEntriesRoundTrip() {
+        assertText(EntryOpcode.TIME_OUT_MEMBER, LogEntry.timeOutMember("alice"), "alice");
+        assertText(EntryOpcode.RECONNECT, LogEntry.reconnect("alice"), "alice");
+    }
+
+    @Test
+    public void everyOpcodeIsFoundByItsCode() {
+        for (EntryOpcode opcode : EntryOpcode.values()) {
+            assertSame(opcode, EntryOpcode.fromCode(opcode.code));
+        }
+    }
+
+    @Test
+    public void unknownCodesHaveNoOpcode() {
+        assertNull(EntryOpcode.fromCode((byte) 0));
+        assertNull(EntryOpcode.fromCode((byte) -1));
+        assertNull(EntryOpcode.fromCode((byte) (EntryOpcode.TABLE_SIZE - 1)));
+        assertNull(EntryOpcode.fromCode((byte) EntryOpcode.TABLE_SIZE));
+        assertNull(EntryOpcode.fromCode(Byte.MAX_VALUE));
+        assertNull(EntryOpcode.fromCode(Byte.MIN_VALUE));
+        assertNull(LogEntry.opcode(new byte[0]));
+    }
+
+    @Test
+    public void malformedEntriesAreStillDescribed() {
+        assertEquals("an unknown entry", LogEntry.describe(new byte[] {(byte) 0x7F}));
+        // too short to hold the seed
+        assertEquals("a malformed " + EntryOpcode.SEED_DUNGEON.label + " entry", LogEntry.describe(new byte[] {EntryOpcode.SEED_DUNGEON.code, 1, 2}));
+    }
+
+    private static void assertText(EntryOpcode opcode, byte[] entry, String text) {
+        assertSame(opcode, LogEntry.opcode(entry));
+        ByteBuffer fields = LogEntry.fields(entry);
+        assertEquals(text, LogEntry.readText(fields));
+        assertFalse(fields.hasRemaining());
+    }
+
+    private static void assertAddMember(int memberId, String username, long joinTime, InetSocketAddress address) {
+        byte[] entry = LogEntry.addMember(memberId, username, joinTime, address);
+        assertSame(EntryOpcode.ADD_MEMBER, LogEntry.opcode(entry));
+        ByteBuffer fields = LogEntry.fields(entry);
+        assertEquals(memberId, fields.getInt());
+        assertEquals(joinTime, fields.getLong());
+        assertEquals(address, LogEntry.readAddress(fields));
+        assertEquals(username, LogEntry.readText(fields));
+    }
+}
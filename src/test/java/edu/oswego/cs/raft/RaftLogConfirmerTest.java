@@ -0,0 +1,83 @@
+package edu.oswego.cs.raft;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class RaftLogConfirmerTest {
+
+    @Test
+    public void oddNumberOfFollowers() {
+        // the leader and three followers, two of the four have to confirm
+        assertEquals(7, majority(3, 10, 5, 7, 3));
+    }
+
+    @Test
+    public void evenNumberOfFollowers() {
+        // the leader and four followers, three of the five have to confirm
+        assertEquals(6, majority(4, 10, 4, 8, 6, 2));
+    }
+
+    @Test
+    public void leaderAlone() {
+        assertEquals(12, majority(0, 12));
+    }
+
+    @Test
+    public void allEqual() {
+        assertEquals(5, majority(4, 5, 5, 5, 5, 5));
+    }
+
+    @Test
+    public void equalValuesAroundTheQuorum() {
+        assertEquals(3, majority(4, 7, 7, 3, 3, 3));
+        assertEquals(9, majority(4, 9, 9, 9, 1, 1));
+        assertEquals(4, majority(4, 9, 4, 4, 4, 1));
+    }
+
+    @Test
+    public void nothingConfirmedYet() {
+        assertEquals(-1, majority(2, 4, -1, -1));
+    }
+
+    @Test
+    public void noMembers() {
+        assertEquals(-1, RaftLogConfirmer.getMajorityConfirmedIndex(new int[8], 0, 0));
+    }
+
+    @Test
+    public void valuesPastTheMemberCountAreIgnored() {
+        int[] confirmed = {8, 2, 6, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE};
+        assertEquals(6, RaftLogConfirmer.getMajorityConfirmedIndex(confirmed, 3, 2));
+    }
+
+    @Test
+    public void matchesSortingForRandomIndices() {
+        Random random = new Random(42);
+        for (int round = 0; round < 10_000; round++) {
+            int memberCount = 1 + random.nextInt(16);
+            int[] confirmed = new int[memberCount + random.nextInt(4)];
+            for (int i = 0; i < confirmed.length; i++) {
+                // a small range so most rounds have repeated values
+                confirmed[i] = random.nextInt(8) - 1;
+            }
+            int followerCount = memberCount - 1;
+            int[] sorted = Arrays.copyOf(confirmed, memberCount);
+            Arrays.sort(sorted);
+            int quorum = followerCount / 2 + 1;
+            int expected = sorted[memberCount - quorum];
+            assertEquals(Arrays.toString(sorted), expected, RaftLogConfirmer.getMajorityConfirmedIndex(confirmed, memberCount, followerCount));
+        }
+    }
+
+    /**
+     * @param followerCount The number of followers, the rest of the members are the leader.
+     * @param confirmed The confirmed index of every member.
+     */
+    private static int majority(int followerCount, int... confirmed) {
+        return RaftLogConfirmer.getMajorityConfirmedIndex(confirmed.clone(), confirmed.length, followerCount);
+    }
+}
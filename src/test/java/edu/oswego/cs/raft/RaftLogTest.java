@@ -0,0 +1,162 @@
+package edu.oswego.cs.raft;
+
+import edu.oswego.cs.Packets.MemberRef;
+import edu.oswego.cs.game.Action;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+public class RaftLogTest {
+
+    private static final int CHUNK = RaftLog.CHUNK_SIZE;
+
+    @Test
+    public void entriesAreReadBackAcrossChunkBoundaries() {
+        RaftLog log = new RaftLog();
+        List<Action> actions = actions(3 * CHUNK + 5);
+        for (Action action : actions) {
+            log.add(action);
+        }
+        assertEquals(actions.size(), log.size());
+        for (int index : new int[] {0, CHUNK - 1, CHUNK, 2 * CHUNK - 1, 2 * CHUNK, 3 * CHUNK, 3 * CHUNK + 4}) {
+            assertSame(actions.get(index), log.get(index));
+        }
+    }
+
+    @Test
+    public void addAllFillsAcrossChunkBoundaries() {
+        RaftLog log = new RaftLog();
+        List<Action> first = actions(CHUNK - 2);
+        List<Action> second = actions(5);
+        log.addAll(first);
+        log.addAll(second);
+        assertEquals(CHUNK + 3, log.size());
+        assertSame(first.get(CHUNK - 3), log.get(CHUNK - 3));
+        assertSame(second.get(1), log.get(CHUNK - 1));
+        assertSame(second.get(2), log.get(CHUNK));
+    }
+
+    @Test
+    public void directoryGrowsPastItsInitialChunks() {
+        RaftLog log = new RaftLog();
+        List<Action> actions = actions(10 * CHUNK);
+        log.addAll(actions.subList(0, CHUNK));
+        for (Action action : actions.subList(CHUNK, actions.size())) {
+            log.add(action);
+        }
+        for (int i = 0; i < actions.size(); i++) {
+            assertSame(actions.get(i), log.get(i));
+        }
+    }
+
+    @Test
+    public void indicesOutsideTheLogThrow() {
+        RaftLog log = new RaftLog();
+        log.addAll(actions(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> log.get(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> log.get(-1));
+    }
+
+    @Test
+    public void discardKeepsEntriesAfterTheSnapshot() {
+        RaftLog log = new RaftLog();
+        List<Action> actions = actions(2 * CHUNK + 500);
+        log.addAll(actions);
+        log.discardThrough(CHUNK + 10);
+        assertEquals(CHUNK + 11, log.getBaseIndex());
+        assertEquals(actions.size(), log.size());
+        assertThrows(IndexOutOfBoundsException.class, () -> log.get(CHUNK + 10));
+        assertSame(actions.get(CHUNK + 11), log.get(CHUNK + 11));
+        assertSame(actions.get(actions.size() - 1), log.get(actions.size() - 1));
+
+        Action next = new Action(MemberRef.of(1, "a"), new byte[] {1});
+        log.add(next);
+        assertSame(next, log.get(actions.size()));
+    }
+
+    @Test
+    public void discardingAnOlderIndexIsIgnored() {
+        RaftLog log = new RaftLog();
+        log.addAll(actions(20));
+        log.discardThrough(10);
+        log.discardThrough(5);
+        assertEquals(11, log.getBaseIndex());
+        assertEquals(20, log.size());
+    }
+
+    @Test
+    public void discardPastTheTailContinuesFromTheSnapshot() {
+        RaftLog log = new RaftLog();
+        log.addAll(actions(10));
+        log.discardThrough(5 * CHUNK + 7);
+        assertEquals(5 * CHUNK + 8, log.getBaseIndex());
+        assertEquals(5 * CHUNK + 8, log.size());
+        assertThrows(IndexOutOfBoundsException.class, () -> log.get(9));
+
+        List<Action> actions = actions(2 * CHUNK);
+        log.addAll(actions);
+        for (int i = 0; i < actions.size(); i++) {
+            assertSame(actions.get(i), log.get(5 * CHUNK + 8 + i));
+        }
+    }
+
+    @Test
+    public void discardUpToTheTailEmptiesTheLog() {
+        RaftLog log = new RaftLog();
+        log.addAll(actions(CHUNK));
+        log.discardThrough(CHUNK - 1);
+        assertEquals(CHUNK, log.getBaseIndex());
+        assertEquals(CHUNK, log.size());
+        Action next = new Action(MemberRef.of(1, "a"), new byte[] {1});
+        log.add(next);
+        assertSame(next, log.get(CHUNK));
+    }
+
+    @Test
+    public void readersRacingDiscardsOnlySeeEntriesOrIndexOutOfBounds() throws InterruptedException {
+        RaftLog log = new RaftLog();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                // the index was valid when it was picked, a discard may move past it before the read
+                int index = log.getBaseIndex();
+                try {
+                    if (index < log.size() && log.get(index) == null) {
+                        failure.compareAndSet(null, new AssertionError("Read a null entry at " + index));
+                    }
+                } catch (IndexOutOfBoundsException e) {
+                    if (e.getClass() != IndexOutOfBoundsException.class) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            }
+        });
+        reader.start();
+        // every discard moves the log onto a new chunk
+        List<Action> batch = actions(CHUNK);
+        for (int i = 0; i < 50_000; i++) {
+            log.addAll(batch);
+            log.discardThrough(log.size() - 2);
+        }
+        done.set(true);
+        reader.join();
+        assertNull(failure.get());
+    }
+
+    private static List<Action> actions(int count) {
+        List<Action> actions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            actions.add(new Action(MemberRef.of(i % 5, "member" + (i % 5)), new byte[] {(byte) i}));
+        }
+        return actions;
+    }
+}
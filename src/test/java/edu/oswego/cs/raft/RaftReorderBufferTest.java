@@ -0,0 +1,123 @@
+package edu.oswego.cs.raft;
+
+import edu.oswego.cs.Packets.MemberRef;
+import edu.oswego.cs.game.Action;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RaftReorderBufferTest {
+
+    @Test
+    public void capacityIsRoundedUpToAPowerOfTwo() {
+        assertEquals(8, new RaftReorderBuffer(5).getWindowEnd(0));
+        assertEquals(8, new RaftReorderBuffer(8).getWindowEnd(0));
+        assertEquals(2, new RaftReorderBuffer(1).getWindowEnd(0));
+        assertEquals(110, new RaftReorderBuffer(9).getWindowEnd(94));
+    }
+
+    @Test
+    public void heldEntriesAreFoundByIndex() {
+        RaftReorderBuffer buffer = new RaftReorderBuffer(4);
+        Action action = action(2);
+        assertTrue(buffer.put(2, action, 0));
+        assertSame(action, buffer.get(2));
+        assertTrue(buffer.contains(2));
+        assertFalse(buffer.contains(1));
+        // same slot, different index
+        assertNull(buffer.get(6));
+    }
+
+    @Test
+    public void entriesAlreadyInTheLogAreNotHeld() {
+        RaftReorderBuffer buffer = new RaftReorderBuffer(4);
+        assertTrue(buffer.put(3, action(3), 5));
+        assertNull(buffer.get(3));
+    }
+
+    @Test
+    public void entriesPastTheWindowOverflow() {
+        RaftReorderBuffer buffer = new RaftReorderBuffer(4);
+        assertTrue(buffer.put(13, action(13), 10));
+        assertFalse(buffer.put(14, action(14), 10));
+        assertNull(buffer.get(14));
+        assertEquals(1, buffer.getOverflowCount());
+    }
+
+    @Test
+    public void aDuplicateKeepsTheFirstEntry() {
+        RaftReorderBuffer buffer = new RaftReorderBuffer(4);
+        Action first = action(1);
+        buffer.put(1, first, 0);
+        assertTrue(buffer.put(1, action(1), 0));
+        assertSame(first, buffer.get(1));
+    }
+
+    @Test
+    public void windowWrapsAroundAsTheLogGrows() {
+        RaftReorderBuffer buffer = new RaftReorderBuffer(4);
+        Action[] actions = new Action[12];
+        for (int i = 0; i < 4; i++) {
+            actions[i] = action(i);
+            buffer.put(i, actions[i], 0);
+        }
+        int logTail = 0;
+        // append in order, each freed slot takes the index one window further on
+        for (int i = 0; i < 8; i++) {
+            assertSame(actions[i], buffer.get(i));
+            buffer.remove(i, actions[i]);
+            logTail++;
+            assertNull(buffer.get(i));
+            actions[i + 4] = action(i + 4);
+            assertTrue(buffer.put(i + 4, actions[i + 4], logTail));
+        }
+        for (int i = 8; i < 12; i++) {
+            assertSame(actions[i], buffer.get(i));
+        }
+    }
+
+    @Test
+    public void aSlotLeftBehindIsReplaced() {
+        RaftReorderBuffer buffer = new RaftReorderBuffer(4);
+        buffer.put(1, action(1), 0);
+        // the log moved past index 1 without removing it, for example through a snapshot
+        Action replacement = action(5);
+        assertTrue(buffer.put(5, replacement, 4));
+        assertSame(replacement, buffer.get(5));
+        assertNull(buffer.get(1));
+    }
+
+    @Test
+    public void removeOnlyFreesTheSameEntry() {
+        RaftReorderBuffer buffer = new RaftReorderBuffer(4);
+        Action action = action(2);
+        buffer.put(2, action, 0);
+        buffer.remove(2, action(2));
+        assertSame(action, buffer.get(2));
+        buffer.remove(2, action);
+        assertNull(buffer.get(2));
+    }
+
+    @Test
+    public void discardFreesEntriesCoveredByASnapshot() {
+        RaftReorderBuffer buffer = new RaftReorderBuffer(4);
+        Action[] actions = new Action[7];
+        for (int i = 3; i < 7; i++) {
+            actions[i] = action(i);
+            buffer.put(i, actions[i], 3);
+        }
+        buffer.discardThrough(4);
+        assertNull(buffer.get(3));
+        assertNull(buffer.get(4));
+        assertSame(actions[5], buffer.get(5));
+        assertSame(actions[6], buffer.get(6));
+    }
+
+    private static Action action(int index) {
+        return new Action(MemberRef.of(0, "leader"), new byte[] {(byte) index});
+    }
+}
@@ -0,0 +1,274 @@
+package edu.oswego.cs.raft;
+
+import edu.oswego.cs.Packets.MemberRef;
+import edu.oswego.cs.game.Action;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+public class RaftWriteAheadLogTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+    private static final MemberRef AUTHOR = MemberRef.of(3, "alice");
+
+    private Path directory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("wal-test");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Test
+    public void recoversSyncedEntriesAndCommitIndex() throws IOException {
+        RaftWriteAheadLog wal = new RaftWriteAheadLog(directory, SEGMENT_SIZE);
+        wal.append(0, actions(0, 3));
+        wal.sync(1);
+        wal.writeMeta(4, "bob");
+
+        RaftWriteAheadLog recovered = new RaftWriteAheadLog(directory, SEGMENT_SIZE);
+        assertEquals(0, recovered.getRecoveredStartIndex());
+        assertEntries(recovered.getRecoveredEntries(), 0, 3);
+        assertEquals(1, recovered.getRecoveredCommitIndex());
+        assertEquals(4, recovered.getRecoveredTerm());
+        assertEquals("bob", recovered.getRecoveredVotedFor());
+        assertNull(recovered.getRecoveredSnapshot());
+    }
+
+    @Test
+    public void tornTailIsDropped() throws IOException {
+        RaftWriteAheadLog wal = new RaftWriteAheadLog(directory, SEGMENT_SIZE);
+        wal.append(0, actions(0, 3));
+        wal.sync(-1);
+        // the last record's length made it to disk but its payload didn't
+        int offset = find(entry(2));
+        writeAt(offset, new byte[entry(2).length]);
+
+        RaftWriteAheadLog recovered = new RaftWriteAheadLog(directory, SEGMENT_SIZE);
+        assertEntries(recovered.getRecoveredEntries(), 0, 2);
+    }
+
+    @Test
+    public void checksumMismatchDropsEverythingAfterIt() throws IOException {
+        RaftWriteAheadLog wal = new RaftWriteAheadLog(directory, SEGMENT_SIZE);
+        wal.append(0, actions(0, 4));
+        wal.sync(3);
+        int offset = find(entry(1));
+        writeAt(offset, new byte[] {(byte) ~entry(1)[0]});
+
+        RaftWriteAheadLog recovered = new RaftWriteAheadLog(directory, SEGMENT_SIZE);
+        assertEntries(recovered.getRecoveredEntries(), 0, 1);
+        // the commit record came after the corrupt entry
+        assertEquals(-1, recovered.getRecoveredCommitIndex());
+    }
+
+    @Test
+    public void appendsCarryOnAfterRecoveredTail() throws IOException {
+        RaftWriteAheadLog wal = new RaftWriteAheadLog(directory, SEGMENT_SIZE);
+        wal.append(0, actions(0, 2));
+        wal.sync(-1);
+        RaftWriteAheadLog reopened = new RaftWriteAheadLog(directory, SEGMENT_SIZE);
+        reopened.append(2, actions(2, 2));
+        reopened.sync(3);
+
+        RaftWriteAheadLog recovered = new RaftWriteAheadLog(directory, SEGMENT_SIZE);
+        assertEntries(recovered.getRecoveredEntries(), 0, 4);
+        assertEquals(3, recovered.getRecoveredCommitIndex());
+    }
+
+    @Test
+    public void entriesAfterSnapshotIndexJumpAreRecovered() throws IOException {
+        RaftWriteAheadLog wal = new RaftWriteAheadLog(directory, SEGMENT_SIZE);
+        wal.append(0, actions(0, 5));
+        wal.sync(4);
+        // an installed snapshot moves the log past entries this member never had
+        wal.writeSnapshot(new RaftSnapshot(9, new byte[] {1, 2, 3}));
+        wal.append(10, actions(10, 3));
+        wal.sync(11);
+
+        RaftWriteAheadLog recovered = new RaftWriteAheadLog(directory, SEGMENT_SIZE);
+        assertNotNull(recovered.getRecoveredSnapshot());
+        assertEquals(9, recovered.getRecoveredSnapshot().lastIncludedIndex);
+        assertArrayEquals(new byte[] {1, 2, 3}, recovered.getRecoveredSnapshot().state);
+        assertEquals(10, recovered.getRecoveredStartIndex());
+        assertEntries(recovered.getRecoveredEntries(), 10, 3);
+        assertEquals(11, recovered.getRecoveredCommitIndex());
+    }
+
+    @Test
+    public void entriesCoveredBySnapshotAreSkipped() throws IOException {
+        RaftWriteAheadLog wal = new RaftWriteAheadLog(directory, SEGMENT_SIZE);
+        wal.append(0, actions(0, 6));
+        wal.sync(5);
+        wal.writeSnapshot(new RaftSnapshot(3, new byte[0]));
+
+        RaftWriteAheadLog recovered = new RaftWriteAheadLog(directory, SEGMENT_SIZE);
+        assertEquals(4, recovered.getRecoveredStartIndex());
+        assertEntries(recovered.getRecoveredEntries(), 4, 2);
+        assertEquals(5, recovered.getRecoveredCommitIndex());
+    }
+
+    @Test
+    public void entriesNotStartingTheLogAreDropped() throws IOException {
+        RaftWriteAheadLog wal = new RaftWriteAheadLog(directory, SEGMENT_SIZE);
+        // no snapshot explains where these start
+        wal.append(10, actions(10, 2));
+        wal.sync(11);
+
+        RaftWriteAheadLog recovered = new RaftWriteAheadLog(directory, SEGMENT_SIZE);
+        assertEquals(-1, recovered.getRecoveredStartIndex());
+        assertEquals(0, recovered.getRecoveredEntries().size());
+        assertEquals(-1, recovered.getRecoveredCommitIndex());
+    }
+
+    @Test
+    public void commitIndexIsClampedToRecoveredEntries() throws IOException {
+        RaftWriteAheadLog wal = new RaftWriteAheadLog(directory, SEGMENT_SIZE);
+        wal.append(0, actions(0, 3));
+        wal.sync(7);
+
+        RaftWriteAheadLog recovered = new RaftWriteAheadLog(directory, SEGMENT_SIZE);
+        assertEquals(2, recovered.getRecoveredCommitIndex());
+    }
+
+    @Test
+    public void commitIndexIsClampedToSnapshotWithoutEntries() throws IOException {
+        RaftWriteAheadLog wal = new RaftWriteAheadLog(directory, SEGMENT_SIZE);
+        wal.append(0, actions(0, 2));
+        wal.sync(1);
+        wal.writeSnapshot(new RaftSnapshot(5, new byte[0]));
+        wal.sync(8);
+
+        RaftWriteAheadLog recovered = new RaftWriteAheadLog(directory, SEGMENT_SIZE);
+        assertEquals(-1, recovered.getRecoveredStartIndex());
+        assertEquals(5, recovered.getRecoveredCommitIndex());
+    }
+
+    @Test
+    public void recordsRollOverSegments() throws IOException {
+        RaftWriteAheadLog wal = new RaftWriteAheadLog(directory, 128);
+        for (int i = 0; i < 20; i++) {
+            wal.append(i, actions(i, 1));
+        }
+        wal.sync(19);
+
+        RaftWriteAheadLog recovered = new RaftWriteAheadLog(directory, 128);
+        assertEntries(recovered.getRecoveredEntries(), 0, 20);
+        assertEquals(19, recovered.getRecoveredCommitIndex());
+    }
+
+    @Test
+    public void recordLargerThanSegmentGetsItsOwnSegment() throws IOException {
+        RaftWriteAheadLog wal = new RaftWriteAheadLog(directory, 128);
+        byte[] large = new byte[1000];
+        Arrays.fill(large, (byte) 7);
+        wal.append(0, actions(0, 1));
+        wal.append(1, List.of(new Action(AUTHOR, large)));
+        wal.append(2, actions(2, 1));
+        wal.sync(2);
+
+        RaftWriteAheadLog recovered = new RaftWriteAheadLog(directory, 128);
+        List<Action> entries = recovered.getRecoveredEntries();
+        assertEquals(3, entries.size());
+        assertArrayEquals(large, entries.get(1).getEntry());
+        assertArrayEquals(entry(2), entries.get(2).getEntry());
+        assertEquals(2, recovered.getRecoveredCommitIndex());
+    }
+
+    @Test
+    public void failedWriteFailsEveryLaterAppendAndSync() throws IOException {
+        RaftWriteAheadLog wal = new RaftWriteAheadLog(directory, 128);
+        // the next segment can't be created
+        Files.createDirectory(directory.resolve(String.format("%020d.wal", 1)));
+        assertThrows(IOException.class, () -> wal.append(0, actions(0, 20)));
+        assertThrows(IOException.class, () -> wal.append(20, actions(20, 1)));
+        assertThrows(IOException.class, () -> wal.sync(0));
+        assertThrows(IOException.class, () -> wal.writeMeta(3, "bob"));
+    }
+
+    @Test
+    public void failedTermAndVoteWriteKeepsThePreviousOneAndFailsLaterWrites() throws IOException {
+        RaftWriteAheadLog wal = new RaftWriteAheadLog(directory, 4096);
+        wal.writeMeta(2, "alice");
+        // the temporary file the meta file is replaced from can't be created
+        Files.createDirectory(directory.resolve("meta.tmp"));
+        assertThrows(IOException.class, () -> wal.writeMeta(3, "bob"));
+        assertThrows(IOException.class, () -> wal.append(0, actions(0, 1)));
+        assertThrows(IOException.class, () -> wal.sync(0));
+        Files.delete(directory.resolve("meta.tmp"));
+        assertThrows(IOException.class, () -> wal.writeMeta(3, "bob"));
+
+        RaftWriteAheadLog recovered = new RaftWriteAheadLog(directory, 4096);
+        assertEquals(2, recovered.getRecoveredTerm());
+        assertEquals("alice", recovered.getRecoveredVotedFor());
+    }
+
+    private static byte[] entry(int index) {
+        return new byte[] {0x5A, 0x3C, 0x5A, (byte) index, 0x3C};
+    }
+
+    private static List<Action> actions(int startIndex, int count) {
+        List<Action> actions = new ArrayList<>();
+        for (int i = startIndex; i < startIndex + count; i++) {
+            actions.add(new Action(AUTHOR, entry(i)));
+        }
+        return actions;
+    }
+
+    private static void assertEntries(List<Action> entries, int startIndex, int count) {
+        assertEquals(count, entries.size());
+        for (int i = 0; i < count; i++) {
+            Action action = entries.get(i);
+            assertArrayEquals(entry(startIndex + i), action.getEntry());
+            assertEquals(AUTHOR.id, action.getAuthorId());
+        }
+    }
+
+    private Path firstSegment() {
+        return directory.resolve(String.format("%020d.wal", 0));
+    }
+
+    private int find(byte[] bytes) throws IOException {
+        byte[] contents = Files.readAllBytes(firstSegment());
+        outer:
+        for (int i = 0; i <= contents.length - bytes.length; i++) {
+            for (int j = 0; j < bytes.length; j++) {
+                if (contents[i + j] != bytes[j]) continue outer;
+            }
+            return i;
+        }
+        throw new AssertionError("The bytes are not in the segment.");
+    }
+
+    private void writeAt(int offset, byte[] bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(firstSegment(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes), offset);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package edu.oswego.cs.sim;
+
+import edu.oswego.cs.loadgen.CommandMix;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ClusterSimulatorTest {
+
+    static {
+        // tracing only slows the runs down, it has to be off before raft reads its configuration
+        if (System.getProperty("raft.trace.sampleEvery") == null) {
+            System.setProperty("raft.trace.sampleEvery", "0");
+        }
+    }
+
+    private static final long ELECTION_BOUND_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private static final long CATCH_UP_BOUND_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private static final long PARTITION_NANOS = TimeUnit.MILLISECONDS.toNanos(150);
+
+    @Test
+    public void electsANewLeaderEveryTimeTheLeaderIsCutOff() throws IOException {
+        ClusterSimulator simulator = simulator(5, 1, 0.01);
+        assertTrue(simulator.formGroup());
+        simulator.startLoad(200);
+        simulator.measureThroughput(200, 1);
+        for (int round = 1; round <= 2; round++) {
+            assertElected(simulator.measureElection(round));
+        }
+    }
+
+    @Test
+    public void electsALeaderAfterThreeOfSevenLeadersAreCutOffUnderLoss() throws IOException {
+        ClusterSimulator simulator = simulator(7, 3, 0.05);
+        assertTrue(simulator.formGroup());
+        simulator.startLoad(2000);
+        simulator.measureThroughput(2000, 2);
+        for (int round = 1; round <= 3; round++) {
+            assertElected(simulator.measureElection(round));
+        }
+        simulator.stopLoad();
+        assertTrue(simulator.awaitAllCommitted());
+    }
+
+    @Test
+    public void commitsEverySubmittedCommandWithoutFaults() throws IOException {
+        ClusterSimulator simulator = ClusterSimulator.create(5, 2, 0, 0, 0, TimeUnit.MILLISECONDS.toNanos(1),
+                TimeUnit.MILLISECONDS.toNanos(5), CommandMix.parse(CommandMix.DEFAULT));
+        assertTrue(simulator.formGroup());
+        int firstCommitIndex = simulator.getHighestCommitIndex();
+        simulator.startLoad(500);
+        simulator.measureThroughput(500, 2);
+        simulator.stopLoad();
+        assertTrue(simulator.awaitAllCommitted());
+        assertEquals(simulator.getCommandsSubmitted(), simulator.getHighestCommitIndex() - firstCommitIndex);
+    }
+
+    @Test
+    public void commitsEveryEntryOnEveryMemberAfterAnElectionUnderLoss() throws IOException {
+        ClusterSimulator simulator = simulator(5, 4, 0.05);
+        assertTrue(simulator.formGroup());
+        simulator.startLoad(500);
+        simulator.measureThroughput(500, 2);
+        assertElected(simulator.measureElection(1));
+        simulator.measureThroughput(500, 1);
+        simulator.stopLoad();
+        assertTrue(simulator.awaitAllCommitted());
+    }
+
+    @Test
+    public void partitionedFollowerCatchesUp() throws IOException {
+        ClusterSimulator simulator = simulator(5, 5, 0.01);
+        assertTrue(simulator.formGroup());
+        simulator.startLoad(500);
+        simulator.measureThroughput(500, 1);
+        assertCaughtUp(simulator.measurePartitionCatchUp(PARTITION_NANOS));
+    }
+
+    @Test
+    public void lateJoinerCatchesUp() throws IOException {
+        ClusterSimulator simulator = simulator(5, 6, 0.01);
+        assertTrue(simulator.formGroup());
+        simulator.startLoad(500);
+        simulator.measureThroughput(500, 2);
+        assertCaughtUp(simulator.measureJoinCatchUp());
+    }
+
+    @Test
+    public void sameSeedGivesTheSameFingerprint() throws IOException {
+        long fingerprint = runFullScenario(7);
+        assertEquals(fingerprint, runFullScenario(7));
+        assertNotEquals(fingerprint, runFullScenario(8));
+    }
+
+    private static long runFullScenario(long seed) throws IOException {
+        ClusterSimulator simulator = simulator(5, seed, 0.02);
+        assertTrue(simulator.formGroup());
+        simulator.startLoad(300);
+        simulator.measureThroughput(300, 1);
+        assertElected(simulator.measureElection(1));
+        assertCaughtUp(simulator.measurePartitionCatchUp(PARTITION_NANOS));
+        assertCaughtUp(simulator.measureJoinCatchUp());
+        simulator.stopLoad();
+        assertTrue(simulator.awaitAllCommitted());
+        return simulator.fingerprint();
+    }
+
+    private static ClusterSimulator simulator(int nodeCount, long seed, double lossRate) throws IOException {
+        return ClusterSimulator.create(nodeCount, seed, lossRate, 0.01, 0.05, TimeUnit.MILLISECONDS.toNanos(1),
+                TimeUnit.MILLISECONDS.toNanos(5), CommandMix.parse(CommandMix.DEFAULT));
+    }
+
+    private static void assertElected(long electionNanos) {
+        assertTrue("no leader was elected", electionNanos >= 0);
+        assertTrue("the election took " + electionNanos / 1_000_000 + " ms", electionNanos <= ELECTION_BOUND_NANOS);
+    }
+
+    private static void assertCaughtUp(long catchUpNanos) {
+        assertTrue("the member didn't catch up", catchUpNanos >= 0);
+        assertTrue("catching up took " + catchUpNanos / 1_000_000 + " ms", catchUpNanos <= CATCH_UP_BOUND_NANOS);
+    }
+}